@@ -0,0 +1,131 @@
+package com.todo.benchmark;
+
+import com.todo.model.Todo;
+import com.todo.service.TodoAsyncService;
+import com.todo.service.TodoExecutors;
+import com.todo.service.TodoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AsyncServiceLoadBenchmark - Many concurrent requests, blocking vs async
+ * 
+ * One benchmark operation = concurrentRequests getTodoById calls that are all
+ * in flight at the same time, then waiting for all of them:
+ * - blockingPlatformThreads: each request holds a platform thread of a fixed
+ * pool (platformThreads) for its whole duration, like a thread-per-request
+ * server
+ * - asyncVirtualThreads: TodoAsyncService (one virtual thread per request on
+ * Java 21+, database concurrency limited to db.maxTotal)
+ * 
+ * Run on Java 21 to measure virtual threads (on Java 17 the async service
+ * falls back to platform threads). Database throughput is still limited by
+ * the connection pool, so the gain shows when requests far outnumber threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AsyncServiceLoadBenchmark {
+
+    private static final int TABLE_SIZE = 10_000;
+
+    @Param({ "100", "1000", "10000" })
+    private int concurrentRequests;
+
+    @Param({ "50" })
+    private int platformThreads;
+
+    private ClassPathXmlApplicationContext context;
+    private TodoService service;
+    private TodoAsyncService asyncService;
+    private ExecutorService platformPool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("db.driver", "org.h2.Driver");
+        System.setProperty("db.url", BenchmarkDatabase.url());
+        System.setProperty("db.username", "sa");
+        System.setProperty("db.password", "");
+        System.setProperty("db.connectionProperties", "");
+        System.setProperty("cache.maxSize", "0");
+        System.setProperty("todo.log.level", "WARN");
+
+        context = new ClassPathXmlApplicationContext("applicationContext.xml");
+        new ResourceDatabasePopulator(new ClassPathResource("benchmark-schema.sql"))
+                .execute(context.getBean("dataSource", DataSource.class));
+
+        service = context.getBean(TodoService.class);
+        asyncService = context.getBean(TodoAsyncService.class);
+        platformPool = Executors.newFixedThreadPool(platformThreads);
+
+        List<Todo> todos = new ArrayList<>(TABLE_SIZE);
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            todos.add(BenchmarkDatabase.newTodo(i, false));
+        }
+        service.addTodos(todos);
+        System.out.println("Virtual threads available: " + TodoExecutors.virtualThreadsAvailable());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        platformPool.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    public int blockingPlatformThreads() throws Exception {
+        List<Future<Todo>> futures = new ArrayList<>(concurrentRequests);
+        for (int i = 0; i < concurrentRequests; i++) {
+            futures.add(platformPool.submit(() -> service.getTodoById(randomId())));
+        }
+        int found = 0;
+        for (Future<Todo> future : futures) {
+            found += future.get() == null ? 0 : 1;
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int asyncVirtualThreads() {
+        List<CompletableFuture<Todo>> futures = new ArrayList<>(concurrentRequests);
+        for (int i = 0; i < concurrentRequests; i++) {
+            futures.add(asyncService.getTodoByIdAsync(randomId()));
+        }
+        int found = 0;
+        for (CompletableFuture<Todo> future : futures) {
+            found += future.join() == null ? 0 : 1;
+        }
+        return found;
+    }
+
+    private static int randomId() {
+        return ThreadLocalRandom.current().nextInt(TABLE_SIZE) + 1;
+    }
+}
@@ -0,0 +1,99 @@
+package com.todo.benchmark;
+
+import com.todo.dao.TodoDAOImpl;
+import com.todo.model.Todo;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * BenchmarkDatabase - Embedded database used by the JMH benchmarks
+ * 
+ * Each instance is a fresh, private H2 in-memory database in MySQL mode,
+ * with the todos table created from benchmark-schema.sql.
+ * A DBCP2 pool is used, like in applicationContext.xml, so connection
+ * handling costs are part of the measurements.
+ */
+public class BenchmarkDatabase implements AutoCloseable {
+
+    private final BasicDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public BenchmarkDatabase() {
+        dataSource = new BasicDataSource();
+        dataSource.setDriverClassName("org.h2.Driver");
+        dataSource.setUrl(url());
+        dataSource.setUsername("sa");
+        dataSource.setPassword("");
+        dataSource.setInitialSize(5);
+        dataSource.setMaxTotal(10);
+
+        new ResourceDatabasePopulator(new ClassPathResource("benchmark-schema.sql")).execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * @return A JDBC url for a new, uniquely named in-memory database
+     */
+    public static String url() {
+        return "jdbc:h2:mem:bench-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+    }
+
+    public BasicDataSource getDataSource() {
+        return dataSource;
+    }
+
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    /**
+     * @return A TodoDAOImpl connected to this database
+     */
+    public TodoDAOImpl newDao() {
+        return new TodoDAOImpl(jdbcTemplate);
+    }
+
+    /**
+     * Fill the table with generated todos
+     * 
+     * @param rows              - Number of todos to insert
+     * @param completedPercent  - Percentage of todos marked as completed (0-100)
+     */
+    public void populate(int rows, int completedPercent) {
+        TodoDAOImpl dao = newDao();
+        List<Todo> todos = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            todos.add(newTodo(i, i % 100 < completedPercent));
+        }
+        dao.createAll(todos);
+    }
+
+    /**
+     * Remove all todos and reset the id sequence
+     */
+    public void truncate() {
+        jdbcTemplate.execute("TRUNCATE TABLE todos RESTART IDENTITY");
+    }
+
+    /**
+     * Create a todo with realistic field sizes
+     */
+    public static Todo newTodo(int n, boolean completed) {
+        return new Todo("Todo number " + n,
+                "Description of todo number " + n + " with some extra text to make the row realistic",
+                completed);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        jdbcTemplate.execute("SHUTDOWN");
+        dataSource.close();
+    }
+}
@@ -0,0 +1,62 @@
+package com.todo.benchmark;
+
+import com.todo.config.TodoApplicationContexts;
+import com.todo.service.TodoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ContextStartupBenchmark - Cold start time of the Spring context
+ * 
+ * Creates the context in a fresh JVM and gets the TodoService from it, for
+ * each way of defining it (see TodoApplicationContexts):
+ * - xml: applicationContext.xml with classpath scanning
+ * - java: AppConfig
+ * - aot: code generated from AppConfig at build time
+ * 
+ * Only the first start of a JVM is interesting (class loading, reflection,
+ * configuration parsing), so every fork measures exactly one start:
+ * mvn -Paot,benchmark process-classes exec:exec@run-benchmarks -Djmh.args="ContextStartup"
+ * 
+ * ("aot" fails if the -Paot build step was skipped)
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(10)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class ContextStartupBenchmark {
+
+    @Param({"xml", "java", "aot"})
+    public String context;
+
+    @Setup
+    public void setUp() {
+        // System properties override database.properties / todo.properties
+        System.setProperty("db.driver", "org.h2.Driver");
+        System.setProperty("db.url", BenchmarkDatabase.url());
+        System.setProperty("db.username", "sa");
+        System.setProperty("db.password", "");
+        System.setProperty("db.connectionProperties", "");
+    }
+
+    @Benchmark
+    public TodoService startContext() {
+        try (ConfigurableApplicationContext applicationContext = TodoApplicationContexts.create(context)) {
+            return applicationContext.getBean(TodoService.class);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.todo.benchmark;
+
+import com.todo.dao.InMemoryTodoDAO;
+import com.todo.dao.TodoDAO;
+import com.todo.model.Todo;
+import com.todo.model.TodoSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TodoReadBenchmark - Read paths of the storage engines at various table sizes
+ * 
+ * - engine=jdbc: TodoDAOImpl on the embedded database
+ * - engine=memory: InMemoryTodoDAO (profile "in-memory")
+ * 
+ * - findAll: reads and maps (TodoRowMapper) every row of the table
+ * - findSummaries: the same rows as findAll, projected to id, title and
+ * completed (no description)
+ * - findById: primary key lookup of a random existing id
+ * - findPage: keyset page of 100 rows starting at a random id
+ * 
+ * Run with -prof gc to see the allocation rate of the row mapping.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TodoReadBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    private int tableSize;
+
+    @Param({ "jdbc", "memory" })
+    private String engine;
+
+    private BenchmarkDatabase database;
+    private TodoDAO dao;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (engine.equals("memory")) {
+            List<Todo> todos = new ArrayList<>(tableSize);
+            for (int i = 0; i < tableSize; i++) {
+                todos.add(BenchmarkDatabase.newTodo(i, i % 2 == 0));
+            }
+            dao = new InMemoryTodoDAO();
+            dao.createAll(todos);
+        } else {
+            database = new BenchmarkDatabase();
+            database.populate(tableSize, 50);
+            dao = database.newDao();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    @Benchmark
+    public List<Todo> findAll() {
+        return dao.findAll();
+    }
+
+    @Benchmark
+    public List<TodoSummary> findSummaries() {
+        return dao.findSummaries();
+    }
+
+    @Benchmark
+    public Todo findById() {
+        return dao.findById(ThreadLocalRandom.current().nextInt(tableSize) + 1);
+    }
+
+    @Benchmark
+    public List<Todo> findPage() {
+        return dao.findPage(ThreadLocalRandom.current().nextInt(tableSize), 100);
+    }
+}
@@ -0,0 +1,61 @@
+package com.todo.benchmark;
+
+import com.todo.dao.TodoDAOImpl;
+import com.todo.model.Todo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TodoSelectivityBenchmark - findByCompleted() at various selectivities
+ * 
+ * The table always has the same number of rows; completedPercent controls
+ * how many of them match findByCompleted(true).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TodoSelectivityBenchmark {
+
+    @Param({ "50000" })
+    private int tableSize;
+
+    @Param({ "1", "10", "50", "90" })
+    private int completedPercent;
+
+    private BenchmarkDatabase database;
+    private TodoDAOImpl dao;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        database.populate(tableSize, completedPercent);
+        dao = database.newDao();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Todo> findCompleted() {
+        return dao.findByCompleted(true);
+    }
+}
@@ -0,0 +1,124 @@
+package com.todo.benchmark;
+
+import com.todo.dao.TodoDAO;
+import com.todo.model.Todo;
+import com.todo.service.TodoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TodoServiceProxyBenchmark - Cost of the @Transactional service proxy
+ * 
+ * Loads the real applicationContext.xml (pointed at an embedded database)
+ * and compares the same operation called:
+ * - directly on the todoDAOImpl bean (no transaction)
+ * - through the TodoService proxy (begin/commit around every call)
+ * 
+ * The DAO cache is disabled (cache.maxSize=0) so every call reaches the
+ * database. The updates pass the current version of each row (tracked in
+ * versions[]) so they never fail with a version conflict.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TodoServiceProxyBenchmark {
+
+    private static final int TABLE_SIZE = 10_000;
+
+    private ClassPathXmlApplicationContext context;
+    private TodoDAO dao;
+    private TodoService service;
+
+    /**
+     * Current version of each todo, by id (benchmarks run single-threaded)
+     */
+    private final int[] versions = new int[TABLE_SIZE + 1];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // System properties override database.properties / todo.properties
+        System.setProperty("db.driver", "org.h2.Driver");
+        System.setProperty("db.url", BenchmarkDatabase.url());
+        System.setProperty("db.username", "sa");
+        System.setProperty("db.password", "");
+        System.setProperty("db.connectionProperties", "");
+        System.setProperty("cache.maxSize", "0");
+
+        context = new ClassPathXmlApplicationContext("applicationContext.xml");
+        new ResourceDatabasePopulator(new ClassPathResource("benchmark-schema.sql"))
+                .execute(context.getBean("dataSource", DataSource.class));
+
+        dao = context.getBean("todoDAOImpl", TodoDAO.class);
+        service = context.getBean(TodoService.class);
+        for (int i = 0; i < TABLE_SIZE; i += 1000) {
+            List<Todo> chunk = new ArrayList<>();
+            for (int j = i; j < i + 1000; j++) {
+                chunk.add(BenchmarkDatabase.newTodo(j, false));
+            }
+            dao.createAll(chunk);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Todo daoFindById() {
+        return dao.findById(randomId());
+    }
+
+    @Benchmark
+    public Todo serviceGetTodoById() {
+        return service.getTodoById(randomId());
+    }
+
+    @Benchmark
+    public int daoUpdate() {
+        Todo todo = changedTodo();
+        int updated = dao.update(todo);
+        versions[todo.getId()] = todo.getVersion();
+        return updated;
+    }
+
+    @Benchmark
+    public void serviceUpdateTodo() {
+        Todo todo = changedTodo();
+        service.updateTodo(todo);
+        versions[todo.getId()] = todo.getVersion();
+    }
+
+    private Todo changedTodo() {
+        Todo todo = BenchmarkDatabase.newTodo(0, false);
+        todo.setId(randomId());
+        todo.setVersion(versions[todo.getId()]);
+        return todo;
+    }
+
+    private static int randomId() {
+        return ThreadLocalRandom.current().nextInt(TABLE_SIZE) + 1;
+    }
+}
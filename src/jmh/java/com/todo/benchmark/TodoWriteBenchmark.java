@@ -0,0 +1,78 @@
+package com.todo.benchmark;
+
+import com.todo.dao.TodoDAOImpl;
+import com.todo.model.Todo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TodoWriteBenchmark - Single inserts vs JDBC batch inserts
+ * 
+ * Both benchmarks insert the same number of todos (rows) per invocation:
+ * - singleCreates: one create() call (one INSERT round-trip) per todo
+ * - batchCreateAll: one createAll() call (JDBC batches)
+ * 
+ * Compare the ops/s of the two methods for the same rows value.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TodoWriteBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    private int rows;
+
+    private BenchmarkDatabase database;
+    private TodoDAOImpl dao;
+    private List<Todo> todos;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        dao = database.newDao();
+        todos = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            todos.add(BenchmarkDatabase.newTodo(i, false));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void emptyTable() {
+        database.truncate();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Benchmark
+    public void singleCreates() {
+        for (Todo todo : todos) {
+            dao.create(todo);
+        }
+    }
+
+    @Benchmark
+    public List<Integer> batchCreateAll() {
+        return dao.createAll(todos);
+    }
+}
@@ -0,0 +1,29 @@
+-- ========================================
+-- Benchmark Schema (H2 in MySQL mode)
+-- ========================================
+
+-- Same table as src/main/resources/schema.sql, without the
+-- CREATE DATABASE / USE statements that H2 does not need
+
+CREATE TABLE IF NOT EXISTS todos (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    title VARCHAR(255) NOT NULL,
+    description TEXT,
+    completed BOOLEAN DEFAULT FALSE,
+    version INT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3),
+    updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)
+);
+
+CREATE INDEX IF NOT EXISTS idx_todos_completed_id ON todos (completed, id);
+CREATE INDEX IF NOT EXISTS idx_todos_updated_at ON todos (updated_at);
+
+-- Tombstones of deleted todos (change feed). H2 triggers are Java classes,
+-- so the todos_after_delete trigger of schema.sql is left out here: deletes
+-- in the benchmarks do not write tombstones
+CREATE TABLE IF NOT EXISTS todo_tombstones (
+    id INT PRIMARY KEY,
+    deleted_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)
+);
+
+CREATE INDEX IF NOT EXISTS idx_tombstones_deleted_at ON todo_tombstones (deleted_at);
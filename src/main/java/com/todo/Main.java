@@ -1,9 +1,11 @@
 package com.todo;
 
+import com.todo.config.TodoApplicationContexts;
+import com.todo.logging.AsyncLogger;
 import com.todo.model.Todo;
+import com.todo.model.TodoSummary;
 import com.todo.service.TodoService;
-import org.springframework.context.ApplicationContext;
-import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
 
 import java.util.List;
 
@@ -46,9 +48,13 @@ public class Main {
          * 5. Creates TodoDAOImpl bean (injecting JdbcTemplate)
          * 6. Creates TodoServiceImpl bean (injecting TodoDAO)
          * 7. Sets up transaction manager
+         *
+         * The same beans can be loaded faster with -Dtodo.context=java
+         * (AppConfig, no XML and no scanning) or -Dtodo.context=aot (code
+         * generated at build time), see TodoApplicationContexts
          */
         System.out.println("Loading Spring Application Context...");
-        ApplicationContext context = new ClassPathXmlApplicationContext("applicationContext.xml");
+        ConfigurableApplicationContext context = TodoApplicationContexts.create();
         System.out.println("✓ Spring Context loaded successfully!\n");
 
         // ========== STEP 2: GET SERVICE BEAN FROM SPRING ==========
@@ -90,6 +96,7 @@ public class Main {
         Todo todo3 = new Todo("Practice JDBC", "Learn JdbcTemplate operations", true);
         todoService.addTodo(todo3);
 
+        AsyncLogger.flush(); // Service log lines are written by a background thread
         System.out.println();
 
         // ========== READ - Get all todos ==========
@@ -110,12 +117,12 @@ public class Main {
         // ========== READ - Get todo by ID ==========
 
         System.out.println("--- READ Operation (Get by ID) ---");
-        // Assuming the first todo has ID 1 (adjust if needed)
-        Todo foundTodo = todoService.getTodoById(1);
+        // addTodo() set the id generated by the database on todo1
+        Todo foundTodo = todoService.getTodoById(todo1.getId());
         if (foundTodo != null) {
             System.out.println("Found todo: " + foundTodo);
         } else {
-            System.out.println("Todo with ID 1 not found");
+            System.out.println("Todo with ID " + todo1.getId() + " not found");
         }
         System.out.println();
 
@@ -132,23 +139,21 @@ public class Main {
             Todo updatedTodo = todoService.getTodoById(foundTodo.getId());
             System.out.println("After update: " + updatedTodo);
         }
+        AsyncLogger.flush(); // Service log lines are written by a background thread
         System.out.println();
 
         // ========== CUSTOM QUERY - Get todos by status ==========
 
         System.out.println("--- Custom Query (Get by Status) ---");
 
-        // Get completed todos
-        List<Todo> completedTodos = todoService.getTodosByStatus(true);
-        System.out.println("Completed todos: " + completedTodos.size());
-        for (Todo todo : completedTodos) {
-            System.out.println("  ✓ " + todo.getTitle());
-        }
+        // Count todos by status (the database counts, no rows are transferred)
+        System.out.println("Total todos: " + todoService.countAllTodos());
+        System.out.println("Completed todos: " + todoService.countTodosByStatus(true));
+        System.out.println("Incomplete todos: " + todoService.countTodosByStatus(false));
 
-        // Get incomplete todos
-        List<Todo> incompleteTodos = todoService.getTodosByStatus(false);
-        System.out.println("Incomplete todos: " + incompleteTodos.size());
-        for (Todo todo : incompleteTodos) {
+        // Get incomplete todos (summaries: only id, title and status are read)
+        List<TodoSummary> incompleteTodos = todoService.getTodoSummariesByStatus(false);
+        for (TodoSummary todo : incompleteTodos) {
             System.out.println("  ○ " + todo.getTitle());
         }
         System.out.println();
@@ -165,6 +170,7 @@ public class Main {
                 }
             }
         }
+        AsyncLogger.flush(); // Service log lines are written by a background thread
         System.out.println();
 
         // ========== DELETE - Remove a todo ==========
@@ -175,14 +181,15 @@ public class Main {
             Todo todoToDelete = allTodos.get(allTodos.size() - 1);
             todoService.deleteTodo(todoToDelete.getId());
         }
+        AsyncLogger.flush(); // Service log lines are written by a background thread
         System.out.println();
 
         // ========== FINAL STATE - Show remaining todos ==========
 
         System.out.println("--- Final State (All Remaining Todos) ---");
-        List<Todo> finalTodos = todoService.getAllTodos();
+        List<TodoSummary> finalTodos = todoService.getTodoSummaries();
         System.out.println("Total todos: " + finalTodos.size());
-        for (Todo todo : finalTodos) {
+        for (TodoSummary todo : finalTodos) {
             String status = todo.isCompleted() ? "✓" : "○";
             System.out.println(status + " " + todo.getTitle());
         }
@@ -200,6 +207,6 @@ public class Main {
          * - Close database connections
          * - Release resources
          */
-        ((ClassPathXmlApplicationContext) context).close();
+        context.close();
     }
 }
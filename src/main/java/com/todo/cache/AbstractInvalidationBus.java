@@ -0,0 +1,291 @@
+package com.todo.cache;
+
+import com.todo.logging.AsyncLogger;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AbstractInvalidationBus - Batching shared by the InvalidationBus
+ * implementations
+ *
+ * How it works:
+ * 1. publish() adds the ids to a pending set (an id changed several times
+ * in a row is sent once)
+ * 2. A background thread sends the pending ids every flushIntervalMillis,
+ * or earlier when maxBatchSize ids are pending
+ * 3. The subclass transports each batch (send()) to the other nodes, which
+ * hand it to their listeners (deliver())
+ *
+ * Writers never wait for the other nodes: publish() only adds to the set.
+ * The price is that other nodes may serve the old todo for up to
+ * flushIntervalMillis (plus the network time) after the commit.
+ */
+public abstract class AbstractInvalidationBus implements InvalidationBus {
+
+    private static final AsyncLogger log = AsyncLogger.getLogger(AbstractInvalidationBus.class);
+
+    private final long flushIntervalMillis;
+    private final int maxBatchSize;
+
+    private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Ids published but not sent yet (guarded by lock)
+     */
+    private Set<Integer> pending = new LinkedHashSet<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled when a batch should be sent early (maxBatchSize reached, close())
+     */
+    private final Condition flushRequested = lock.newCondition();
+
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    // ========== STATISTICS ==========
+
+    private final LongAdder publishedIds = new LongAdder();
+    private final LongAdder sentBatches = new LongAdder();
+    private final LongAdder receivedBatches = new LongAdder();
+
+    /**
+     * @param threadName          - Name of the background thread
+     * @param flushIntervalMillis - Maximum time an id waits before it is sent
+     * @param maxBatchSize        - Ids that trigger an early send (and the
+     *                            maximum number of ids per batch)
+     */
+    protected AbstractInvalidationBus(String threadName, long flushIntervalMillis, int maxBatchSize) {
+        if (flushIntervalMillis <= 0 || maxBatchSize <= 0) {
+            throw new IllegalArgumentException(
+                    "Invalidation bus needs flushIntervalMillis > 0 and maxBatchSize > 0");
+        }
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.flusher = new Thread(this::flushLoop, threadName);
+        this.flusher.setDaemon(true);
+    }
+
+    /**
+     * Start the background thread (called by the subclass constructor once
+     * its transport is ready)
+     */
+    protected final void start() {
+        flusher.start();
+    }
+
+    // ========== PUBLISHING ==========
+
+    @Override
+    public void publish(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            pending.addAll(ids);
+            if (pending.size() >= maxBatchSize) {
+                flushRequested.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        publishedIds.add(ids.size());
+    }
+
+    @Override
+    public void subscribe(InvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    private void flushLoop() {
+        while (running) {
+            lock.lock();
+            try {
+                if (running && pending.size() < maxBatchSize) {
+                    flushRequested.await(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            flush();
+            try {
+                maintain();
+            } catch (RuntimeException e) {
+                log.warn("Invalidation bus maintenance failed: {}", e.toString());
+            }
+        }
+    }
+
+    /**
+     * Send everything pending, in batches of at most maxBatchSize ids
+     */
+    private void flush() {
+        Set<Integer> batch;
+        lock.lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashSet<>();
+        } finally {
+            lock.unlock();
+        }
+
+        int[] ids = new int[Math.min(batch.size(), maxBatchSize)];
+        int count = 0;
+        for (Integer id : batch) {
+            ids[count++] = id;
+            if (count == ids.length) {
+                sendBatch(ids, count);
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            sendBatch(ids, count);
+        }
+    }
+
+    private void sendBatch(int[] ids, int count) {
+        try {
+            send(ids, count);
+            sentBatches.increment();
+        } catch (IOException | RuntimeException e) {
+            // Nodes that missed the batch are told to invalidate everything
+            // once they are reachable again (see SocketInvalidationBus)
+            log.warn("Sending {} invalidations failed: {}", count, e.toString());
+        }
+    }
+
+    // ========== TRANSPORT (SUBCLASSES) ==========
+
+    /**
+     * Transport one batch to the other nodes (called by the background thread)
+     *
+     * @param ids   - The ids (only the first count are valid; the array is
+     *              reused after the call)
+     * @param count - Number of ids
+     */
+    protected abstract void send(int[] ids, int count) throws IOException;
+
+    /**
+     * Called by the background thread after every interval, e.g. to
+     * reconnect (does nothing by default)
+     */
+    protected void maintain() {
+    }
+
+    /**
+     * Hand a batch received from another node to the listeners
+     */
+    protected void deliver(int[] ids, int count) {
+        receivedBatches.increment();
+        List<Integer> view = new IdList(Arrays.copyOf(ids, count), count);
+        for (InvalidationListener listener : listeners) {
+            listener.onInvalidate(view);
+        }
+    }
+
+    /**
+     * Tell the listeners that invalidations may have been lost
+     */
+    protected void deliverInvalidateAll() {
+        receivedBatches.increment();
+        for (InvalidationListener listener : listeners) {
+            listener.onInvalidateAll();
+        }
+    }
+
+    /**
+     * Release the transport (called by close() after the last batch was sent)
+     */
+    protected void closeTransport() {
+    }
+
+    /**
+     * Send what is still pending, stop the background thread and close the
+     * transport (called by Spring when the context is closed, see
+     * destroy-method)
+     */
+    public void close() throws InterruptedException {
+        lock.lock();
+        try {
+            running = false;
+            flushRequested.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (flusher.isAlive()) {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        flush();
+        closeTransport();
+    }
+
+    // ========== STATISTICS ==========
+
+    /**
+     * @return Number of ids passed to publish()
+     */
+    public long getPublishedIdCount() {
+        return publishedIds.sum();
+    }
+
+    /**
+     * @return Number of batches sent to the other nodes
+     */
+    public long getSentBatchCount() {
+        return sentBatches.sum();
+    }
+
+    /**
+     * @return Number of batches received from the other nodes
+     */
+    public long getReceivedBatchCount() {
+        return receivedBatches.sum();
+    }
+
+    /**
+     * Read-only List view of the first count ids of an array (no boxing of
+     * the whole batch up front)
+     */
+    private static final class IdList extends AbstractList<Integer> {
+
+        private final int[] ids;
+        private final int count;
+
+        private IdList(int[] ids, int count) {
+            this.ids = ids;
+            this.count = count;
+        }
+
+        @Override
+        public Integer get(int index) {
+            if (index >= count) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return ids[index];
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.todo.cache;
+
+import java.util.Collection;
+
+/**
+ * InvalidationBus - Tells the caches of the other nodes which todos changed
+ *
+ * Every node (application instance) keeps its own cache of todos (see
+ * CachingTodoDAO). A write on one node makes the cached copies on the other
+ * nodes stale; the writing node publishes the ids after its transaction
+ * commits, and the bus delivers them to the listeners of all other nodes.
+ *
+ * Implementations:
+ * - LoopbackInvalidationBus: nodes in the same JVM
+ * - SocketInvalidationBus: nodes connected over TCP
+ *
+ * Delivery is asynchronous: ids are collected for a few milliseconds and
+ * sent in batches (see AbstractInvalidationBus).
+ */
+public interface InvalidationBus {
+
+    /**
+     * Send the ids to the other nodes (returns without waiting)
+     *
+     * @param ids - Ids of todos that were created, changed or deleted
+     */
+    void publish(Collection<Integer> ids);
+
+    /**
+     * Receive the invalidations published by the other nodes
+     *
+     * @param listener - Called for every received batch
+     */
+    void subscribe(InvalidationListener listener);
+}
@@ -0,0 +1,23 @@
+package com.todo.cache;
+
+import java.util.Collection;
+
+/**
+ * InvalidationListener - Receives the invalidations of the other nodes
+ *
+ * Called by an InvalidationBus on its own thread, so implementations must be
+ * thread-safe and should return quickly.
+ */
+public interface InvalidationListener {
+
+    /**
+     * The todos with these ids were changed or deleted on another node
+     */
+    void onInvalidate(Collection<Integer> ids);
+
+    /**
+     * Invalidations of another node may have been lost (e.g. the connection
+     * was interrupted): everything cached may be stale
+     */
+    void onInvalidateAll();
+}
@@ -0,0 +1,106 @@
+package com.todo.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * InvalidationProtocol - Wire format of SocketInvalidationBus
+ *
+ * Each connection carries invalidations in ONE direction (from the node that
+ * connected to the node that accepted).
+ *
+ * Handshake, sent by both sides when the connection opens:
+ * [int magic "TODI"][byte protocol version][long node id]
+ * The connection uses the lower of the two versions; a node only sends
+ * frames that exist in that version. The node id lets a node recognize a
+ * connection to itself (the peer list may contain its own address).
+ *
+ * Then frames: [byte type][int payload length][payload]
+ * - INVALIDATE: [int count][count x int todo id]
+ * - INVALIDATE_ALL: no payload, sent first on every new connection (the
+ * receiver cannot know what it missed while not connected)
+ *
+ * Readers skip frames of unknown types (the length says how far), so later
+ * versions can add frame types without breaking older nodes.
+ */
+final class InvalidationProtocol {
+
+    static final int MAGIC = 0x544F4449; // "TODI"
+
+    /**
+     * Version spoken by this code
+     */
+    static final byte VERSION = 1;
+
+    /**
+     * Oldest version this code can still talk to
+     */
+    static final byte MIN_VERSION = 1;
+
+    static final byte INVALIDATE = 1;
+    static final byte INVALIDATE_ALL = 2;
+
+    /**
+     * Frames bigger than this are rejected as corrupt
+     */
+    static final int MAX_PAYLOAD_BYTES = 16 * 1024 * 1024;
+
+    private InvalidationProtocol() {
+    }
+
+    /**
+     * The handshake received from the other side
+     */
+    record Handshake(byte version, long nodeId) {
+    }
+
+    static void writeHandshake(DataOutputStream out, long nodeId) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(nodeId);
+    }
+
+    /**
+     * @throws IOException if the other side is not an invalidation bus or
+     *                     speaks a version that is too old
+     */
+    static Handshake readHandshake(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an invalidation bus connection (wrong magic)");
+        }
+        byte version = in.readByte();
+        long nodeId = in.readLong();
+        if (version < MIN_VERSION) {
+            throw new IOException("Invalidation protocol version " + version + " is not supported (min "
+                    + MIN_VERSION + ")");
+        }
+        return new Handshake(version, nodeId);
+    }
+
+    /**
+     * Encode an INVALIDATE frame into the buffer (cleared first, grown if
+     * needed)
+     *
+     * @return The buffer to use, flipped for reading
+     */
+    static ByteBuffer encodeInvalidate(ByteBuffer buffer, int[] ids, int count) {
+        int payload = 4 + 4 * count;
+        int size = 1 + 4 + payload;
+        if (buffer == null || buffer.capacity() < size) {
+            buffer = ByteBuffer.allocate(size);
+        }
+        buffer.clear();
+        buffer.put(INVALIDATE).putInt(payload).putInt(count);
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(ids[i]);
+        }
+        return buffer.flip();
+    }
+
+    static void writeInvalidateAll(DataOutputStream out) throws IOException {
+        out.writeByte(INVALIDATE_ALL);
+        out.writeInt(0);
+    }
+}
@@ -0,0 +1,72 @@
+package com.todo.cache;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * LoopbackInvalidationBus - InvalidationBus between nodes in the same JVM
+ *
+ * All buses created with the same channel name form one group: a batch sent
+ * by one of them is delivered to the listeners of all the others (never to
+ * its own, its cache is already invalidated). E.g. two application contexts
+ * in one process, each with its own cache.
+ *
+ * With a single node (the default deployment) nobody else is in the group,
+ * so publishing costs only the batching. Nothing can be lost in between, so
+ * onInvalidateAll() is never needed.
+ */
+public class LoopbackInvalidationBus extends AbstractInvalidationBus {
+
+    /**
+     * The buses of every channel in this JVM
+     */
+    private static final Map<String, List<LoopbackInvalidationBus>> CHANNELS = new ConcurrentHashMap<>();
+
+    private final String channel;
+
+    /**
+     * Constructor for dependency injection
+     *
+     * @param channel             - Name of the group of buses to join
+     * @param flushIntervalMillis - Maximum time an id waits before it is sent
+     * @param maxBatchSize        - Maximum number of ids per batch
+     */
+    public LoopbackInvalidationBus(String channel, long flushIntervalMillis, int maxBatchSize) {
+        super("todo-invalidation-loopback", flushIntervalMillis, maxBatchSize);
+        this.channel = channel;
+        CHANNELS.compute(channel, (name, members) -> {
+            List<LoopbackInvalidationBus> group = members == null ? new CopyOnWriteArrayList<>() : members;
+            group.add(this);
+            return group;
+        });
+        start();
+    }
+
+    @Override
+    protected void send(int[] ids, int count) {
+        for (LoopbackInvalidationBus member : CHANNELS.getOrDefault(channel, List.of())) {
+            if (member != this) {
+                member.deliver(ids, count);
+            }
+        }
+    }
+
+    @Override
+    protected void closeTransport() {
+        CHANNELS.computeIfPresent(channel, (name, members) -> {
+            members.remove(this);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    @Override
+    public String toString() {
+        return "LoopbackInvalidationBus{channel=" + channel +
+                ", published=" + getPublishedIdCount() +
+                ", sentBatches=" + getSentBatchCount() +
+                ", receivedBatches=" + getReceivedBatchCount() +
+                '}';
+    }
+}
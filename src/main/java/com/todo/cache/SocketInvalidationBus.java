@@ -0,0 +1,427 @@
+package com.todo.cache;
+
+import com.todo.logging.AsyncLogger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SocketInvalidationBus - InvalidationBus between nodes connected over TCP
+ *
+ * Every node listens on a port and connects to the ports of its peers (the
+ * same peer list can be used on every node: a connection to itself is
+ * recognized and dropped). See InvalidationProtocol for the wire format.
+ *
+ * How it works:
+ * 1. The background thread sends every batch to all connected peers (one
+ * write per peer, the frame is encoded once)
+ * 2. A peer that is not reachable is skipped; the background thread tries
+ * to reconnect (after 1 second, then less often up to every 30 seconds)
+ * A peer whose connection does not take a write within WRITE_TIMEOUT_MILLIS
+ * (it stopped reading) is disconnected by a watchdog and treated the same
+ * way, so it cannot hold up the batches of the other peers
+ * 3. Every new connection starts with INVALIDATE_ALL, so a peer that missed
+ * batches (or restarted while this node kept running) drops its whole cache
+ * instead of serving stale todos
+ * 4. Incoming connections are read by one thread each, which hands the
+ * batches to the listeners
+ *
+ * If the network fails without an error (no write fails), peers can serve
+ * stale todos until the cache TTL expires: cache.ttlSeconds is the upper
+ * bound of staleness.
+ *
+ * Works on localhost too: e.g. two nodes on ports 7410 and 7411, each with
+ * peers "localhost:7410,localhost:7411".
+ */
+public class SocketInvalidationBus extends AbstractInvalidationBus {
+
+    private static final AsyncLogger log = AsyncLogger.getLogger(SocketInvalidationBus.class);
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+
+    /**
+     * Maximum time a write to a peer may block (Socket has no write timeout,
+     * the watchdog closes the socket instead)
+     */
+    private static final long WRITE_TIMEOUT_MILLIS = CONNECT_TIMEOUT_MILLIS;
+
+    /**
+     * Delay before reconnecting to a peer, doubled after every failed attempt
+     * up to the maximum (connecting blocks the background thread, so a peer
+     * that is down must not be tried too often)
+     */
+    private static final long MIN_RECONNECT_DELAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_RECONNECT_DELAY_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    /**
+     * Random id of this node, sent in the handshake
+     */
+    private final long nodeId = ThreadLocalRandom.current().nextLong();
+
+    private final List<Peer> peers;
+
+    private final ServerSocket serverSocket;
+    private final Thread acceptor;
+    private final Set<Socket> incoming = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger readerNumber = new AtomicInteger();
+    private volatile boolean open = true;
+
+    /**
+     * Closes the socket of a write that takes longer than WRITE_TIMEOUT_MILLIS
+     */
+    private final ScheduledThreadPoolExecutor writeWatchdog;
+
+    /**
+     * Encoded frame, reused for every batch (background thread only)
+     */
+    private ByteBuffer frame;
+
+    /**
+     * Constructor for dependency injection
+     *
+     * @param port                - Port to listen on (0 = any free port, see
+     *                            getPort())
+     * @param peerAddresses       - Comma-separated host:port of the other
+     *                            nodes (may include this node)
+     * @param flushIntervalMillis - Maximum time an id waits before it is sent
+     * @param maxBatchSize        - Maximum number of ids per batch
+     * @throws IOException if the port cannot be opened
+     */
+    public SocketInvalidationBus(int port, String peerAddresses, long flushIntervalMillis, int maxBatchSize)
+            throws IOException {
+        super("todo-invalidation-sender", flushIntervalMillis, maxBatchSize);
+        if (port < 0 || port > 65535) {
+            throw new IllegalArgumentException("Invalid invalidation bus port: " + port);
+        }
+        this.peers = parsePeers(peerAddresses);
+
+        this.writeWatchdog = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "todo-invalidation-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writeWatchdog.setRemoveOnCancelPolicy(true); // One task per write, almost all cancelled
+
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port));
+
+        this.acceptor = new Thread(this::acceptLoop, "todo-invalidation-accept");
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+
+        log.info("Invalidation bus listening on port {}, {} peers", getPort(), peers.size());
+        start();
+    }
+
+    /**
+     * @return The port this node listens on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    // ========== SENDING ==========
+
+    @Override
+    protected void send(int[] ids, int count) {
+        frame = InvalidationProtocol.encodeInvalidate(frame, ids, count);
+        for (Peer peer : peers) {
+            peer.send(frame.array(), frame.limit());
+        }
+    }
+
+    /**
+     * Reconnect peers that are down, so they get their INVALIDATE_ALL as soon
+     * as they are reachable (not only at the next write)
+     */
+    @Override
+    protected void maintain() {
+        for (Peer peer : peers) {
+            peer.connectIfDue();
+        }
+    }
+
+    // ========== RECEIVING ==========
+
+    private void acceptLoop() {
+        while (open) {
+            try {
+                Socket socket = serverSocket.accept();
+                incoming.add(socket);
+                Thread reader = new Thread(() -> readLoop(socket),
+                        "todo-invalidation-reader-" + readerNumber.incrementAndGet());
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (open) {
+                    log.warn("Accepting an invalidation connection failed: {}", e.toString());
+                }
+            }
+        }
+    }
+
+    private void readLoop(Socket socket) {
+        String remote = String.valueOf(socket.getRemoteSocketAddress());
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+
+            InvalidationProtocol.Handshake handshake = InvalidationProtocol.readHandshake(in);
+            InvalidationProtocol.writeHandshake(out, nodeId);
+            out.flush();
+            if (handshake.nodeId() == nodeId) {
+                return; // Our own connection to ourselves, the sender drops it too
+            }
+            log.info("Receiving invalidations from {} (protocol version {})", remote,
+                    Math.min(handshake.version(), InvalidationProtocol.VERSION));
+
+            while (open) {
+                readFrame(in);
+            }
+        } catch (EOFException | SocketException e) {
+            if (open) {
+                log.info("Invalidation connection from {} closed", remote);
+            }
+        } catch (IOException e) {
+            if (open) {
+                log.warn("Invalidation connection from {} failed: {}", remote, e.toString());
+            }
+        } finally {
+            incoming.remove(socket);
+        }
+    }
+
+    private void readFrame(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        int length = in.readInt();
+        if (length < 0 || length > InvalidationProtocol.MAX_PAYLOAD_BYTES) {
+            throw new IOException("Corrupt invalidation frame (length " + length + ")");
+        }
+        switch (type) {
+            case InvalidationProtocol.INVALIDATE -> {
+                int count = in.readInt();
+                if (count < 0 || 4 + 4 * (long) count > length) {
+                    throw new IOException("Corrupt invalidation frame (count " + count + ")");
+                }
+                int[] ids = new int[count];
+                for (int i = 0; i < count; i++) {
+                    ids[i] = in.readInt();
+                }
+                in.skipNBytes(length - 4 - 4L * count); // Fields added by later versions
+                deliver(ids, count);
+            }
+            case InvalidationProtocol.INVALIDATE_ALL -> {
+                in.skipNBytes(length);
+                deliverInvalidateAll();
+            }
+            default -> in.skipNBytes(length); // Frame type of a later version
+        }
+    }
+
+    // ========== LIFECYCLE ==========
+
+    @Override
+    protected void closeTransport() {
+        open = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            log.warn("Closing the invalidation bus port failed: {}", e.toString());
+        }
+        for (Socket socket : incoming) {
+            closeQuietly(socket);
+        }
+        for (Peer peer : peers) {
+            peer.disconnect();
+        }
+        writeWatchdog.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return "SocketInvalidationBus{port=" + getPort() +
+                ", peers=" + peers +
+                ", published=" + getPublishedIdCount() +
+                ", sentBatches=" + getSentBatchCount() +
+                ", receivedBatches=" + getReceivedBatchCount() +
+                '}';
+    }
+
+    private List<Peer> parsePeers(String peerAddresses) {
+        List<Peer> result = new ArrayList<>();
+        if (peerAddresses == null) {
+            return result;
+        }
+        for (String address : peerAddresses.split(",")) {
+            String trimmed = address.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int colon = trimmed.lastIndexOf(':');
+            try {
+                if (colon <= 0) {
+                    throw new NumberFormatException();
+                }
+                result.add(new Peer(trimmed.substring(0, colon), Integer.parseInt(trimmed.substring(colon + 1))));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid invalidation peer (expected host:port): " + trimmed);
+            }
+        }
+        return result;
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already broken, nothing left to release
+        }
+    }
+
+    // ========== PEER ==========
+
+    /**
+     * The outgoing connection to one other node
+     *
+     * Only used by the background thread (and close() after it stopped), so
+     * no locking is needed.
+     */
+    private final class Peer {
+
+        private final String host;
+        private final int port;
+
+        private Socket socket;
+        private DataOutputStream out;
+
+        private long nextAttemptNanos = System.nanoTime();
+        private long reconnectDelayNanos = MIN_RECONNECT_DELAY_NANOS;
+        private boolean reachable = true;
+
+        /**
+         * true if the address is this node's own port
+         */
+        private boolean self;
+
+        private Peer(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+
+        /**
+         * Send a frame; if the peer is not connected, the frame is dropped
+         * (the INVALIDATE_ALL of the next connection covers it)
+         *
+         * If the write blocks for WRITE_TIMEOUT_MILLIS (the peer's receive
+         * buffer is full), the watchdog closes the socket: the write fails and
+         * the peer is handled as lost.
+         */
+        private void send(byte[] frameBytes, int length) {
+            if (!connectIfDue()) {
+                return;
+            }
+            Socket connection = socket;
+            ScheduledFuture<?> deadline = writeWatchdog.schedule(() -> closeQuietly(connection),
+                    WRITE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            try {
+                out.write(frameBytes, 0, length);
+                out.flush();
+            } catch (IOException e) {
+                boolean timedOut = deadline.isDone() && !deadline.isCancelled();
+                log.warn("Invalidation peer {} lost: {}", this,
+                        timedOut ? "write blocked for " + WRITE_TIMEOUT_MILLIS + " ms" : e.toString());
+                disconnect();
+                reachable = false;
+            } finally {
+                deadline.cancel(false);
+            }
+        }
+
+        /**
+         * @return true if connected (now or before)
+         */
+        private boolean connectIfDue() {
+            if (self || !open) {
+                return false;
+            }
+            if (out != null) {
+                return true;
+            }
+            long now = System.nanoTime();
+            if (now - nextAttemptNanos < 0) {
+                return false;
+            }
+            Socket connection = new Socket();
+            try {
+                connection.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+                connection.setTcpNoDelay(true);
+                connection.setKeepAlive(true);
+                connection.setSoTimeout(CONNECT_TIMEOUT_MILLIS); // Only reads the handshake
+
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+                InvalidationProtocol.writeHandshake(output, nodeId);
+                output.flush();
+                InvalidationProtocol.Handshake handshake = InvalidationProtocol.readHandshake(
+                        new DataInputStream(connection.getInputStream()));
+                if (handshake.nodeId() == nodeId) {
+                    self = true;
+                    closeQuietly(connection);
+                    log.info("Invalidation peer {} is this node, skipped", this);
+                    return false;
+                }
+
+                InvalidationProtocol.writeInvalidateAll(output);
+                output.flush();
+                socket = connection;
+                out = output;
+                reachable = true;
+                reconnectDelayNanos = MIN_RECONNECT_DELAY_NANOS;
+                log.info("Sending invalidations to {} (protocol version {})", this,
+                        Math.min(handshake.version(), InvalidationProtocol.VERSION));
+                return true;
+            } catch (IOException e) {
+                closeQuietly(connection);
+                nextAttemptNanos = now + reconnectDelayNanos;
+                reconnectDelayNanos = Math.min(2 * reconnectDelayNanos, MAX_RECONNECT_DELAY_NANOS);
+                if (reachable) {
+                    log.warn("Invalidation peer {} not reachable, retrying: {}", this, e.toString());
+                    reachable = false;
+                }
+                return false;
+            }
+        }
+
+        private void disconnect() {
+            if (socket != null) {
+                closeQuietly(socket);
+            }
+            socket = null;
+            out = null;
+        }
+
+        @Override
+        public String toString() {
+            return host + ":" + port;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.todo.config;
+
+import com.todo.cache.InvalidationBus;
+import com.todo.cache.LoopbackInvalidationBus;
+import com.todo.cache.SocketInvalidationBus;
+import com.todo.dao.CachingTodoDAO;
+import com.todo.dao.InMemoryTodoDAO;
+import com.todo.dao.JournaledTodoDAO;
+import com.todo.dao.ShardedTodoDAO;
+import com.todo.dao.TodoDAO;
+import com.todo.dao.TodoDAOImpl;
+import com.todo.dao.WriteBehindTodoDAO;
+import com.todo.datasource.MonitoredDataSource;
+import com.todo.datasource.ReplicaRoutingDataSource;
+import com.todo.service.TodoAsyncServiceImpl;
+import com.todo.service.TodoService;
+import com.todo.service.TodoServiceImpl;
+import com.todo.transfer.TodoTransfer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * AppConfig - Java version of applicationContext.xml
+ *
+ * Creates exactly the same beans (same names, same profiles, same property
+ * files), but without reading XML and without classpath scanning: every bean
+ * is created by a plain method call. This makes the context start faster,
+ * and it can be processed ahead of time (see TodoAotGenerator).
+ *
+ * Usage: new AnnotationConfigApplicationContext(AppConfig.class)
+ * (or run Main with -Dtodo.context=java, see TodoApplicationContexts)
+ *
+ * proxyBeanMethods = false: the @Bean methods never call each other, beans
+ * are passed in as method parameters, so no CGLIB subclass of this class is
+ * needed (one less class generated at startup).
+ *
+ * Keep this class and applicationContext.xml in sync.
+ */
+@Configuration(proxyBeanMethods = false)
+@PropertySource({ "classpath:database.properties", "classpath:todo.properties" })
+@EnableTransactionManagement
+@Import(MetricsConfig.class)
+public class AppConfig {
+
+    /**
+     * Resolves ${...} placeholders in @Value annotations
+     * (same as <context:property-placeholder> in XML)
+     *
+     * static: it must exist before the other beans of this class are created
+     */
+    @Bean
+    public static PropertySourcesPlaceholderConfigurer propertySourcesPlaceholderConfigurer() {
+        return new PropertySourcesPlaceholderConfigurer();
+    }
+
+    // ========== DATA SOURCE AND JDBC ==========
+
+    /**
+     * Connection pool of the primary database, configured from
+     * database.properties (see the primaryDataSource bean in
+     * applicationContext.xml for every setting)
+     */
+    @Bean
+    public MonitoredDataSource primaryDataSource(Environment env) {
+        MonitoredDataSource dataSource = new MonitoredDataSource();
+        dataSource.setDriverClassName(env.getRequiredProperty("db.driver"));
+        dataSource.setUrl(env.getRequiredProperty("db.url"));
+        dataSource.setUsername(env.getRequiredProperty("db.username"));
+        dataSource.setPassword(env.getRequiredProperty("db.password"));
+        dataSource.setConnectionProperties(env.getRequiredProperty("db.connectionProperties"));
+
+        dataSource.setInitialSize(env.getRequiredProperty("db.initialSize", Integer.class));
+        dataSource.setMaxTotal(env.getRequiredProperty("db.maxTotal", Integer.class));
+        dataSource.setMaxIdle(env.getRequiredProperty("db.maxIdle", Integer.class));
+        dataSource.setMinIdle(env.getRequiredProperty("db.minIdle", Integer.class));
+
+        dataSource.setMaxWait(Duration.ofMillis(env.getRequiredProperty("db.maxWaitMillis", Long.class)));
+        dataSource.setSlowBorrowThresholdMillis(env.getRequiredProperty("db.slowBorrowThresholdMillis", Long.class));
+
+        dataSource.setValidationQuery(env.getRequiredProperty("db.validationQuery"));
+        dataSource.setTestOnBorrow(env.getRequiredProperty("db.testOnBorrow", Boolean.class));
+        dataSource.setTestWhileIdle(env.getRequiredProperty("db.testWhileIdle", Boolean.class));
+        dataSource.setDurationBetweenEvictionRuns(
+                Duration.ofMillis(env.getRequiredProperty("db.timeBetweenEvictionRunsMillis", Long.class)));
+        dataSource.setMinEvictableIdle(
+                Duration.ofMillis(env.getRequiredProperty("db.minEvictableIdleTimeMillis", Long.class)));
+        dataSource.setMaxConn(Duration.ofMillis(env.getRequiredProperty("db.maxConnLifetimeMillis", Long.class)));
+
+        dataSource.setPoolPreparedStatements(env.getRequiredProperty("db.poolPreparedStatements", Boolean.class));
+        dataSource.setMaxOpenPreparedStatements(env.getRequiredProperty("db.maxOpenPreparedStatements", Integer.class));
+        return dataSource;
+    }
+
+    /**
+     * Sends read-only transactions to the read replicas (db.replica.*)
+     */
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(MonitoredDataSource primaryDataSource,
+            Environment env) {
+        return new ReplicaRoutingDataSource(primaryDataSource,
+                env.getRequiredProperty("db.replica.urls"),
+                env.getRequiredProperty("db.replica.maxLagSeconds", Long.class),
+                env.getRequiredProperty("db.replica.lagQuery"),
+                env.getRequiredProperty("db.replica.healthCheckIntervalMillis", Long.class));
+    }
+
+    /**
+     * The DataSource used by the application: gets the real connection on
+     * the first statement, when the read-only flag of the transaction is known
+     */
+    @Bean
+    @Primary
+    public LazyConnectionDataSourceProxy dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+
+    @Bean
+    public PlatformTransactionManager transactionManager(DataSource dataSource) {
+        return new DataSourceTransactionManager(dataSource);
+    }
+
+    // ========== DAO LAYER ==========
+
+    /**
+     * The JDBC DAO (found by component scanning in the XML version)
+     *
+     * The return type is the class, not the interface, so its @Value setters
+     * are also seen by the AOT processing.
+     */
+    @Bean
+    public TodoDAOImpl todoDAOImpl(JdbcTemplate jdbcTemplate) {
+        return new TodoDAOImpl(jdbcTemplate);
+    }
+
+    /**
+     * The cache in front of todoStore, injected wherever a TodoDAO is needed
+     */
+    @Bean
+    @Primary
+    public CachingTodoDAO todoDAO(@Qualifier("todoStore") TodoDAO todoStore, InvalidationBus invalidationBus,
+            ReplicaRoutingDataSource replicaRoutingDataSource, Environment env) {
+        CachingTodoDAO todoDAO = new CachingTodoDAO(todoStore,
+                env.getRequiredProperty("cache.maxSize", Integer.class),
+                env.getRequiredProperty("cache.ttlSeconds", Long.class));
+        todoDAO.setInvalidationBus(invalidationBus);
+        todoDAO.setReplicaReadTtlSeconds(replicaRoutingDataSource.getMaxStalenessSeconds());
+        return todoDAO;
+    }
+
+    // ========== SERVICE LAYER ==========
+
+    @Bean
+    public TodoServiceImpl todoServiceImpl(TodoDAO todoDAO, PlatformTransactionManager transactionManager) {
+        return new TodoServiceImpl(todoDAO, transactionManager);
+    }
+
+    @Bean
+    public TodoAsyncServiceImpl todoAsyncServiceImpl(TodoService todoService, Environment env) {
+        return new TodoAsyncServiceImpl(todoService, env.getRequiredProperty("db.maxTotal", Integer.class));
+    }
+
+    @Bean
+    public TodoTransfer todoTransfer(TodoService todoService) {
+        return new TodoTransfer(todoService);
+    }
+
+    // ========== STORAGE PROFILES ==========
+    // Same profiles as at the end of applicationContext.xml
+
+    /**
+     * Default: todoStore is todoDAOImpl itself (an alias in the XML version)
+     */
+    @Bean
+    @Profile("!write-behind & !in-memory & !journal & !sharded")
+    public TodoDAO todoStore(@Qualifier("todoDAOImpl") TodoDAO todoDAOImpl) {
+        return todoDAOImpl;
+    }
+
+    @Bean(name = "todoStore", destroyMethod = "close")
+    @Profile("write-behind & !in-memory & !journal & !sharded")
+    public WriteBehindTodoDAO writeBehindTodoStore(@Qualifier("todoDAOImpl") TodoDAO todoDAOImpl,
+            PlatformTransactionManager transactionManager, InvalidationBus invalidationBus, Environment env) {
+        WriteBehindTodoDAO todoStore = new WriteBehindTodoDAO(todoDAOImpl, transactionManager,
+                env.getRequiredProperty("writeBehind.flushSize", Integer.class),
+                env.getRequiredProperty("writeBehind.flushIntervalMillis", Long.class),
+                env.getRequiredProperty("writeBehind.maxPending", Integer.class));
+        todoStore.setInvalidationBus(invalidationBus);
+        return todoStore;
+    }
+
+    @Bean(name = "todoStore")
+    @Profile("in-memory & !journal")
+    public InMemoryTodoDAO inMemoryTodoStore() {
+        return new InMemoryTodoDAO();
+    }
+
+    @Bean(name = "todoStore", destroyMethod = "close")
+    @Profile("journal")
+    public JournaledTodoDAO journaledTodoStore(Environment env) throws IOException {
+        return new JournaledTodoDAO(new InMemoryTodoDAO(),
+                env.getRequiredProperty("journal.directory"),
+                env.getRequiredProperty("journal.snapshotIntervalSeconds", Long.class));
+    }
+
+    @Bean(name = "todoStore", destroyMethod = "close")
+    @Profile("sharded & !in-memory & !journal")
+    public ShardedTodoDAO shardedTodoStore(MonitoredDataSource primaryDataSource, Environment env) {
+        return new ShardedTodoDAO(primaryDataSource,
+                env.getRequiredProperty("shard.url"),
+                env.getRequiredProperty("shard.count", Integer.class),
+                env.getRequiredProperty("shard.idBlockSize", Integer.class));
+    }
+
+    // ========== CACHE INVALIDATION PROFILES ==========
+    // Same profiles as at the end of applicationContext.xml
+
+    @Bean(name = "invalidationBus", destroyMethod = "close")
+    @Profile("!cluster")
+    public LoopbackInvalidationBus loopbackInvalidationBus(Environment env) {
+        return new LoopbackInvalidationBus(env.getRequiredProperty("invalidation.loopback.channel"),
+                env.getRequiredProperty("invalidation.flushIntervalMillis", Long.class),
+                env.getRequiredProperty("invalidation.maxBatchSize", Integer.class));
+    }
+
+    @Bean(name = "invalidationBus", destroyMethod = "close")
+    @Profile("cluster")
+    public SocketInvalidationBus socketInvalidationBus(Environment env) throws IOException {
+        return new SocketInvalidationBus(env.getRequiredProperty("invalidation.port", Integer.class),
+                env.getRequiredProperty("invalidation.peers"),
+                env.getRequiredProperty("invalidation.flushIntervalMillis", Long.class),
+                env.getRequiredProperty("invalidation.maxBatchSize", Integer.class));
+    }
+}
@@ -0,0 +1,87 @@
+package com.todo.config;
+
+import com.todo.metrics.DataSourcePoolMetrics;
+import com.todo.metrics.MetricsHttpServer;
+import com.todo.metrics.MetricsInterceptor;
+import com.todo.metrics.MetricsRegistry;
+import com.todo.metrics.TransactionMetricsInterceptor;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.springframework.aop.framework.autoproxy.BeanNameAutoProxyCreator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * MetricsConfig - Java version of metrics-context.xml
+ *
+ * Imported by AppConfig. Remove it from @Import there to run without
+ * metrics - no application class depends on these beans.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfig {
+
+    @Bean
+    public MetricsRegistry metricsRegistry() {
+        return new MetricsRegistry();
+    }
+
+    // ========== METHOD INTERCEPTORS ==========
+
+    @Bean
+    public MetricsInterceptor daoMetricsInterceptor(MetricsRegistry metricsRegistry) {
+        return new MetricsInterceptor(metricsRegistry, "dao");
+    }
+
+    @Bean
+    public MetricsInterceptor serviceMetricsInterceptor(MetricsRegistry metricsRegistry) {
+        return new MetricsInterceptor(metricsRegistry, "service");
+    }
+
+    @Bean
+    public TransactionMetricsInterceptor transactionMetricsInterceptor(MetricsRegistry metricsRegistry) {
+        return new TransactionMetricsInterceptor(metricsRegistry);
+    }
+
+    // ========== AUTO PROXIES ==========
+    // static: bean post-processors must be created before the other beans
+
+    /**
+     * The storage engine of the active profile (see metrics-context.xml)
+     */
+    @Bean
+    public static BeanNameAutoProxyCreator daoMetricsProxyCreator() {
+        BeanNameAutoProxyCreator proxyCreator = new BeanNameAutoProxyCreator();
+        proxyCreator.setBeanNames("todoStore");
+        proxyCreator.setInterceptorNames("daoMetricsInterceptor");
+        proxyCreator.setProxyTargetClass(true);
+        return proxyCreator;
+    }
+
+    @Bean
+    public static BeanNameAutoProxyCreator serviceMetricsProxyCreator() {
+        BeanNameAutoProxyCreator proxyCreator = new BeanNameAutoProxyCreator();
+        proxyCreator.setBeanNames("todoServiceImpl");
+        proxyCreator.setInterceptorNames("serviceMetricsInterceptor");
+        return proxyCreator;
+    }
+
+    @Bean
+    public static BeanNameAutoProxyCreator transactionMetricsProxyCreator() {
+        BeanNameAutoProxyCreator proxyCreator = new BeanNameAutoProxyCreator();
+        proxyCreator.setBeanNames("transactionManager");
+        proxyCreator.setInterceptorNames("transactionMetricsInterceptor");
+        return proxyCreator;
+    }
+
+    // ========== GAUGES AND HTTP ENDPOINT ==========
+
+    @Bean
+    public DataSourcePoolMetrics dataSourcePoolMetrics(MetricsRegistry metricsRegistry, BasicDataSource dataSource) {
+        return new DataSourcePoolMetrics(metricsRegistry, dataSource);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public MetricsHttpServer metricsHttpServer(MetricsRegistry metricsRegistry, Environment env) {
+        return new MetricsHttpServer(metricsRegistry, env.getRequiredProperty("metrics.http.port", Integer.class));
+    }
+}
@@ -0,0 +1,112 @@
+package com.todo.config;
+
+import org.springframework.aot.generate.DefaultGenerationContext;
+import org.springframework.aot.generate.FileSystemGeneratedFiles;
+import org.springframework.aot.generate.GeneratedFiles;
+import org.springframework.aot.generate.ClassNameGenerator;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.aot.ApplicationContextAotGenerator;
+import org.springframework.javapoet.ClassName;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * TodoAotGenerator - Build-time (ahead-of-time) processing of AppConfig
+ *
+ * Run by the Maven profile "aot" (mvn -Paot process-classes), after the
+ * normal compilation.
+ *
+ * How it works:
+ * 1. Register AppConfig in a context WITHOUT starting it (no bean is created,
+ * no database connection)
+ * 2. Spring's ApplicationContextAotGenerator evaluates the configuration
+ * (@Bean methods, @Profile, @PropertySource, @Value injection points) and
+ * writes Java code that registers the resulting bean definitions directly:
+ * AppConfig__ApplicationContextInitializer and helper classes
+ * 3. Compile the generated code into the classes directory
+ *
+ * At runtime, TodoApplicationContexts.create("aot") starts the context from
+ * that code.
+ *
+ * Arguments: [generated sources dir] [generated resources dir] [classes dir]
+ */
+public final class TodoAotGenerator {
+
+    private TodoAotGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            throw new IllegalArgumentException("Usage: TodoAotGenerator <sources dir> <resources dir> <classes dir>");
+        }
+        Path sources = Paths.get(args[0]);
+        Path resources = Paths.get(args[1]);
+        Path classes = Paths.get(args[2]);
+        deleteRecursively(sources);
+        deleteRecursively(resources);
+
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.register(AppConfig.class);
+
+            GeneratedFiles files = new FileSystemGeneratedFiles(kind -> switch (kind) {
+                case SOURCE -> sources;
+                case RESOURCE -> resources;
+                case CLASS -> classes;
+            });
+            DefaultGenerationContext generationContext = new DefaultGenerationContext(
+                    new ClassNameGenerator(ClassName.get(AppConfig.class)), files);
+            ClassName initializer = new ApplicationContextAotGenerator()
+                    .processAheadOfTime(context, generationContext);
+            generationContext.writeGeneratedContent();
+            System.out.println("Generated " + initializer);
+        }
+
+        compile(sources, classes);
+    }
+
+    /**
+     * Remove the output of the previous run (generated files are never
+     * overwritten)
+     */
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Compile the generated sources against the current classpath
+     */
+    private static void compile(Path sources, Path classes) throws IOException {
+        List<String> arguments = new ArrayList<>(List.of(
+                "-d", classes.toString(),
+                "-classpath", System.getProperty("java.class.path"),
+                "-proc:none"));
+        try (Stream<Path> files = Files.walk(sources)) {
+            files.filter(file -> file.toString().endsWith(".java"))
+                    .forEach(file -> arguments.add(file.toString()));
+        }
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("A JDK is needed to compile the generated sources");
+        }
+        if (compiler.run(null, null, null, arguments.toArray(new String[0])) != 0) {
+            throw new IllegalStateException("Compiling the generated sources in " + sources + " failed");
+        }
+    }
+}
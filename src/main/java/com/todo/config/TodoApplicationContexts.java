@@ -0,0 +1,78 @@
+package com.todo.config;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.util.ClassUtils;
+
+/**
+ * TodoApplicationContexts - Creates the Spring context in one of three ways
+ *
+ * All three contain the same beans, they only differ in how fast they start:
+ * - "xml": applicationContext.xml (XML parsing + classpath scanning)
+ * - "java": AppConfig (@Configuration class, no XML, no scanning)
+ * - "aot": code generated from AppConfig at build time by TodoAotGenerator
+ * (no configuration class processing at all at startup; only available
+ * after building with mvn -Paot process-classes)
+ *
+ * Main uses the one named by the system property todo.context
+ * (default: xml), e.g. -Dtodo.context=java
+ */
+public final class TodoApplicationContexts {
+
+    public static final String CONTEXT_PROPERTY = "todo.context";
+
+    /**
+     * Class generated by TodoAotGenerator (see its javadoc)
+     */
+    static final String AOT_INITIALIZER = "com.todo.config.AppConfig__ApplicationContextInitializer";
+
+    private TodoApplicationContexts() {
+    }
+
+    /**
+     * @return The context named by the todo.context system property
+     */
+    public static ConfigurableApplicationContext create() {
+        return create(System.getProperty(CONTEXT_PROPERTY, "xml"));
+    }
+
+    /**
+     * @param type - "xml", "java" or "aot"
+     * @return A started (refreshed) context
+     */
+    public static ConfigurableApplicationContext create(String type) {
+        return switch (type) {
+            case "xml" -> new ClassPathXmlApplicationContext("applicationContext.xml");
+            case "java" -> new AnnotationConfigApplicationContext(AppConfig.class);
+            case "aot" -> aot();
+            default -> throw new IllegalArgumentException(
+                    "Unknown " + CONTEXT_PROPERTY + " '" + type + "' (expected xml, java or aot)");
+        };
+    }
+
+    /**
+     * Start the context from the code generated ahead of time
+     *
+     * The generated initializer registers every bean definition directly, so
+     * AppConfig is not parsed again. Profiles were already decided when the
+     * code was generated (spring.profiles.active at build time).
+     */
+    @SuppressWarnings("unchecked")
+    private static ConfigurableApplicationContext aot() {
+        if (!ClassUtils.isPresent(AOT_INITIALIZER, TodoApplicationContexts.class.getClassLoader())) {
+            throw new IllegalStateException(
+                    "AOT context not generated, build with: mvn -Paot process-classes");
+        }
+        Class<?> initializerClass = ClassUtils.resolveClassName(AOT_INITIALIZER,
+                TodoApplicationContexts.class.getClassLoader());
+        GenericApplicationContext context = new GenericApplicationContext();
+        ((ApplicationContextInitializer<GenericApplicationContext>) BeanUtils.instantiateClass(initializerClass))
+                .initialize(context);
+        context.refresh();
+        return context;
+    }
+}
@@ -0,0 +1,527 @@
+package com.todo.dao;
+
+import com.todo.cache.InvalidationBus;
+import com.todo.cache.InvalidationListener;
+import com.todo.model.Todo;
+import com.todo.model.TodoChange;
+import com.todo.model.TodoSummary;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * CachingTodoDAO - A TodoDAO that keeps recently read todos in memory
+ *
+ * Decorator Pattern: This class implements TodoDAO AND wraps another TodoDAO
+ * (normally TodoDAOImpl). Reads by id are answered from memory when possible,
+ * everything else is passed through to the wrapped DAO.
+ *
+ * How the cache works:
+ * - Read-through: findById() looks in the cache first, and only asks the
+ * database on a miss (the loaded todo is then cached)
+ * - LRU eviction: when the cache is full, the Least Recently Used todo is
+ * removed
+ * - TTL: a cached todo expires after ttlSeconds, even if it is still used;
+ * todos read in a read-only transaction may come from a lagging replica and
+ * expire after replicaReadTtlSeconds at the latest
+ * - Write-invalidation: create/update/delete remove the affected ids from the
+ * cache, and again after the surrounding transaction finishes, so a value
+ * read by another thread before the commit is not kept (an update that
+ * fails with a version conflict invalidates too)
+ * - Other nodes: with an InvalidationBus, the ids are also published after
+ * the transaction commits, and ids published by other nodes are removed
+ * here (each node can cache without serving what another node changed)
+ *
+ * Callers always receive a COPY of the cached todo, so changing the returned
+ * object (e.g. todo.setTitle()) never changes the cache.
+ *
+ * This class is configured as a bean in applicationContext.xml (not by
+ * component scanning) because it needs the wrapped DAO and the cache settings.
+ */
+public class CachingTodoDAO implements TodoDAO, InvalidationListener {
+
+    // ========== DEPENDENCIES AND SETTINGS ==========
+
+    /**
+     * The real DAO that talks to the database
+     */
+    private final TodoDAO delegate;
+
+    /**
+     * Maximum number of todos kept in memory (0 disables the cache)
+     */
+    private final int maxSize;
+
+    /**
+     * How long a cached todo stays valid, in nanoseconds (0 = never expires)
+     */
+    private final long ttlNanos;
+
+    /**
+     * Maximum time-to-live of a todo loaded in a read-only transaction, in
+     * nanoseconds (-1 = no maximum, 0 = such todos are not cached)
+     */
+    private volatile long replicaReadTtlNanos = -1;
+
+    /**
+     * Tells the other nodes what changed (null: single node, nothing published)
+     */
+    private volatile InvalidationBus invalidationBus;
+
+    // ========== CACHE STORAGE ==========
+
+    /**
+     * The cached todos, by id
+     *
+     * LinkedHashMap with accessOrder=true keeps entries ordered from least to
+     * most recently used, and removeEldestEntry() evicts the least recently
+     * used one when the cache grows beyond maxSize.
+     *
+     * LinkedHashMap is not thread-safe, so every access is synchronized on it.
+     */
+    private final LinkedHashMap<Integer, CacheEntry> entries;
+
+    /**
+     * Incremented on every invalidation
+     *
+     * A todo loaded from the database is only put into the cache if no
+     * invalidation happened while it was being loaded (otherwise the loaded
+     * value could already be stale).
+     */
+    private long invalidationCount;
+
+    // ========== STATISTICS ==========
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * Constructor for dependency injection
+     *
+     * @param delegate   - The DAO to wrap (the todoDAOImpl bean)
+     * @param maxSize    - Maximum number of cached todos (0 disables caching)
+     * @param ttlSeconds - Time-to-live of a cached todo (0 = no expiry)
+     */
+    public CachingTodoDAO(TodoDAO delegate, int maxSize, long ttlSeconds) {
+        if (maxSize < 0 || ttlSeconds < 0) {
+            throw new IllegalArgumentException("Cache size and TTL cannot be negative");
+        }
+        this.delegate = delegate;
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CacheEntry> eldest) {
+                if (size() > CachingTodoDAO.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Setter injection for the bus shared with the other nodes
+     *
+     * @param invalidationBus - Publishes this node's invalidations and
+     *                        delivers those of the other nodes
+     */
+    public void setInvalidationBus(InvalidationBus invalidationBus) {
+        this.invalidationBus = invalidationBus;
+        invalidationBus.subscribe(this);
+    }
+
+    /**
+     * Setter injection for the staleness of replica reads
+     *
+     * Read-only transactions can be served by a read replica (see
+     * ReplicaRoutingDataSource), which may still return a todo that was
+     * changed (and invalidated here) a moment ago. Such a todo must not stay
+     * in the cache for the whole ttlSeconds, only as long as the replica may
+     * lag behind.
+     *
+     * @param seconds - Maximum time-to-live of todos loaded in a read-only
+     *                transaction (the replicas' maxLagSeconds; 0 = they are
+     *                not cached, -1 = no maximum)
+     */
+    public void setReplicaReadTtlSeconds(long seconds) {
+        if (seconds < -1) {
+            throw new IllegalArgumentException("Replica read TTL must be -1 or more: " + seconds);
+        }
+        this.replicaReadTtlNanos = seconds < 0 ? -1 : TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    // ========== CACHED READ ==========
+
+    /**
+     * READ - Find a todo by id, using the cache
+     *
+     * How it works:
+     * 1. Look up the id in the cache (hit: return a copy, no database access)
+     * 2. On a miss (or expired entry), load the todo from the wrapped DAO
+     * 3. Cache the loaded todo, unless it was invalidated in the meantime or
+     * was read inside a read-write transaction (it may contain that
+     * transaction's uncommitted changes, which other threads must not see);
+     * a todo read in a read-only transaction (maybe from a replica) gets at
+     * most replicaReadTtlSeconds
+     *
+     * @param id - The id to search for
+     * @return A copy of the todo, or null if not found
+     */
+    @Override
+    public Todo findById(int id) {
+        if (maxSize == 0) {
+            return delegate.findById(id);
+        }
+
+        long invalidationsBeforeLoad;
+        synchronized (entries) {
+            CacheEntry entry = entries.get(id);
+            if (entry != null) {
+                if (!entry.isExpired(System.nanoTime())) {
+                    hits.increment();
+                    return new Todo(entry.todo);
+                }
+                entries.remove(id);
+                expirations.increment();
+            }
+            invalidationsBeforeLoad = invalidationCount;
+        }
+
+        // Load outside the lock, so a slow query does not block other readers
+        misses.increment();
+        Todo loaded = delegate.findById(id);
+        if (loaded == null) {
+            return null;
+        }
+
+        if (inReadWriteTransaction()) {
+            // May be this transaction's own uncommitted (or later rolled back) change
+            return loaded;
+        }
+        long ttl = ttlNanos;
+        long replicaTtl = replicaReadTtlNanos;
+        if (replicaTtl >= 0 && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (replicaTtl == 0) {
+                return loaded; // May already be stale, the replica is not checked
+            }
+            ttl = ttl == 0 ? replicaTtl : Math.min(ttl, replicaTtl);
+        }
+        synchronized (entries) {
+            if (invalidationCount == invalidationsBeforeLoad) {
+                entries.put(id, new CacheEntry(new Todo(loaded), System.nanoTime(), ttl));
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * @return true inside a transaction that may have written: what it reads
+     *         is not visible to other transactions yet
+     */
+    private static boolean inReadWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    // ========== WRITES (INVALIDATE) ==========
+
+    @Override
+    public void create(Todo todo) {
+        delegate.create(todo);
+        invalidate(List.of(todo.getId()));
+    }
+
+    @Override
+    public List<Integer> createAll(Collection<Todo> todos) {
+        List<Integer> ids = delegate.createAll(todos);
+        invalidate(ids);
+        return ids;
+    }
+
+    /**
+     * Also invalidates on a version conflict: the cached copy is then older
+     * than the database row, and a retry must read the new version
+     */
+    @Override
+    public int update(Todo todo) {
+        try {
+            return delegate.update(todo);
+        } finally {
+            invalidate(List.of(todo.getId()));
+        }
+    }
+
+    @Override
+    public int updateAll(Collection<Todo> todos) {
+        int updated = delegate.updateAll(todos);
+        invalidate(todos.stream().map(Todo::getId).toList());
+        return updated;
+    }
+
+    @Override
+    public int updateCompleted(int id, boolean completed) {
+        int updated = delegate.updateCompleted(id, completed);
+        invalidate(List.of(id));
+        return updated;
+    }
+
+    @Override
+    public int updateCompleted(Collection<Integer> ids, boolean completed) {
+        int updated = delegate.updateCompleted(ids, completed);
+        invalidate(ids);
+        return updated;
+    }
+
+    @Override
+    public int delete(int id) {
+        int deleted = delegate.delete(id);
+        invalidate(List.of(id));
+        return deleted;
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> ids) {
+        int deleted = delegate.deleteAll(ids);
+        invalidate(ids);
+        return deleted;
+    }
+
+    // ========== PASS-THROUGH READS ==========
+    // Multi-row queries are not cached, they always go to the wrapped DAO
+
+    @Override
+    public List<Todo> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Todo> findPage(int afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Stream<Todo> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public void forEach(Consumer<Todo> action) {
+        delegate.forEach(action);
+    }
+
+    @Override
+    public List<Todo> findByCompleted(boolean completed) {
+        return delegate.findByCompleted(completed);
+    }
+
+    @Override
+    public List<TodoSummary> findSummaries() {
+        return delegate.findSummaries();
+    }
+
+    @Override
+    public List<TodoSummary> findSummariesByCompleted(boolean completed) {
+        return delegate.findSummariesByCompleted(completed);
+    }
+
+    @Override
+    public List<Todo> search(String query, int limit) {
+        return delegate.search(query, limit);
+    }
+
+    @Override
+    public List<TodoChange> findChangedSince(Instant since, int afterId, int limit) {
+        return delegate.findChangedSince(since, afterId, limit);
+    }
+
+    @Override
+    public int countByCompleted(boolean completed) {
+        return delegate.countByCompleted(completed);
+    }
+
+    @Override
+    public int countAll() {
+        return delegate.countAll();
+    }
+
+    // ========== INVALIDATION ==========
+
+    /**
+     * Remove the given ids from the cache
+     *
+     * When called inside a transaction, the ids are removed again after the
+     * transaction completes: until the commit, other threads still read the
+     * old row from the database and could have cached it again.
+     *
+     * The ids are published to the other nodes when the transaction commits
+     * (right away outside a transaction); before, the other nodes would read
+     * and cache the old row again. A rollback publishes nothing.
+     *
+     * @param ids - The ids whose cached todos must be discarded
+     */
+    public void invalidate(Collection<Integer> ids) {
+        InvalidationBus bus = invalidationBus;
+        if (maxSize == 0 && bus == null) {
+            return;
+        }
+        removeAll(ids);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Integer> pending = new ArrayList<>(ids);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    removeAll(pending);
+                    if (bus != null && status == STATUS_COMMITTED) {
+                        bus.publish(pending);
+                    }
+                }
+            });
+        } else if (bus != null) {
+            bus.publish(ids);
+        }
+    }
+
+    /**
+     * Ids changed by another node (see InvalidationBus)
+     */
+    @Override
+    public void onInvalidate(Collection<Integer> ids) {
+        removeAll(ids);
+    }
+
+    /**
+     * Invalidations of another node may have been lost
+     */
+    @Override
+    public void onInvalidateAll() {
+        clear();
+    }
+
+    /**
+     * Remove every todo from the cache
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            invalidationCount++;
+        }
+    }
+
+    private void removeAll(Collection<Integer> ids) {
+        if (maxSize == 0) {
+            return;
+        }
+        synchronized (entries) {
+            for (Integer id : ids) {
+                entries.remove(id);
+            }
+            invalidationCount++;
+        }
+    }
+
+    // ========== STATISTICS ==========
+
+    /**
+     * @return Number of findById() calls answered from the cache
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return Number of findById() calls that had to ask the wrapped DAO
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return Number of todos removed because the cache was full
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return Number of todos removed because their TTL had passed
+     */
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    /**
+     * @return Fraction of findById() calls answered from the cache (0.0 - 1.0)
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    /**
+     * @return Number of todos currently cached
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Statistics summary, useful for logging
+     *
+     * @return A formatted string with all cache counters
+     */
+    @Override
+    public String toString() {
+        return "CachingTodoDAO{" +
+                "size=" + size() +
+                ", maxSize=" + maxSize +
+                ", hits=" + getHitCount() +
+                ", misses=" + getMissCount() +
+                ", evictions=" + getEvictionCount() +
+                ", expirations=" + getExpirationCount() +
+                '}';
+    }
+
+    // ========== CACHE ENTRY ==========
+
+    /**
+     * A cached todo together with the time it was loaded and its TTL
+     */
+    private static final class CacheEntry {
+
+        private final Todo todo;
+        private final long loadedAtNanos;
+
+        /**
+         * 0 = never expires
+         */
+        private final long ttlNanos;
+
+        private CacheEntry(Todo todo, long loadedAtNanos, long ttlNanos) {
+            this.todo = todo;
+            this.loadedAtNanos = loadedAtNanos;
+            this.ttlNanos = ttlNanos;
+        }
+
+        private boolean isExpired(long nowNanos) {
+            return ttlNanos > 0 && nowNanos - loadedAtNanos >= ttlNanos;
+        }
+    }
+}
@@ -0,0 +1,1201 @@
+package com.todo.dao;
+
+import com.todo.model.Todo;
+import com.todo.model.TodoChange;
+import com.todo.model.TodoSummary;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+/**
+ * InMemoryTodoDAO - A TodoDAO that keeps every todo in process memory
+ *
+ * An alternative storage engine for latency-critical deployments (Spring
+ * profile "in-memory"): there is no database round-trip, findById takes well
+ * under a microsecond.
+ *
+ * Compact storage (no Todo object per row):
+ * - Ids are assigned in order (1, 2, 3, ...) like AUTO_INCREMENT, and the id
+ * IS the position: rows are stored in segments of 1024 ids, so finding a
+ * row is two array lookups (segment = id / 1024, slot = id % 1024)
+ * - "Row exists" and "completed" are bitsets (1 bit per todo), the version
+ * (optimistic locking, see update()) is an int per todo, the created,
+ * updated and deleted times (epoch milliseconds) are longs per todo
+ * - title and description are UTF-8 bytes in a direct (off-heap) ByteBuffer
+ * per segment, the "arena"; the row only keeps a long reference to them
+ * (offset and length), 44 bytes per todo on the heap in total
+ * - A deleted todo keeps its deleted time (its tombstone, for the change
+ * feed): ids are never reused, so the slot is not needed for anything else
+ * - Updated and deleted strings leave unused bytes in the arena; when it is
+ * full, the live strings are copied into a new arena (compaction)
+ *
+ * Concurrency:
+ * - Each segment has its own StampedLock, so writes to different segments
+ * do not block each other (lock striping)
+ * - Reads are optimistic: they read the row without locking and then check
+ * that no write happened meanwhile (StampedLock.validate); only if one did,
+ * they read again under the read lock
+ * - An arena is never modified where a published string lives (new strings
+ * are appended, compaction writes into a NEW buffer), so a validated
+ * reference can be decoded after the check, without any lock
+ *
+ * Limitations:
+ * - Not persistent: the data is lost when the application stops
+ * - Not transactional: every method is atomic on its own, but a rollback
+ * of the surrounding Spring transaction does NOT undo its changes
+ * - Off-heap memory is limited by -XX:MaxDirectMemorySize (by default the
+ * same as the maximum heap size)
+ */
+public class InMemoryTodoDAO implements TodoDAO {
+
+    // ========== LAYOUT ==========
+
+    private static final int SEGMENT_SHIFT = 10;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT; // 1024 todos
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    /**
+     * Initial arena size of a segment (grows as needed)
+     */
+    private static final int INITIAL_ARENA_BYTES = 64 * 1024;
+
+    /**
+     * Maximum arena size of a segment
+     */
+    private static final int MAX_ARENA_BYTES = 1 << 30;
+
+    /**
+     * String reference of a null description
+     */
+    private static final long NULL_REF = -1L;
+
+    /**
+     * Deleted time of a slot that has no tombstone
+     */
+    private static final long NOT_DELETED = 0L;
+
+    /**
+     * Words shorter than this are ignored by search() (like MySQL FULLTEXT)
+     */
+    private static final int MIN_SEARCH_WORD_LENGTH = 3;
+
+    // ========== STORAGE ==========
+
+    /**
+     * The segments, segments[i] holds ids i * 1024 ... i * 1024 + 1023
+     *
+     * Copy-on-write: the array is replaced (never changed) when it grows, so
+     * readers can use it without locking.
+     */
+    private volatile Segment[] segments = new Segment[0];
+
+    private final Object growLock = new Object();
+
+    /**
+     * Last id handed out (ids are never reused, like AUTO_INCREMENT)
+     */
+    private final AtomicInteger lastId = new AtomicInteger();
+
+    private final AtomicInteger todoCount = new AtomicInteger();
+    private final AtomicInteger completedCount = new AtomicInteger();
+
+    // ========== CREATE ==========
+
+    /**
+     * CREATE - Store a new todo and set its generated id
+     *
+     * @param todo - The todo to store (its id is set by this method)
+     */
+    @Override
+    public void create(Todo todo) {
+        checkTitle(todo);
+        int id = lastId.incrementAndGet();
+        todo.setVersion(0);
+        stampCreated(todo, Instant.ofEpochMilli(System.currentTimeMillis()));
+        Segment segment = segmentFor(id, true);
+        long stamp = segment.lock.writeLock();
+        try {
+            segment.insert(id - segment.firstId, todo);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+        todo.setId(id);
+    }
+
+    /**
+     * CREATE (bulk) - Store many todos at once
+     *
+     * How it works:
+     * 1. Validate all todos first (nothing is stored if one is invalid)
+     * 2. Reserve a block of consecutive ids with one atomic operation
+     * 3. Fill them segment by segment, locking each segment only once
+     *
+     * @param todos - The todos to store (their ids are set by this method)
+     * @return The generated ids, in the same order as todos
+     */
+    @Override
+    public List<Integer> createAll(Collection<Todo> todos) {
+        todos.forEach(InMemoryTodoDAO::checkTitle);
+        List<Integer> ids = new ArrayList<>(todos.size());
+        if (todos.isEmpty()) {
+            return ids;
+        }
+
+        int id = lastId.getAndAdd(todos.size()) + 1;
+        Instant now = Instant.ofEpochMilli(System.currentTimeMillis());
+        Iterator<Todo> iterator = todos.iterator();
+        while (iterator.hasNext()) {
+            Segment segment = segmentFor(id, true);
+            long stamp = segment.lock.writeLock();
+            try {
+                do {
+                    Todo todo = iterator.next();
+                    todo.setVersion(0);
+                    stampCreated(todo, now);
+                    segment.insert(id - segment.firstId, todo);
+                    todo.setId(id);
+                    ids.add(id);
+                    id++;
+                } while (iterator.hasNext() && id - segment.firstId < SEGMENT_SIZE);
+            } finally {
+                segment.lock.unlockWrite(stamp);
+            }
+        }
+        return ids;
+    }
+
+    // ========== READ ==========
+
+    /**
+     * READ - Find a todo by id
+     *
+     * How it works:
+     * 1. Two array lookups find the segment and the slot of the id
+     * 2. The row is read optimistically (no lock, see the class comment)
+     * 3. A new Todo is built from the bitsets and the arena strings
+     *
+     * @param id - The id to search for
+     * @return The todo, or null if not found
+     */
+    @Override
+    public Todo findById(int id) {
+        Segment segment = segmentFor(id, false);
+        return segment == null ? null : segment.read(id - segment.firstId);
+    }
+
+    @Override
+    public List<Todo> findAll() {
+        List<Todo> todos = new ArrayList<>(todoCount.get());
+        for (Segment segment : segments) {
+            segment.view().collect(0, null, Integer.MAX_VALUE, todos);
+        }
+        return todos;
+    }
+
+    /**
+     * READ - One page of todos, ordered by id
+     *
+     * Starts directly at the segment of afterId + 1, the todos before it are
+     * never looked at.
+     *
+     * @param afterId - Last id of the previous page (0 for the first page)
+     * @param limit   - Maximum number of todos in the page
+     * @return Up to limit todos with id > afterId
+     */
+    @Override
+    public List<Todo> findPage(int afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        List<Todo> page = new ArrayList<>(Math.min(limit, SEGMENT_SIZE));
+        if (afterId >= lastId.get()) {
+            return page;
+        }
+
+        int firstId = Math.max(afterId + 1, 1);
+        Segment[] snapshot = segments;
+        for (int i = firstId >>> SEGMENT_SHIFT; i < snapshot.length && page.size() < limit; i++) {
+            int fromSlot = i == firstId >>> SEGMENT_SHIFT ? firstId & SEGMENT_MASK : 0;
+            snapshot[i].view().collect(fromSlot, null, limit, page);
+        }
+        return page;
+    }
+
+    /**
+     * READ - Stream all todos
+     *
+     * Lazy: each segment is read only when the stream reaches it, so at most
+     * 1024 todos are built at a time.
+     */
+    @Override
+    public Stream<Todo> streamAll() {
+        return Arrays.stream(segments).flatMap(segment -> {
+            List<Todo> todos = new ArrayList<>();
+            segment.view().collect(0, null, Integer.MAX_VALUE, todos);
+            return todos.stream();
+        });
+    }
+
+    @Override
+    public void forEach(Consumer<Todo> action) {
+        List<Todo> todos = new ArrayList<>(SEGMENT_SIZE);
+        for (Segment segment : segments) {
+            todos.clear();
+            segment.view().collect(0, null, Integer.MAX_VALUE, todos);
+            todos.forEach(action);
+        }
+    }
+
+    /**
+     * READ - Find todos by completion status
+     *
+     * Uses the bitsets: 64 todos are checked at once (present AND completed,
+     * or present AND NOT completed), only matching rows are built.
+     */
+    @Override
+    public List<Todo> findByCompleted(boolean completed) {
+        List<Todo> todos = new ArrayList<>(completed ? completedCount.get() : todoCount.get() - completedCount.get());
+        for (Segment segment : segments) {
+            segment.view().collect(0, completed, Integer.MAX_VALUE, todos);
+        }
+        return todos;
+    }
+
+    /**
+     * READ - id, title and status of all todos
+     *
+     * Only the titles are decoded from the arenas, the descriptions are
+     * never touched.
+     */
+    @Override
+    public List<TodoSummary> findSummaries() {
+        List<TodoSummary> summaries = new ArrayList<>(todoCount.get());
+        for (Segment segment : segments) {
+            SegmentView view = segment.view();
+            view.collect(0, null, Integer.MAX_VALUE, summaries, view::toSummary);
+        }
+        return summaries;
+    }
+
+    /**
+     * READ - id, title and status of the todos with a status (bitsets, like
+     * findByCompleted)
+     */
+    @Override
+    public List<TodoSummary> findSummariesByCompleted(boolean completed) {
+        List<TodoSummary> summaries = new ArrayList<>(
+                completed ? completedCount.get() : todoCount.get() - completedCount.get());
+        for (Segment segment : segments) {
+            SegmentView view = segment.view();
+            view.collect(0, completed, Integer.MAX_VALUE, summaries, view::toSummary);
+        }
+        return summaries;
+    }
+
+    /**
+     * READ - Search todos by the words of a query
+     *
+     * There is no index: every todo is checked (the MySQL version uses a
+     * FULLTEXT index). The score of a todo is the number of query words
+     * found in its title or description (case-insensitive); only the best
+     * limit todos are kept while scanning.
+     *
+     * @param query - The words to search for
+     * @param limit - Maximum number of todos to return
+     * @return Matching todos, best score first (ties: lowest id first)
+     */
+    @Override
+    public List<Todo> search(String query, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Search limit must be positive: " + limit);
+        }
+        Set<String> words = new LinkedHashSet<>();
+        for (String word : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.length() >= MIN_SEARCH_WORD_LENGTH) {
+                words.add(word);
+            }
+        }
+        if (words.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Min-heap of the best matches so far: the worst one is on top
+        Comparator<ScoredTodo> worstFirst = Comparator.comparingInt((ScoredTodo scored) -> scored.score)
+                .thenComparing(scored -> scored.todo.getId(), Comparator.reverseOrder());
+        PriorityQueue<ScoredTodo> best = new PriorityQueue<>(worstFirst);
+        forEach(todo -> {
+            int score = score(todo, words);
+            if (score > 0) {
+                best.add(new ScoredTodo(todo, score));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        });
+
+        List<Todo> results = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            results.add(best.poll().todo);
+        }
+        Collections.reverse(results);
+        return results;
+    }
+
+    private static int score(Todo todo, Set<String> words) {
+        String title = todo.getTitle().toLowerCase(Locale.ROOT);
+        String description = todo.getDescription() == null ? "" : todo.getDescription().toLowerCase(Locale.ROOT);
+        int score = 0;
+        for (String word : words) {
+            if (title.contains(word) || description.contains(word)) {
+                score++;
+            }
+        }
+        return score;
+    }
+
+    /**
+     * READ - Changes after a (time, id) cursor (delta sync)
+     *
+     * There is no index: the updated and deleted times of every slot are
+     * checked (the MySQL version reads only the changed rows from
+     * idx_todos_updated_at). Only the oldest limit changes are kept while
+     * scanning, and only their strings are decoded.
+     *
+     * @param since   - Time of the last change already applied
+     * @param afterId - Id of the last change already applied
+     * @param limit   - Maximum number of changes to return
+     * @return Changes, oldest first (ties: lowest id first)
+     */
+    @Override
+    public List<TodoChange> findChangedSince(Instant since, int afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Change limit must be positive: " + limit);
+        }
+        long sinceMillis = since.toEpochMilli();
+
+        // Max-heap of the oldest changes so far: the newest one is on top
+        Comparator<ChangedSlot> newestFirst = Comparator.comparingLong((ChangedSlot changed) -> changed.time)
+                .thenComparingInt(changed -> changed.view.firstId + changed.slot).reversed();
+        PriorityQueue<ChangedSlot> oldest = new PriorityQueue<>(newestFirst);
+        for (Segment segment : segments) {
+            SegmentView view = segment.view();
+            for (int slot = 0; slot < SEGMENT_SIZE; slot++) {
+                boolean exists = isSet(view.present, slot);
+                long time = exists ? view.updatedAt[slot] : view.deletedAt[slot];
+                if ((exists || time != NOT_DELETED)
+                        && (time > sinceMillis || time == sinceMillis && view.firstId + slot > afterId)) {
+                    oldest.add(new ChangedSlot(view, slot, time));
+                    if (oldest.size() > limit) {
+                        oldest.poll();
+                    }
+                }
+            }
+        }
+
+        List<TodoChange> changes = new ArrayList<>(oldest.size());
+        while (!oldest.isEmpty()) {
+            changes.add(oldest.poll().toChange());
+        }
+        Collections.reverse(changes);
+        return changes;
+    }
+
+    @Override
+    public int countByCompleted(boolean completed) {
+        int completedTodos = completedCount.get();
+        return completed ? completedTodos : todoCount.get() - completedTodos;
+    }
+
+    @Override
+    public int countAll() {
+        return todoCount.get();
+    }
+
+    // ========== UPDATE ==========
+
+    /**
+     * UPDATE - Replace the title, description and status of a todo
+     *
+     * Optimistic locking like the database version: the todo is only
+     * written if its stored version is still todo.getVersion(); the check
+     * and the write happen under the segment's write lock.
+     *
+     * @param todo - The todo with new values (id must exist)
+     * @return 1 if the todo was updated, 0 if no todo has this id
+     * @throws TodoVersionConflictException if the todo was changed since it
+     *                                      was read
+     */
+    @Override
+    public int update(Todo todo) {
+        checkTitle(todo);
+        return update(todo, true);
+    }
+
+    /**
+     * Todos with an out-of-date version are skipped (see TodoDAO.updateAll)
+     */
+    @Override
+    public int updateAll(Collection<Todo> todos) {
+        todos.forEach(InMemoryTodoDAO::checkTitle);
+        int updated = 0;
+        for (Todo todo : todos) {
+            updated += update(todo, false);
+        }
+        return updated;
+    }
+
+    /**
+     * @param failOnConflict - true to throw on a version conflict, false to
+     *                       skip the todo (return 0)
+     */
+    private int update(Todo todo, boolean failOnConflict) {
+        Segment segment = segmentFor(todo.getId(), false);
+        if (segment == null) {
+            return 0;
+        }
+        int slot = todo.getId() - segment.firstId;
+        long stamp = segment.lock.writeLock();
+        try {
+            if (!isSet(segment.present, slot)) {
+                return 0;
+            }
+            int version = segment.versions[slot];
+            if (version != todo.getVersion()) {
+                if (failOnConflict) {
+                    throw new TodoVersionConflictException(todo.getId(), todo.getVersion());
+                }
+                return 0;
+            }
+            long now = System.currentTimeMillis();
+            segment.update(slot, todo, version + 1, now);
+            // The todo now has the stored times (a journal record of it is complete)
+            todo.setCreatedAt(Instant.ofEpochMilli(segment.createdAt[slot]));
+            todo.setUpdatedAt(Instant.ofEpochMilli(now));
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+        todo.setVersion(todo.getVersion() + 1);
+        return 1;
+    }
+
+    /**
+     * UPDATE - Change only the completed flag (one bit, no strings touched),
+     * increase the version and set the updated time
+     */
+    @Override
+    public int updateCompleted(int id, boolean completed) {
+        Segment segment = segmentFor(id, false);
+        if (segment == null) {
+            return 0;
+        }
+        long stamp = segment.lock.writeLock();
+        try {
+            return segment.setCompleted(id - segment.firstId, completed, System.currentTimeMillis()) ? 1 : 0;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int updateCompleted(Collection<Integer> ids, boolean completed) {
+        int updated = 0;
+        for (int id : ids) {
+            updated += updateCompleted(id, completed);
+        }
+        return updated;
+    }
+
+    // ========== DELETE ==========
+
+    /**
+     * DELETE - Remove a todo and keep its tombstone (deleted time)
+     */
+    @Override
+    public int delete(int id) {
+        Segment segment = segmentFor(id, false);
+        if (segment == null) {
+            return 0;
+        }
+        long stamp = segment.lock.writeLock();
+        try {
+            return segment.remove(id - segment.firstId, System.currentTimeMillis()) ? 1 : 0;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> ids) {
+        int deleted = 0;
+        for (int id : ids) {
+            deleted += delete(id);
+        }
+        return deleted;
+    }
+
+    // ========== RECOVERY ==========
+    // Used by JournaledTodoDAO to rebuild the store from its files
+
+    /**
+     * Store a todo under its own id (insert, or replace if it exists)
+     *
+     * Later create() calls never reuse this id. The version and the times
+     * are taken from the todo (unknown times, null, are stored as 0).
+     *
+     * @param todo - The todo to store, with its id set
+     */
+    void restore(Todo todo) {
+        checkTitle(todo);
+        Segment segment = segmentFor(todo.getId(), true);
+        if (segment == null) {
+            throw new IllegalArgumentException("Invalid todo id: " + todo.getId());
+        }
+        long stamp = segment.lock.writeLock();
+        try {
+            int slot = todo.getId() - segment.firstId;
+            if (segment.update(slot, todo, todo.getVersion(), epochMillis(todo.getUpdatedAt()))) {
+                segment.createdAt[slot] = epochMillis(todo.getCreatedAt());
+            } else {
+                segment.insert(slot, todo);
+            }
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+        advanceLastId(todo.getId());
+    }
+
+    /**
+     * Set the status, the version and the updated time of a todo (if it
+     * exists)
+     */
+    void restoreCompleted(int id, boolean completed, int version, long updatedAt) {
+        Segment segment = segmentFor(id, false);
+        if (segment == null) {
+            return;
+        }
+        long stamp = segment.lock.writeLock();
+        try {
+            int slot = id - segment.firstId;
+            if (segment.setCompleted(slot, completed, updatedAt)) {
+                segment.versions[slot] = version;
+            }
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Delete a todo (if it exists) and set its tombstone to the given time
+     *
+     * Later create() calls never reuse this id.
+     */
+    void restoreDeleted(int id, long deletedAt) {
+        Segment segment = segmentFor(id, true);
+        if (segment == null) {
+            throw new IllegalArgumentException("Invalid todo id: " + id);
+        }
+        long stamp = segment.lock.writeLock();
+        try {
+            int slot = id - segment.firstId;
+            segment.remove(slot, deletedAt);
+            segment.deletedAt[slot] = deletedAt;
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+        advanceLastId(id);
+    }
+
+    /**
+     * @return The updated time of a todo (epoch milliseconds), or -1 if it
+     *         does not exist
+     */
+    long updatedAtOf(int id) {
+        Segment segment = segmentFor(id, false);
+        if (segment == null) {
+            return -1;
+        }
+        long stamp = segment.lock.readLock();
+        try {
+            int slot = id - segment.firstId;
+            return isSet(segment.present, slot) ? segment.updatedAt[slot] : -1;
+        } finally {
+            segment.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return The deleted time of a todo (epoch milliseconds), or -1 if it
+     *         has no tombstone
+     */
+    long deletedAtOf(int id) {
+        Segment segment = segmentFor(id, false);
+        if (segment == null) {
+            return -1;
+        }
+        long stamp = segment.lock.readLock();
+        try {
+            int slot = id - segment.firstId;
+            long deletedAt = segment.deletedAt[slot];
+            return isSet(segment.present, slot) || deletedAt == NOT_DELETED ? -1 : deletedAt;
+        } finally {
+            segment.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Call an action for every tombstone, in id order
+     *
+     * @param action - Called with the id and the deleted time of each
+     *               deleted todo
+     */
+    void forEachTombstone(TombstoneConsumer action) {
+        for (Segment segment : segments) {
+            SegmentView view = segment.view();
+            for (int slot = 0; slot < SEGMENT_SIZE; slot++) {
+                if (!isSet(view.present, slot) && view.deletedAt[slot] != NOT_DELETED) {
+                    action.accept(view.firstId + slot, view.deletedAt[slot]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Receives the tombstones of forEachTombstone()
+     */
+    @FunctionalInterface
+    interface TombstoneConsumer {
+        void accept(int id, long deletedAt);
+    }
+
+    /**
+     * @return The current version of a todo, or -1 if it does not exist
+     */
+    int versionOf(int id) {
+        Segment segment = segmentFor(id, false);
+        if (segment == null) {
+            return -1;
+        }
+        long stamp = segment.lock.readLock();
+        try {
+            int slot = id - segment.firstId;
+            return isSet(segment.present, slot) ? segment.versions[slot] : -1;
+        } finally {
+            segment.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Make sure later create() calls use ids above the given one
+     */
+    void advanceLastId(int id) {
+        lastId.accumulateAndGet(id, Math::max);
+    }
+
+    /**
+     * @return The highest id handed out so far
+     */
+    int getLastId() {
+        return lastId.get();
+    }
+
+    // ========== STATISTICS ==========
+
+    /**
+     * @return Off-heap memory allocated for strings, in bytes
+     */
+    public long getArenaBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                bytes += segment.arena.capacity();
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @return Bytes of the strings of existing todos (the rest of the arena is
+     *         free space or garbage waiting for compaction)
+     */
+    public long getLiveStringBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                bytes += segment.liveBytes;
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "InMemoryTodoDAO{" +
+                "todos=" + countAll() +
+                ", segments=" + segments.length +
+                ", arenaBytes=" + getArenaBytes() +
+                ", liveStringBytes=" + getLiveStringBytes() +
+                '}';
+    }
+
+    // ========== HELPERS ==========
+
+    /**
+     * Find the segment of an id
+     *
+     * @param id     - The todo id
+     * @param create - true to create the segment (and the ones before it) if
+     *               it does not exist yet
+     * @return The segment, or null if it does not exist (and create is false)
+     */
+    private Segment segmentFor(int id, boolean create) {
+        if (id <= 0) {
+            return null;
+        }
+        int index = id >>> SEGMENT_SHIFT;
+        Segment[] snapshot = segments;
+        if (index < snapshot.length) {
+            return snapshot[index];
+        }
+        if (!create) {
+            return null;
+        }
+
+        synchronized (growLock) {
+            snapshot = segments;
+            if (index >= snapshot.length) {
+                Segment[] grown = Arrays.copyOf(snapshot, index + 1);
+                for (int i = snapshot.length; i < grown.length; i++) {
+                    grown[i] = new Segment(i << SEGMENT_SHIFT);
+                }
+                segments = grown;
+                snapshot = grown;
+            }
+            return snapshot[index];
+        }
+    }
+
+    /**
+     * The title column is NOT NULL in the database, same rule here
+     */
+    private static void checkTitle(Todo todo) {
+        if (todo.getTitle() == null) {
+            throw new DataIntegrityViolationException("Column 'title' cannot be null");
+        }
+    }
+
+    private static boolean isSet(long[] bits, int slot) {
+        return (bits[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    private static void set(long[] bits, int slot, boolean value) {
+        if (value) {
+            bits[slot >>> 6] |= 1L << slot;
+        } else {
+            bits[slot >>> 6] &= ~(1L << slot);
+        }
+    }
+
+    // A string reference is (offset << 32) | length, or NULL_REF
+
+    private static int offset(long ref) {
+        return (int) (ref >>> 32);
+    }
+
+    private static int length(long ref) {
+        return ref == NULL_REF ? 0 : (int) ref;
+    }
+
+    private static String decode(ByteBuffer arena, long ref) {
+        if (ref == NULL_REF) {
+            return null;
+        }
+        byte[] bytes = new byte[length(ref)];
+        arena.get(offset(ref), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Todo row(int id, String title, String description, boolean completed, int version,
+            long createdAt, long updatedAt) {
+        Todo todo = new Todo(id, title, description, completed);
+        todo.setVersion(version);
+        todo.setCreatedAt(Instant.ofEpochMilli(createdAt));
+        todo.setUpdatedAt(Instant.ofEpochMilli(updatedAt));
+        return todo;
+    }
+
+    private static void stampCreated(Todo todo, Instant now) {
+        todo.setCreatedAt(now);
+        todo.setUpdatedAt(now);
+    }
+
+    private static long epochMillis(Instant time) {
+        return time == null ? 0 : time.toEpochMilli();
+    }
+
+    // ========== SEGMENT ==========
+
+    /**
+     * 1024 consecutive ids, with their own lock and string arena
+     *
+     * Fields are only changed under the write lock. Readers either use an
+     * optimistic stamp or the read lock.
+     */
+    private final class Segment {
+
+        private final int firstId;
+        private final StampedLock lock = new StampedLock();
+
+        private final long[] present = new long[SEGMENT_SIZE / 64];
+        private final long[] completed = new long[SEGMENT_SIZE / 64];
+        private final long[] titleRefs = new long[SEGMENT_SIZE];
+        private final long[] descriptionRefs = new long[SEGMENT_SIZE];
+        private final int[] versions = new int[SEGMENT_SIZE];
+        private final long[] createdAt = new long[SEGMENT_SIZE];
+        private final long[] updatedAt = new long[SEGMENT_SIZE];
+        private final long[] deletedAt = new long[SEGMENT_SIZE];
+
+        private ByteBuffer arena = ByteBuffer.allocateDirect(INITIAL_ARENA_BYTES);
+        private int arenaUsed;
+        private int liveBytes;
+
+        private Segment(int firstId) {
+            this.firstId = firstId;
+            Arrays.fill(titleRefs, NULL_REF);
+            Arrays.fill(descriptionRefs, NULL_REF);
+        }
+
+        /**
+         * Read one row (optimistic, see the class comment)
+         */
+        private Todo read(int slot) {
+            long stamp = lock.tryOptimisticRead();
+            boolean exists = isSet(present, slot);
+            boolean done = isSet(completed, slot);
+            long titleRef = titleRefs[slot];
+            long descriptionRef = descriptionRefs[slot];
+            int version = versions[slot];
+            long created = createdAt[slot];
+            long updated = updatedAt[slot];
+            ByteBuffer bytes = arena;
+            if (lock.validate(stamp)) {
+                return exists ? row(firstId + slot, decode(bytes, titleRef), decode(bytes, descriptionRef), done,
+                        version, created, updated) : null;
+            }
+
+            // A write happened while reading: read again under the read lock
+            stamp = lock.readLock();
+            try {
+                return isSet(present, slot)
+                        ? row(firstId + slot, decode(arena, titleRefs[slot]),
+                                decode(arena, descriptionRefs[slot]), isSet(completed, slot), versions[slot],
+                                createdAt[slot], updatedAt[slot])
+                        : null;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Take a consistent copy of the row metadata (used by scans)
+         *
+         * The copy is taken optimistically; if a write happened meanwhile it
+         * is taken again under the read lock.
+         */
+        private SegmentView view() {
+            long stamp = lock.tryOptimisticRead();
+            SegmentView view = new SegmentView(firstId, present.clone(), completed.clone(),
+                    titleRefs.clone(), descriptionRefs.clone(), versions.clone(),
+                    createdAt.clone(), updatedAt.clone(), deletedAt.clone(), arena);
+            if (lock.validate(stamp)) {
+                return view;
+            }
+            stamp = lock.readLock();
+            try {
+                return new SegmentView(firstId, present.clone(), completed.clone(),
+                        titleRefs.clone(), descriptionRefs.clone(), versions.clone(),
+                    createdAt.clone(), updatedAt.clone(), deletedAt.clone(), arena);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        // ----- Writes (caller holds the write lock) -----
+
+        private void insert(int slot, Todo todo) {
+            titleRefs[slot] = store(todo.getTitle());
+            descriptionRefs[slot] = store(todo.getDescription());
+            set(present, slot, true);
+            set(completed, slot, todo.isCompleted());
+            versions[slot] = todo.getVersion();
+            createdAt[slot] = epochMillis(todo.getCreatedAt());
+            updatedAt[slot] = epochMillis(todo.getUpdatedAt());
+            deletedAt[slot] = NOT_DELETED;
+            todoCount.incrementAndGet();
+            if (todo.isCompleted()) {
+                completedCount.incrementAndGet();
+            }
+        }
+
+        private boolean update(int slot, Todo todo, int version, long updated) {
+            if (!isSet(present, slot)) {
+                return false;
+            }
+            release(titleRefs[slot]);
+            release(descriptionRefs[slot]);
+            // Released first: if the arena must grow, the old strings are not copied
+            // (a reference that is not NULL_REF is always live)
+            titleRefs[slot] = NULL_REF;
+            descriptionRefs[slot] = NULL_REF;
+            titleRefs[slot] = store(todo.getTitle());
+            descriptionRefs[slot] = store(todo.getDescription());
+            setCompleted(slot, todo.isCompleted(), updated);
+            versions[slot] = version;
+            return true;
+        }
+
+        private boolean setCompleted(int slot, boolean done, long updated) {
+            if (!isSet(present, slot)) {
+                return false;
+            }
+            versions[slot]++;
+            updatedAt[slot] = updated;
+            if (isSet(completed, slot) != done) {
+                set(completed, slot, done);
+                if (done) {
+                    completedCount.incrementAndGet();
+                } else {
+                    completedCount.decrementAndGet();
+                }
+            }
+            return true;
+        }
+
+        private boolean remove(int slot, long deleted) {
+            if (!isSet(present, slot)) {
+                return false;
+            }
+            deletedAt[slot] = deleted;
+            if (isSet(completed, slot)) {
+                completedCount.decrementAndGet();
+            }
+            todoCount.decrementAndGet();
+            release(titleRefs[slot]);
+            release(descriptionRefs[slot]);
+            titleRefs[slot] = NULL_REF;
+            descriptionRefs[slot] = NULL_REF;
+            set(present, slot, false);
+            set(completed, slot, false);
+            return true;
+        }
+
+        // ----- Arena (caller holds the write lock) -----
+
+        /**
+         * Append a string to the arena
+         *
+         * @return The reference of the stored bytes
+         */
+        private long store(String value) {
+            if (value == null) {
+                return NULL_REF;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (arena.capacity() - arenaUsed < bytes.length) {
+                compact(bytes.length);
+            }
+            int offset = arenaUsed;
+            arena.put(offset, bytes);
+            arenaUsed += bytes.length;
+            liveBytes += bytes.length;
+            return ((long) offset << 32) | bytes.length;
+        }
+
+        private void release(long ref) {
+            liveBytes -= length(ref);
+        }
+
+        /**
+         * Copy the live strings into a new arena with room for extraBytes more
+         *
+         * The new arena is twice the live data (at least the initial size), so
+         * compaction happens again only after as many bytes as are live have
+         * been written. The old arena is left unchanged for readers that are
+         * still decoding from it.
+         */
+        private void compact(int extraBytes) {
+            long needed = (long) liveBytes + extraBytes;
+            if (needed > MAX_ARENA_BYTES) {
+                throw new IllegalStateException("Strings of todos " + firstId + " to "
+                        + (firstId + SEGMENT_MASK) + " exceed " + MAX_ARENA_BYTES + " bytes");
+            }
+            long capacity = INITIAL_ARENA_BYTES;
+            while (capacity < needed * 2) {
+                capacity *= 2;
+            }
+
+            ByteBuffer target = ByteBuffer.allocateDirect((int) Math.min(capacity, MAX_ARENA_BYTES));
+            // Every reference that is not NULL_REF is live (also the title of
+            // a row being inserted or updated right now)
+            int used = 0;
+            for (int slot = 0; slot < SEGMENT_SIZE; slot++) {
+                titleRefs[slot] = relocate(titleRefs[slot], target, used);
+                used += length(titleRefs[slot]);
+                descriptionRefs[slot] = relocate(descriptionRefs[slot], target, used);
+                used += length(descriptionRefs[slot]);
+            }
+            arena = target;
+            arenaUsed = used;
+        }
+
+        private long relocate(long ref, ByteBuffer target, int at) {
+            if (ref == NULL_REF) {
+                return NULL_REF;
+            }
+            target.put(at, arena, offset(ref), length(ref));
+            return ((long) at << 32) | length(ref);
+        }
+    }
+
+    // ========== SEGMENT VIEW ==========
+
+    /**
+     * A consistent copy of a segment's row metadata
+     *
+     * The strings stay in the arena (no copy): the bytes a reference points
+     * to never change.
+     */
+    private static final class SegmentView {
+
+        private final int firstId;
+        private final long[] present;
+        private final long[] completed;
+        private final long[] titleRefs;
+        private final long[] descriptionRefs;
+        private final int[] versions;
+        private final long[] createdAt;
+        private final long[] updatedAt;
+        private final long[] deletedAt;
+        private final ByteBuffer arena;
+
+        private SegmentView(int firstId, long[] present, long[] completed, long[] titleRefs,
+                long[] descriptionRefs, int[] versions, long[] createdAt, long[] updatedAt, long[] deletedAt,
+                ByteBuffer arena) {
+            this.firstId = firstId;
+            this.present = present;
+            this.completed = completed;
+            this.titleRefs = titleRefs;
+            this.descriptionRefs = descriptionRefs;
+            this.versions = versions;
+            this.createdAt = createdAt;
+            this.updatedAt = updatedAt;
+            this.deletedAt = deletedAt;
+            this.arena = arena;
+        }
+
+        /**
+         * Add the todos of this segment to a list, in id order
+         *
+         * @param fromSlot        - First slot to look at
+         * @param completedFilter - Only todos with this status (null = all)
+         * @param limit           - Stop when the list has this many todos
+         * @param todos           - The list to add to
+         */
+        private void collect(int fromSlot, Boolean completedFilter, int limit, List<Todo> todos) {
+            collect(fromSlot, completedFilter, limit, todos, this::toTodo);
+        }
+
+        /**
+         * Same as collect(), but each row is built by rowAt (e.g. a
+         * TodoSummary instead of a Todo)
+         */
+        private <T> void collect(int fromSlot, Boolean completedFilter, int limit, List<T> rows,
+                IntFunction<T> rowAt) {
+            for (int word = fromSlot >>> 6; word < present.length; word++) {
+                long bits = present[word];
+                if (completedFilter != null) {
+                    bits &= completedFilter ? completed[word] : ~completed[word];
+                }
+                if (word == fromSlot >>> 6) {
+                    bits &= -1L << fromSlot; // skip the slots before fromSlot
+                }
+                while (bits != 0) {
+                    if (rows.size() >= limit) {
+                        return;
+                    }
+                    int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    rows.add(rowAt.apply(slot));
+                    bits &= bits - 1; // clear the lowest set bit
+                }
+            }
+        }
+
+        private Todo toTodo(int slot) {
+            return row(firstId + slot, decode(arena, titleRefs[slot]), decode(arena, descriptionRefs[slot]),
+                    isSet(completed, slot), versions[slot], createdAt[slot], updatedAt[slot]);
+        }
+
+        private TodoSummary toSummary(int slot) {
+            return new TodoSummary(firstId + slot, decode(arena, titleRefs[slot]), isSet(completed, slot));
+        }
+    }
+
+    /**
+     * A change found by findChangedSince (the todo is only built if the
+     * change is kept)
+     */
+    private static final class ChangedSlot {
+
+        private final SegmentView view;
+        private final int slot;
+        private final long time;
+
+        private ChangedSlot(SegmentView view, int slot, long time) {
+            this.view = view;
+            this.slot = slot;
+            this.time = time;
+        }
+
+        private TodoChange toChange() {
+            return isSet(view.present, slot) ? TodoChange.updated(view.toTodo(slot))
+                    : TodoChange.deleted(view.firstId + slot, Instant.ofEpochMilli(time));
+        }
+    }
+
+    /**
+     * A search result with its score
+     */
+    private static final class ScoredTodo {
+
+        private final Todo todo;
+        private final int score;
+
+        private ScoredTodo(Todo todo, int score) {
+            this.todo = todo;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.todo.dao;
+
+import com.todo.model.Todo;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.zip.CRC32C;
+
+/**
+ * JournalRecords - Binary format of the journal and snapshot files
+ *
+ * Both files are a sequence of records:
+ * [int payload length][int CRC32C of the payload][payload]
+ *
+ * Payloads (first byte = record type):
+ * - PUT: [id][version][created][updated][completed][title][description] -
+ * create or full update
+ * - COMPLETED: [id][version][updated][completed] - updateCompleted
+ * - DELETE: [id][deleted] - delete (and the tombstone in a snapshot)
+ * - SNAPSHOT_START: [format version][last id] - first record of a snapshot
+ * - SNAPSHOT_END: [number of records] - last record of a snapshot
+ *
+ * Times are [long epoch milliseconds]. Strings are [int byte length, -1 for
+ * null][UTF-8 bytes].
+ *
+ * A record whose length or checksum does not match was not completely
+ * written (crash during a write): reading stops there.
+ *
+ * Files are read and written with positional FileChannel calls, never
+ * memory-mapped: on Windows a mapped file cannot be truncated or renamed
+ * until the mapping is garbage collected, which would break the journal
+ * truncate and the snapshot rename of JournaledTodoDAO.
+ *
+ * Used by JournaledTodoDAO only.
+ */
+final class JournalRecords {
+
+    static final byte PUT = 1;
+    static final byte COMPLETED = 2;
+    static final byte DELETE = 3;
+    static final byte SNAPSHOT_START = 4;
+    static final byte SNAPSHOT_END = 5;
+
+    static final int SNAPSHOT_VERSION = 1;
+
+    /**
+     * Length and checksum in front of every payload
+     */
+    private static final int HEADER_BYTES = 8;
+
+    /**
+     * Files are read in chunks of this size (bigger for bigger records)
+     */
+    private static final int READ_BUFFER_BYTES = 1024 * 1024;
+
+    private JournalRecords() {
+    }
+
+    // ========== WRITING ==========
+
+    /**
+     * Append a PUT record
+     *
+     * @return The buffer to use from now on (a bigger copy if it was full)
+     */
+    static ByteBuffer put(ByteBuffer buffer, Todo todo) {
+        byte[] title = bytes(todo.getTitle());
+        byte[] description = bytes(todo.getDescription());
+        int payload = 1 + 4 + 4 + 8 + 8 + 1 + stringSize(title) + stringSize(description);
+        buffer = begin(buffer, payload);
+        buffer.put(PUT).putInt(todo.getId()).putInt(todo.getVersion())
+                .putLong(epochMillis(todo.getCreatedAt())).putLong(epochMillis(todo.getUpdatedAt()))
+                .put((byte) (todo.isCompleted() ? 1 : 0));
+        putString(buffer, title);
+        putString(buffer, description);
+        return end(buffer, payload);
+    }
+
+    /**
+     * Append a COMPLETED record
+     *
+     * @param version   - The version of the todo AFTER the change
+     * @param updatedAt - The updated time of the todo AFTER the change
+     */
+    static ByteBuffer completed(ByteBuffer buffer, int id, boolean completed, int version, long updatedAt) {
+        int payload = 1 + 4 + 4 + 8 + 1;
+        buffer = begin(buffer, payload);
+        buffer.put(COMPLETED).putInt(id).putInt(version).putLong(updatedAt).put((byte) (completed ? 1 : 0));
+        return end(buffer, payload);
+    }
+
+    /**
+     * Append a DELETE record
+     *
+     * @param deletedAt - The time of the deletion (its tombstone)
+     */
+    static ByteBuffer delete(ByteBuffer buffer, int id, long deletedAt) {
+        int payload = 1 + 4 + 8;
+        buffer = begin(buffer, payload);
+        buffer.put(DELETE).putInt(id).putLong(deletedAt);
+        return end(buffer, payload);
+    }
+
+    static ByteBuffer snapshotStart(ByteBuffer buffer, int lastId) {
+        int payload = 1 + 4 + 4;
+        buffer = begin(buffer, payload);
+        buffer.put(SNAPSHOT_START).putInt(SNAPSHOT_VERSION).putInt(lastId);
+        return end(buffer, payload);
+    }
+
+    static ByteBuffer snapshotEnd(ByteBuffer buffer, int count) {
+        int payload = 1 + 4;
+        buffer = begin(buffer, payload);
+        buffer.put(SNAPSHOT_END).putInt(count);
+        return end(buffer, payload);
+    }
+
+    /**
+     * Make room for a record and write its length (the checksum is written by
+     * end(), once the payload is known)
+     */
+    private static ByteBuffer begin(ByteBuffer buffer, int payload) {
+        if (buffer.remaining() < HEADER_BYTES + payload) {
+            int capacity = Math.max(buffer.capacity() * 2, buffer.position() + HEADER_BYTES + payload);
+            ByteBuffer bigger = ByteBuffer.allocate(capacity);
+            buffer.flip();
+            bigger.put(buffer);
+            buffer = bigger;
+        }
+        buffer.putInt(payload).putInt(0);
+        return buffer;
+    }
+
+    private static ByteBuffer end(ByteBuffer buffer, int payload) {
+        int payloadStart = buffer.position() - payload;
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), buffer.arrayOffset() + payloadStart, payload);
+        buffer.putInt(payloadStart - 4, (int) crc.getValue());
+        return buffer;
+    }
+
+    private static long epochMillis(Instant time) {
+        return time == null ? 0 : time.toEpochMilli();
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int stringSize(byte[] value) {
+        return 4 + (value == null ? 0 : value.length);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length).put(value);
+        }
+    }
+
+    // ========== READING ==========
+
+    /**
+     * Apply a PUT, COMPLETED or DELETE payload to the store
+     *
+     * Every record sets an absolute value (including the version and the
+     * times), so applying a record again (or to a state that already contains
+     * it) gives the same result.
+     *
+     * @param payload - The payload, positioned at the record type
+     * @param store   - The store to change
+     */
+    static void apply(ByteBuffer payload, InMemoryTodoDAO store) {
+        byte type = payload.get();
+        int id = payload.getInt();
+        switch (type) {
+            case PUT -> {
+                int version = payload.getInt();
+                long createdAt = payload.getLong();
+                long updatedAt = payload.getLong();
+                boolean completed = payload.get() != 0;
+                String title = getString(payload);
+                String description = getString(payload);
+                Todo todo = new Todo(id, title, description, completed);
+                todo.setVersion(version);
+                todo.setCreatedAt(Instant.ofEpochMilli(createdAt));
+                todo.setUpdatedAt(Instant.ofEpochMilli(updatedAt));
+                store.restore(todo);
+            }
+            case COMPLETED -> {
+                int version = payload.getInt();
+                long updatedAt = payload.getLong();
+                store.restoreCompleted(id, payload.get() != 0, version, updatedAt);
+            }
+            case DELETE -> store.restoreDeleted(id, payload.getLong());
+            default -> throw new IllegalStateException("Unexpected record type " + type + " for todo " + id);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the records of a file in chunks (one positional read per chunk)
+     */
+    static final class Reader {
+
+        private final FileChannel channel;
+        private final long size;
+        private long position;
+
+        /**
+         * The bytes of the file from bufferStart to bufferStart + limit
+         */
+        private ByteBuffer buffer = ByteBuffer.allocate(0);
+        private long bufferStart;
+
+        Reader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        /**
+         * @return The payload of the next record (valid until the next call),
+         *         or null at the end of the file or at an incompletely written
+         *         record
+         */
+        ByteBuffer next() throws IOException {
+            if (size - position < HEADER_BYTES) {
+                return null;
+            }
+            ByteBuffer header = read(position, HEADER_BYTES);
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length <= 0 || length > size - position - HEADER_BYTES) {
+                return null;
+            }
+
+            ByteBuffer payload = read(position + HEADER_BYTES, length);
+            CRC32C crc = new CRC32C();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                return null;
+            }
+            position += HEADER_BYTES + length;
+            return payload;
+        }
+
+        /**
+         * @return File position after the last record returned by next()
+         */
+        long position() {
+            return position;
+        }
+
+        /**
+         * @return true if every byte of the file was read as a valid record
+         */
+        boolean atEnd() {
+            return position == size;
+        }
+
+        /**
+         * @return length bytes of the file at the given position (the caller
+         *         checked that the file has them)
+         */
+        private ByteBuffer read(long at, int length) throws IOException {
+            if (at < bufferStart || at + length > bufferStart + buffer.limit()) {
+                int capacity = (int) Math.max(length, Math.min(READ_BUFFER_BYTES, size));
+                if (buffer.capacity() < capacity) {
+                    buffer = ByteBuffer.allocate(capacity);
+                }
+                buffer.clear().limit((int) Math.min(buffer.capacity(), size - at));
+                long filePosition = at;
+                while (buffer.hasRemaining()) {
+                    int read = channel.read(buffer, filePosition);
+                    if (read < 0) {
+                        throw new EOFException("File shrank while it was read (at byte " + filePosition + ")");
+                    }
+                    filePosition += read;
+                }
+                buffer.flip();
+                bufferStart = at;
+            }
+            return buffer.slice((int) (at - bufferStart), length);
+        }
+    }
+
+    /**
+     * Writes records to a file (positional writes, from the start of the file)
+     */
+    static final class Writer {
+
+        private final FileChannel channel;
+        private long position;
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Write encoded records (position to limit) to the file
+         */
+        void write(ByteBuffer records) throws IOException {
+            while (records.hasRemaining()) {
+                position += channel.write(records, position);
+            }
+        }
+
+        /**
+         * Cut anything after the last record and write the file to disk
+         */
+        void finish() throws IOException {
+            channel.truncate(position);
+            channel.force(true);
+        }
+    }
+}
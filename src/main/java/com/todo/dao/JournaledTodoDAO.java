@@ -0,0 +1,797 @@
+package com.todo.dao;
+
+import com.todo.logging.AsyncLogger;
+import com.todo.model.Todo;
+import com.todo.model.TodoChange;
+import com.todo.model.TodoSummary;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * JournaledTodoDAO - Durable local storage without a database server
+ *
+ * Decorator Pattern: wraps an InMemoryTodoDAO and makes its changes survive a
+ * restart (Spring profile "journal", e.g. for edge nodes without MySQL).
+ *
+ * How it works:
+ * - Journal: every change (create, update, delete, ...) is appended as a
+ * small binary record to a journal file (sequential writes only)
+ * - Group commit: a background thread writes all records collected so far
+ * with ONE FileChannel.write() + force() (fsync); a write method returns only
+ * once its record is on disk, and all writers waiting at the same time share
+ * the same fsync
+ * - Snapshot: every snapshotIntervalSeconds (and on close), all todos are
+ * written to a snapshot file, and the journal files it replaces are deleted,
+ * so the journal does not grow forever
+ * - Recovery: on startup, the newest snapshot is loaded and the journal
+ * files written after it are replayed
+ *
+ * Files in the directory (N = generation, increases with every snapshot):
+ * - journal-N.log: changes made after snapshot N was started
+ * - snapshot-N.snap: all todos (and the tombstones of deleted todos) at
+ * (about) the start of journal N
+ *
+ * The snapshot is taken while writes continue, so it may already contain
+ * some changes of journal N. That is fine: every record sets an absolute
+ * value (the full row, the status and version, or "deleted"), so replaying
+ * journal N on top of it gives the same result.
+ *
+ * Trade-offs:
+ * - Like InMemoryTodoDAO, not transactional: a rollback does not undo changes
+ * - Other threads can read a change a moment before it is on disk
+ * - If the disk fails, the DAO refuses all further writes
+ */
+public class JournaledTodoDAO implements TodoDAO {
+
+    private static final AsyncLogger log = AsyncLogger.getLogger(JournaledTodoDAO.class);
+
+    private static final Pattern JOURNAL_FILE = Pattern.compile("journal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d+)\\.snap");
+
+    // ========== DEPENDENCIES AND SETTINGS ==========
+
+    private final InMemoryTodoDAO store;
+    private final Path directory;
+    private final long snapshotIntervalMillis;
+
+    // ========== JOURNAL BUFFER ==========
+
+    /**
+     * Encoded records not yet written to the file (guarded by lock)
+     */
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+
+    /**
+     * Bytes appended to the journal since startup, and how many of them are
+     * on disk (guarded by lock)
+     */
+    private long appendedBytes;
+    private long durableBytes;
+    private long appendedAtSnapshot;
+
+    /**
+     * Set when writing the journal failed (guarded by lock)
+     */
+    private IOException failure;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled when records were appended (wakes up the journal thread)
+     */
+    private final Condition recordsAppended = lock.newCondition();
+
+    /**
+     * Signalled after an fsync (wakes up the writers waiting for it)
+     */
+    private final Condition synced = lock.newCondition();
+
+    /**
+     * Signalled by close() (wakes up the snapshot thread)
+     */
+    private final Condition closing = lock.newCondition();
+
+    private volatile boolean running = true;
+
+    // ========== FILES ==========
+
+    /**
+     * Guards the journal file: only one thread writes it or switches it
+     * (the journal thread or a snapshot)
+     */
+    private final Object io = new Object();
+
+    private FileChannel journal;
+    private long generation;
+
+    /**
+     * The second buffer of the journal thread (guarded by io): while one
+     * buffer is written to disk, writers fill the other one
+     */
+    private ByteBuffer spare = ByteBuffer.allocate(64 * 1024);
+
+    private volatile long syncCount;
+
+    /**
+     * Only one snapshot at a time
+     */
+    private final Object snapshotMonitor = new Object();
+
+    private final Thread journalThread;
+    private final Thread snapshotThread;
+
+    /**
+     * Constructor for dependency injection - recovers the store from the
+     * files in the directory (if any) before the DAO can be used
+     *
+     * @param store                   - The (empty) in-memory store to wrap
+     * @param directory               - Where journal and snapshot files are kept
+     * @param snapshotIntervalSeconds - Time between snapshots (0 = only on
+     *                                close)
+     * @throws IOException if the files cannot be read or created
+     */
+    public JournaledTodoDAO(InMemoryTodoDAO store, String directory, long snapshotIntervalSeconds)
+            throws IOException {
+        if (snapshotIntervalSeconds < 0) {
+            throw new IllegalArgumentException("Snapshot interval cannot be negative");
+        }
+        this.store = store;
+        this.directory = Paths.get(directory);
+        this.snapshotIntervalMillis = TimeUnit.SECONDS.toMillis(snapshotIntervalSeconds);
+
+        recover();
+
+        this.journalThread = new Thread(this::journalLoop, "todo-journal");
+        this.journalThread.setDaemon(true);
+        this.journalThread.start();
+
+        if (snapshotIntervalMillis > 0) {
+            this.snapshotThread = new Thread(this::snapshotLoop, "todo-snapshot");
+            this.snapshotThread.setDaemon(true);
+            this.snapshotThread.start();
+        } else {
+            this.snapshotThread = null;
+        }
+    }
+
+    // ========== JOURNALED WRITES ==========
+    // Each write changes the store and appends its record under the lock (so
+    // records are in the same order as the changes), then waits for the fsync
+    // without holding the lock
+
+    @Override
+    public void create(Todo todo) {
+        long position;
+        lock.lock();
+        try {
+            checkWritable();
+            store.create(todo);
+            position = appendPut(todo);
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(position);
+    }
+
+    @Override
+    public List<Integer> createAll(Collection<Todo> todos) {
+        List<Integer> ids;
+        long position = 0;
+        lock.lock();
+        try {
+            checkWritable();
+            ids = store.createAll(todos);
+            for (Todo todo : todos) {
+                position = appendPut(todo);
+            }
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(position);
+        return ids;
+    }
+
+    @Override
+    public int update(Todo todo) {
+        long position = 0;
+        int updated;
+        lock.lock();
+        try {
+            checkWritable();
+            updated = store.update(todo);
+            if (updated > 0) {
+                position = appendPut(todo);
+            }
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(position);
+        return updated;
+    }
+
+    @Override
+    public int updateAll(Collection<Todo> todos) {
+        long position = 0;
+        int updated = 0;
+        lock.lock();
+        try {
+            checkWritable();
+            for (Todo todo : todos) {
+                if (store.updateAll(List.of(todo)) > 0) { // skips out-of-date versions
+                    position = appendPut(todo);
+                    updated++;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(position);
+        return updated;
+    }
+
+    @Override
+    public int updateCompleted(int id, boolean completed) {
+        return updateCompleted(List.of(id), completed);
+    }
+
+    @Override
+    public int updateCompleted(Collection<Integer> ids, boolean completed) {
+        long position = 0;
+        int updated = 0;
+        lock.lock();
+        try {
+            checkWritable();
+            for (int id : ids) {
+                if (store.updateCompleted(id, completed) > 0) {
+                    int before = pending.position();
+                    pending = JournalRecords.completed(pending, id, completed, store.versionOf(id),
+                            store.updatedAtOf(id));
+                    position = appended(before);
+                    updated++;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(position);
+        return updated;
+    }
+
+    @Override
+    public int delete(int id) {
+        return deleteAll(List.of(id));
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> ids) {
+        long position = 0;
+        int deleted = 0;
+        lock.lock();
+        try {
+            checkWritable();
+            for (int id : ids) {
+                if (store.delete(id) > 0) {
+                    int before = pending.position();
+                    pending = JournalRecords.delete(pending, id, store.deletedAtOf(id));
+                    position = appended(before);
+                    deleted++;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(position);
+        return deleted;
+    }
+
+    // ========== READS ==========
+    // Reads never touch the files, they are answered by the in-memory store
+
+    @Override
+    public Todo findById(int id) {
+        return store.findById(id);
+    }
+
+    @Override
+    public List<Todo> findAll() {
+        return store.findAll();
+    }
+
+    @Override
+    public List<Todo> findPage(int afterId, int limit) {
+        return store.findPage(afterId, limit);
+    }
+
+    @Override
+    public Stream<Todo> streamAll() {
+        return store.streamAll();
+    }
+
+    @Override
+    public void forEach(Consumer<Todo> action) {
+        store.forEach(action);
+    }
+
+    @Override
+    public List<Todo> findByCompleted(boolean completed) {
+        return store.findByCompleted(completed);
+    }
+
+    @Override
+    public List<TodoSummary> findSummaries() {
+        return store.findSummaries();
+    }
+
+    @Override
+    public List<TodoSummary> findSummariesByCompleted(boolean completed) {
+        return store.findSummariesByCompleted(completed);
+    }
+
+    @Override
+    public List<Todo> search(String query, int limit) {
+        return store.search(query, limit);
+    }
+
+    @Override
+    public List<TodoChange> findChangedSince(Instant since, int afterId, int limit) {
+        return store.findChangedSince(since, afterId, limit);
+    }
+
+    @Override
+    public int countByCompleted(boolean completed) {
+        return store.countByCompleted(completed);
+    }
+
+    @Override
+    public int countAll() {
+        return store.countAll();
+    }
+
+    // ========== GROUP COMMIT ==========
+
+    /**
+     * Append a PUT record (caller holds the lock)
+     *
+     * @return The journal position the caller must wait for
+     */
+    private long appendPut(Todo todo) {
+        int before = pending.position();
+        pending = JournalRecords.put(pending, todo);
+        return appended(before);
+    }
+
+    private long appended(int positionBefore) {
+        appendedBytes += pending.position() - positionBefore;
+        recordsAppended.signal();
+        return appendedBytes;
+    }
+
+    private void checkWritable() {
+        if (failure != null) {
+            throw new DataAccessResourceFailureException("Todo journal is not writable", failure);
+        }
+        if (!running) {
+            throw new IllegalStateException("Todo journal is closed");
+        }
+    }
+
+    /**
+     * Wait until the journal is on disk up to the given position
+     */
+    private void awaitDurable(long position) {
+        lock.lock();
+        try {
+            while (durableBytes < position) {
+                if (failure != null) {
+                    throw new DataAccessResourceFailureException("Todo journal write failed", failure);
+                }
+                synced.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write the pending records to the journal file and fsync it
+     *
+     * Writers keep appending to the other buffer meanwhile; their records are
+     * written together by the next sync.
+     */
+    private void sync() throws IOException {
+        synchronized (io) {
+            ByteBuffer batch;
+            long end;
+            lock.lock();
+            try {
+                if (pending.position() == 0) {
+                    return;
+                }
+                batch = pending;
+                pending = spare;
+                end = appendedBytes;
+            } finally {
+                lock.unlock();
+            }
+
+            batch.flip();
+            while (batch.hasRemaining()) {
+                journal.write(batch);
+            }
+            journal.force(false);
+            batch.clear();
+            spare = batch;
+            syncCount++;
+
+            lock.lock();
+            try {
+                durableBytes = end;
+                synced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Background thread: sync as soon as records are pending
+     */
+    private void journalLoop() {
+        while (true) {
+            lock.lock();
+            try {
+                while (running && pending.position() == 0) {
+                    recordsAppended.await();
+                }
+                if (!running && pending.position() == 0) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                sync();
+            } catch (IOException e) {
+                fail(e);
+                return;
+            }
+        }
+    }
+
+    private void fail(IOException e) {
+        log.error("Writing the todo journal failed, no more writes are accepted", e);
+        lock.lock();
+        try {
+            failure = e;
+            synced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ========== SNAPSHOTS ==========
+
+    /**
+     * Write a snapshot of all todos and delete the journal files it replaces
+     *
+     * How it works:
+     * 1. Sync the journal and start a new journal file (generation N)
+     * 2. Write all todos to snapshot-N.snap.tmp in 32 KB chunks (writers are
+     * not blocked meanwhile, their changes go to journal-N)
+     * 3. Rename it to snapshot-N.snap (atomic: a crash leaves either the old or
+     * the new snapshot, never half a file)
+     * 4. Delete the older journal and snapshot files
+     *
+     * @throws IOException if a file cannot be written
+     */
+    public void snapshot() throws IOException {
+        synchronized (snapshotMonitor) {
+            long snapshotGeneration;
+            synchronized (io) {
+                sync();
+                journal.close();
+                generation++;
+                journal = openJournal(generation);
+                snapshotGeneration = generation;
+            }
+            lock.lock();
+            try {
+                appendedAtSnapshot = appendedBytes;
+            } finally {
+                lock.unlock();
+            }
+
+            Path target = directory.resolve(snapshotName(snapshotGeneration));
+            Path temporary = directory.resolve(target.getFileName() + ".tmp");
+            int count = writeSnapshot(temporary);
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+
+            deleteOlderThan(snapshotGeneration);
+            log.info("Todo snapshot {} written ({} records)", snapshotGeneration, count);
+        }
+    }
+
+    private int writeSnapshot(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                Stream<Todo> todos = store.streamAll()) {
+            JournalRecords.Writer writer = new JournalRecords.Writer(channel);
+            ByteBuffer buffer = JournalRecords.snapshotStart(ByteBuffer.allocate(64 * 1024), store.getLastId());
+            int count = 0;
+
+            Iterator<Todo> iterator = todos.iterator();
+            while (iterator.hasNext()) {
+                buffer = JournalRecords.put(buffer, iterator.next());
+                count++;
+                if (buffer.position() >= 32 * 1024) {
+                    drain(writer, buffer);
+                }
+            }
+
+            // Tombstones, so the change feed still reports deletions after a restart
+            List<long[]> tombstones = new ArrayList<>();
+            store.forEachTombstone((id, deletedAt) -> tombstones.add(new long[] { id, deletedAt }));
+            for (long[] tombstone : tombstones) {
+                buffer = JournalRecords.delete(buffer, (int) tombstone[0], tombstone[1]);
+                count++;
+                if (buffer.position() >= 32 * 1024) {
+                    drain(writer, buffer);
+                }
+            }
+            buffer = JournalRecords.snapshotEnd(buffer, count);
+            drain(writer, buffer);
+            writer.finish();
+            return count;
+        }
+    }
+
+    private static void drain(JournalRecords.Writer writer, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        writer.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Background thread: snapshot every snapshotIntervalMillis if something
+     * changed since the last one
+     */
+    private void snapshotLoop() {
+        while (running) {
+            boolean changed;
+            lock.lock();
+            try {
+                closing.await(snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+                changed = appendedBytes != appendedAtSnapshot && failure == null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            if (running && changed) {
+                try {
+                    snapshot();
+                } catch (IOException | RuntimeException e) {
+                    log.error("Todo snapshot failed, the journal is kept", e);
+                }
+            }
+        }
+    }
+
+    // ========== RECOVERY ==========
+
+    /**
+     * Rebuild the store from the newest snapshot and the journal files after
+     * it, then start a new journal file
+     */
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        TreeMap<Long, Path> snapshots = new TreeMap<>();
+        TreeMap<Long, Path> journals = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                Matcher snapshotName = SNAPSHOT_FILE.matcher(name);
+                Matcher journalName = JOURNAL_FILE.matcher(name);
+                if (snapshotName.matches()) {
+                    snapshots.put(Long.parseLong(snapshotName.group(1)), file);
+                } else if (journalName.matches()) {
+                    journals.put(Long.parseLong(journalName.group(1)), file);
+                } else if (name.endsWith(".snap.tmp")) {
+                    Files.delete(file); // unfinished snapshot
+                }
+            }
+        }
+
+        long base = 0;
+        int restored = 0;
+        if (!snapshots.isEmpty()) {
+            base = snapshots.lastKey();
+            restored = loadSnapshot(snapshots.lastEntry().getValue());
+        }
+
+        int replayed = 0;
+        List<Path> toReplay = new ArrayList<>(journals.tailMap(base, true).values());
+        for (int i = 0; i < toReplay.size(); i++) {
+            replayed += replayJournal(toReplay.get(i), i == toReplay.size() - 1);
+        }
+
+        generation = Math.max(base, journals.isEmpty() ? 0 : journals.lastKey()) + 1;
+        journal = openJournal(generation);
+        deleteOlderThan(base);
+
+        log.info("Todo journal recovered {} todos (snapshot: {}, journal records: {})",
+                store.countAll(), restored, replayed);
+    }
+
+    private int loadSnapshot(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            JournalRecords.Reader reader = new JournalRecords.Reader(channel);
+            ByteBuffer start = reader.next();
+            if (start == null || start.get() != JournalRecords.SNAPSHOT_START
+                    || start.getInt() != JournalRecords.SNAPSHOT_VERSION) {
+                throw new IllegalStateException("Not a valid todo snapshot: " + file);
+            }
+            store.advanceLastId(start.getInt());
+
+            int count = 0;
+            ByteBuffer record;
+            while ((record = reader.next()) != null) {
+                if (record.get(0) == JournalRecords.SNAPSHOT_END) {
+                    record.get();
+                    if (record.getInt() != count || !reader.atEnd()) {
+                        break;
+                    }
+                    return count;
+                }
+                JournalRecords.apply(record, store);
+                count++;
+            }
+            throw new IllegalStateException("Todo snapshot is incomplete or damaged: " + file);
+        }
+    }
+
+    /**
+     * Apply the records of one journal file
+     *
+     * @param last - true for the newest file: it may end with a record that
+     *             was being written during a crash, which is cut off
+     * @return Number of records applied
+     */
+    private int replayJournal(Path file, boolean last) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            JournalRecords.Reader reader = new JournalRecords.Reader(channel);
+            int count = 0;
+            ByteBuffer record;
+            while ((record = reader.next()) != null) {
+                JournalRecords.apply(record, store);
+                count++;
+            }
+            if (!reader.atEnd()) {
+                if (!last) {
+                    throw new IllegalStateException("Todo journal is damaged at byte " + reader.position() + ": " + file);
+                }
+                log.warn("Cutting off an incomplete record at the end of {} (byte {})", file, reader.position());
+                channel.truncate(reader.position());
+                channel.force(true);
+            }
+            return count;
+        }
+    }
+
+    // ========== FILE HELPERS ==========
+
+    private FileChannel openJournal(long journalGeneration) throws IOException {
+        return FileChannel.open(directory.resolve(String.format("journal-%010d.log", journalGeneration)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private static String snapshotName(long snapshotGeneration) {
+        return String.format("snapshot-%010d.snap", snapshotGeneration);
+    }
+
+    /**
+     * Delete the journal and snapshot files of generations before the given one
+     */
+    private void deleteOlderThan(long keepGeneration) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                Matcher snapshotName = SNAPSHOT_FILE.matcher(name);
+                Matcher journalName = JOURNAL_FILE.matcher(name);
+                if (snapshotName.matches() && Long.parseLong(snapshotName.group(1)) < keepGeneration
+                        || journalName.matches() && Long.parseLong(journalName.group(1)) < keepGeneration) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    // ========== LIFECYCLE AND STATISTICS ==========
+
+    /**
+     * Stop the background threads, write everything to disk and take a final
+     * snapshot, so the next start has no journal to replay
+     * (called by Spring when the context is closed, see destroy-method)
+     */
+    public void close() throws IOException, InterruptedException {
+        lock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+            recordsAppended.signalAll();
+            closing.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        journalThread.join(TimeUnit.SECONDS.toMillis(30));
+        if (snapshotThread != null) {
+            snapshotThread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+
+        if (failure == null) {
+            snapshot();
+        }
+        synchronized (io) {
+            journal.close();
+        }
+    }
+
+    /**
+     * @return Number of fsyncs of the journal (each one can cover the records
+     *         of many writers)
+     */
+    public long getSyncCount() {
+        return syncCount;
+    }
+
+    /**
+     * @return Bytes appended to the journal since startup
+     */
+    public long getJournalBytes() {
+        lock.lock();
+        try {
+            return appendedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "JournaledTodoDAO{" +
+                "directory=" + directory +
+                ", todos=" + countAll() +
+                ", journalBytes=" + getJournalBytes() +
+                ", syncs=" + getSyncCount() +
+                '}';
+    }
+}
@@ -0,0 +1,562 @@
+package com.todo.dao;
+
+import com.todo.datasource.MonitoredDataSource;
+import com.todo.logging.AsyncLogger;
+import com.todo.model.Todo;
+import com.todo.model.TodoChange;
+import com.todo.model.TodoSummary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * ShardedTodoDAO - Spreads the todos over several databases (shards)
+ *
+ * Every shard is a database with the normal todos table (schema.sql); each
+ * todo is stored in exactly one of them. Together, the shards hold more
+ * todos and serve more queries than one MySQL instance.
+ *
+ * How it works:
+ * 1. Ids come from TodoIdAllocator (blocks reserved in todo_id_sequence on
+ * the first shard), so they are unique across all shards
+ * 2. The shard of a todo is computed from its id (hash of the id modulo the
+ * number of shards): findById, update and delete go straight to one shard,
+ * bulk operations are grouped per shard
+ * 3. Queries over all todos (findAll, findByCompleted, counts, ...) run on
+ * all shards in parallel (scatter), and the per-shard results, each already
+ * ordered by id, are merged into one ordered list (gather, k-way merge)
+ *
+ * IMPORTANT:
+ * - The number of shards must not change once todos are stored (the todos
+ * would have to be moved to their new shards first)
+ * - Every statement commits on its own shard: @Transactional service methods
+ * do not make changes on several shards atomic
+ * - onAllShards / onShards run the shard queries on executor threads, with
+ * the shard's own pool, outside the caller's transaction (also a read-only
+ * one): read-only transactions are NOT routed to replicas
+ * (ReplicaRoutingDataSource), and reads that rely on one read-only snapshot
+ * (TodoServiceImpl.forEachTodo) get one snapshot per shard and statement
+ * - search() merges the best matches of every shard by their MySQL relevance
+ * score, which depends on the word statistics of each shard: with todos
+ * spread by a hash of the id the shards have similar statistics, so the
+ * scores are comparable, but not exactly the scores of one big table
+ *
+ * Each shard is accessed through its own TodoDAOImpl, so the SQL is exactly
+ * the one of the single-database setup.
+ */
+public class ShardedTodoDAO implements TodoDAO {
+
+    private static final AsyncLogger log = AsyncLogger.getLogger(ShardedTodoDAO.class);
+
+    /**
+     * Placeholder for the shard number in the URL template
+     */
+    public static final String SHARD_PLACEHOLDER = "{shard}";
+
+    private final List<TodoDAOImpl> shards;
+    private final TodoIdAllocator idAllocator;
+
+    /**
+     * Runs the per-shard queries of a scatter-gather in parallel
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The pools created by this class (closed by close())
+     */
+    private final List<MonitoredDataSource> ownedPools;
+
+    /**
+     * Constructor for dependency injection
+     *
+     * Creates one connection pool per shard, with the settings of the
+     * template pool.
+     *
+     * @param template    - Pool whose settings (credentials, pool size, ...)
+     *                    are used for every shard
+     * @param urlTemplate - JDBC URL of the shards, {shard} is replaced by the
+     *                    shard number (0 to shardCount - 1)
+     * @param shardCount  - Number of shards
+     * @param idBlockSize - Ids reserved per round-trip to todo_id_sequence
+     */
+    public ShardedTodoDAO(MonitoredDataSource template, String urlTemplate, int shardCount, int idBlockSize) {
+        this(createPools(template, urlTemplate, shardCount), idBlockSize, true);
+        log.info("Todos are sharded over {} databases ({})", shardCount, urlTemplate);
+    }
+
+    /**
+     * Constructor for shards that already exist (e.g. embedded databases)
+     *
+     * @param shards      - One JdbcTemplate per shard; the first one also
+     *                    holds todo_id_sequence
+     * @param idBlockSize - Ids reserved per round-trip to todo_id_sequence
+     */
+    public ShardedTodoDAO(List<JdbcTemplate> shards, int idBlockSize) {
+        this(shards, idBlockSize, List.of());
+    }
+
+    private ShardedTodoDAO(List<JdbcTemplate> shards, int idBlockSize, List<MonitoredDataSource> ownedPools) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is needed");
+        }
+        this.shards = new ArrayList<>(shards.size());
+        for (JdbcTemplate shard : shards) {
+            this.shards.add(new TodoDAOImpl(shard));
+        }
+        this.idAllocator = new TodoIdAllocator(shards.get(0), idBlockSize);
+        this.ownedPools = ownedPools;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "todo-shard-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private ShardedTodoDAO(List<MonitoredDataSource> pools, int idBlockSize, boolean closePools) {
+        this(pools.stream().map(JdbcTemplate::new).toList(), idBlockSize, closePools ? pools : List.of());
+    }
+
+    private static List<MonitoredDataSource> createPools(MonitoredDataSource template, String urlTemplate,
+            int shardCount) {
+        if (shardCount <= 0 || !urlTemplate.contains(SHARD_PLACEHOLDER)) {
+            throw new IllegalArgumentException(
+                    "Sharding needs shardCount > 0 and a URL containing " + SHARD_PLACEHOLDER + ": " + urlTemplate);
+        }
+        List<MonitoredDataSource> pools = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            pools.add(template.copyWithUrl(urlTemplate.replace(SHARD_PLACEHOLDER, String.valueOf(shard))));
+        }
+        return pools;
+    }
+
+    /**
+     * Setter injection for the JDBC batch size of every shard
+     * (db.batchSize, see TodoDAOImpl)
+     */
+    @Value("${db.batchSize:500}")
+    public void setBatchSize(int batchSize) {
+        for (TodoDAOImpl shard : shards) {
+            shard.setBatchSize(batchSize);
+        }
+    }
+
+    /**
+     * Setter injection for the streaming fetch size of every shard
+     * (db.fetchSize, see TodoDAOImpl)
+     */
+    @Value("${db.fetchSize:1000}")
+    public void setFetchSize(int fetchSize) {
+        for (TodoDAOImpl shard : shards) {
+            shard.setFetchSize(fetchSize);
+        }
+    }
+
+    // ========== ROUTING ==========
+
+    /**
+     * @return The number of the shard that stores the todo with this id
+     */
+    int shardOf(int id) {
+        // Spread consecutive ids (hi/lo blocks) evenly: MurmurHash3 finalizer
+        int hash = id;
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, shards.size());
+    }
+
+    private TodoDAOImpl shardFor(int id) {
+        return shards.get(shardOf(id));
+    }
+
+    /**
+     * Split items into one list per shard (keeping their order)
+     */
+    private <T> List<List<T>> groupByShard(Collection<T> items, Function<T, Integer> id) {
+        List<List<T>> groups = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            groups.add(new ArrayList<>());
+        }
+        for (T item : items) {
+            groups.get(shardOf(id.apply(item))).add(item);
+        }
+        return groups;
+    }
+
+    /**
+     * Scatter: run a query on every shard in parallel
+     *
+     * @return The result of every shard, in shard order
+     */
+    private <T> List<T> onAllShards(Function<TodoDAOImpl, T> query) {
+        if (shards.size() == 1) {
+            return List.of(query.apply(shards.get(0)));
+        }
+        List<Future<T>> futures = new ArrayList<>(shards.size());
+        for (TodoDAOImpl shard : shards) {
+            futures.add(executor.submit(() -> query.apply(shard)));
+        }
+        List<T> results = new ArrayList<>(shards.size());
+        for (Future<T> future : futures) {
+            results.add(await(future));
+        }
+        return results;
+    }
+
+    /**
+     * Run a write on every shard that has items, in parallel
+     *
+     * @return Sum of the row counts of all shards
+     */
+    private <T> int onShards(List<List<T>> groups, ShardWrite<T> write) {
+        List<Future<Integer>> futures = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            TodoDAOImpl shard = shards.get(i);
+            List<T> group = groups.get(i);
+            if (!group.isEmpty()) {
+                futures.add(executor.submit(() -> write.apply(shard, group)));
+            }
+        }
+        int total = 0;
+        for (Future<Integer> future : futures) {
+            total += await(future);
+        }
+        return total;
+    }
+
+    @FunctionalInterface
+    private interface ShardWrite<T> {
+        int apply(TodoDAOImpl shard, List<T> group);
+    }
+
+    /**
+     * Wait for a shard task; its exception is thrown as is
+     */
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shard", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Shard query failed", e.getCause());
+        }
+    }
+
+    // ========== WRITES ==========
+
+    @Override
+    public void create(Todo todo) {
+        todo.setId(idAllocator.allocate());
+        shardFor(todo.getId()).createWithIds(List.of(todo));
+    }
+
+    @Override
+    public List<Integer> createAll(Collection<Todo> todos) {
+        List<Todo> rows = new ArrayList<>(todos);
+        List<Integer> ids = idAllocator.allocate(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            rows.get(i).setId(ids.get(i));
+        }
+        onShards(groupByShard(rows, Todo::getId), (shard, group) -> {
+            shard.createWithIds(group);
+            return group.size();
+        });
+        return ids;
+    }
+
+    @Override
+    public int update(Todo todo) {
+        return shardFor(todo.getId()).update(todo);
+    }
+
+    @Override
+    public int updateAll(Collection<Todo> todos) {
+        return onShards(groupByShard(todos, Todo::getId), TodoDAOImpl::updateAll);
+    }
+
+    @Override
+    public int updateCompleted(int id, boolean completed) {
+        return shardFor(id).updateCompleted(id, completed);
+    }
+
+    @Override
+    public int updateCompleted(Collection<Integer> ids, boolean completed) {
+        return onShards(groupByShard(ids, Function.identity()),
+                (shard, group) -> shard.updateCompleted(group, completed));
+    }
+
+    @Override
+    public int delete(int id) {
+        return shardFor(id).delete(id);
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> ids) {
+        return onShards(groupByShard(ids, Function.identity()), TodoDAOImpl::deleteAll);
+    }
+
+    // ========== READS ==========
+
+    @Override
+    public Todo findById(int id) {
+        return shardFor(id).findById(id);
+    }
+
+    @Override
+    public List<Todo> findAll() {
+        return merge(onAllShards(TodoDAO::findAll), BY_TODO_ID, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Todo> findByCompleted(boolean completed) {
+        return merge(onAllShards(shard -> shard.findByCompleted(completed)), BY_TODO_ID, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Every shard returns its first limit todos after afterId; the first
+     * limit of the merged result are the page
+     */
+    @Override
+    public List<Todo> findPage(int afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        return merge(onAllShards(shard -> shard.findPage(afterId, limit)), BY_TODO_ID, limit);
+    }
+
+    @Override
+    public List<TodoSummary> findSummaries() {
+        return merge(onAllShards(TodoDAO::findSummaries), BY_SUMMARY_ID, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<TodoSummary> findSummariesByCompleted(boolean completed) {
+        return merge(onAllShards(shard -> shard.findSummariesByCompleted(completed)), BY_SUMMARY_ID,
+                Integer.MAX_VALUE);
+    }
+
+    /**
+     * Every shard returns its best limit matches with their scores; the best
+     * limit of all of them are the result
+     */
+    @Override
+    public List<Todo> search(String query, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Search limit must be positive: " + limit);
+        }
+        List<TodoDAOImpl.ScoredTodo> merged = merge(onAllShards(shard -> shard.searchScored(query, limit)),
+                BY_SCORE, limit);
+        return merged.stream().map(TodoDAOImpl.ScoredTodo::todo).toList();
+    }
+
+    /**
+     * Every shard returns its oldest limit changes; the oldest limit of all
+     * of them are the result
+     */
+    @Override
+    public List<TodoChange> findChangedSince(Instant since, int afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Change limit must be positive: " + limit);
+        }
+        return merge(onAllShards(shard -> shard.findChangedSince(since, afterId, limit)), BY_CHANGE_TIME, limit);
+    }
+
+    @Override
+    public int countByCompleted(boolean completed) {
+        return sum(onAllShards(shard -> shard.countByCompleted(completed)));
+    }
+
+    @Override
+    public int countAll() {
+        return sum(onAllShards(TodoDAO::countAll));
+    }
+
+    private static int sum(List<Integer> counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    // ========== STREAMING ==========
+
+    /**
+     * One stream per shard (each holds a connection of its shard), merged
+     * lazily by id: only one todo per shard is in memory at a time.
+     * Closing the returned stream closes all shard streams.
+     */
+    @Override
+    public Stream<Todo> streamAll() {
+        List<Stream<Todo>> streams = new ArrayList<>(shards.size());
+        try {
+            for (TodoDAOImpl shard : shards) {
+                streams.add(shard.streamAll());
+            }
+        } catch (RuntimeException e) {
+            streams.forEach(Stream::close);
+            throw e;
+        }
+        List<Iterator<Todo>> iterators = new ArrayList<>(streams.size());
+        for (Stream<Todo> stream : streams) {
+            iterators.add(stream.iterator());
+        }
+        Iterator<Todo> merged = new MergingIterator<>(iterators, BY_TODO_ID);
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> streams.forEach(Stream::close));
+    }
+
+    @Override
+    public void forEach(Consumer<Todo> action) {
+        try (Stream<Todo> todos = streamAll()) {
+            todos.forEach(action);
+        }
+    }
+
+    // ========== K-WAY MERGE ==========
+
+    private static final Comparator<Todo> BY_TODO_ID = Comparator.comparingInt(Todo::getId);
+
+    private static final Comparator<TodoSummary> BY_SUMMARY_ID = Comparator.comparingInt(TodoSummary::getId);
+
+    private static final Comparator<TodoDAOImpl.ScoredTodo> BY_SCORE = Comparator
+            .comparingDouble(TodoDAOImpl.ScoredTodo::score).reversed()
+            .thenComparingInt(scored -> scored.todo().getId());
+
+    private static final Comparator<TodoChange> BY_CHANGE_TIME = Comparator
+            .comparing(TodoChange::getChangedAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparingInt(TodoChange::getId);
+
+    /**
+     * Merge lists that are each sorted into one sorted list
+     *
+     * A priority queue holds the next element of every list: each element is
+     * compared with at most log(number of shards) others, instead of sorting
+     * all of them again.
+     *
+     * @param limit - Maximum size of the result
+     */
+    private static <T> List<T> merge(List<List<T>> sorted, Comparator<T> order, int limit) {
+        int total = 0;
+        List<Iterator<T>> iterators = new ArrayList<>(sorted.size());
+        for (List<T> list : sorted) {
+            total += list.size();
+            iterators.add(list.iterator());
+        }
+        List<T> merged = new ArrayList<>(Math.min(total, limit));
+        Iterator<T> iterator = new MergingIterator<>(iterators, order);
+        while (merged.size() < limit && iterator.hasNext()) {
+            merged.add(iterator.next());
+        }
+        return merged;
+    }
+
+    /**
+     * Iterates over several sorted iterators in overall order
+     */
+    private static final class MergingIterator<T> implements Iterator<T> {
+
+        /**
+         * The next element of one source iterator
+         */
+        private record Head<T>(T value, Iterator<T> source) {
+        }
+
+        private final PriorityQueue<Head<T>> heads;
+
+        MergingIterator(List<Iterator<T>> sources, Comparator<T> order) {
+            this.heads = new PriorityQueue<>(Math.max(1, sources.size()),
+                    (a, b) -> order.compare(a.value(), b.value()));
+            for (Iterator<T> source : sources) {
+                if (source.hasNext()) {
+                    heads.add(new Head<>(source.next(), source));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            Head<T> head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            if (head.source().hasNext()) {
+                heads.add(new Head<>(head.source().next(), head.source()));
+            }
+            return head.value();
+        }
+    }
+
+    // ========== LIFECYCLE ==========
+
+    /**
+     * @return Number of shards
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Stop the query threads and close the shard pools created by this class
+     * (called by Spring when the context is closed, see destroy-method)
+     *
+     * Queries still running after 10 seconds (or when the closing thread is
+     * interrupted) are interrupted before their pools are closed.
+     */
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        for (MonitoredDataSource pool : ownedPools) {
+            try {
+                pool.close();
+            } catch (SQLException e) {
+                log.warn("Could not close the shard pool {}: {}", pool.getUrl(), e.getMessage());
+            }
+        }
+    }
+}
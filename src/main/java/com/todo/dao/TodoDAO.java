@@ -1,7 +1,13 @@
 package com.todo.dao;
 
 import com.todo.model.Todo;
+import com.todo.model.TodoChange;
+import com.todo.model.TodoSummary;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * TodoDAO Interface (Data Access Object)
@@ -24,10 +30,24 @@ public interface TodoDAO {
      * CREATE operation - Add a new todo to the database
      * 
      * @param todo - The Todo object to be inserted into database
-     *             (id will be auto-generated by database)
+     *             (id will be auto-generated by database and set on this
+     *             object)
      */
     void create(Todo todo);
 
+    /**
+     * CREATE operation (bulk) - Add many todos to the database at once
+     * 
+     * Instead of sending one INSERT per todo, the rows are sent to the
+     * database in JDBC batches (many rows per round-trip)
+     * 
+     * @param todos - The Todo objects to be inserted into database
+     *              (ids will be auto-generated by database and set on these
+     *              objects)
+     * @return The generated ids, in the same order as the given todos
+     */
+    List<Integer> createAll(Collection<Todo> todos);
+
     /**
      * READ operation - Find a specific todo by its ID
      * 
@@ -44,20 +64,107 @@ public interface TodoDAO {
      */
     List<Todo> findAll();
 
+    /**
+     * READ operation (paginated) - Get one page of todos, ordered by id
+     * 
+     * Keyset pagination: instead of OFFSET, the caller passes the last id of
+     * the previous page, so every page costs the same no matter how deep
+     * 
+     * @param afterId - Only todos with an id greater than this are returned
+     *                (use 0 for the first page)
+     * @param limit   - Maximum number of todos in the page
+     * @return List of todos ordered by id (empty list when there are no more)
+     */
+    List<Todo> findPage(int afterId, int limit);
+
+    /**
+     * READ operation (streaming) - Get all todos as a lazily-read Stream
+     * 
+     * Rows are fetched from the database in small groups while the stream is
+     * consumed, so memory use stays constant even for millions of rows
+     * 
+     * IMPORTANT: The stream holds an open database connection.
+     * Always close it (use try-with-resources)
+     * 
+     * @return Stream of all todos, ordered by id
+     */
+    Stream<Todo> streamAll();
+
+    /**
+     * READ operation (streaming) - Call an action for every todo
+     * 
+     * Same constant-memory behaviour as streamAll(), but the connection is
+     * closed automatically when all rows have been processed
+     * 
+     * @param action - Called once per todo, in id order
+     */
+    void forEach(Consumer<Todo> action);
+
     /**
      * UPDATE operation - Modify an existing todo in the database
      * 
+     * Optimistic locking: the todo is only written if it still has
+     * todo.getVersion() (the version it was read with). On success its
+     * version is increased by one, in the database and on the given object.
+     * 
      * @param todo - The Todo object with updated values
      *             (must have a valid id that exists in database)
+     * @return Number of rows updated (0 if no todo has this id)
+     * @throws TodoVersionConflictException if the todo exists but was changed
+     *                                      since it was read
+     */
+    int update(Todo todo);
+
+    /**
+     * UPDATE operation (bulk) - Modify many existing todos at once
+     * 
+     * Same version check as update(), but a todo that was changed since it
+     * was read is skipped (not counted) instead of failing the whole batch
+     * 
+     * @param todos - The Todo objects with updated values
+     * @return Number of rows updated (todos whose id does not exist or whose
+     *         version is out of date are not counted)
      */
-    void update(Todo todo);
+    int updateAll(Collection<Todo> todos);
+
+    /**
+     * UPDATE operation (status only) - Change only the completed flag
+     * 
+     * One statement, no need to read the todo first
+     * No version check (the new status does not depend on the old values),
+     * but the version is increased like by update()
+     * 
+     * @param id        - The id of the todo to change
+     * @param completed - The new completion status
+     * @return Number of rows updated (0 if no todo has this id)
+     */
+    int updateCompleted(int id, boolean completed);
+
+    /**
+     * UPDATE operation (status only, bulk) - Change the completed flag of many
+     * todos at once
+     * 
+     * @param ids       - The ids of the todos to change
+     * @param completed - The new completion status
+     * @return Number of rows updated (ids that do not exist are not counted)
+     */
+    int updateCompleted(Collection<Integer> ids, boolean completed);
 
     /**
      * DELETE operation - Remove a todo from the database
      * 
      * @param id - The unique identifier of the todo to delete
+     * @return Number of rows deleted (0 if no todo has this id)
+     */
+    int delete(int id);
+
+    /**
+     * DELETE operation (bulk) - Remove many todos at once
+     * 
+     * @param ids - The unique identifiers of the todos to delete
+     * @return Number of rows deleted (ids that do not exist are not counted)
      */
-    void delete(int id);
+    int deleteAll(Collection<Integer> ids);
 
     /**
      * Additional query - Find todos by completion status
@@ -67,4 +174,79 @@ public interface TodoDAO {
      * @return List of todos matching the completion status
      */
     List<Todo> findByCompleted(boolean completed);
+
+    /**
+     * Projection query - Get id, title and status of all todos
+     * 
+     * For list views: the description and the other columns are not read,
+     * so much less data is transferred than by findAll()
+     * 
+     * @return Summaries of all todos, ordered by id
+     */
+    List<TodoSummary> findSummaries();
+
+    /**
+     * Projection query - Get id, title and status of the todos with a status
+     * 
+     * Same rows as findByCompleted(), without the description
+     * 
+     * @param completed - true for completed todos, false for incomplete
+     * @return Summaries of the matching todos, ordered by id
+     */
+    List<TodoSummary> findSummariesByCompleted(boolean completed);
+
+    /**
+     * Full-text search - Find todos whose title or description match the words
+     * of a query, best matches first
+     * 
+     * @param query - The words to search for (e.g. "spring database")
+     * @param limit - Maximum number of todos to return (must be positive)
+     * @return Up to limit matching todos, ordered by relevance
+     */
+    List<Todo> search(String query, int limit);
+
+    /**
+     * Change feed - Find the todos changed or deleted after a cursor
+     * 
+     * For delta sync: a client remembers the changedAt and id of the last
+     * change it applied and asks only for what happened after it, instead of
+     * downloading all todos again. Deleted todos are returned as tombstones.
+     * 
+     * Keyset cursor: changes are ordered by (changedAt, id) and only those
+     * after (since, afterId) are returned, so no change is returned twice and
+     * changes with the same timestamp are split between pages correctly, no
+     * matter how many there are. Pass afterId = 0 to start at a point in time
+     * (all changes at or after since).
+     * 
+     * A change gets its time when it is written, not when its transaction
+     * commits: a transaction that commits late can add a change BEHIND a
+     * cursor that was already handed out, and a client that moved past it
+     * never sees it. Clients should not move their cursor closer to now than
+     * a safety lag (longer than the longest write transaction), e.g. by
+     * reading again from (now - lag, 0) instead of from the last change.
+     * 
+     * @param since   - Time of the last change already applied (Instant.EPOCH
+     *                for all)
+     * @param afterId - Id of the last change already applied (0 for all
+     *                changes at since)
+     * @param limit   - Maximum number of changes to return (must be positive)
+     * @return Up to limit changes, oldest first (ties: lowest id first)
+     */
+    List<TodoChange> findChangedSince(Instant since, int afterId, int limit);
+
+    /**
+     * Count todos by completion status
+     * Cheaper than findByCompleted(completed).size(): no rows are transferred
+     * 
+     * @param completed - true to count completed todos, false for incomplete
+     * @return Number of todos with this status
+     */
+    int countByCompleted(boolean completed);
+
+    /**
+     * Count all todos
+     * 
+     * @return Total number of todos
+     */
+    int countAll();
 }
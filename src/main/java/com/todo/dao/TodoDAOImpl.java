@@ -1,13 +1,29 @@
 package com.todo.dao;
 
 import com.todo.model.Todo;
+import com.todo.model.TodoChange;
+import com.todo.model.TodoSummary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * TodoDAOImpl - Implementation of TodoDAO interface
@@ -48,22 +64,138 @@ public class TodoDAOImpl implements TodoDAO {
      */
     public TodoDAOImpl(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Second JdbcTemplate (same DataSource) used only by the streaming reads
+     * 
+     * It has a fetch size set, so the driver reads rows from a server-side
+     * cursor in groups of fetchSize instead of loading the whole result at once
+     * (MySQL needs useCursorFetch=true in the JDBC url for this)
+     */
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    /**
+     * Number of rows fetched per round-trip by streamAll() and forEach()
+     * Configured by db.fetchSize in database.properties (default 1000)
+     */
+    private int fetchSize = 1000;
+
+    /**
+     * Setter injection for the streaming fetch size
+     * 
+     * @param fetchSize - Rows per fetch (must be positive)
+     */
+    @Value("${db.fetchSize:1000}")
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be positive: " + fetchSize);
+        }
+        this.fetchSize = fetchSize;
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Number of rows sent to the database in one JDBC batch by createAll()
+     * Configured by db.batchSize in database.properties (default 500)
+     */
+    private int batchSize = 500;
+
+    /**
+     * Setter injection for the batch size
+     * Spring resolves the ${...} placeholder from database.properties
+     * 
+     * @param batchSize - Rows per JDBC batch (must be positive)
+     */
+    @Value("${db.batchSize:500}")
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
     }
 
     // ========== SQL QUERIES ==========
     // These are the actual SQL statements that will be executed on the database
+    // Every query that returns todos selects the columns in the same order
+    // (id, title, description, completed, version, created_at, updated_at):
+    // the row mappers read them by position, not by name
 
     private static final String INSERT_TODO = "INSERT INTO todos (title, description, completed) VALUES (?, ?, ?)";
 
-    private static final String SELECT_TODO_BY_ID = "SELECT id, title, description, completed FROM todos WHERE id = ?";
+    // Ids allocated by the caller (sharding: see ShardedTodoDAO)
+    private static final String INSERT_TODO_WITH_ID = "INSERT INTO todos (id, title, description, completed) VALUES (?, ?, ?, ?)";
+
+    /**
+     * Column(s) whose generated values are read back after an INSERT
+     * Naming the column (instead of RETURN_GENERATED_KEYS) makes sure only the
+     * id is returned, even by databases that also report default timestamps
+     */
+    private static final String[] GENERATED_KEY_COLUMNS = { "id" };
+
+    private static final String SELECT_TODO_BY_ID = "SELECT id, title, description, completed, version, created_at, updated_at FROM todos WHERE id = ?";
+
+    private static final String SELECT_ALL_TODOS_ORDERED = "SELECT id, title, description, completed, version, created_at, updated_at FROM todos ORDER BY id";
+
+    private static final String SELECT_PAGE = "SELECT id, title, description, completed, version, created_at, updated_at FROM todos WHERE id > ? ORDER BY id LIMIT ?";
+
+    // Optimistic locking: only matches the row if nobody changed it since it was read
+    private static final String UPDATE_TODO = "UPDATE todos SET title = ?, description = ?, completed = ?, "
+            + "version = version + 1 WHERE id = ? AND version = ?";
 
-    private static final String SELECT_ALL_TODOS = "SELECT id, title, description, completed FROM todos";
+    // Only read after an UPDATE_TODO that matched no row: conflict or not found?
+    private static final String SELECT_VERSION = "SELECT version FROM todos WHERE id = ?";
 
-    private static final String UPDATE_TODO = "UPDATE todos SET title = ?, description = ?, completed = ? WHERE id = ?";
+    private static final String UPDATE_COMPLETED = "UPDATE todos SET completed = ?, version = version + 1 WHERE id = ?";
+
+    // The IN (...) list is appended at runtime, with one ? per id
+    private static final String UPDATE_COMPLETED_IN = "UPDATE todos SET completed = ?, version = version + 1 WHERE id IN ";
 
     private static final String DELETE_TODO = "DELETE FROM todos WHERE id = ?";
 
-    private static final String SELECT_BY_COMPLETED = "SELECT id, title, description, completed FROM todos WHERE completed = ?";
+    // The IN (...) list is appended at runtime, with one ? per id
+    private static final String DELETE_TODOS_IN = "DELETE FROM todos WHERE id IN ";
+
+    // Projections for list views: no description (TEXT), no timestamps
+    private static final String SELECT_SUMMARIES = "SELECT id, title, completed FROM todos ORDER BY id";
+
+    private static final String SELECT_SUMMARIES_BY_COMPLETED = "SELECT id, title, completed FROM todos "
+            + "WHERE completed = ? ORDER BY id";
+
+    // ORDER BY id costs nothing here (the (completed, id) index is in id order)
+    // and lets ShardedTodoDAO merge the results of several shards
+    private static final String SELECT_BY_COMPLETED = "SELECT id, title, description, completed, version, created_at, updated_at FROM todos "
+            + "WHERE completed = ? ORDER BY id";
+
+    // MATCH ... AGAINST uses the FULLTEXT index on (title, description);
+    // the same MATCH in the select list returns the relevance score (computed
+    // once); ties are ordered by id, so results of several shards can be merged
+    private static final String SEARCH_TODOS = "SELECT id, title, description, completed, version, created_at, updated_at, "
+            + "MATCH (title, description) AGAINST (? IN NATURAL LANGUAGE MODE) AS score FROM todos "
+            + "WHERE MATCH (title, description) AGAINST (? IN NATURAL LANGUAGE MODE) "
+            + "ORDER BY score DESC, id LIMIT ?";
+
+    // Changed todos (idx_todos_updated_at) and tombstones of deleted todos
+    // (todo_tombstones, filled by the todos_after_delete trigger) after the
+    // (time, id) cursor; each side is limited on its own index first (InnoDB
+    // secondary indexes end with the primary key, so they are in (time, id)
+    // order), then the two are merged. The cursor is spelled out instead of
+    // (updated_at, id) > (?, ?): MySQL does not reliably use an index range
+    // for row comparisons, but time >= ? always is one
+    private static final String CHANGES_SINCE = "(SELECT id, title, description, completed, version, created_at, updated_at, "
+            + "FALSE AS deleted FROM todos WHERE updated_at >= ? AND (updated_at > ? OR id > ?) "
+            + "ORDER BY updated_at, id LIMIT ?) "
+            + "UNION ALL "
+            + "(SELECT id, NULL, NULL, NULL, NULL, NULL, deleted_at, "
+            + "TRUE FROM todo_tombstones WHERE deleted_at >= ? AND (deleted_at > ? OR id > ?) "
+            + "ORDER BY deleted_at, id LIMIT ?) "
+            + "ORDER BY updated_at, id LIMIT ?";
+
+    private static final String COUNT_BY_COMPLETED = "SELECT COUNT(*) FROM todos WHERE completed = ?";
+
+    private static final String COUNT_ALL = "SELECT COUNT(*) FROM todos";
 
     // ========== CRUD OPERATIONS IMPLEMENTATION ==========
 
@@ -74,17 +206,101 @@ public class TodoDAOImpl implements TodoDAO {
      * 1. jdbcTemplate.update() executes an INSERT statement
      * 2. The ? placeholders are replaced with actual values
      * 3. Database auto-generates the id
+     * 4. The KeyHolder receives the generated id, which is set on the todo
+     * (no need to read the row back to find out its id)
      * 
-     * @param todo - The todo object to insert
+     * @param todo - The todo object to insert (its id is set after the insert)
      */
     @Override
     public void create(Todo todo) {
-        jdbcTemplate.update(
-                INSERT_TODO, // SQL query with ? placeholders
-                todo.getTitle(), // First ? replaced with title
-                todo.getDescription(), // Second ? replaced with description
-                todo.isCompleted() // Third ? replaced with completed status
-        );
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_TODO, GENERATED_KEY_COLUMNS);
+            ps.setString(1, todo.getTitle()); // First ? replaced with title
+            ps.setString(2, todo.getDescription()); // Second ? replaced with description
+            ps.setBoolean(3, todo.isCompleted()); // Third ? replaced with completed status
+            return ps;
+        }, keyHolder);
+
+        todo.setId(keyHolder.getKey().intValue());
+        todo.setVersion(0); // Column default
+    }
+
+    /**
+     * CREATE (bulk) - Insert many todos using JDBC batching
+     * 
+     * How it works:
+     * 1. The todos are split into chunks of batchSize rows
+     * 2. Each chunk is sent as ONE JDBC batch (one round-trip instead of one per
+     * row)
+     * 3. The ids generated by the database are read back from the batch and
+     * set on the todos
+     * 
+     * Tip: with MySQL, rewriteBatchedStatements=true in the JDBC url lets the
+     * driver turn each batch into a single multi-row INSERT statement
+     * 
+     * @param todos - The todos to insert (their ids are set after the insert)
+     * @return The generated ids, in the same order as the given todos
+     */
+    @Override
+    public List<Integer> createAll(Collection<Todo> todos) {
+        List<Todo> rows = new ArrayList<>(todos);
+        List<Integer> ids = new ArrayList<>(rows.size());
+
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            List<Todo> chunk = rows.subList(from, Math.min(from + batchSize, rows.size()));
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+
+            jdbcTemplate.batchUpdate(
+                    con -> con.prepareStatement(INSERT_TODO, GENERATED_KEY_COLUMNS),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            Todo todo = chunk.get(i);
+                            ps.setString(1, todo.getTitle());
+                            ps.setString(2, todo.getDescription());
+                            ps.setBoolean(3, todo.isCompleted());
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return chunk.size();
+                        }
+                    },
+                    keyHolder);
+
+            // One key map per inserted row (MySQL names the column GENERATED_KEY)
+            List<Map<String, Object>> keyList = keyHolder.getKeyList();
+            for (int i = 0; i < keyList.size(); i++) {
+                int id = ((Number) keyList.get(i).values().iterator().next()).intValue();
+                chunk.get(i).setId(id);
+                chunk.get(i).setVersion(0); // Column default
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * CREATE (ids given) - Insert todos whose ids were allocated by the caller
+     * 
+     * Used by ShardedTodoDAO: ids must be unique across all shards, so the
+     * AUTO_INCREMENT of one shard cannot be used. Sent in JDBC batches of
+     * batchSize rows like createAll().
+     * 
+     * @param todos - The todos to insert (with their ids set)
+     */
+    void createWithIds(List<Todo> todos) {
+        jdbcTemplate.batchUpdate(INSERT_TODO_WITH_ID, todos, batchSize, (ps, todo) -> {
+            ps.setInt(1, todo.getId());
+            ps.setString(2, todo.getTitle());
+            ps.setString(3, todo.getDescription());
+            ps.setBoolean(4, todo.isCompleted());
+        });
+        for (Todo todo : todos) {
+            todo.setVersion(0); // Column default
+        }
     }
 
     /**
@@ -120,59 +336,264 @@ public class TodoDAOImpl implements TodoDAO {
      * 2. Returns a List of objects
      * 3. RowMapper is called for each row to convert it to Todo object
      * 
-     * @return List of all todos (empty list if none exist)
+     * ORDER BY id costs nothing: InnoDB reads the table in primary key order
+     * anyway
+     * 
+     * @return List of all todos, ordered by id (empty list if none exist)
      */
     @Override
     public List<Todo> findAll() {
         return jdbcTemplate.query(
-                SELECT_ALL_TODOS, // SQL query
+                SELECT_ALL_TODOS_ORDERED, // SQL query
                 new TodoRowMapper() // Converts each row to Todo object
         );
     }
 
     /**
-     * UPDATE - Modify an existing todo
+     * READ - Get one page of todos (keyset pagination)
+     * 
+     * How it works:
+     * 1. WHERE id > afterId skips straight to the page using the primary key
+     * index
+     * 2. ORDER BY id LIMIT ? reads only the rows of this page
+     * 3. Unlike OFFSET, deep pages are as fast as the first page
+     * 
+     * @param afterId - Last id of the previous page (0 for the first page)
+     * @param limit   - Maximum number of todos to return
+     * @return List of todos ordered by id
+     */
+    @Override
+    public List<Todo> findPage(int afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        return jdbcTemplate.query(
+                SELECT_PAGE,
+                new TodoRowMapper(),
+                afterId, // Value for WHERE id > ?
+                limit // Value for LIMIT ?
+        );
+    }
+
+    /**
+     * READ - Stream all todos with constant memory
+     * 
+     * How it works:
+     * 1. queryForStream() executes the SELECT but does NOT read all rows
+     * 2. Rows are mapped to Todo objects one at a time as the stream is consumed
+     * 3. Closing the stream closes the ResultSet and releases the connection
+     * 
+     * @return Stream of all todos, ordered by id (must be closed by the caller)
+     */
+    @Override
+    public Stream<Todo> streamAll() {
+        return streamingJdbcTemplate.queryForStream(
+                SELECT_ALL_TODOS_ORDERED,
+                new TodoRowMapper());
+    }
+
+    /**
+     * READ - Process all todos one by one with constant memory
+     * 
+     * How it works:
+     * 1. RowCallbackHandler is called for each row instead of building a List
+     * 2. Each row is mapped to a Todo and handed to the action
+     * 3. JdbcTemplate closes everything when the last row is processed
+     * 
+     * @param action - Called once per todo, in id order
+     */
+    @Override
+    public void forEach(Consumer<Todo> action) {
+        TodoRowMapper rowMapper = new TodoRowMapper();
+        streamingJdbcTemplate.query(
+                SELECT_ALL_TODOS_ORDERED,
+                (RowCallbackHandler) rs -> action.accept(rowMapper.mapRow(rs, 0)));
+    }
+
+    /**
+     * UPDATE - Modify an existing todo (optimistic locking)
      * 
      * How it works:
      * 1. jdbcTemplate.update() executes an UPDATE statement
-     * 2. Updates the row where id matches
-     * 3. Returns number of rows affected
+     * 2. WHERE id = ? AND version = ? only matches the row if it still has
+     * the version the todo was read with, and version = version + 1 marks
+     * the change for everyone who read the old version
+     * 3. If one row was updated, the todo gets its new version
+     * 4. If no row was updated, one more SELECT tells why: the todo does not
+     * exist (return 0), or someone else updated it (conflict)
      * 
-     * @param todo - The todo with updated values (must have valid id)
+     * No row lock is held between reading and updating the todo, the check
+     * happens atomically in the UPDATE itself.
+     * 
+     * @param todo - The todo with updated values (must have valid id and the
+     *             version it was read with)
+     * @return Number of rows updated (0 if not found)
+     * @throws TodoVersionConflictException if the todo was changed since it
+     *                                      was read
      */
     @Override
-    public void update(Todo todo) {
-        jdbcTemplate.update(
+    public int update(Todo todo) {
+        int updated = jdbcTemplate.update(
                 UPDATE_TODO, // SQL query
                 todo.getTitle(), // New title
                 todo.getDescription(), // New description
                 todo.isCompleted(), // New completed status
-                todo.getId() // Which row to update (WHERE id = ?)
+                todo.getId(), // Which row to update (WHERE id = ?)
+                todo.getVersion() // Only if unchanged (AND version = ?)
+        );
+        if (updated > 0) {
+            todo.setVersion(todo.getVersion() + 1);
+            return updated;
+        }
+
+        List<Integer> versions = jdbcTemplate.queryForList(SELECT_VERSION, Integer.class, todo.getId());
+        if (!versions.isEmpty()) {
+            throw new TodoVersionConflictException(todo.getId(), todo.getVersion());
+        }
+        return 0;
+    }
+
+    /**
+     * UPDATE (bulk) - Modify many todos using JDBC batching
+     * 
+     * How it works:
+     * 1. jdbcTemplate.batchUpdate() sends UPDATE_TODO once per todo, but in
+     * batches of batchSize statements per round-trip
+     * 2. Every statement has the same version check as update(); a todo
+     * changed by someone else matches no row and is skipped
+     * 3. The todos that were written get their new version, and their row
+     * counts are added up
+     * 
+     * @param todos - The todos with updated values (must have valid ids)
+     * @return Number of rows updated
+     */
+    @Override
+    public int updateAll(Collection<Todo> todos) {
+        List<Todo> rows = new ArrayList<>(todos);
+        int[][] counts = jdbcTemplate.batchUpdate(UPDATE_TODO, rows, batchSize, (ps, todo) -> {
+            ps.setString(1, todo.getTitle());
+            ps.setString(2, todo.getDescription());
+            ps.setBoolean(3, todo.isCompleted());
+            ps.setInt(4, todo.getId());
+            ps.setInt(5, todo.getVersion());
+        });
+
+        int row = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    Todo todo = rows.get(row);
+                    todo.setVersion(todo.getVersion() + 1);
+                }
+                row++;
+            }
+        }
+        return sumRowCounts(counts);
+    }
+
+    /**
+     * UPDATE (status only) - Change only the completed column
+     * 
+     * How it works:
+     * 1. One UPDATE statement sets completed for the given id
+     * 2. No SELECT first, and title/description are not rewritten
+     * 3. The database does the change atomically, so concurrent updates of
+     * title/description are never overwritten
+     * 
+     * Note: MySQL Connector/J reports MATCHED rows by default
+     * (useAffectedRows=false), so a todo that already has this status still
+     * counts as 1 row
+     * 
+     * @param id        - The id of the todo to change
+     * @param completed - The new completion status
+     * @return Number of rows updated (0 if not found)
+     */
+    @Override
+    public int updateCompleted(int id, boolean completed) {
+        return jdbcTemplate.update(
+                UPDATE_COMPLETED,
+                completed, // New completed status
+                id // Which row to update (WHERE id = ?)
         );
     }
 
+    /**
+     * UPDATE (status only, bulk) - Change the completed column of many todos
+     * 
+     * How it works:
+     * 1. The ids are split into chunks of batchSize ids
+     * 2. Each chunk is ONE statement: UPDATE ... WHERE id IN (?, ?, ...)
+     * 3. The affected row counts of all chunks are added up
+     * 
+     * @param ids       - The ids of the todos to change
+     * @param completed - The new completion status
+     * @return Number of rows updated
+     */
+    @Override
+    public int updateCompleted(Collection<Integer> ids, boolean completed) {
+        List<Integer> idList = new ArrayList<>(ids);
+        int updated = 0;
+
+        for (int from = 0; from < idList.size(); from += batchSize) {
+            List<Integer> chunk = idList.subList(from, Math.min(from + batchSize, idList.size()));
+
+            Object[] args = new Object[chunk.size() + 1];
+            args[0] = completed;
+            for (int i = 0; i < chunk.size(); i++) {
+                args[i + 1] = chunk.get(i);
+            }
+
+            updated += jdbcTemplate.update(UPDATE_COMPLETED_IN + inClause(chunk.size()), args);
+        }
+        return updated;
+    }
+
     /**
      * DELETE - Remove a todo from database
      * 
      * How it works:
      * 1. jdbcTemplate.update() executes a DELETE statement
      * 2. Removes the row where id matches
+     * 3. Returns number of rows affected
      * 
      * @param id - The id of the todo to delete
+     * @return Number of rows deleted (0 if not found)
      */
     @Override
-    public void delete(int id) {
-        jdbcTemplate.update(
+    public int delete(int id) {
+        return jdbcTemplate.update(
                 DELETE_TODO, // SQL query
                 id // Value for WHERE id = ?
         );
     }
 
+    /**
+     * DELETE (bulk) - Remove many todos
+     * 
+     * How it works:
+     * 1. The ids are split into chunks of batchSize ids
+     * 2. Each chunk is ONE statement: DELETE ... WHERE id IN (?, ?, ...)
+     * 
+     * @param ids - The ids of the todos to delete
+     * @return Number of rows deleted
+     */
+    @Override
+    public int deleteAll(Collection<Integer> ids) {
+        List<Integer> idList = new ArrayList<>(ids);
+        int deleted = 0;
+
+        for (int from = 0; from < idList.size(); from += batchSize) {
+            List<Integer> chunk = idList.subList(from, Math.min(from + batchSize, idList.size()));
+            deleted += jdbcTemplate.update(DELETE_TODOS_IN + inClause(chunk.size()), chunk.toArray());
+        }
+        return deleted;
+    }
+
     /**
      * Custom query - Find todos by completion status
      * 
      * @param completed - true for completed todos, false for incomplete
-     * @return List of matching todos
+     * @return List of matching todos, ordered by id
      */
     @Override
     public List<Todo> findByCompleted(boolean completed) {
@@ -182,7 +603,186 @@ public class TodoDAOImpl implements TodoDAO {
                 completed);
     }
 
-    // ========== ROW MAPPER ==========
+    /**
+     * Projection query - id, title and status of all todos
+     * 
+     * How it works:
+     * 1. Only the three columns a list view shows are selected, the
+     * description (TEXT, often the biggest part of a row) is never sent
+     * 2. Each row becomes a small TodoSummary instead of a full Todo
+     * 
+     * @return Summaries of all todos, ordered by id
+     */
+    @Override
+    public List<TodoSummary> findSummaries() {
+        return jdbcTemplate.query(SELECT_SUMMARIES, SUMMARY_ROW_MAPPER);
+    }
+
+    /**
+     * Projection query - id, title and status of the todos with a status
+     * 
+     * The (completed, id) index finds the rows already in id order
+     * 
+     * @param completed - true for completed todos, false for incomplete
+     * @return Summaries of the matching todos, ordered by id
+     */
+    @Override
+    public List<TodoSummary> findSummariesByCompleted(boolean completed) {
+        return jdbcTemplate.query(SELECT_SUMMARIES_BY_COMPLETED, SUMMARY_ROW_MAPPER, completed);
+    }
+
+    /**
+     * Custom query - Full-text search over title and description
+     * 
+     * How it works:
+     * 1. MATCH ... AGAINST looks the query words up in the FULLTEXT index
+     * (idx_todos_fulltext), so only matching rows are read, no table scan
+     * 2. Each match gets a relevance score, and the best ones come first
+     * 3. LIMIT ? keeps only the top results, so the amount of data sent back
+     * stays small even when many todos match
+     * 
+     * Words shorter than innodb_ft_min_token_size (3) and stopwords
+     * ("the", "and", ...) are ignored by MySQL.
+     * 
+     * @param query - The words to search for
+     * @param limit - Maximum number of todos to return
+     * @return Matching todos, most relevant first
+     */
+    @Override
+    public List<Todo> search(String query, int limit) {
+        return searchScored(query, limit).stream().map(ScoredTodo::todo).toList();
+    }
+
+    /**
+     * search() with the relevance score of every match
+     * 
+     * Used by ShardedTodoDAO to merge the matches of all shards by score
+     * 
+     * @return Matching todos, highest score first (ties: lowest id first)
+     */
+    List<ScoredTodo> searchScored(String query, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Search limit must be positive: " + limit);
+        }
+        TodoRowMapper todoRowMapper = new TodoRowMapper();
+        return jdbcTemplate.query(
+                SEARCH_TODOS,
+                (rs, rowNum) -> new ScoredTodo(todoRowMapper.mapRow(rs, rowNum), rs.getDouble(8)),
+                query, // Value for SELECT MATCH ... AGAINST (?) AS score
+                query, // Value for WHERE MATCH ... AGAINST (?)
+                limit // Value for LIMIT ?
+        );
+    }
+
+    /**
+     * A search match and its relevance score (column 8 of SEARCH_TODOS)
+     */
+    record ScoredTodo(Todo todo, double score) {
+    }
+
+    /**
+     * Custom query - Changes after a (time, id) cursor (delta sync)
+     * 
+     * How it works:
+     * 1. The todos with (updated_at, id) > (since, afterId) are read in
+     * (updated_at, id) order from idx_todos_updated_at, at most limit of them:
+     * updated_at >= since is the index range, (updated_at > since OR id >
+     * afterId) skips the changes of the cursor's millisecond already returned
+     * 2. The same for the tombstones of deleted todos (deleted_at, id)
+     * 3. UNION ALL merges both and keeps the oldest limit changes
+     * 
+     * Only the changed rows are read, never the whole table. A page that
+     * starts in the middle of many changes with the same millisecond also
+     * reads the ones before the cursor in that millisecond (the range starts
+     * at since), which are then skipped in the index.
+     * 
+     * Note: updated_at is set when the row is written, not when the
+     * transaction commits, so a change committed late can land behind a
+     * cursor that was already handed out (see TodoDAO.findChangedSince:
+     * clients keep their cursor a safety lag behind now).
+     * 
+     * @param since   - Time of the last change already applied
+     * @param afterId - Id of the last change already applied
+     * @param limit   - Maximum number of changes to return
+     * @return Changes, oldest first
+     */
+    @Override
+    public List<TodoChange> findChangedSince(Instant since, int afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Change limit must be positive: " + limit);
+        }
+        Timestamp from = Timestamp.from(since);
+        return jdbcTemplate.query(
+                CHANGES_SINCE,
+                new TodoChangeRowMapper(),
+                from, // Value for WHERE updated_at >= ?
+                from, // Value for (updated_at > ? ...
+                afterId, // Value for ... OR id > ?)
+                limit, // Value for the first LIMIT ?
+                from, // Value for WHERE deleted_at >= ?
+                from, // Value for (deleted_at > ? ...
+                afterId, // Value for ... OR id > ?)
+                limit, // Value for the second LIMIT ?
+                limit // Value for the final LIMIT ?
+        );
+    }
+
+    /**
+     * Custom query - Count todos by completion status
+     * 
+     * How it works:
+     * 1. jdbcTemplate.queryForObject() executes a SELECT COUNT(*)
+     * 2. The (completed, id) index answers it without reading the table rows
+     * 3. Only one number is sent back, not the todos themselves
+     * 
+     * @param completed - true for completed todos, false for incomplete
+     * @return Number of matching todos
+     */
+    @Override
+    public int countByCompleted(boolean completed) {
+        return jdbcTemplate.queryForObject(COUNT_BY_COMPLETED, Integer.class, completed);
+    }
+
+    /**
+     * Custom query - Count all todos
+     * 
+     * @return Total number of todos
+     */
+    @Override
+    public int countAll() {
+        return jdbcTemplate.queryForObject(COUNT_ALL, Integer.class);
+    }
+
+    /**
+     * Build a "(?, ?, ?)" list with the given number of placeholders
+     * 
+     * @param size - Number of ? placeholders (at least 1)
+     * @return The parenthesized placeholder list
+     */
+    private static String inClause(int size) {
+        StringBuilder sql = new StringBuilder(size * 3 + 1).append('(');
+        for (int i = 0; i < size; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.append(')').toString();
+    }
+
+    /**
+     * Add up the row counts returned by a JDBC batch
+     * Statement.SUCCESS_NO_INFO (-2: the driver does not know the count, e.g.
+     * with rewriteBatchedStatements) is counted as one row
+     */
+    private static int sumRowCounts(int[][] counts) {
+        int total = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                total += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+            }
+        }
+        return total;
+    }
+
+    // ========== ROW MAPPERS ==========
 
     /**
      * TodoRowMapper - Converts database rows to Todo objects
@@ -194,6 +794,10 @@ public class TodoDAOImpl implements TodoDAO {
      * - Database returns data as ResultSet (table format)
      * - We need to convert each row into a Todo object
      * - This mapper tells Spring how to do that conversion
+     * 
+     * Columns are read by position (see SQL QUERIES): rs.getString(2) goes
+     * straight to the column, rs.getString("title") first has to look the
+     * name up, for every column of every row
      */
     private static class TodoRowMapper implements RowMapper<Todo> {
 
@@ -212,12 +816,48 @@ public class TodoDAOImpl implements TodoDAO {
             Todo todo = new Todo();
 
             // Get data from each column and set it in the Todo object
-            todo.setId(rs.getInt("id")); // Get 'id' column
-            todo.setTitle(rs.getString("title")); // Get 'title' column
-            todo.setDescription(rs.getString("description")); // Get 'description' column
-            todo.setCompleted(rs.getBoolean("completed")); // Get 'completed' column
+            todo.setId(rs.getInt(1)); // 'id' column
+            todo.setTitle(rs.getString(2)); // 'title' column
+            todo.setDescription(rs.getString(3)); // 'description' column
+            todo.setCompleted(rs.getBoolean(4)); // 'completed' column
+            todo.setVersion(rs.getInt(5)); // 'version' column
+            todo.setCreatedAt(toInstant(rs.getTimestamp(6))); // 'created_at' column
+            todo.setUpdatedAt(toInstant(rs.getTimestamp(7))); // 'updated_at' column
 
             return todo;
         }
     }
+
+    /**
+     * TodoChangeRowMapper - Converts a row of CHANGES_SINCE to a TodoChange
+     * 
+     * Rows with deleted = TRUE (column 8) are tombstones (only id and the
+     * time of the deletion, in column 7, are set), the others are mapped like
+     * TodoRowMapper does
+     */
+    private static class TodoChangeRowMapper implements RowMapper<TodoChange> {
+
+        private final TodoRowMapper todoRowMapper = new TodoRowMapper();
+
+        @Override
+        public TodoChange mapRow(ResultSet rs, int rowNum) throws SQLException {
+            if (rs.getBoolean(8)) {
+                return TodoChange.deleted(rs.getInt(1), toInstant(rs.getTimestamp(7)));
+            }
+            return TodoChange.updated(todoRowMapper.mapRow(rs, rowNum));
+        }
+    }
+
+    /**
+     * Converts a row of SELECT id, title, completed to a TodoSummary
+     * (stateless, so one instance is shared)
+     */
+    private static final RowMapper<TodoSummary> SUMMARY_ROW_MAPPER = (rs, rowNum) -> new TodoSummary(
+            rs.getInt(1), // 'id' column
+            rs.getString(2), // 'title' column
+            rs.getBoolean(3)); // 'completed' column
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant();
+    }
 }
@@ -0,0 +1,109 @@
+package com.todo.dao;
+
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TodoIdAllocator - Hands out todo ids that are unique across all shards
+ *
+ * Every shard has its own AUTO_INCREMENT counter, so two shards would give
+ * out the same ids. Instead, the next free id is kept in ONE row of the
+ * todo_id_sequence table (on the first shard), and ids are reserved from it
+ * in blocks (hi/lo):
+ * 1. SELECT ... FOR UPDATE reads the next free id and locks the row
+ * 2. UPDATE moves it blockSize ids further, and the transaction commits
+ * 3. The ids of the block are then handed out from memory, without any
+ * database access, until the block is used up
+ *
+ * Several application instances can share the sequence: each reserves its
+ * own blocks. Ids left in a block when the application stops are never used
+ * (gaps, like a rolled-back AUTO_INCREMENT).
+ *
+ * Used by ShardedTodoDAO only.
+ */
+final class TodoIdAllocator {
+
+    private static final String SEQUENCE_NAME = "todos";
+
+    private static final String SELECT_NEXT_ID = "SELECT next_id FROM todo_id_sequence WHERE name = ? FOR UPDATE";
+
+    private static final String UPDATE_NEXT_ID = "UPDATE todo_id_sequence SET next_id = ? WHERE name = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int blockSize;
+
+    // Guarded by this: the current block is [next, blockEnd)
+    private long next;
+    private long blockEnd;
+
+    /**
+     * @param jdbcTemplate - Access to the database holding todo_id_sequence
+     * @param blockSize    - Ids reserved per database round-trip
+     */
+    TodoIdAllocator(JdbcTemplate jdbcTemplate, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Id block size must be positive: " + blockSize);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(
+                new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * @return A new id
+     */
+    synchronized int allocate() {
+        if (next == blockEnd) {
+            reserve(blockSize);
+        }
+        return (int) next++;
+    }
+
+    /**
+     * Allocate many ids at once (one reservation for all of them if they do
+     * not fit in the current block)
+     *
+     * @param count - Number of ids needed
+     * @return The new ids, ascending
+     */
+    synchronized List<Integer> allocate(int count) {
+        List<Integer> ids = new ArrayList<>(count);
+        while (ids.size() < count) {
+            if (next == blockEnd) {
+                reserve(Math.max(blockSize, count - ids.size()));
+            }
+            ids.add((int) next++);
+        }
+        return ids;
+    }
+
+    /**
+     * Reserve the next size ids in the sequence table (its own transaction,
+     * committed at once so other instances are never blocked for long)
+     */
+    private void reserve(int size) {
+        long first = transactionTemplate.execute(status -> {
+            long nextId;
+            try {
+                nextId = jdbcTemplate.queryForObject(SELECT_NEXT_ID, Long.class, SEQUENCE_NAME);
+            } catch (EmptyResultDataAccessException e) {
+                throw new IllegalStateException(
+                        "todo_id_sequence has no '" + SEQUENCE_NAME + "' row (see schema.sql)", e);
+            }
+            if (nextId + size - 1 > Integer.MAX_VALUE) {
+                throw new IllegalStateException("No todo ids left (next id " + nextId + ")");
+            }
+            jdbcTemplate.update(UPDATE_NEXT_ID, nextId + size, SEQUENCE_NAME);
+            return nextId;
+        });
+        next = first;
+        blockEnd = first + size;
+    }
+}
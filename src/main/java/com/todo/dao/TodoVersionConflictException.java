@@ -0,0 +1,45 @@
+package com.todo.dao;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+/**
+ * TodoVersionConflictException - A todo was changed by someone else
+ *
+ * Thrown by TodoDAO.update() when the todo still exists but no longer has
+ * the version it was read with: another update happened in between, and
+ * writing now would silently overwrite it (lost update).
+ *
+ * What to do:
+ * - Read the todo again, apply the change to the fresh copy and retry
+ * (TodoService.updateTodoWithRetry does exactly that)
+ * - Or report the conflict to the user
+ *
+ * Extends Spring's OptimisticLockingFailureException, so code that handles
+ * optimistic locking failures in general (or DataAccessException) also
+ * handles this one.
+ */
+public class TodoVersionConflictException extends OptimisticLockingFailureException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int todoId;
+    private final int expectedVersion;
+
+    /**
+     * @param todoId          - The id of the todo that was changed
+     * @param expectedVersion - The version the update expected
+     */
+    public TodoVersionConflictException(int todoId, int expectedVersion) {
+        super("Todo with id " + todoId + " was changed concurrently (expected version " + expectedVersion + ")");
+        this.todoId = todoId;
+        this.expectedVersion = expectedVersion;
+    }
+
+    public int getTodoId() {
+        return todoId;
+    }
+
+    public int getExpectedVersion() {
+        return expectedVersion;
+    }
+}
@@ -0,0 +1,681 @@
+package com.todo.dao;
+
+import com.todo.cache.InvalidationBus;
+import com.todo.logging.AsyncLogger;
+import com.todo.model.Todo;
+import com.todo.model.TodoChange;
+import com.todo.model.TodoSummary;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * WriteBehindTodoDAO - A TodoDAO that buffers writes and saves them later
+ *
+ * Decorator Pattern: wraps another TodoDAO (normally TodoDAOImpl).
+ * Enabled with the Spring profile "write-behind" (see applicationContext.xml).
+ *
+ * How it works:
+ * - updateCompleted / delete do NOT go to the database right away; they are
+ * kept in memory, one pending change per todo id
+ * - Several changes to the same id are merged (coalesced): e.g. three status
+ * changes of todo 7 followed by a delete become a single DELETE
+ * - A background thread flushes the pending changes in batches (deleteAll,
+ * bulk updateCompleted) in one transaction when flushSize changes are
+ * pending, or every flushIntervalMillis
+ * - Backpressure: when maxPending ids are pending, writers wait until the
+ * next flush has made room; a change of a committed transaction never waits
+ * (it is written right away, in its own transaction, instead)
+ * - When the Spring context is closed, close() flushes everything left
+ *
+ * Trade-offs (why this is opt-in):
+ * - Other readers see a change only after the flush (bounded staleness of
+ * about flushIntervalMillis); findById() on THIS instance already sees it
+ * - With an InvalidationBus, the flushed ids are published again after the
+ * flush has committed: other nodes that read and cached the old row between
+ * the write and the flush drop it then
+ * - Writes report 1 row when accepted and 0 for an id that does not exist,
+ * like a direct UPDATE / DELETE: submit() looks the id up (findById) unless a
+ * change of it is already pending. A todo deleted by someone else before the
+ * flush is skipped then (and logged)
+ * - Changes made inside a transaction are buffered only when it commits (a
+ * rollback discards them), but the flush itself is a separate transaction
+ * - create / createAll are NOT buffered: the caller needs the generated id
+ * - update / updateAll are NOT buffered: the version check (optimistic
+ * locking) must happen against the database row when the caller updates, so
+ * that a conflict is reported to that caller. A successful update replaces
+ * a still pending status change of the same todo (the update carries its own
+ * status); one that is already being flushed is waited for first
+ */
+public class WriteBehindTodoDAO implements TodoDAO {
+
+    private static final AsyncLogger log = AsyncLogger.getLogger(WriteBehindTodoDAO.class);
+
+    // ========== DEPENDENCIES AND SETTINGS ==========
+
+    private final TodoDAO delegate;
+    private final TransactionTemplate transactionTemplate;
+    private final int flushSize;
+    private final long flushIntervalMillis;
+    private final int maxPending;
+
+    // ========== PENDING CHANGES ==========
+
+    /**
+     * Pending changes by todo id (guarded by lock)
+     */
+    private Map<Integer, PendingWrite> pending = new LinkedHashMap<>();
+
+    /**
+     * Changes being written by the current flush (guarded by lock)
+     * Still visible to findById() until the flush transaction has committed
+     */
+    private Map<Integer, PendingWrite> flushing = Map.of();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled when a flush should start early (flushSize reached, close())
+     */
+    private final Condition flushRequested = lock.newCondition();
+
+    /**
+     * Signalled after a flush, when writers blocked by backpressure may go on
+     */
+    private final Condition notFull = lock.newCondition();
+
+    /**
+     * Only one flush at a time (background thread or explicit flush())
+     */
+    private final Object flushMonitor = new Object();
+
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    private volatile InvalidationBus invalidationBus;
+
+    /**
+     * Constructor for dependency injection
+     *
+     * @param delegate            - The DAO that writes to the database
+     * @param transactionManager  - Used to run every flush in one transaction
+     * @param flushSize           - Pending ids that trigger an early flush
+     * @param flushIntervalMillis - Maximum time between flushes
+     * @param maxPending          - Pending ids at which writers have to wait
+     */
+    public WriteBehindTodoDAO(TodoDAO delegate, PlatformTransactionManager transactionManager,
+            int flushSize, long flushIntervalMillis, int maxPending) {
+        if (flushSize <= 0 || flushIntervalMillis <= 0 || maxPending < flushSize) {
+            throw new IllegalArgumentException(
+                    "Write-behind needs flushSize > 0, flushIntervalMillis > 0 and maxPending >= flushSize");
+        }
+        this.delegate = delegate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Never join the caller's transaction (a write may run in afterCommit)
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.flushSize = flushSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxPending = maxPending;
+
+        this.flusher = new Thread(this::flushLoop, "todo-write-behind");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Setter injection for the bus shared with the other nodes
+     *
+     * CachingTodoDAO publishes a change when it is buffered, before it is in
+     * the database; the flush publishes it once more after its commit.
+     *
+     * @param invalidationBus - Publishes the ids of every committed flush
+     */
+    public void setInvalidationBus(InvalidationBus invalidationBus) {
+        this.invalidationBus = invalidationBus;
+    }
+
+    // ========== BUFFERED WRITES ==========
+
+    @Override
+    public int updateCompleted(int id, boolean completed) {
+        return submit(id, write -> write.completed = completed);
+    }
+
+    @Override
+    public int updateCompleted(Collection<Integer> ids, boolean completed) {
+        int accepted = 0;
+        for (Integer id : ids) {
+            accepted += updateCompleted(id, completed);
+        }
+        return accepted;
+    }
+
+    @Override
+    public int delete(int id) {
+        return submit(id, write -> {
+            write.deleted = true;
+            write.completed = null;
+        });
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> ids) {
+        int accepted = 0;
+        for (Integer id : ids) {
+            accepted += delete(id);
+        }
+        return accepted;
+    }
+
+    /**
+     * Buffer one change
+     *
+     * How it works:
+     * 1. An id that is pending deletion, or (with nothing pending) that the
+     * wrapped DAO does not find, is rejected with 0, so that callers report
+     * "not found" as they do without write-behind
+     * 2. Inside a transaction, the change is buffered when the transaction
+     * commits (and dropped if it rolls back), see enqueueAfterCommit().
+     * Outside a transaction, it is buffered now.
+     *
+     * @param id     - The todo id
+     * @param change - Applies the change to the pending write of this id
+     * @return 0 if the todo does not exist or is pending deletion, 1 otherwise
+     */
+    private int submit(int id, Consumer<PendingWrite> change) {
+        boolean known;
+        lock.lock();
+        try {
+            PendingWrite write = pending.getOrDefault(id, flushing.get(id));
+            if (write != null && write.deleted) {
+                return 0;
+            }
+            known = write != null;
+        } finally {
+            lock.unlock();
+        }
+        if (!known && delegate.findById(id) == null) {
+            return 0;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueueAfterCommit(id, change);
+                }
+            });
+        } else {
+            enqueue(id, change);
+        }
+        return 1;
+    }
+
+    /**
+     * Merge a change into the pending writes, waiting while the buffer is full
+     */
+    private void enqueue(int id, Consumer<PendingWrite> change) {
+        lock.lock();
+        try {
+            while (pending.size() >= maxPending && !pending.containsKey(id) && running) {
+                flushRequested.signal();
+                notFull.awaitUninterruptibly();
+            }
+            merge(id, change);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Merge the change of a committed transaction without ever waiting for
+     * room: the committing thread may still hold locks or a pooled connection
+     *
+     * How it works:
+     * 1. If there is room (or the id is pending anyway), the change is merged
+     * 2. Otherwise it is written right away in its own transaction (bypassing
+     * the buffer) and published like a flush
+     * 3. If an older change of the id is being flushed right now, the write
+     * waits for that flush, so it cannot be overwritten by it
+     * 4. If the direct write fails, the change is buffered after all (over
+     * maxPending) and retried by the next flush
+     */
+    private void enqueueAfterCommit(int id, Consumer<PendingWrite> change) {
+        boolean inFlush;
+        lock.lock();
+        try {
+            if (pending.size() < maxPending || pending.containsKey(id) || !running) {
+                merge(id, change);
+                return;
+            }
+            inFlush = flushing.containsKey(id);
+        } finally {
+            lock.unlock();
+        }
+
+        PendingWrite write = new PendingWrite(id);
+        change.accept(write);
+        log.debug("Write-behind buffer full, writing todo {} directly", id);
+        try {
+            if (inFlush) {
+                synchronized (flushMonitor) {
+                    writeAndPublish(Map.of(id, write));
+                }
+            } else {
+                writeAndPublish(Map.of(id, write));
+            }
+        } catch (RuntimeException e) {
+            log.error("Direct write of todo {} failed, buffering it anyway", id, e);
+            requeue(Map.of(id, write));
+        }
+    }
+
+    /**
+     * Apply a change to the pending write of its id (lock must be held)
+     */
+    private void merge(int id, Consumer<PendingWrite> change) {
+        change.accept(pending.computeIfAbsent(id, PendingWrite::new));
+        if (pending.size() >= flushSize) {
+            flushRequested.signal();
+        }
+    }
+
+    // ========== UNBUFFERED WRITES ==========
+    // New todos are inserted immediately, because the caller needs their id;
+    // full updates are written immediately, because of their version check
+
+    /**
+     * UPDATE - Write through to the database (version-checked)
+     *
+     * How it works:
+     * 1. A pending status change of this todo is taken out of the buffer
+     * (waiting for the running flush if it is part of it), so it cannot be
+     * written AFTER this update and overwrite its status
+     * 2. The update goes to the wrapped DAO, which checks the version
+     * 3. If it fails (conflict, not found, error, rollback), the status change
+     * is put back (unless a newer change was buffered meanwhile)
+     *
+     * @return 0 if the todo is pending deletion or does not exist
+     * @throws TodoVersionConflictException if the todo was changed since it
+     *                                      was read
+     */
+    @Override
+    public int update(Todo todo) {
+        int id = todo.getId();
+        PendingWrite superseded = takePendingStatus(id);
+        if (superseded != null && superseded.deleted) {
+            return 0;
+        }
+
+        boolean written = false;
+        try {
+            written = delegate.update(todo) > 0;
+        } finally {
+            if (superseded != null) {
+                if (!written) {
+                    restorePendingStatus(superseded);
+                } else if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void afterCompletion(int status) {
+                            if (status != STATUS_COMMITTED) {
+                                restorePendingStatus(superseded);
+                            }
+                        }
+                    });
+                }
+            }
+        }
+        return written ? 1 : 0;
+    }
+
+    /**
+     * UPDATE (bulk) - One update() per todo; todos with an out-of-date
+     * version are skipped (see TodoDAO.updateAll)
+     */
+    @Override
+    public int updateAll(Collection<Todo> todos) {
+        int updated = 0;
+        for (Todo todo : todos) {
+            try {
+                updated += update(todo);
+            } catch (TodoVersionConflictException e) {
+                log.debug("Skipped out-of-date todo {} in updateAll", todo.getId());
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Remove the pending change of an id before it is overwritten by a direct
+     * update
+     *
+     * @return The removed change, a deleted marker if the todo is pending
+     *         deletion (nothing removed), or null if nothing was pending
+     */
+    private PendingWrite takePendingStatus(int id) {
+        while (true) {
+            lock.lock();
+            try {
+                PendingWrite write = pending.get(id);
+                if (write != null && write.deleted) {
+                    return write;
+                }
+                PendingWrite inFlush = flushing.get(id);
+                if (inFlush == null) {
+                    return pending.remove(id);
+                }
+                if (inFlush.deleted) {
+                    return inFlush;
+                }
+            } finally {
+                lock.unlock();
+            }
+            // The status change is being written right now: wait for that flush
+            synchronized (flushMonitor) {
+                log.debug("Update of todo {} waited for the running flush", id);
+            }
+        }
+    }
+
+    /**
+     * Put back a status change removed by takePendingStatus()
+     */
+    private void restorePendingStatus(PendingWrite write) {
+        if (write.deleted) {
+            return;
+        }
+        lock.lock();
+        try {
+            pending.putIfAbsent(write.id, write);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void create(Todo todo) {
+        delegate.create(todo);
+    }
+
+    @Override
+    public List<Integer> createAll(Collection<Todo> todos) {
+        return delegate.createAll(todos);
+    }
+
+    // ========== READS ==========
+
+    /**
+     * READ - Find a todo by id, including changes that are not flushed yet
+     */
+    @Override
+    public Todo findById(int id) {
+        Boolean pendingCompleted = null;
+        lock.lock();
+        try {
+            PendingWrite write = pending.get(id);
+            if (write == null) {
+                write = flushing.get(id);
+            }
+            if (write != null) {
+                if (write.deleted) {
+                    return null;
+                }
+                pendingCompleted = write.completed;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        Todo todo = delegate.findById(id);
+        if (todo != null && pendingCompleted != null) {
+            todo.setCompleted(pendingCompleted);
+        }
+        return todo;
+    }
+
+    // Multi-row reads go to the database and may not include pending changes
+
+    @Override
+    public List<Todo> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Todo> findPage(int afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Stream<Todo> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public void forEach(Consumer<Todo> action) {
+        delegate.forEach(action);
+    }
+
+    @Override
+    public List<Todo> findByCompleted(boolean completed) {
+        return delegate.findByCompleted(completed);
+    }
+
+    @Override
+    public List<TodoSummary> findSummaries() {
+        return delegate.findSummaries();
+    }
+
+    @Override
+    public List<TodoSummary> findSummariesByCompleted(boolean completed) {
+        return delegate.findSummariesByCompleted(completed);
+    }
+
+    @Override
+    public List<Todo> search(String query, int limit) {
+        return delegate.search(query, limit);
+    }
+
+    /**
+     * Buffered changes are not in the feed yet: they appear once they are
+     * flushed, with the time of the flush (so a client never misses them)
+     */
+    @Override
+    public List<TodoChange> findChangedSince(Instant since, int afterId, int limit) {
+        return delegate.findChangedSince(since, afterId, limit);
+    }
+
+    @Override
+    public int countByCompleted(boolean completed) {
+        return delegate.countByCompleted(completed);
+    }
+
+    @Override
+    public int countAll() {
+        return delegate.countAll();
+    }
+
+    // ========== FLUSHING ==========
+
+    /**
+     * Write all pending changes to the database now
+     *
+     * The changes are grouped into bulk operations and written in ONE
+     * transaction. If the flush fails, the changes are put back (newer changes
+     * to the same ids win) and retried by the next flush. After the commit,
+     * the ids are published on the InvalidationBus (if any).
+     */
+    public void flush() {
+        synchronized (flushMonitor) {
+            Map<Integer, PendingWrite> batch;
+            lock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new LinkedHashMap<>();
+                flushing = batch;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                writeAndPublish(batch);
+            } catch (RuntimeException e) {
+                log.error("Write-behind flush of {} todos failed, will retry", batch.size(), e);
+                requeue(batch);
+            } finally {
+                lock.lock();
+                try {
+                    flushing = Map.of();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the changes in one transaction, then publish their ids on the
+     * InvalidationBus (if any)
+     */
+    private void writeAndPublish(Map<Integer, PendingWrite> batch) {
+        write(batch.values());
+        InvalidationBus bus = invalidationBus;
+        if (bus != null) {
+            bus.publish(batch.keySet());
+        }
+    }
+
+    private void write(Collection<PendingWrite> batch) {
+        List<Integer> deletes = new ArrayList<>();
+        List<Integer> completedIds = new ArrayList<>();
+        List<Integer> incompleteIds = new ArrayList<>();
+
+        for (PendingWrite write : batch) {
+            if (write.deleted) {
+                deletes.add(write.id);
+            } else if (Boolean.TRUE.equals(write.completed)) {
+                completedIds.add(write.id);
+            } else if (Boolean.FALSE.equals(write.completed)) {
+                incompleteIds.add(write.id);
+            }
+        }
+
+        int written = transactionTemplate.execute(status -> {
+            int rows = 0;
+            if (!deletes.isEmpty()) {
+                rows += delegate.deleteAll(deletes);
+            }
+            if (!completedIds.isEmpty()) {
+                rows += delegate.updateCompleted(completedIds, true);
+            }
+            if (!incompleteIds.isEmpty()) {
+                rows += delegate.updateCompleted(incompleteIds, false);
+            }
+            return rows;
+        });
+
+        if (written < batch.size()) {
+            log.warn("Write-behind flush: {} of {} todos no longer existed", batch.size() - written, batch.size());
+        }
+    }
+
+    /**
+     * Put the changes of a failed flush back, unless a newer change exists
+     */
+    private void requeue(Map<Integer, PendingWrite> failed) {
+        lock.lock();
+        try {
+            Map<Integer, PendingWrite> merged = new LinkedHashMap<>(failed);
+            merged.putAll(pending);
+            pending = merged;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Background thread: flush every flushIntervalMillis, or earlier when
+     * flushSize changes are pending
+     */
+    private void flushLoop() {
+        while (running) {
+            lock.lock();
+            try {
+                if (running && pending.size() < flushSize) {
+                    flushRequested.await(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            flush();
+        }
+    }
+
+    /**
+     * @return Number of todo ids with changes not yet written to the database
+     */
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop the background thread and write everything that is still pending
+     * (called by Spring when the context is closed, see destroy-method)
+     */
+    public void close() throws InterruptedException {
+        lock.lock();
+        try {
+            running = false;
+            flushRequested.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+        flush();
+    }
+
+    // ========== PENDING WRITE ==========
+
+    /**
+     * The merged, not yet written change of one todo
+     * - deleted: the todo must be deleted (wins over everything else)
+     * - completed: new status (updateCompleted)
+     */
+    private static final class PendingWrite {
+
+        private final int id;
+        private boolean deleted;
+        private Boolean completed;
+
+        private PendingWrite(int id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.todo.datasource;
+
+import com.todo.logging.AsyncLogger;
+import org.apache.commons.dbcp2.BasicDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * MonitoredDataSource - DBCP2 connection pool that reports pool starvation
+ *
+ * It is a normal BasicDataSource (all pool settings work the same), but
+ * getConnection() measures how long the caller waited for a free connection:
+ * - Waits longer than slowBorrowThresholdMillis are counted and logged as a
+ * warning together with the pool state (active / idle / waiting threads)
+ * - Callers that give up after maxWaitMillis (fail-fast) are counted and
+ * logged too
+ *
+ * When the pool is starved, every caller waits, so the warning is written at
+ * most once per second with the number of slow borrows since the last one.
+ */
+public class MonitoredDataSource extends BasicDataSource {
+
+    private static final AsyncLogger log = AsyncLogger.getLogger(MonitoredDataSource.class);
+
+    private static final long LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private volatile long slowBorrowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * The driver options as configured (BasicDataSource only keeps them parsed)
+     */
+    private String connectionProperties;
+
+    /**
+     * The credentials as configured (the BasicDataSource getters are
+     * deprecated, they are not meant to hand out the password)
+     */
+    private String username;
+    private String password;
+
+    private final LongAdder slowBorrows = new LongAdder();
+    private final LongAdder borrowTimeouts = new LongAdder();
+
+    private final AtomicLong lastWarningNanos = new AtomicLong(System.nanoTime() - LOG_INTERVAL_NANOS);
+    private final LongAdder suppressedWarnings = new LongAdder();
+
+    /**
+     * Set the wait time above which a borrow is reported as slow
+     *
+     * @param millis - Threshold in milliseconds
+     */
+    public void setSlowBorrowThresholdMillis(long millis) {
+        this.slowBorrowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    public long getSlowBorrowThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowBorrowThresholdNanos);
+    }
+
+    @Override
+    public void setConnectionProperties(String connectionProperties) {
+        this.connectionProperties = connectionProperties;
+        super.setConnectionProperties(connectionProperties);
+    }
+
+    @Override
+    public void setUsername(String username) {
+        this.username = username;
+        super.setUsername(username);
+    }
+
+    @Override
+    public void setPassword(String password) {
+        this.password = password;
+        super.setPassword(password);
+    }
+
+    /**
+     * Create a new pool for another database with the same settings
+     * (used for the read replicas, see ReplicaRoutingDataSource)
+     *
+     * @param url - JDBC URL of the other database
+     * @return A new, not yet started pool (closing it is up to the caller)
+     */
+    public MonitoredDataSource copyWithUrl(String url) {
+        MonitoredDataSource copy = new MonitoredDataSource();
+        copy.setDriverClassName(getDriverClassName());
+        copy.setUrl(url);
+        copy.setUsername(username);
+        copy.setPassword(password);
+        if (connectionProperties != null) {
+            copy.setConnectionProperties(connectionProperties);
+        }
+
+        copy.setInitialSize(getInitialSize());
+        copy.setMaxTotal(getMaxTotal());
+        copy.setMaxIdle(getMaxIdle());
+        copy.setMinIdle(getMinIdle());
+
+        copy.setMaxWait(getMaxWaitDuration());
+        copy.setSlowBorrowThresholdMillis(getSlowBorrowThresholdMillis());
+
+        copy.setValidationQuery(getValidationQuery());
+        copy.setTestOnBorrow(getTestOnBorrow());
+        copy.setTestWhileIdle(getTestWhileIdle());
+        copy.setDurationBetweenEvictionRuns(getDurationBetweenEvictionRuns());
+        copy.setMinEvictableIdle(getMinEvictableIdleDuration());
+        copy.setMaxConn(getMaxConnDuration());
+
+        copy.setPoolPreparedStatements(isPoolPreparedStatements());
+        copy.setMaxOpenPreparedStatements(getMaxOpenPreparedStatements());
+        return copy;
+    }
+
+    /**
+     * Get a connection from the pool, measuring the wait
+     *
+     * The very first call also creates the pool (and its initialSize
+     * connections), which is not a pool starvation, so it is not measured.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (getConnectionPool() == null) {
+            return super.getConnection();
+        }
+        long start = System.nanoTime();
+        try {
+            Connection connection = super.getConnection();
+            long waited = System.nanoTime() - start;
+            if (waited > slowBorrowThresholdNanos) {
+                slowBorrows.increment();
+                warn("Waited {} ms for a database connection ({})", waited);
+            }
+            return connection;
+        } catch (SQLException e) {
+            borrowTimeouts.increment();
+            warn("Gave up after {} ms waiting for a database connection ({})", System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * Log a pool warning, at most once per second
+     */
+    private void warn(String template, long waitedNanos) {
+        long now = System.nanoTime();
+        long last = lastWarningNanos.get();
+        if (now - last < LOG_INTERVAL_NANOS || !lastWarningNanos.compareAndSet(last, now)) {
+            suppressedWarnings.increment();
+            return;
+        }
+        long suppressed = suppressedWarnings.sumThenReset();
+        log.warn(template + (suppressed > 0 ? " - " + suppressed + " similar warnings suppressed" : ""),
+                TimeUnit.NANOSECONDS.toMillis(waitedNanos), describePool());
+    }
+
+    /**
+     * @return The current pool state, e.g. "active=10/10, idle=0, waiting=25"
+     */
+    public String describePool() {
+        return "active=" + getNumActive() + "/" + getMaxTotal()
+                + ", idle=" + getNumIdle()
+                + ", waiting=" + (getConnectionPool() == null ? 0 : getConnectionPool().getNumWaiters());
+    }
+
+    /**
+     * @return Number of getConnection() calls that waited longer than the
+     *         threshold
+     */
+    public long getSlowBorrowCount() {
+        return slowBorrows.sum();
+    }
+
+    /**
+     * @return Number of getConnection() calls that failed (e.g. maxWaitMillis
+     *         reached)
+     */
+    public long getBorrowTimeoutCount() {
+        return borrowTimeouts.sum();
+    }
+}
@@ -0,0 +1,347 @@
+package com.todo.datasource;
+
+import com.todo.logging.AsyncLogger;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ReplicaRoutingDataSource - Sends read-only transactions to read replicas
+ *
+ * Writes (and every transaction not marked read-only) use the primary pool.
+ * Transactions started by @Transactional(readOnly = true) service methods use
+ * a connection from one of the replica pools, so reads like getAllTodos or
+ * getTodoById do not compete with writes for the primary.
+ *
+ * How it works:
+ * 1. One connection pool per replica URL (db.replica.urls), with the same
+ * settings and credentials as the primary pool
+ * 2. getConnection() inside a read-only transaction picks the next healthy
+ * replica (round-robin); everything else gets a primary connection
+ * 3. A background thread checks every replica every healthCheckIntervalMillis:
+ * it must answer, and its replication lag (lagQuery) must not exceed
+ * maxLagSeconds. Replicas that fail are skipped until a later check passes.
+ * 4. If a replica fails while a connection is borrowed, it is marked
+ * unhealthy at once and the next replica is tried; when no replica is
+ * healthy, the read goes to the primary (failover)
+ *
+ * IMPORTANT: the read-only flag is only known after the transaction manager
+ * has asked for a connection, so this data source must be wrapped in a
+ * LazyConnectionDataSourceProxy (the dataSource bean in applicationContext.xml):
+ * the proxy gets the real connection on the first SQL statement.
+ *
+ * Replicas are asynchronous copies: a read-only transaction may not yet see
+ * a change committed just before (at most maxLagSeconds old). Reads that
+ * must see it should run in a read-write transaction.
+ *
+ * Without replica URLs every connection comes from the primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private static final AsyncLogger log = AsyncLogger.getLogger(ReplicaRoutingDataSource.class);
+
+    /**
+     * Column with the lag in the result of SHOW REPLICA STATUS (MySQL 8.0.22+),
+     * and its name in older versions (SHOW SLAVE STATUS)
+     */
+    private static final String[] LAG_COLUMNS = { "Seconds_Behind_Source", "Seconds_Behind_Master" };
+
+    private final MonitoredDataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagSeconds;
+    private final String lagQuery;
+    private final long healthCheckIntervalMillis;
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryFallbacks = new LongAdder();
+
+    private final Thread healthChecker;
+    private volatile boolean running = true;
+
+    /**
+     * Constructor for dependency injection
+     *
+     * @param primary                   - The pool of the primary database
+     * @param replicaUrls               - JDBC URLs of the replicas, separated
+     *                                  by commas (empty = no replicas)
+     * @param maxLagSeconds             - Replicas further behind the primary
+     *                                  are not used
+     * @param lagQuery                  - SQL returning the replication lag in
+     *                                  seconds (a Seconds_Behind_Source column,
+     *                                  or else the first column); empty = the
+     *                                  lag is not checked
+     * @param healthCheckIntervalMillis - Time between two checks of the replicas
+     */
+    public ReplicaRoutingDataSource(MonitoredDataSource primary, String replicaUrls,
+            long maxLagSeconds, String lagQuery, long healthCheckIntervalMillis) {
+        if (maxLagSeconds < 0 || healthCheckIntervalMillis <= 0) {
+            throw new IllegalArgumentException(
+                    "Replica routing needs maxLagSeconds >= 0 and healthCheckIntervalMillis > 0");
+        }
+        this.primary = primary;
+        this.maxLagSeconds = maxLagSeconds;
+        this.lagQuery = lagQuery == null ? "" : lagQuery.trim();
+        this.healthCheckIntervalMillis = healthCheckIntervalMillis;
+
+        List<Replica> replicas = new ArrayList<>();
+        if (replicaUrls != null) {
+            for (String url : replicaUrls.split(",")) {
+                if (!url.isBlank()) {
+                    replicas.add(new Replica(url.trim(), primary.copyWithUrl(url.trim())));
+                }
+            }
+        }
+        this.replicas = Collections.unmodifiableList(replicas);
+
+        if (replicas.isEmpty()) {
+            this.healthChecker = null;
+        } else {
+            log.info("Routing read-only transactions to {} replicas (max lag {} s)", replicas.size(), maxLagSeconds);
+            // Replicas start unhealthy: nothing is read from them before the first check
+            this.healthChecker = new Thread(this::healthCheckLoop, "todo-replica-health");
+            this.healthChecker.setDaemon(true);
+            this.healthChecker.start();
+        }
+    }
+
+    // ========== ROUTING ==========
+
+    /**
+     * Borrow from the next healthy replica inside a read-only transaction,
+     * from the primary otherwise (or when no replica is usable)
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (replicas.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return primary.getConnection();
+        }
+        int start = nextReplica.getAndIncrement();
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                Connection connection = replica.pool.getConnection();
+                replicaReads.increment();
+                return connection;
+            } catch (SQLException e) {
+                replica.markUnhealthy("connection failed: " + e.getMessage());
+            }
+        }
+        primaryFallbacks.increment();
+        return primary.getConnection();
+    }
+
+    /**
+     * Not supported: every pool only hands out connections of the credentials
+     * it was configured with (DBCP2 BasicDataSource has no per-call
+     * credentials), and opening unpooled connections would bypass the pool
+     * limits
+     *
+     * @throws SQLFeatureNotSupportedException always
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException(
+                "Connections with other credentials are not supported, configure db.username and db.password");
+    }
+
+    // ========== HEALTH CHECKS ==========
+
+    private void healthCheckLoop() {
+        while (running) {
+            for (Replica replica : replicas) {
+                check(replica);
+            }
+            try {
+                Thread.sleep(healthCheckIntervalMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Check that a replica answers and is not too far behind the primary
+     */
+    private void check(Replica replica) {
+        try (Connection connection = replica.pool.getConnection()) {
+            if (lagQuery.isEmpty()) {
+                int timeoutSeconds = (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(healthCheckIntervalMillis));
+                if (connection.isValid(timeoutSeconds)) {
+                    replica.markHealthy(-1);
+                } else {
+                    replica.markUnhealthy("connection is not valid");
+                }
+                return;
+            }
+            Long lag = queryLag(connection);
+            if (lag == null) {
+                replica.markUnhealthy("replication is not running");
+            } else if (lag > maxLagSeconds) {
+                replica.markUnhealthy("replication lag " + lag + " s > " + maxLagSeconds + " s");
+            } else {
+                replica.markHealthy(lag);
+            }
+        } catch (SQLException e) {
+            replica.markUnhealthy("health check failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return The lag in seconds, or null if the query returns no row or NULL
+     *         (replication stopped)
+     */
+    private Long queryLag(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery(lagQuery)) {
+            if (!rs.next()) {
+                return null;
+            }
+            long lag = rs.getLong(lagColumn(rs.getMetaData()));
+            return rs.wasNull() ? null : lag;
+        }
+    }
+
+    private static int lagColumn(ResultSetMetaData metaData) throws SQLException {
+        for (int column = 1; column <= metaData.getColumnCount(); column++) {
+            for (String name : LAG_COLUMNS) {
+                if (name.equalsIgnoreCase(metaData.getColumnLabel(column))) {
+                    return column;
+                }
+            }
+        }
+        return 1;
+    }
+
+    // ========== STATE ==========
+
+    /**
+     * @return How far behind the primary a read-only read may be: the
+     *         maximum replica lag, or -1 without replicas (every read sees the
+     *         primary)
+     */
+    public long getMaxStalenessSeconds() {
+        return replicas.isEmpty() ? -1 : maxLagSeconds;
+    }
+
+    /**
+     * @return Number of replicas currently used for reads
+     */
+    public int getHealthyReplicaCount() {
+        int healthy = 0;
+        for (Replica replica : replicas) {
+            if (replica.healthy) {
+                healthy++;
+            }
+        }
+        return healthy;
+    }
+
+    /**
+     * @return Number of connections given out from replica pools
+     */
+    public long getReplicaReadCount() {
+        return replicaReads.sum();
+    }
+
+    /**
+     * @return Number of read-only connections that came from the primary
+     *         because no replica was healthy
+     */
+    public long getPrimaryFallbackCount() {
+        return primaryFallbacks.sum();
+    }
+
+    /**
+     * @return The state of every replica, e.g.
+     *         "jdbc:mysql://replica1:3306/tododb: healthy, lag=0 s (active=2/10, idle=3, waiting=0)"
+     */
+    public String describeReplicas() {
+        StringBuilder description = new StringBuilder();
+        for (Replica replica : replicas) {
+            if (description.length() > 0) {
+                description.append('\n');
+            }
+            description.append(replica.url).append(": ")
+                    .append(replica.healthy ? "healthy" : "unhealthy (" + replica.problem + ")")
+                    .append(replica.lagSeconds >= 0 ? ", lag=" + replica.lagSeconds + " s" : "")
+                    .append(" (").append(replica.pool.describePool()).append(')');
+        }
+        return description.toString();
+    }
+
+    /**
+     * Stop the health checks and close the replica pools
+     * (called by Spring when the context is closed, see destroy-method).
+     * The primary pool is a bean of its own and is closed by Spring.
+     */
+    public void close() throws InterruptedException {
+        running = false;
+        if (healthChecker != null) {
+            healthChecker.interrupt();
+            healthChecker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        for (Replica replica : replicas) {
+            try {
+                replica.pool.close();
+            } catch (SQLException e) {
+                log.warn("Could not close the pool of replica {}: {}", replica.url, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * One replica: its pool and the result of the last check
+     */
+    private static final class Replica {
+
+        final String url;
+        final MonitoredDataSource pool;
+
+        volatile boolean healthy;
+        volatile long lagSeconds = -1;
+        volatile String problem = "not checked yet";
+
+        Replica(String url, MonitoredDataSource pool) {
+            this.url = url;
+            this.pool = pool;
+        }
+
+        synchronized void markHealthy(long lagSeconds) {
+            this.lagSeconds = lagSeconds;
+            if (!healthy) {
+                healthy = true;
+                problem = null;
+                log.info("Replica {} is used for reads", url);
+            }
+        }
+
+        /**
+         * Logged only when the state changes (a down replica fails every check)
+         */
+        synchronized void markUnhealthy(String problem) {
+            boolean wasHealthy = healthy;
+            this.healthy = false;
+            this.problem = problem;
+            if (wasHealthy) {
+                log.warn("Replica {} is not used for reads: {}", url, problem);
+            }
+        }
+    }
+}
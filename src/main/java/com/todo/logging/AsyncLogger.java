@@ -0,0 +1,161 @@
+package com.todo.logging;
+
+/**
+ * AsyncLogger - Non-blocking logger for the application
+ *
+ * Usage (one logger per class):
+ *
+ * private static final AsyncLogger log = AsyncLogger.getLogger(TodoServiceImpl.class);
+ * log.info("Todo created: {} (ID: {})", todo.getTitle(), todo.getId());
+ *
+ * Why not System.out.println?
+ * - println takes a lock on System.out and writes to the console while the
+ * caller waits - inside a transaction, that makes the transaction longer
+ * - String concatenation builds the message even when nobody reads it
+ *
+ * How AsyncLogger avoids that:
+ * - Level gating: disabled levels return immediately
+ * - Parameterized messages: "{}" placeholders are filled in later by the
+ * writer thread, the caller only passes references
+ * - The message goes into a bounded ring buffer (LogRingBuffer) and a
+ * background thread writes it; if the buffer is full the message is dropped
+ * instead of making the caller wait
+ *
+ * Configuration (system properties):
+ * - todo.log.level: DEBUG, INFO (default), WARN, ERROR or OFF
+ * - todo.log.bufferSize: ring buffer slots (default 8192)
+ *
+ * Pending messages are written when the JVM shuts down.
+ */
+public final class AsyncLogger {
+
+    private static final LogRingBuffer BUFFER = new LogRingBuffer(
+            Integer.getInteger("todo.log.bufferSize", 8192), System.out);
+
+    private static volatile LogLevel level = LogLevel.valueOf(
+            System.getProperty("todo.log.level", LogLevel.INFO.name()).toUpperCase());
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> BUFFER.shutdown(2000), "todo-log-shutdown"));
+    }
+
+    private final String name;
+
+    private AsyncLogger(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get a logger named after a class
+     *
+     * @param type - The class that logs (its simple name is printed)
+     * @return A logger for that class
+     */
+    public static AsyncLogger getLogger(Class<?> type) {
+        return new AsyncLogger(type.getSimpleName());
+    }
+
+    // ========== CONFIGURATION ==========
+
+    /**
+     * Change the minimum level of messages that are logged
+     *
+     * @param newLevel - The new level (OFF disables logging)
+     */
+    public static void setLevel(LogLevel newLevel) {
+        level = newLevel;
+    }
+
+    public static LogLevel getLevel() {
+        return level;
+    }
+
+    /**
+     * @return Number of messages dropped because the buffer was full
+     */
+    public static long getDroppedCount() {
+        return BUFFER.getDroppedCount();
+    }
+
+    /**
+     * Wait (at most 1 second) until all queued messages are written
+     * Useful before printing something that must appear after the log lines
+     */
+    public static void flush() {
+        BUFFER.flush(1000);
+    }
+
+    public boolean isEnabled(LogLevel messageLevel) {
+        return messageLevel.compareTo(level) >= 0 && messageLevel != LogLevel.OFF;
+    }
+
+    // ========== LOGGING METHODS ==========
+    // Fixed-argument overloads (instead of varargs) avoid allocating an array
+
+    public void debug(String template) {
+        log(LogLevel.DEBUG, template, 0, null, null, null, null);
+    }
+
+    public void debug(String template, Object arg) {
+        log(LogLevel.DEBUG, template, 1, arg, null, null, null);
+    }
+
+    public void debug(String template, Object arg1, Object arg2) {
+        log(LogLevel.DEBUG, template, 2, arg1, arg2, null, null);
+    }
+
+    public void info(String template) {
+        log(LogLevel.INFO, template, 0, null, null, null, null);
+    }
+
+    public void info(String template, Object arg) {
+        log(LogLevel.INFO, template, 1, arg, null, null, null);
+    }
+
+    public void info(String template, Object arg1, Object arg2) {
+        log(LogLevel.INFO, template, 2, arg1, arg2, null, null);
+    }
+
+    public void info(String template, Object arg1, Object arg2, Object arg3) {
+        log(LogLevel.INFO, template, 3, arg1, arg2, arg3, null);
+    }
+
+    public void warn(String template) {
+        log(LogLevel.WARN, template, 0, null, null, null, null);
+    }
+
+    public void warn(String template, Object arg) {
+        log(LogLevel.WARN, template, 1, arg, null, null, null);
+    }
+
+    public void warn(String template, Object arg1, Object arg2) {
+        log(LogLevel.WARN, template, 2, arg1, arg2, null, null);
+    }
+
+    public void warn(String template, Object arg1, Object arg2, Object arg3) {
+        log(LogLevel.WARN, template, 3, arg1, arg2, arg3, null);
+    }
+
+    public void warn(String template, Throwable thrown) {
+        log(LogLevel.WARN, template, 0, null, null, null, thrown);
+    }
+
+    public void error(String template, Object arg) {
+        log(LogLevel.ERROR, template, 1, arg, null, null, null);
+    }
+
+    public void error(String template, Throwable thrown) {
+        log(LogLevel.ERROR, template, 0, null, null, null, thrown);
+    }
+
+    public void error(String template, Object arg, Throwable thrown) {
+        log(LogLevel.ERROR, template, 1, arg, null, null, thrown);
+    }
+
+    private void log(LogLevel messageLevel, String template, int argCount,
+            Object arg1, Object arg2, Object arg3, Throwable thrown) {
+        if (isEnabled(messageLevel)) {
+            BUFFER.publish(messageLevel, name, template, argCount, arg1, arg2, arg3, thrown);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.todo.logging;
+
+/**
+ * LogLevel - How important a log message is
+ *
+ * Messages below the configured level are dropped before anything is
+ * allocated or queued (level gating), so disabled DEBUG messages cost almost
+ * nothing.
+ */
+public enum LogLevel {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    OFF
+}
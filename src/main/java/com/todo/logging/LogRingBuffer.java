@@ -0,0 +1,240 @@
+package com.todo.logging;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * LogRingBuffer - Bounded queue between the application threads and the
+ * thread that writes the log
+ *
+ * How it works:
+ * - The buffer is a fixed array of pre-allocated slots (a ring)
+ * - An application thread claims the next free slot with one atomic
+ * compare-and-set, copies the message template and arguments into it, and
+ * returns immediately - no lock, no I/O, no string formatting
+ * - One background writer thread takes the slots in order, formats the
+ * messages and prints them
+ * - When the ring is full (the writer cannot keep up) the message is DROPPED
+ * and counted, so logging never blocks a caller (e.g. inside a transaction)
+ */
+final class LogRingBuffer {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS")
+            .withZone(ZoneId.systemDefault());
+
+    /**
+     * One pre-allocated message slot
+     * sequence tells the writer whether the slot holds the message it expects
+     */
+    private static final class Slot {
+        volatile long sequence = -1;
+        long timestampMillis;
+        LogLevel level;
+        String loggerName;
+        String threadName;
+        String template;
+        int argCount;
+        Object arg1;
+        Object arg2;
+        Object arg3;
+        Throwable thrown;
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+
+    /**
+     * Next sequence number to claim (producers)
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Next sequence number to write (writer thread)
+     */
+    private volatile long head;
+
+    private final LongAdder dropped = new LongAdder();
+    private final PrintStream out;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    /**
+     * @param capacity - Number of slots (rounded up to a power of two)
+     * @param out      - Where the formatted messages are printed
+     */
+    LogRingBuffer(int capacity, PrintStream out) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = size - 1;
+        this.out = out;
+        this.writer = new Thread(this::writeLoop, "todo-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // ========== PRODUCER SIDE (application threads) ==========
+
+    /**
+     * Queue one message without blocking
+     *
+     * @return false if the ring was full and the message was dropped
+     */
+    boolean publish(LogLevel level, String loggerName, String template, int argCount,
+            Object arg1, Object arg2, Object arg3, Throwable thrown) {
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head >= slots.length) {
+                dropped.increment();
+                return false;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+
+        Slot slot = slots[(int) (sequence & mask)];
+        slot.timestampMillis = System.currentTimeMillis();
+        slot.level = level;
+        slot.loggerName = loggerName;
+        slot.threadName = Thread.currentThread().getName();
+        slot.template = template;
+        slot.argCount = argCount;
+        slot.arg1 = arg1;
+        slot.arg2 = arg2;
+        slot.arg3 = arg3;
+        slot.thrown = thrown;
+        slot.sequence = sequence; // volatile write: publishes the fields above
+        return true;
+    }
+
+    /**
+     * @return Number of messages dropped because the ring was full
+     */
+    long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Wait until every message queued so far has been written
+     *
+     * @param timeoutMillis - Maximum time to wait
+     */
+    void flush(long timeoutMillis) {
+        long target = tail.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (head < target && System.nanoTime() < deadline && writer.isAlive()) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        out.flush();
+    }
+
+    /**
+     * Write the remaining messages and stop the writer thread
+     */
+    void shutdown(long timeoutMillis) {
+        flush(timeoutMillis);
+        running = false;
+        LockSupport.unpark(writer);
+    }
+
+    // ========== CONSUMER SIDE (writer thread) ==========
+
+    private void writeLoop() {
+        StringBuilder line = new StringBuilder(256);
+        while (running) {
+            if (!writeAvailable(line)) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        }
+        writeAvailable(line);
+        out.flush();
+    }
+
+    /**
+     * Write all messages that are ready
+     *
+     * @return true if at least one message was written
+     */
+    private boolean writeAvailable(StringBuilder line) {
+        boolean wrote = false;
+        long next = head;
+        while (true) {
+            Slot slot = slots[(int) (next & mask)];
+            if (slot.sequence != next) {
+                break; // not published yet
+            }
+
+            line.setLength(0);
+            try {
+                format(slot, line);
+                out.append(line);
+                if (slot.thrown != null) {
+                    slot.thrown.printStackTrace(out);
+                }
+            } catch (RuntimeException e) {
+                // E.g. an argument whose toString() throws: this thread must
+                // survive it, or nothing would be logged anymore
+                line.setLength(0);
+                formatFailure(slot, e, line);
+                out.append(line);
+            }
+
+            // Release references so the arguments can be garbage collected
+            slot.arg1 = slot.arg2 = slot.arg3 = null;
+            slot.thrown = null;
+            slot.template = null;
+
+            next++;
+            head = next; // volatile write: frees the slot for producers
+            wrote = true;
+        }
+        return wrote;
+    }
+
+    /**
+     * Format: 14:03:07.123 INFO  [main] TodoServiceImpl - message
+     * Each {} in the template is replaced by the next argument
+     */
+    private static void format(Slot slot, StringBuilder line) {
+        appendHeader(slot, line);
+
+        String template = slot.template;
+        int argIndex = 0;
+        int from = 0;
+        int placeholder;
+        while ((placeholder = template.indexOf("{}", from)) >= 0 && argIndex < slot.argCount) {
+            line.append(template, from, placeholder);
+            line.append(argIndex == 0 ? slot.arg1 : argIndex == 1 ? slot.arg2 : slot.arg3);
+            argIndex++;
+            from = placeholder + 2;
+        }
+        line.append(template, from, template.length()).append(System.lineSeparator());
+    }
+
+    /**
+     * Placeholder for a message that could not be formatted (the template
+     * and the exception type, no arguments)
+     */
+    private static void formatFailure(Slot slot, RuntimeException e, StringBuilder line) {
+        appendHeader(slot, line);
+        line.append("[message could not be formatted: \"").append(slot.template).append("\" (")
+                .append(e.getClass().getName()).append(")]").append(System.lineSeparator());
+    }
+
+    private static void appendHeader(Slot slot, StringBuilder line) {
+        TIME_FORMAT.formatTo(Instant.ofEpochMilli(slot.timestampMillis), line);
+        line.append(' ').append(slot.level);
+        if (slot.level.name().length() == 4) {
+            line.append(' ');
+        }
+        line.append(" [").append(slot.threadName).append("] ")
+                .append(slot.loggerName).append(" - ");
+    }
+}
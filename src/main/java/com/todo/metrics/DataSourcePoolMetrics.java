@@ -0,0 +1,54 @@
+package com.todo.metrics;
+
+import com.todo.datasource.MonitoredDataSource;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.commons.dbcp2.PoolableConnection;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * DataSourcePoolMetrics - Gauges for the DBCP2 connection pool
+ *
+ * Registers these gauges in the MetricsRegistry:
+ * - todo_pool_active_connections: connections currently used by the application
+ * - todo_pool_idle_connections: open connections waiting in the pool
+ * - todo_pool_max_connections: the maxTotal setting
+ * - todo_pool_waiting_threads: threads waiting for a free connection right now
+ * - todo_pool_borrow_wait_mean_seconds: average time spent waiting for a connection
+ * - todo_pool_borrow_wait_max_seconds: longest time spent waiting for a connection
+ * - todo_pool_slow_borrows_total / todo_pool_borrow_timeouts_total: borrows
+ * slower than the threshold / that failed (only for a MonitoredDataSource)
+ *
+ * BasicDataSource creates its pool lazily (on the first getConnection()), so
+ * the pool-based gauges are 0 until then.
+ */
+public class DataSourcePoolMetrics {
+
+    /**
+     * @param registry   - Where the gauges are registered
+     * @param dataSource - The primaryDataSource bean from applicationContext.xml
+     */
+    public DataSourcePoolMetrics(MetricsRegistry registry, BasicDataSource dataSource) {
+        registry.gauge("todo_pool_active_connections", dataSource::getNumActive);
+        registry.gauge("todo_pool_idle_connections", dataSource::getNumIdle);
+        registry.gauge("todo_pool_max_connections", dataSource::getMaxTotal);
+        registry.gauge("todo_pool_waiting_threads",
+                () -> fromPool(dataSource, GenericObjectPool::getNumWaiters));
+        registry.gauge("todo_pool_borrow_wait_mean_seconds",
+                () -> fromPool(dataSource, pool -> pool.getMeanBorrowWaitDuration().toMillis() / 1e3));
+        registry.gauge("todo_pool_borrow_wait_max_seconds",
+                () -> fromPool(dataSource, pool -> pool.getMaxBorrowWaitDuration().toMillis() / 1e3));
+
+        if (dataSource instanceof MonitoredDataSource monitored) {
+            registry.gauge("todo_pool_slow_borrows_total", monitored::getSlowBorrowCount);
+            registry.gauge("todo_pool_borrow_timeouts_total", monitored::getBorrowTimeoutCount);
+        }
+    }
+
+    private static double fromPool(BasicDataSource dataSource,
+            ToDoubleFunction<GenericObjectPool<PoolableConnection>> value) {
+        GenericObjectPool<PoolableConnection> pool = dataSource.getConnectionPool();
+        return pool == null ? 0 : value.applyAsDouble(pool);
+    }
+}
@@ -0,0 +1,75 @@
+package com.todo.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * MethodMetrics - Everything measured for one method of one layer
+ *
+ * - calls: how many times the method was called
+ * - errors: how many calls ended with an exception
+ * - latency: how long the calls took, in nanoseconds
+ * - rows: how many todos the calls returned (only for methods returning
+ * todos or lists of todos)
+ */
+public class MethodMetrics {
+
+    private final String layer;
+    private final String method;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final Histogram latencyNanos = new Histogram();
+    private final Histogram rows = new Histogram();
+
+    public MethodMetrics(String layer, String method) {
+        this.layer = layer;
+        this.method = method;
+    }
+
+    /**
+     * Record one finished call
+     *
+     * @param elapsedNanos - How long the call took
+     * @param failed       - true if the call threw an exception
+     */
+    public void recordCall(long elapsedNanos, boolean failed) {
+        calls.increment();
+        if (failed) {
+            errors.increment();
+        }
+        latencyNanos.record(elapsedNanos);
+    }
+
+    /**
+     * Record how many rows one call returned
+     *
+     * @param rowCount - Number of todos returned
+     */
+    public void recordRows(long rowCount) {
+        rows.record(rowCount);
+    }
+
+    public String getLayer() {
+        return layer;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public Histogram getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    public Histogram getRows() {
+        return rows;
+    }
+}
@@ -0,0 +1,73 @@
+package com.todo.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MetricsHttpServer - Serves the metrics over HTTP for scraping
+ *
+ * Uses the small HTTP server built into the JDK, so no web framework is
+ * needed. It listens on localhost only:
+ *
+ * curl http://localhost:9404/metrics
+ *
+ * The server is only started when metrics.http.port is set to a port number
+ * (-1, the default, disables it).
+ */
+public class MetricsHttpServer {
+
+    private final MetricsRegistry registry;
+    private final int port;
+    private HttpServer server;
+
+    /**
+     * @param registry - The metrics to serve
+     * @param port     - TCP port (-1 disables the server)
+     */
+    public MetricsHttpServer(MetricsRegistry registry, int port) {
+        this.registry = registry;
+        this.port = port;
+    }
+
+    /**
+     * Start listening (called by Spring, see init-method in metrics-context.xml)
+     */
+    public void start() throws IOException {
+        if (port < 0) {
+            return;
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * Stop listening (called by Spring when the context is closed)
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    /**
+     * @return The port actually used (useful with port 0 = any free port), or
+     *         -1 if the server is not running
+     */
+    public int getPort() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+}
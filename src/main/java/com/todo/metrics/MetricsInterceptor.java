@@ -0,0 +1,92 @@
+package com.todo.metrics;
+
+import com.todo.model.Todo;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * MetricsInterceptor - Measures every call to a Spring bean
+ *
+ * What is a MethodInterceptor?
+ * - Spring AOP wraps the bean in a proxy (like it does for @Transactional)
+ * - Every call to the bean goes through invoke() first
+ * - invoke() starts a timer, lets the real method run (proceed()), then
+ * records the time, the outcome and the number of returned rows
+ *
+ * The bean classes themselves contain no metrics code at all.
+ * See metrics-context.xml for how the interceptor is applied to the DAO and
+ * service beans.
+ */
+public class MetricsInterceptor implements MethodInterceptor {
+
+    private final MetricsRegistry registry;
+    private final String layer;
+
+    /**
+     * Metrics per method, looked up once and then reused
+     */
+    private final Map<Method, MethodMetrics> metricsByMethod = new ConcurrentHashMap<>();
+
+    /**
+     * @param registry - Where the metrics are recorded
+     * @param layer    - Layer name used as a label, e.g. "dao" or "service"
+     */
+    public MetricsInterceptor(MetricsRegistry registry, String layer) {
+        this.registry = registry;
+        this.layer = layer;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        MethodMetrics metrics = metricsByMethod.computeIfAbsent(invocation.getMethod(),
+                method -> registry.method(layer, metricName(method)));
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object result = invocation.proceed();
+            failed = false;
+            recordRows(metrics, invocation.getMethod(), result);
+            return result;
+        } finally {
+            metrics.recordCall(System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * Count the rows returned by a call (other return types are ignored)
+     * A method returning a single Todo counts 1, or 0 when it returns null
+     */
+    private static void recordRows(MethodMetrics metrics, Method method, Object result) {
+        if (result instanceof Collection<?> collection) {
+            metrics.recordRows(collection.size());
+        } else if (method.getReturnType() == Todo.class) {
+            metrics.recordRows(result == null ? 0 : 1);
+        }
+    }
+
+    /**
+     * Method name used as label
+     * Overloaded methods (e.g. updateCompleted(int, boolean) and
+     * updateCompleted(Collection, boolean)) get their parameter types added, so
+     * they are measured separately.
+     */
+    private static String metricName(Method method) {
+        long overloads = Arrays.stream(method.getDeclaringClass().getMethods())
+                .filter(m -> m.getName().equals(method.getName()))
+                .count();
+        if (overloads <= 1) {
+            return method.getName();
+        }
+        return Arrays.stream(method.getParameterTypes())
+                .map(Class::getSimpleName)
+                .collect(Collectors.joining(",", method.getName() + "(", ")"));
+    }
+}
@@ -0,0 +1,134 @@
+package com.todo.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * MetricsRegistry - Central place where all metrics are kept
+ *
+ * Two kinds of metrics:
+ * - Method metrics: calls, errors, latency and rows per method (recorded by
+ * MetricsInterceptor around the DAO and service beans)
+ * - Gauges: values read when exported, e.g. the number of active database
+ * connections (registered by DataSourcePoolMetrics)
+ *
+ * writeText() exports everything in the Prometheus text format, a simple
+ * line-based format that monitoring tools can scrape (see MetricsHttpServer).
+ */
+public class MetricsRegistry {
+
+    /**
+     * Quantiles exported for every histogram
+     */
+    private static final double[] QUANTILES = { 0.5, 0.99, 0.999 };
+
+    private final Map<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+    private final Map<String, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * Get (or create on first use) the metrics of one method
+     *
+     * @param layer  - The layer, e.g. "dao" or "service"
+     * @param method - The method name
+     * @return The metrics for this layer and method
+     */
+    public MethodMetrics method(String layer, String method) {
+        return methods.computeIfAbsent(layer + '.' + method, key -> new MethodMetrics(layer, method));
+    }
+
+    /**
+     * Register a gauge (a value that is read at export time)
+     *
+     * @param name  - Metric name, e.g. "todo_pool_active_connections"
+     * @param value - Supplies the current value
+     */
+    public void gauge(String name, DoubleSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Export all metrics in the Prometheus text format
+     *
+     * Latencies are exported in seconds, as Prometheus recommends.
+     *
+     * @return The metrics as text
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        writeText(out);
+        return out.toString();
+    }
+
+    /**
+     * Export all metrics in the Prometheus text format
+     *
+     * @param out - Where to write the text
+     */
+    public void writeText(Appendable out) {
+        try {
+            Map<String, MethodMetrics> sorted = new TreeMap<>(methods);
+
+            out.append("# TYPE todo_method_calls_total counter\n");
+            for (MethodMetrics m : sorted.values()) {
+                line(out, "todo_method_calls_total", m, null, m.getCalls());
+            }
+
+            out.append("# TYPE todo_method_errors_total counter\n");
+            for (MethodMetrics m : sorted.values()) {
+                line(out, "todo_method_errors_total", m, null, m.getErrors());
+            }
+
+            out.append("# TYPE todo_method_latency_seconds summary\n");
+            for (MethodMetrics m : sorted.values()) {
+                Histogram latency = m.getLatencyNanos();
+                for (double q : QUANTILES) {
+                    line(out, "todo_method_latency_seconds", m, q, latency.getPercentile(q) / 1e9);
+                }
+                line(out, "todo_method_latency_seconds_max", m, null, latency.getMax() / 1e9);
+                line(out, "todo_method_latency_seconds_sum", m, null, latency.getSum() / 1e9);
+                line(out, "todo_method_latency_seconds_count", m, null, latency.getCount());
+            }
+
+            out.append("# TYPE todo_method_rows summary\n");
+            for (MethodMetrics m : sorted.values()) {
+                Histogram rows = m.getRows();
+                if (rows.getCount() == 0) {
+                    continue;
+                }
+                for (double q : QUANTILES) {
+                    line(out, "todo_method_rows", m, q, rows.getPercentile(q));
+                }
+                line(out, "todo_method_rows_sum", m, null, rows.getSum());
+                line(out, "todo_method_rows_count", m, null, rows.getCount());
+            }
+
+            for (Map.Entry<String, DoubleSupplier> gauge : new TreeMap<>(gauges).entrySet()) {
+                out.append("# TYPE ").append(gauge.getKey()).append(" gauge\n");
+                out.append(gauge.getKey()).append(' ').append(format(gauge.getValue().getAsDouble())).append('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void line(Appendable out, String name, MethodMetrics m, Double quantile, double value)
+            throws IOException {
+        out.append(name)
+                .append("{layer=\"").append(m.getLayer())
+                .append("\",method=\"").append(m.getMethod()).append('"');
+        if (quantile != null) {
+            out.append(",quantile=\"").append(String.valueOf(quantile)).append('"');
+        }
+        out.append("} ").append(format(value)).append('\n');
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15
+                ? Long.toString((long) value)
+                : Double.toString(value);
+    }
+}
@@ -0,0 +1,83 @@
+package com.todo.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * TransactionMetricsInterceptor - Measures the transaction overhead per
+ * service method
+ *
+ * Applied to the transactionManager bean (see metrics-context.xml), so it
+ * sees every transaction the @Transactional proxies and TransactionTemplates
+ * start:
+ * - getTransaction(): begin (getting a connection, setAutoCommit(false),
+ * read-only and isolation settings) - layer "tx_begin"
+ * - commit() / rollback(): end of the transaction (COMMIT or ROLLBACK,
+ * resetting the connection, returning it to the pool) - layers "tx_commit"
+ * and "tx_rollback"
+ *
+ * The method label is the name of the transaction: the service method for
+ * @Transactional methods (e.g. "getTodoById"), "programmatic" for
+ * TransactionTemplate. Comparing these latencies with the service latency
+ * of the same method shows how much of a call is transaction handling.
+ */
+public class TransactionMetricsInterceptor implements MethodInterceptor {
+
+    private static final String PROGRAMMATIC = "programmatic";
+
+    private final MetricsRegistry registry;
+
+    /**
+     * @param registry - Where the metrics are recorded
+     */
+    public TransactionMetricsInterceptor(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        String layer;
+        String name;
+        switch (invocation.getMethod().getName()) {
+            case "getTransaction" -> {
+                layer = "tx_begin";
+                Object definition = invocation.getArguments()[0];
+                name = definition instanceof TransactionDefinition d ? d.getName() : null;
+            }
+            case "commit" -> {
+                layer = "tx_commit";
+                name = TransactionSynchronizationManager.getCurrentTransactionName();
+            }
+            case "rollback" -> {
+                layer = "tx_rollback";
+                name = TransactionSynchronizationManager.getCurrentTransactionName();
+            }
+            default -> {
+                return invocation.proceed();
+            }
+        }
+        MethodMetrics metrics = registry.method(layer, methodName(name));
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object result = invocation.proceed();
+            failed = false;
+            return result;
+        } finally {
+            metrics.recordCall(System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * "com.todo.service.TodoServiceImpl.getTodoById" -> "getTodoById"
+     */
+    private static String methodName(String transactionName) {
+        if (transactionName == null || transactionName.isEmpty()) {
+            return PROGRAMMATIC;
+        }
+        return transactionName.substring(transactionName.lastIndexOf('.') + 1);
+    }
+}
@@ -1,5 +1,7 @@
 package com.todo.model;
 
+import java.time.Instant;
+
 /**
  * Todo Model Class (Entity/POJO - Plain Old Java Object)
  * 
@@ -40,6 +42,33 @@ public class Todo {
      */
     private boolean completed;
 
+    /**
+     * Version of the row, for optimistic locking
+     * Maps to 'version' column in database (INT, DEFAULT 0)
+     * 
+     * Every update increases it by one. An update only succeeds if the row
+     * still has the version this object was read with; otherwise someone
+     * else changed the todo in the meantime (see TodoVersionConflictException)
+     */
+    private int version;
+
+    /**
+     * When the todo was created
+     * Maps to 'created_at' column in database (TIMESTAMP(3))
+     * 
+     * Set by the database: null on a todo that has not been read back yet
+     */
+    private Instant createdAt;
+
+    /**
+     * When the todo was last changed
+     * Maps to 'updated_at' column in database (TIMESTAMP(3), ON UPDATE)
+     * 
+     * Set by the database: null on a todo that has not been read back yet,
+     * and not refreshed on this object by an update (read the todo again)
+     */
+    private Instant updatedAt;
+
     // ========== CONSTRUCTORS ==========
 
     /**
@@ -80,6 +109,23 @@ public class Todo {
         this.completed = completed;
     }
 
+    /**
+     * Copy constructor
+     * Used when a detached copy is needed (e.g. the DAO cache hands out copies
+     * so callers can modify them without changing the cached value)
+     * 
+     * @param other - The todo to copy
+     */
+    public Todo(Todo other) {
+        this.id = other.id;
+        this.title = other.title;
+        this.description = other.description;
+        this.completed = other.completed;
+        this.version = other.version;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+    }
+
     // ========== GETTERS AND SETTERS ==========
     // These methods allow us to access and modify the private fields
     // This follows the JavaBean convention
@@ -156,6 +202,60 @@ public class Todo {
         this.completed = completed;
     }
 
+    /**
+     * Get the version of this todo (the version of the row it was read from)
+     * 
+     * @return the version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Set the version of this todo
+     * 
+     * @param version - the version to set
+     */
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    /**
+     * Get the creation time of this todo
+     * 
+     * @return the creation time (null if not read from the database)
+     */
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Set the creation time of this todo
+     * 
+     * @param createdAt - the creation time to set
+     */
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Get the time of the last change of this todo
+     * 
+     * @return the last change time (null if not read from the database)
+     */
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /**
+     * Set the time of the last change of this todo
+     * 
+     * @param updatedAt - the last change time to set
+     */
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
     // ========== UTILITY METHODS ==========
 
     /**
@@ -171,6 +271,9 @@ public class Todo {
                 ", title='" + title + '\'' +
                 ", description='" + description + '\'' +
                 ", completed=" + completed +
+                ", version=" + version +
+                ", createdAt=" + createdAt +
+                ", updatedAt=" + updatedAt +
                 '}';
     }
 }
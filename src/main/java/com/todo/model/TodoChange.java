@@ -0,0 +1,88 @@
+package com.todo.model;
+
+import java.time.Instant;
+
+/**
+ * TodoChange - One entry of the change feed (see TodoDAO.findChangedSince)
+ *
+ * Either:
+ * - an updated (or created) todo: getTodo() returns its current values
+ * - a tombstone: the todo was deleted, getTodo() returns null
+ *
+ * Sync clients apply the changes in order to their local copy instead of
+ * downloading all todos again. Every change carries the full current state
+ * (or "deleted"), so applying the same change twice is harmless.
+ */
+public class TodoChange {
+
+    /**
+     * The id of the changed todo
+     */
+    private final int id;
+
+    /**
+     * The current values of the todo, or null if it was deleted
+     */
+    private final Todo todo;
+
+    /**
+     * When the change happened (updated_at of the todo, or the time it was
+     * deleted)
+     */
+    private final Instant changedAt;
+
+    private TodoChange(int id, Todo todo, Instant changedAt) {
+        this.id = id;
+        this.todo = todo;
+        this.changedAt = changedAt;
+    }
+
+    /**
+     * A todo that was created or updated
+     *
+     * @param todo - The todo with its current values (and updatedAt set)
+     * @return The change
+     */
+    public static TodoChange updated(Todo todo) {
+        return new TodoChange(todo.getId(), todo, todo.getUpdatedAt());
+    }
+
+    /**
+     * A todo that was deleted (tombstone)
+     *
+     * @param id        - The id of the deleted todo
+     * @param deletedAt - When it was deleted
+     * @return The change
+     */
+    public static TodoChange deleted(int id, Instant deletedAt) {
+        return new TodoChange(id, null, deletedAt);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return The current values of the todo, or null if it was deleted
+     */
+    public Todo getTodo() {
+        return todo;
+    }
+
+    public boolean isDeleted() {
+        return todo == null;
+    }
+
+    public Instant getChangedAt() {
+        return changedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "TodoChange{" +
+                "id=" + id +
+                ", " + (todo == null ? "deleted" : "todo=" + todo) +
+                ", changedAt=" + changedAt +
+                '}';
+    }
+}
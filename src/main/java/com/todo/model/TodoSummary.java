@@ -0,0 +1,44 @@
+package com.todo.model;
+
+/**
+ * TodoSummary - A lightweight, read-only view of a todo for list screens
+ *
+ * Only id, title and completed: the description (a TEXT column) and the
+ * other columns are never read, so listing many todos transfers and
+ * allocates much less than loading full Todo objects.
+ *
+ * Use Todo (e.g. TodoService.getTodoById) when the full todo is needed.
+ */
+public final class TodoSummary {
+
+    private final int id;
+    private final String title;
+    private final boolean completed;
+
+    public TodoSummary(int id, String title, boolean completed) {
+        this.id = id;
+        this.title = title;
+        this.completed = completed;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    @Override
+    public String toString() {
+        return "TodoSummary{" +
+                "id=" + id +
+                ", title='" + title + '\'' +
+                ", completed=" + completed +
+                '}';
+    }
+}
@@ -0,0 +1,110 @@
+package com.todo.service;
+
+import com.todo.model.Todo;
+import com.todo.model.TodoChange;
+import com.todo.model.TodoSummary;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * TodoAsyncService Interface - Non-blocking version of TodoService
+ * 
+ * Every method returns immediately with a CompletableFuture; the work runs on
+ * a background (virtual) thread and the future completes with the result,
+ * or with the exception TodoService would have thrown.
+ * 
+ * Example:
+ * todoAsyncService.getTodoByIdAsync(1)
+ *         .thenAccept(todo -> System.out.println(todo));
+ * 
+ * Why?
+ * - The caller's thread is not blocked while the database works
+ * - Thousands of requests can be in progress at the same time, without one
+ * platform thread per request
+ */
+public interface TodoAsyncService {
+
+    /**
+     * @see TodoService#addTodo(Todo)
+     */
+    CompletableFuture<Todo> addTodoAsync(Todo todo);
+
+    /**
+     * @see TodoService#addTodos(Collection)
+     */
+    CompletableFuture<List<Integer>> addTodosAsync(Collection<Todo> todos);
+
+    /**
+     * @see TodoService#getTodoById(int)
+     */
+    CompletableFuture<Todo> getTodoByIdAsync(int id);
+
+    /**
+     * @see TodoService#getAllTodos()
+     */
+    CompletableFuture<List<Todo>> getAllTodosAsync();
+
+    /**
+     * @see TodoService#getTodosPage(int, int)
+     */
+    CompletableFuture<List<Todo>> getTodosPageAsync(int afterId, int limit);
+
+    /**
+     * @see TodoService#getTodosByStatus(boolean)
+     */
+    CompletableFuture<List<Todo>> getTodosByStatusAsync(boolean completed);
+
+    /**
+     * @see TodoService#getTodoSummaries()
+     */
+    CompletableFuture<List<TodoSummary>> getTodoSummariesAsync();
+
+    /**
+     * @see TodoService#getTodoSummariesByStatus(boolean)
+     */
+    CompletableFuture<List<TodoSummary>> getTodoSummariesByStatusAsync(boolean completed);
+
+    /**
+     * @see TodoService#searchTodos(String, int)
+     */
+    CompletableFuture<List<Todo>> searchTodosAsync(String query, int limit);
+
+    /**
+     * @see TodoService#getTodosChangedSince(Instant, int, int)
+     */
+    CompletableFuture<List<TodoChange>> getTodosChangedSinceAsync(Instant since, int afterId, int limit);
+
+    /**
+     * @see TodoService#updateTodo(Todo)
+     */
+    CompletableFuture<Void> updateTodoAsync(Todo todo);
+
+    /**
+     * @see TodoService#updateTodoWithRetry(int, Consumer)
+     */
+    CompletableFuture<Todo> updateTodoWithRetryAsync(int id, Consumer<Todo> change);
+
+    /**
+     * @see TodoService#deleteTodo(int)
+     */
+    CompletableFuture<Void> deleteTodoAsync(int id);
+
+    /**
+     * @see TodoService#markAsCompleted(int)
+     */
+    CompletableFuture<Void> markAsCompletedAsync(int id);
+
+    /**
+     * @see TodoService#markAsIncomplete(int)
+     */
+    CompletableFuture<Void> markAsIncompleteAsync(int id);
+
+    /**
+     * @see TodoService#countTodosByStatus(boolean)
+     */
+    CompletableFuture<Integer> countTodosByStatusAsync(boolean completed);
+}
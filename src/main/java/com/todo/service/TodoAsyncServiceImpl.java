@@ -0,0 +1,192 @@
+package com.todo.service;
+
+import com.todo.model.Todo;
+import com.todo.model.TodoChange;
+import com.todo.model.TodoSummary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * TodoAsyncServiceImpl - Runs TodoService calls on virtual threads
+ * 
+ * How it works:
+ * 1. Each call is submitted as a task to the executor (one virtual thread per
+ * task on Java 21+, see TodoExecutors)
+ * 2. The task waits for a permit of the semaphore, then calls the normal
+ * (transactional) TodoService
+ * 3. The CompletableFuture completes with the result or the exception
+ * 
+ * Why the semaphore?
+ * - Virtual threads are cheap, database connections are not
+ * - The pool has only db.maxTotal connections; without a limit, thousands of
+ * tasks would all wait inside the pool
+ * - With the semaphore, at most db.maxTotal tasks use the database at the same
+ * time, and the others wait cheaply in line
+ * 
+ * Business logic (validation, transactions) stays in TodoService.
+ */
+@Service
+public class TodoAsyncServiceImpl implements TodoAsyncService, AutoCloseable {
+
+    private final TodoService todoService;
+    private final ExecutorService executor;
+    private final Semaphore databasePermits;
+
+    /**
+     * Constructor for dependency injection
+     * 
+     * @param todoService    - The blocking service (with its transactions)
+     * @param maxConcurrency - Maximum concurrent database calls (db.maxTotal, the
+     *                       size of the connection pool)
+     */
+    public TodoAsyncServiceImpl(TodoService todoService, @Value("${db.maxTotal}") int maxConcurrency) {
+        this.todoService = todoService;
+        this.executor = TodoExecutors.newTaskExecutor(maxConcurrency);
+        this.databasePermits = new Semaphore(maxConcurrency, true);
+    }
+
+    // ========== ASYNC METHODS ==========
+
+    @Override
+    public CompletableFuture<Todo> addTodoAsync(Todo todo) {
+        return submit(() -> {
+            todoService.addTodo(todo);
+            return todo;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<Integer>> addTodosAsync(Collection<Todo> todos) {
+        return submit(() -> todoService.addTodos(todos));
+    }
+
+    @Override
+    public CompletableFuture<Todo> getTodoByIdAsync(int id) {
+        return submit(() -> todoService.getTodoById(id));
+    }
+
+    @Override
+    public CompletableFuture<List<Todo>> getAllTodosAsync() {
+        return submit(todoService::getAllTodos);
+    }
+
+    @Override
+    public CompletableFuture<List<Todo>> getTodosPageAsync(int afterId, int limit) {
+        return submit(() -> todoService.getTodosPage(afterId, limit));
+    }
+
+    @Override
+    public CompletableFuture<List<Todo>> getTodosByStatusAsync(boolean completed) {
+        return submit(() -> todoService.getTodosByStatus(completed));
+    }
+
+    @Override
+    public CompletableFuture<List<TodoSummary>> getTodoSummariesAsync() {
+        return submit(todoService::getTodoSummaries);
+    }
+
+    @Override
+    public CompletableFuture<List<TodoSummary>> getTodoSummariesByStatusAsync(boolean completed) {
+        return submit(() -> todoService.getTodoSummariesByStatus(completed));
+    }
+
+    @Override
+    public CompletableFuture<List<Todo>> searchTodosAsync(String query, int limit) {
+        return submit(() -> todoService.searchTodos(query, limit));
+    }
+
+    @Override
+    public CompletableFuture<List<TodoChange>> getTodosChangedSinceAsync(Instant since, int afterId, int limit) {
+        return submit(() -> todoService.getTodosChangedSince(since, afterId, limit));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateTodoAsync(Todo todo) {
+        return run(() -> todoService.updateTodo(todo));
+    }
+
+    @Override
+    public CompletableFuture<Todo> updateTodoWithRetryAsync(int id, Consumer<Todo> change) {
+        return submit(() -> todoService.updateTodoWithRetry(id, change));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteTodoAsync(int id) {
+        return run(() -> todoService.deleteTodo(id));
+    }
+
+    @Override
+    public CompletableFuture<Void> markAsCompletedAsync(int id) {
+        return run(() -> todoService.markAsCompleted(id));
+    }
+
+    @Override
+    public CompletableFuture<Void> markAsIncompleteAsync(int id) {
+        return run(() -> todoService.markAsIncomplete(id));
+    }
+
+    @Override
+    public CompletableFuture<Integer> countTodosByStatusAsync(boolean completed) {
+        return submit(() -> todoService.countTodosByStatus(completed));
+    }
+
+    // ========== TASK SUBMISSION ==========
+
+    /**
+     * Run a service call on the executor, limited by the database permits
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                databasePermits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                return call.get();
+            } finally {
+                databasePermits.release();
+            }
+        }, executor);
+    }
+
+    private CompletableFuture<Void> run(Runnable call) {
+        return submit(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Stop accepting tasks and wait for running ones
+     * (called by Spring when the context is closed)
+     *
+     * If they do not finish within 30 seconds, or the closing thread is
+     * interrupted, the running tasks are interrupted (the interrupt flag of
+     * the closing thread is kept).
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.todo.service;
+
+import com.todo.logging.AsyncLogger;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * TodoExecutors - Creates the thread pools used by the async service
+ *
+ * Virtual threads (Java 21+):
+ * - Very cheap threads managed by the JVM instead of the operating system
+ * - One virtual thread per task is fine even for thousands of concurrent
+ * tasks; a virtual thread that waits (e.g. for the database) does not block
+ * an OS thread
+ *
+ * The project is compiled for Java 17, so the Java 21 method is looked up
+ * at runtime. On Java 17 a fixed pool of platform threads is used instead.
+ */
+public final class TodoExecutors {
+
+    private static final AsyncLogger log = AsyncLogger.getLogger(TodoExecutors.class);
+
+    private TodoExecutors() {
+    }
+
+    /**
+     * Create the executor for async service calls
+     *
+     * @param fallbackThreads - Size of the platform thread pool used when
+     *                        virtual threads are not available
+     * @return A virtual-thread-per-task executor on Java 21+, otherwise a
+     *         fixed thread pool
+     */
+    public static ExecutorService newTaskExecutor(int fallbackThreads) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ExecutorService executor = (ExecutorService) factory.invoke(null);
+            log.info("Async service uses virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            log.info("Virtual threads not available (Java {}), using {} platform threads",
+                    Runtime.version().feature(), fallbackThreads);
+            return Executors.newFixedThreadPool(fallbackThreads);
+        }
+    }
+
+    /**
+     * @return true if this JVM supports virtual threads
+     */
+    public static boolean virtualThreadsAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package com.todo.service;
 
 import com.todo.model.Todo;
+import com.todo.model.TodoChange;
+import com.todo.model.TodoSummary;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * TodoService Interface - Business Logic Layer
@@ -28,10 +33,20 @@ public interface TodoService {
      * Add a new todo item
      * Business logic: Validate todo before creating
      * 
-     * @param todo - The todo to add
+     * @param todo - The todo to add (its generated id is set after saving)
      */
     void addTodo(Todo todo);
 
+    /**
+     * Add many todos at once (bulk ingestion)
+     * Business logic: Validate every todo, then insert them in chunks
+     * Each chunk is committed in its own transaction
+     * 
+     * @param todos - The todos to add
+     * @return The generated ids, in the same order as the given todos
+     */
+    List<Integer> addTodos(Collection<Todo> todos);
+
     /**
      * Get a specific todo by ID
      * 
@@ -47,14 +62,47 @@ public interface TodoService {
      */
     List<Todo> getAllTodos();
 
+    /**
+     * Get one page of todos, ordered by id
+     * 
+     * @param afterId - Last id of the previous page (0 for the first page)
+     * @param limit   - Maximum number of todos in the page
+     * @return List of todos (empty list when there are no more pages)
+     */
+    List<Todo> getTodosPage(int afterId, int limit);
+
+    /**
+     * Process every todo one by one without loading them all into memory
+     * Useful for exports and reports over very large tables
+     * 
+     * @param action - Called once per todo, in id order
+     */
+    void forEachTodo(Consumer<Todo> action);
+
     /**
      * Update an existing todo
-     * Business logic: Validate that todo exists before updating
+     * Business logic: Fail if the todo does not exist, or if it was changed
+     * since it was read (optimistic locking, see Todo.getVersion())
      * 
-     * @param todo - The todo with updated values
+     * @param todo - The todo with updated values and the version it was read
+     *             with
      */
     void updateTodo(Todo todo);
 
+    /**
+     * Update a todo, retrying when a concurrent edit gets in the way
+     * 
+     * Reads the current todo, applies the change to it and updates it. If
+     * someone else updated the todo in between (version conflict), it is read
+     * again and the change is applied again, a limited number of times.
+     * 
+     * @param id     - The ID of the todo to update
+     * @param change - Modifies the todo (may be called more than once, so it
+     *               should only depend on the todo it is given)
+     * @return The updated todo, with its new version
+     */
+    Todo updateTodoWithRetry(int id, Consumer<Todo> change);
+
     /**
      * Delete a todo
      * 
@@ -70,14 +118,75 @@ public interface TodoService {
      */
     List<Todo> getTodosByStatus(boolean completed);
 
+    /**
+     * Get id, title and status of all todos (for list views, without the
+     * description)
+     * 
+     * @return Summaries of all todos, ordered by id
+     */
+    List<TodoSummary> getTodoSummaries();
+
+    /**
+     * Get id, title and status of the todos with a completion status
+     * 
+     * @param completed - true for completed, false for incomplete
+     * @return Summaries of the matching todos, ordered by id
+     */
+    List<TodoSummary> getTodoSummariesByStatus(boolean completed);
+
+    /**
+     * Search todos by the words in their title and description
+     * 
+     * @param query - The words to search for
+     * @param limit - Maximum number of results
+     * @return Matching todos, most relevant first
+     */
+    List<Todo> searchTodos(String query, int limit);
+
+    /**
+     * Get the todos changed or deleted after a (time, id) cursor (delta sync)
+     * 
+     * @param since   - Time of the last change already applied (Instant.EPOCH
+     *                for all)
+     * @param afterId - Id of the last change already applied (0 for all
+     *                changes at since)
+     * @param limit   - Maximum number of changes
+     * @return Changes, oldest first (deleted todos as tombstones)
+     * @see com.todo.dao.TodoDAO#findChangedSince(Instant, int, int)
+     */
+    List<TodoChange> getTodosChangedSince(Instant since, int afterId, int limit);
+
+    /**
+     * Count todos by completion status (e.g. for dashboards)
+     * 
+     * @param completed - true for completed, false for incomplete
+     * @return Number of matching todos
+     */
+    int countTodosByStatus(boolean completed);
+
+    /**
+     * Count all todos
+     * 
+     * @return Total number of todos
+     */
+    int countAllTodos();
+
     /**
      * Mark a todo as completed
-     * Business logic example: Find todo, set completed=true, then update
+     * Business logic example: Change only the status, in one statement
      * 
      * @param id - The ID of todo to mark as completed
      */
     void markAsCompleted(int id);
 
+    /**
+     * Mark many todos as completed at once
+     * 
+     * @param ids - The IDs of the todos to mark as completed
+     * @return Number of todos updated (IDs that do not exist are skipped)
+     */
+    int markAsCompleted(Collection<Integer> ids);
+
     /**
      * Mark a todo as incomplete
      * 
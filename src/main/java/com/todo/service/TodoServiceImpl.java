@@ -1,11 +1,26 @@
 package com.todo.service;
 
 import com.todo.dao.TodoDAO;
+import com.todo.dao.TodoVersionConflictException;
+import com.todo.logging.AsyncLogger;
 import com.todo.model.Todo;
+import com.todo.model.TodoChange;
+import com.todo.model.TodoSummary;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 
 /**
  * TodoServiceImpl - Implementation of TodoService interface
@@ -19,11 +34,34 @@ import java.util.List;
  *                - Manages database transactions automatically
  *                - If any method fails, all database changes are rolled back
  *                - Ensures data consistency
+ * 
+ * Transaction scopes (the class-level annotation applies to the writes, the
+ * reads override it):
+ * - Writes: one read-write transaction per call (BEGIN ... COMMIT)
+ * - Reads that run ONE statement (getTodoById, getAllTodos, counts, ...):
+ * propagation = SUPPORTS, readOnly = true. No transaction is started: the
+ * SELECT runs in autocommit mode, which InnoDB executes as a read-only
+ * transaction (no transaction id, no undo, no locks) without the
+ * setAutoCommit/COMMIT round-trips. Called from a read-write transaction,
+ * they join it and see its uncommitted changes.
+ * - Reads that run several statements and need one consistent snapshot
+ * (forEachTodo): readOnly = true in a real transaction
+ * readOnly = true also routes the reads to a read replica (see
+ * ReplicaRoutingDataSource).
+ * 
+ * The time spent beginning and committing transactions is measured per
+ * method (see TransactionMetricsInterceptor).
  */
 @Service
 @Transactional
 public class TodoServiceImpl implements TodoService {
 
+    /**
+     * Logger - messages are written by a background thread, so logging does
+     * not slow down (or block) the transaction of the calling method
+     */
+    private static final AsyncLogger log = AsyncLogger.getLogger(TodoServiceImpl.class);
+
     // ========== DEPENDENCY INJECTION ==========
 
     /**
@@ -39,14 +77,65 @@ public class TodoServiceImpl implements TodoService {
      */
     private final TodoDAO todoDAO;
 
+    /**
+     * TransactionTemplate - Programmatic transactions
+     * 
+     * Used where one method call needs SEVERAL transactions
+     * (e.g. addTodos() commits every chunk separately)
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Number of todos committed per transaction by addTodos()
+     * Configured by db.batchSize in database.properties (default 500)
+     */
+    private int chunkSize = 500;
+
+    /**
+     * Maximum number of attempts of updateTodoWithRetry()
+     * Configured by todo.update.maxAttempts in todo.properties (default 5)
+     */
+    private int maxUpdateAttempts = 5;
+
     /**
      * Constructor for dependency injection
-     * Spring automatically injects TodoDAO when creating this bean
+     * Spring automatically injects TodoDAO and the transaction manager when
+     * creating this bean
      * 
-     * @param todoDAO - The DAO implementation (TodoDAOImpl)
+     * @param todoDAO            - The DAO implementation (TodoDAOImpl)
+     * @param transactionManager - The transactionManager bean configured in
+     *                           applicationContext.xml
      */
-    public TodoServiceImpl(TodoDAO todoDAO) {
+    public TodoServiceImpl(TodoDAO todoDAO, PlatformTransactionManager transactionManager) {
         this.todoDAO = todoDAO;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Setter injection for the chunk size used by addTodos()
+     * 
+     * @param chunkSize - Todos per transaction (must be positive)
+     */
+    @Value("${db.batchSize:500}")
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Setter injection for the number of attempts of updateTodoWithRetry()
+     * 
+     * @param maxUpdateAttempts - Attempts before a version conflict is given
+     *                          up (must be positive)
+     */
+    @Value("${todo.update.maxAttempts:5}")
+    public void setMaxUpdateAttempts(int maxUpdateAttempts) {
+        if (maxUpdateAttempts <= 0) {
+            throw new IllegalArgumentException("Update attempts must be positive: " + maxUpdateAttempts);
+        }
+        this.maxUpdateAttempts = maxUpdateAttempts;
     }
 
     // ========== BUSINESS LOGIC METHODS ==========
@@ -58,7 +147,7 @@ public class TodoServiceImpl implements TodoService {
      * 1. Validate that title is not empty
      * 2. If valid, delegate to DAO to save in database
      * 
-     * @param todo - The todo to add
+     * @param todo - The todo to add (its generated id is set after saving)
      * @throws IllegalArgumentException if title is null or empty
      */
     @Override
@@ -71,7 +160,49 @@ public class TodoServiceImpl implements TodoService {
         // Delegate to DAO for database operation
         todoDAO.create(todo);
 
-        System.out.println("✓ Todo created successfully: " + todo.getTitle());
+        log.info("✓ Todo created successfully: {} (ID: {})", todo.getTitle(), todo.getId());
+    }
+
+    /**
+     * Add many todos at once
+     * 
+     * Business Logic:
+     * 1. Validate ALL todos first (nothing is written if one is invalid)
+     * 2. Split them into chunks of chunkSize todos
+     * 3. Insert each chunk with one JDBC batch, in its own transaction
+     * 
+     * Why one transaction per chunk?
+     * - A single huge transaction holds locks and undo log for the whole import
+     * - Small transactions keep the database responsive during nightly imports
+     * - If a chunk fails, the chunks committed before it stay in the database
+     * 
+     * Propagation.NOT_SUPPORTED: this method itself runs without a transaction,
+     * so that the chunks are not merged into one big class-level transaction
+     * 
+     * @param todos - The todos to add
+     * @return The generated ids, in the same order as the given todos
+     * @throws IllegalArgumentException if any title is null or empty
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<Integer> addTodos(Collection<Todo> todos) {
+        // Validation - Business logic
+        for (Todo todo : todos) {
+            if (todo.getTitle() == null || todo.getTitle().trim().isEmpty()) {
+                throw new IllegalArgumentException("Todo title cannot be empty");
+            }
+        }
+
+        List<Todo> rows = new ArrayList<>(todos);
+        List<Integer> ids = new ArrayList<>(rows.size());
+
+        for (int from = 0; from < rows.size(); from += chunkSize) {
+            List<Todo> chunk = rows.subList(from, Math.min(from + chunkSize, rows.size()));
+            ids.addAll(transactionTemplate.execute(status -> todoDAO.createAll(chunk)));
+        }
+
+        log.info("✓ {} todos created successfully", ids.size());
+        return ids;
     }
 
     /**
@@ -82,6 +213,7 @@ public class TodoServiceImpl implements TodoService {
      * @return The todo if found, null otherwise
      */
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Todo getTodoById(int id) {
         return todoDAO.findById(id);
     }
@@ -93,20 +225,59 @@ public class TodoServiceImpl implements TodoService {
      * @return List of all todos
      */
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<Todo> getAllTodos() {
         return todoDAO.findAll();
     }
 
+    /**
+     * Get one page of todos
+     * Simply delegates to DAO
+     * 
+     * @param afterId - Last id of the previous page (0 for the first page)
+     * @param limit   - Maximum number of todos in the page
+     * @return List of todos ordered by id
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<Todo> getTodosPage(int afterId, int limit) {
+        return todoDAO.findPage(afterId, limit);
+    }
+
+    /**
+     * Process every todo one by one
+     * 
+     * The whole scan runs in one read-only transaction, so the action sees a
+     * consistent snapshot of the table
+     * 
+     * @param action - Called once per todo, in id order
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachTodo(Consumer<Todo> action) {
+        todoDAO.forEach(action);
+    }
+
     /**
      * Update an existing todo
      * 
      * Business Logic:
      * 1. Validate that title is not empty
-     * 2. Check if todo exists in database
-     * 3. If valid, update in database
+     * 2. Update in database
+     * 3. If no row was updated, the todo does not exist
+     * 
+     * The UPDATE's row count tells us whether the todo exists, so no extra
+     * SELECT is needed before writing (one statement instead of two)
+     * 
+     * Optimistic locking: the update only succeeds if the todo still has the
+     * version it was read with, so a concurrent edit is never silently
+     * overwritten (see updateTodoWithRetry() to retry automatically)
      * 
      * @param todo - The todo with updated values
-     * @throws IllegalArgumentException if validation fails
+     * @throws IllegalArgumentException     if validation fails or the todo
+     *                                      does not exist
+     * @throws TodoVersionConflictException if the todo was changed since it
+     *                                      was read
      */
     @Override
     public void updateTodo(Todo todo) {
@@ -115,39 +286,90 @@ public class TodoServiceImpl implements TodoService {
             throw new IllegalArgumentException("Todo title cannot be empty");
         }
 
-        // Check if todo exists
-        Todo existingTodo = todoDAO.findById(todo.getId());
-        if (existingTodo == null) {
+        // Update in database (0 rows updated = todo does not exist)
+        if (todoDAO.update(todo) == 0) {
             throw new IllegalArgumentException("Todo with id " + todo.getId() + " not found");
         }
 
-        // Update in database
-        todoDAO.update(todo);
+        log.info("✓ Todo updated successfully: {}", todo.getTitle());
+    }
+
+    /**
+     * Update a todo, retrying on version conflicts
+     * 
+     * How it works:
+     * 1. Read the todo, apply the change, validate and update it, all in ONE
+     * short transaction
+     * 2. If the update fails with a version conflict (someone else updated
+     * the todo after it was read), that transaction is rolled back
+     * 3. Wait a short random time (so competing writers do not collide again
+     * in lockstep) and start over with a fresh read, up to maxUpdateAttempts
+     * times
+     * 
+     * No row lock is ever held: concurrent edits of different todos never
+     * wait for each other, and edits of the same todo only cost a retry.
+     * 
+     * Propagation.NOT_SUPPORTED: every attempt needs its own transaction (a
+     * retry inside the failed one would still see the old row)
+     * 
+     * @param id     - The ID of the todo to update
+     * @param change - Modifies the todo (called once per attempt)
+     * @return The updated todo, with its new version
+     * @throws IllegalArgumentException     if the todo does not exist or the
+     *                                      changed title is empty
+     * @throws TodoVersionConflictException if every attempt had a conflict
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Todo updateTodoWithRetry(int id, Consumer<Todo> change) {
+        for (int attempt = 1;; attempt++) {
+            try {
+                Todo updated = transactionTemplate.execute(status -> {
+                    Todo todo = todoDAO.findById(id);
+                    if (todo == null) {
+                        throw new IllegalArgumentException("Todo with id " + id + " not found");
+                    }
+                    change.accept(todo);
+                    if (todo.getTitle() == null || todo.getTitle().trim().isEmpty()) {
+                        throw new IllegalArgumentException("Todo title cannot be empty");
+                    }
+                    if (todoDAO.update(todo) == 0) {
+                        throw new IllegalArgumentException("Todo with id " + id + " not found");
+                    }
+                    return todo;
+                });
 
-        System.out.println("✓ Todo updated successfully: " + todo.getTitle());
+                log.info("✓ Todo updated successfully: {} (attempt {})", updated.getTitle(), attempt);
+                return updated;
+            } catch (TodoVersionConflictException e) {
+                if (attempt >= maxUpdateAttempts) {
+                    log.warn("Todo {} still changed concurrently after {} attempts", id, attempt);
+                    throw e;
+                }
+                // Random backoff of up to attempt milliseconds
+                LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(TimeUnit.MILLISECONDS.toNanos(attempt)));
+            }
+        }
     }
 
     /**
      * Delete a todo
      * 
      * Business Logic:
-     * 1. Check if todo exists
-     * 2. If exists, delete from database
+     * 1. Delete from database
+     * 2. If no row was deleted, the todo does not exist
      * 
      * @param id - The ID of todo to delete
+     * @throws IllegalArgumentException if the todo does not exist
      */
     @Override
     public void deleteTodo(int id) {
-        // Check if todo exists
-        Todo existingTodo = todoDAO.findById(id);
-        if (existingTodo == null) {
+        // Delete from database (0 rows deleted = todo does not exist)
+        if (todoDAO.delete(id) == 0) {
             throw new IllegalArgumentException("Todo with id " + id + " not found");
         }
 
-        // Delete from database
-        todoDAO.delete(id);
-
-        System.out.println("✓ Todo deleted successfully (ID: " + id + ")");
+        log.info("✓ Todo deleted successfully (ID: {})", id);
     }
 
     /**
@@ -157,58 +379,179 @@ public class TodoServiceImpl implements TodoService {
      * @return List of matching todos
      */
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<Todo> getTodosByStatus(boolean completed) {
         return todoDAO.findByCompleted(completed);
     }
 
+    /**
+     * Get id, title and status of all todos
+     * Simply delegates to DAO (the description is not read)
+     * 
+     * @return Summaries of all todos, ordered by id
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<TodoSummary> getTodoSummaries() {
+        return todoDAO.findSummaries();
+    }
+
+    /**
+     * Get id, title and status of the todos with a completion status
+     * Simply delegates to DAO (the description is not read)
+     * 
+     * @param completed - true for completed, false for incomplete
+     * @return Summaries of the matching todos, ordered by id
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<TodoSummary> getTodoSummariesByStatus(boolean completed) {
+        return todoDAO.findSummariesByCompleted(completed);
+    }
+
+    /**
+     * Search todos by the words in their title and description
+     * 
+     * Business Logic:
+     * 1. Validate the query (it cannot be empty) and the limit
+     * 2. Let the database rank the matches (FULLTEXT index), only the top
+     * limit todos are transferred
+     * 
+     * @param query - The words to search for
+     * @param limit - Maximum number of results
+     * @return Matching todos, most relevant first
+     * @throws IllegalArgumentException if the query is empty or limit is not
+     *                                  positive
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<Todo> searchTodos(String query, int limit) {
+        if (query == null || query.trim().isEmpty()) {
+            throw new IllegalArgumentException("Search query cannot be empty");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Search limit must be positive: " + limit);
+        }
+        return todoDAO.search(query.trim(), limit);
+    }
+
+    /**
+     * Get the changes after a (time, id) cursor (delta sync)
+     * 
+     * Business Logic:
+     * 1. Validate since (required) and the limit
+     * 2. Let the database find the changed rows and tombstones (indexes on
+     * updated_at and deleted_at), only the oldest limit changes are
+     * transferred
+     * 
+     * A sync client passes the changedAt and id of the last change it
+     * applied; when fewer than limit changes come back, it is up to date. It
+     * keeps its cursor a safety lag behind now, so changes committed late
+     * are not skipped (see TodoDAO.findChangedSince).
+     * 
+     * @param since   - Time of the last change already applied
+     * @param afterId - Id of the last change already applied (0 for all
+     *                changes at since)
+     * @param limit   - Maximum number of changes
+     * @return Changes, oldest first
+     * @throws IllegalArgumentException if since is null, afterId is negative
+     *                                  or limit is not positive
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<TodoChange> getTodosChangedSince(Instant since, int afterId, int limit) {
+        if (since == null) {
+            throw new IllegalArgumentException("Change feed start time is required");
+        }
+        if (afterId < 0) {
+            throw new IllegalArgumentException("Change feed id cannot be negative: " + afterId);
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Change limit must be positive: " + limit);
+        }
+        return todoDAO.findChangedSince(since, afterId, limit);
+    }
+
+    /**
+     * Count todos by completion status
+     * Simply delegates to DAO (the count is done by the database)
+     * 
+     * @param completed - true for completed, false for incomplete
+     * @return Number of matching todos
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public int countTodosByStatus(boolean completed) {
+        return todoDAO.countByCompleted(completed);
+    }
+
+    /**
+     * Count all todos
+     * 
+     * @return Total number of todos
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public int countAllTodos() {
+        return todoDAO.countAll();
+    }
+
     /**
      * Mark a todo as completed
      * 
      * Business Logic:
-     * 1. Find the todo by ID
-     * 2. Set completed = true
-     * 3. Update in database
+     * 1. Set completed = true with ONE status-only UPDATE statement
+     * 2. If no row was updated, the todo does not exist
      * 
-     * This demonstrates how service layer can combine multiple operations
+     * Why not find + update?
+     * - Reading the todo first costs an extra database round-trip
+     * - Rewriting title/description could overwrite a concurrent edit
      * 
      * @param id - The ID of todo to mark as completed
+     * @throws IllegalArgumentException if the todo does not exist
      */
     @Override
     public void markAsCompleted(int id) {
-        // Find the todo
-        Todo todo = todoDAO.findById(id);
-        if (todo == null) {
+        if (todoDAO.updateCompleted(id, true) == 0) {
             throw new IllegalArgumentException("Todo with id " + id + " not found");
         }
 
-        // Update the status
-        todo.setCompleted(true);
+        log.info("✓ Todo marked as completed (ID: {})", id);
+    }
 
-        // Save to database
-        todoDAO.update(todo);
+    /**
+     * Mark many todos as completed at once
+     * 
+     * Business Logic:
+     * - Status-only bulk UPDATE (WHERE id IN (...)), no reads
+     * - IDs that do not exist are skipped (not an error), the returned count
+     * tells how many todos were updated
+     * 
+     * @param ids - The IDs of the todos to mark as completed
+     * @return Number of todos updated
+     */
+    @Override
+    public int markAsCompleted(Collection<Integer> ids) {
+        int updated = todoDAO.updateCompleted(ids, true);
 
-        System.out.println("✓ Todo marked as completed: " + todo.getTitle());
+        log.info("✓ {} todos marked as completed", updated);
+        return updated;
     }
 
     /**
      * Mark a todo as incomplete
      * 
+     * Same single-statement approach as markAsCompleted()
+     * 
      * @param id - The ID of todo to mark as incomplete
+     * @throws IllegalArgumentException if the todo does not exist
      */
     @Override
     public void markAsIncomplete(int id) {
-        // Find the todo
-        Todo todo = todoDAO.findById(id);
-        if (todo == null) {
+        if (todoDAO.updateCompleted(id, false) == 0) {
             throw new IllegalArgumentException("Todo with id " + id + " not found");
         }
 
-        // Update the status
-        todo.setCompleted(false);
-
-        // Save to database
-        todoDAO.update(todo);
-
-        System.out.println("✓ Todo marked as incomplete: " + todo.getTitle());
+        log.info("✓ Todo marked as incomplete (ID: {})", id);
     }
 }
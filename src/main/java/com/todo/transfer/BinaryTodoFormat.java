@@ -0,0 +1,223 @@
+package com.todo.transfer;
+
+import com.todo.model.Todo;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * BinaryTodoFormat - Compact binary export format
+ *
+ * File: [magic "TODO"][byte format version] followed by one record per todo:
+ * [int payload length][payload]
+ *
+ * Payload: [int id][int version][long created][long updated][byte completed]
+ * [title][description]
+ *
+ * Times are epoch milliseconds (Long.MIN_VALUE for unknown). Strings are
+ * [int byte length, -1 for null][UTF-8 bytes].
+ *
+ * The length in front of every record lets later format versions add fields
+ * at the end of the payload: readers skip what they do not know.
+ *
+ * Both directions go through one reusable buffer (no object per field, no
+ * Java serialization), so a todo costs only its own size plus 4 bytes.
+ */
+final class BinaryTodoFormat {
+
+    private static final byte[] MAGIC = { 'T', 'O', 'D', 'O' };
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    /**
+     * Payload size of a todo with null title and description
+     */
+    private static final int MIN_PAYLOAD_BYTES = 4 + 4 + 8 + 8 + 1 + 4 + 4;
+
+    /**
+     * Records bigger than this are rejected as corrupt (a todo is a few KB)
+     */
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private BinaryTodoFormat() {
+    }
+
+    static final class Writer implements TodoWriter {
+
+        private final WritableByteChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+
+        Writer(WritableByteChannel channel) {
+            this.channel = channel;
+            buffer.put(MAGIC).put(FORMAT_VERSION);
+        }
+
+        @Override
+        public void write(Todo todo) throws IOException {
+            byte[] title = bytes(todo.getTitle());
+            byte[] description = bytes(todo.getDescription());
+            int payload = 4 + 4 + 8 + 8 + 1 + stringSize(title) + stringSize(description);
+
+            if (buffer.remaining() < 4 + payload) {
+                flush();
+                if (buffer.capacity() < 4 + payload) {
+                    buffer = ByteBuffer.allocate(4 + payload);
+                }
+            }
+            buffer.putInt(payload)
+                    .putInt(todo.getId())
+                    .putInt(todo.getVersion())
+                    .putLong(epochMillis(todo.getCreatedAt()))
+                    .putLong(epochMillis(todo.getUpdatedAt()))
+                    .put((byte) (todo.isCompleted() ? 1 : 0));
+            putString(title);
+            putString(description);
+        }
+
+        private void putString(byte[] value) {
+            if (value == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(value.length).put(value);
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+
+        private static byte[] bytes(String value) {
+            return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static int stringSize(byte[] value) {
+            return 4 + (value == null ? 0 : value.length);
+        }
+
+        private static long epochMillis(Instant time) {
+            return time == null ? NO_TIME : time.toEpochMilli();
+        }
+    }
+
+    static final class Reader implements TodoReader {
+
+        private final ReadableByteChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).limit(0);
+
+        Reader(ReadableByteChannel channel) throws IOException {
+            this.channel = channel;
+            if (!fill(MAGIC.length + 1)) {
+                throw new EOFException("Not a todo export file (too short)");
+            }
+            for (byte expected : MAGIC) {
+                if (buffer.get() != expected) {
+                    throw new IOException("Not a todo export file (wrong header)");
+                }
+            }
+            byte version = buffer.get();
+            if (version > FORMAT_VERSION) {
+                throw new IOException("Todo export format version " + version + " is not supported (max "
+                        + FORMAT_VERSION + ")");
+            }
+        }
+
+        @Override
+        public Todo read() throws IOException {
+            if (!fill(4)) {
+                if (buffer.hasRemaining()) {
+                    throw new EOFException("Todo export file is cut off in a record header");
+                }
+                return null;
+            }
+            int length = buffer.getInt();
+            if (length < MIN_PAYLOAD_BYTES || length > MAX_RECORD_BYTES) {
+                throw new IOException("Corrupt todo export file (record length " + length + ")");
+            }
+            if (!fill(length)) {
+                throw new EOFException("Todo export file is cut off in a record");
+            }
+            int end = buffer.position() + length;
+
+            Todo todo = new Todo();
+            todo.setId(buffer.getInt());
+            todo.setVersion(buffer.getInt());
+            todo.setCreatedAt(toInstant(buffer.getLong()));
+            todo.setUpdatedAt(toInstant(buffer.getLong()));
+            todo.setCompleted(buffer.get() != 0);
+            todo.setTitle(getString(end));
+            todo.setDescription(getString(end));
+
+            buffer.position(end); // Skip fields added by later format versions
+            return todo;
+        }
+
+        /**
+         * Make sure the buffer has at least count bytes left to read
+         *
+         * @return false if the channel ended before
+         */
+        private boolean fill(int count) throws IOException {
+            if (buffer.remaining() >= count) {
+                return true;
+            }
+            if (buffer.capacity() < count) {
+                buffer = ByteBuffer.allocate(count).put(buffer);
+            } else {
+                buffer.compact();
+            }
+            while (buffer.position() < count) {
+                if (channel.read(buffer) < 0) {
+                    buffer.flip();
+                    return false;
+                }
+            }
+            buffer.flip();
+            return true;
+        }
+
+        private String getString(int end) throws IOException {
+            int length = buffer.getInt();
+            if (length < 0) {
+                return null;
+            }
+            if (length > end - buffer.position()) {
+                throw new IOException("Corrupt todo export file (string length " + length + ")");
+            }
+            String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                    StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private static Instant toInstant(long epochMillis) {
+            return epochMillis == NO_TIME ? null : Instant.ofEpochMilli(epochMillis);
+        }
+    }
+}
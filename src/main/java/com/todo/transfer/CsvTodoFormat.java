@@ -0,0 +1,213 @@
+package com.todo.transfer;
+
+import com.todo.model.Todo;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CsvTodoFormat - Todos as CSV (RFC 4180), e.g. for spreadsheets
+ *
+ * First line: id,title,description,completed,version,created_at,updated_at
+ * Then one line per todo. Fields containing a comma, a quote or a line break
+ * are quoted ("..." with "" for a quote). An empty unquoted field is null, ""
+ * is an empty string. Times are ISO-8601 (2024-01-31T12:00:00.123Z).
+ */
+final class CsvTodoFormat {
+
+    private static final String HEADER = "id,title,description,completed,version,created_at,updated_at";
+
+    private static final int COLUMNS = 7;
+
+    private static final int BUFFER_CHARS = 64 * 1024;
+
+    private CsvTodoFormat() {
+    }
+
+    static final class Writer implements TodoWriter {
+
+        private final BufferedWriter out;
+
+        Writer(WritableByteChannel channel) throws IOException {
+            this.out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), BUFFER_CHARS);
+            out.write(HEADER);
+            out.write('\n');
+        }
+
+        @Override
+        public void write(Todo todo) throws IOException {
+            out.write(Integer.toString(todo.getId()));
+            out.write(',');
+            writeField(todo.getTitle());
+            out.write(',');
+            writeField(todo.getDescription());
+            out.write(',');
+            out.write(Boolean.toString(todo.isCompleted()));
+            out.write(',');
+            out.write(Integer.toString(todo.getVersion()));
+            out.write(',');
+            writeTime(todo.getCreatedAt());
+            out.write(',');
+            writeTime(todo.getUpdatedAt());
+            out.write('\n');
+        }
+
+        private void writeField(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (!needsQuotes(value)) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    out.write('"');
+                }
+                out.write(c);
+            }
+            out.write('"');
+        }
+
+        private static boolean needsQuotes(String value) {
+            if (value.isEmpty()) {
+                return true; // "" (empty string), an unquoted empty field is null
+            }
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void writeTime(Instant time) throws IOException {
+            if (time != null) {
+                out.write(time.toString());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    static final class Reader implements TodoReader {
+
+        private final BufferedReader in;
+        private final List<String> fields = new ArrayList<>(COLUMNS);
+        private final StringBuilder field = new StringBuilder();
+        private long line = 1;
+        private long recordLine; // First line of the current record, for errors
+
+        Reader(ReadableByteChannel channel) {
+            this.in = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8), BUFFER_CHARS);
+        }
+
+        @Override
+        public Todo read() throws IOException {
+            while (readRecord()) {
+                if (fields.size() == 1 && fields.get(0) == null) {
+                    continue; // Empty line
+                }
+                if ("id".equals(fields.get(0))) {
+                    continue; // Header
+                }
+                return toTodo();
+            }
+            return null;
+        }
+
+        private Todo toTodo() throws IOException {
+            if (fields.size() != COLUMNS) {
+                throw new IOException("Line " + recordLine + ": expected " + COLUMNS + " columns, found " + fields.size());
+            }
+            try {
+                Todo todo = new Todo();
+                todo.setId(Integer.parseInt(fields.get(0)));
+                todo.setTitle(fields.get(1));
+                todo.setDescription(fields.get(2));
+                todo.setCompleted(Boolean.parseBoolean(fields.get(3)));
+                todo.setVersion(fields.get(4) == null ? 0 : Integer.parseInt(fields.get(4)));
+                todo.setCreatedAt(fields.get(5) == null ? null : Instant.parse(fields.get(5)));
+                todo.setUpdatedAt(fields.get(6) == null ? null : Instant.parse(fields.get(6)));
+                return todo;
+            } catch (NumberFormatException | DateTimeParseException e) {
+                throw new IOException("Line " + recordLine + ": " + e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Read the fields of the next record (which may span several lines
+         * if a quoted field contains line breaks)
+         *
+         * @return false at the end of the file
+         */
+        private boolean readRecord() throws IOException {
+            fields.clear();
+            field.setLength(0);
+            recordLine = line;
+            boolean quoted = false;
+            boolean inQuotes = false;
+
+            int c = in.read();
+            if (c < 0) {
+                return false;
+            }
+            while (true) {
+                if (inQuotes) {
+                    if (c < 0) {
+                        throw new EOFException("Line " + recordLine + ": quoted field is not closed");
+                    }
+                    if (c == '"') {
+                        c = in.read();
+                        if (c != '"') {
+                            inQuotes = false;
+                            continue; // c is the character after the closing quote
+                        }
+                    } else if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                } else if (c == ',') {
+                    endField(quoted);
+                    quoted = false;
+                } else if (c == '"' && field.length() == 0 && !quoted) {
+                    inQuotes = true;
+                    quoted = true;
+                } else if (c == '\n' || c < 0) {
+                    endField(quoted);
+                    line++;
+                    return true;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = in.read();
+            }
+        }
+
+        private void endField(boolean quoted) {
+            fields.add(quoted || field.length() > 0 ? field.toString() : null);
+            field.setLength(0);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.todo.transfer;
+
+import com.todo.model.Todo;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * NdjsonTodoFormat - Todos as newline-delimited JSON (one object per line)
+ *
+ * {"id":1,"title":"Buy milk","description":null,"completed":false,
+ * "version":0,"createdAt":"2024-01-31T12:00:00Z","updatedAt":null}
+ *
+ * The objects are flat, so reading needs no JSON library: a small parser
+ * handles exactly this shape (string, number, boolean and null values).
+ * Unknown keys are ignored, missing ones keep the Todo default.
+ */
+final class NdjsonTodoFormat {
+
+    private static final int BUFFER_CHARS = 64 * 1024;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private NdjsonTodoFormat() {
+    }
+
+    static final class Writer implements TodoWriter {
+
+        private final BufferedWriter out;
+        private final StringBuilder line = new StringBuilder(256);
+
+        Writer(WritableByteChannel channel) {
+            this.out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), BUFFER_CHARS);
+        }
+
+        @Override
+        public void write(Todo todo) throws IOException {
+            line.setLength(0);
+            line.append("{\"id\":").append(todo.getId());
+            line.append(",\"title\":");
+            appendString(todo.getTitle());
+            line.append(",\"description\":");
+            appendString(todo.getDescription());
+            line.append(",\"completed\":").append(todo.isCompleted());
+            line.append(",\"version\":").append(todo.getVersion());
+            line.append(",\"createdAt\":");
+            appendString(todo.getCreatedAt() == null ? null : todo.getCreatedAt().toString());
+            line.append(",\"updatedAt\":");
+            appendString(todo.getUpdatedAt() == null ? null : todo.getUpdatedAt().toString());
+            line.append("}\n");
+            out.append(line);
+        }
+
+        private void appendString(String value) {
+            if (value == null) {
+                line.append("null");
+                return;
+            }
+            line.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"' -> line.append("\\\"");
+                    case '\\' -> line.append("\\\\");
+                    case '\n' -> line.append("\\n");
+                    case '\r' -> line.append("\\r");
+                    case '\t' -> line.append("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            line.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                        } else {
+                            line.append(c);
+                        }
+                    }
+                }
+            }
+            line.append('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    static final class Reader implements TodoReader {
+
+        private final BufferedReader in;
+        private final StringBuilder value = new StringBuilder();
+        private long lineNumber;
+        private String line;
+        private int pos;
+
+        Reader(ReadableByteChannel channel) {
+            this.in = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8), BUFFER_CHARS);
+        }
+
+        @Override
+        public Todo read() throws IOException {
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                pos = 0;
+                skipWhitespace();
+                if (pos < line.length()) {
+                    try {
+                        return parseTodo();
+                    } catch (NumberFormatException | DateTimeParseException e) {
+                        throw error(e.getMessage());
+                    }
+                }
+            }
+            return null;
+        }
+
+        private Todo parseTodo() throws IOException {
+            Todo todo = new Todo();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return todo;
+            }
+            while (true) {
+                skipWhitespace();
+                String key = parseString();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                String text = parseValue();
+                switch (key) {
+                    case "id" -> todo.setId(Integer.parseInt(text));
+                    case "title" -> todo.setTitle(text);
+                    case "description" -> todo.setDescription(text);
+                    case "completed" -> todo.setCompleted(Boolean.parseBoolean(text));
+                    case "version" -> todo.setVersion(text == null ? 0 : Integer.parseInt(text));
+                    case "createdAt" -> todo.setCreatedAt(text == null ? null : Instant.parse(text));
+                    case "updatedAt" -> todo.setUpdatedAt(text == null ? null : Instant.parse(text));
+                    default -> {
+                        // Added by another tool, not part of a todo
+                    }
+                }
+                skipWhitespace();
+                char c = next();
+                if (c == '}') {
+                    return todo;
+                }
+                if (c != ',') {
+                    throw error("expected ',' or '}' at column " + pos);
+                }
+            }
+        }
+
+        /**
+         * @return The value as text (strings unescaped), null for JSON null
+         */
+        private String parseValue() throws IOException {
+            if (peek() == '"') {
+                return parseString();
+            }
+            int start = pos;
+            while (pos < line.length() && ",}] \t".indexOf(line.charAt(pos)) < 0) {
+                pos++;
+            }
+            String text = line.substring(start, pos);
+            if (text.isEmpty() || text.charAt(0) == '{' || text.charAt(0) == '[') {
+                throw error("nested values are not supported (column " + start + ")");
+            }
+            return text.equals("null") ? null : text;
+        }
+
+        private String parseString() throws IOException {
+            expect('"');
+            value.setLength(0);
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case '"', '\\', '/' -> value.append(escaped);
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'u' -> {
+                        if (pos + 4 > line.length()) {
+                            throw error("incomplete \\u escape");
+                        }
+                        value.append((char) Integer.parseInt(line, pos, pos + 4, 16));
+                        pos += 4;
+                    }
+                    default -> throw error("invalid escape \\" + escaped);
+                }
+            }
+        }
+
+        private void skipWhitespace() {
+            while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private char peek() throws IOException {
+            if (pos >= line.length()) {
+                throw error("line ends inside an object");
+            }
+            return line.charAt(pos);
+        }
+
+        private char next() throws IOException {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        private void expect(char expected) throws IOException {
+            if (next() != expected) {
+                throw error("expected '" + expected + "' at column " + pos);
+            }
+        }
+
+        private IOException error(String message) {
+            return new IOException("Line " + lineNumber + ": " + message);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.todo.transfer;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * TodoFormat - The file formats of TodoTransfer
+ *
+ * - BINARY: compact length-prefixed records (see BinaryTodoFormat), the
+ * fastest and smallest; for moving todos between environments
+ * - CSV: one line per todo with a header line, for spreadsheets
+ * - NDJSON: one JSON object per line, for other tools
+ *
+ * All three contain every field of a todo. Any of them can additionally be
+ * gzip-compressed (file name ending in .gz).
+ */
+public enum TodoFormat {
+
+    BINARY(".todos") {
+        @Override
+        public TodoWriter openWriter(WritableByteChannel channel) throws IOException {
+            return new BinaryTodoFormat.Writer(channel);
+        }
+
+        @Override
+        public TodoReader openReader(ReadableByteChannel channel) throws IOException {
+            return new BinaryTodoFormat.Reader(channel);
+        }
+    },
+
+    CSV(".csv") {
+        @Override
+        public TodoWriter openWriter(WritableByteChannel channel) throws IOException {
+            return new CsvTodoFormat.Writer(channel);
+        }
+
+        @Override
+        public TodoReader openReader(ReadableByteChannel channel) throws IOException {
+            return new CsvTodoFormat.Reader(channel);
+        }
+    },
+
+    NDJSON(".ndjson") {
+        @Override
+        public TodoWriter openWriter(WritableByteChannel channel) throws IOException {
+            return new NdjsonTodoFormat.Writer(channel);
+        }
+
+        @Override
+        public TodoReader openReader(ReadableByteChannel channel) throws IOException {
+            return new NdjsonTodoFormat.Reader(channel);
+        }
+    };
+
+    /**
+     * Suffix of gzip-compressed files (after the format extension)
+     */
+    public static final String GZIP_EXTENSION = ".gz";
+
+    private final String extension;
+
+    TodoFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @return The file name extension, e.g. ".csv"
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Start writing todos to a channel (closed by the writer's close())
+     */
+    public abstract TodoWriter openWriter(WritableByteChannel channel) throws IOException;
+
+    /**
+     * Start reading todos from a channel (closed by the reader's close())
+     */
+    public abstract TodoReader openReader(ReadableByteChannel channel) throws IOException;
+
+    /**
+     * Find the format from a file name, e.g. "todos.csv.gz" -> CSV
+     *
+     * @throws IllegalArgumentException if the extension is unknown
+     */
+    public static TodoFormat forFile(Path file) {
+        String name = baseName(file);
+        for (TodoFormat format : values()) {
+            if (name.endsWith(format.extension)) {
+                return format;
+            }
+        }
+        if (name.endsWith(".jsonl")) {
+            return NDJSON;
+        }
+        throw new IllegalArgumentException("Unknown todo file format: " + file.getFileName()
+                + " (expected .todos, .csv or .ndjson, optionally followed by .gz)");
+    }
+
+    /**
+     * @return true if the file name ends in .gz
+     */
+    public static boolean isCompressed(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(GZIP_EXTENSION);
+    }
+
+    private static String baseName(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return isCompressed(file) ? name.substring(0, name.length() - GZIP_EXTENSION.length()) : name;
+    }
+}
@@ -0,0 +1,22 @@
+package com.todo.transfer;
+
+import com.todo.model.Todo;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * TodoReader - Reads the todos of an export file, one after the other
+ *
+ * Created by TodoFormat.openReader(). Only one todo is in memory at a time,
+ * so files of any size can be read.
+ */
+public interface TodoReader extends Closeable {
+
+    /**
+     * @return The next todo, or null at the end of the file
+     * @throws IOException if the file cannot be read or is not valid (e.g.
+     *                     cut off in the middle of a todo)
+     */
+    Todo read() throws IOException;
+}
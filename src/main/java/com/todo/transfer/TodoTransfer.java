@@ -0,0 +1,298 @@
+package com.todo.transfer;
+
+import com.todo.config.TodoApplicationContexts;
+import com.todo.logging.AsyncLogger;
+import com.todo.model.Todo;
+import com.todo.service.TodoService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * TodoTransfer - Streaming export and import of all todos
+ *
+ * For moving todos between environments (or backups). Memory use does not
+ * depend on the number of todos: neither direction ever holds more than a
+ * few batches.
+ *
+ * Export:
+ * 1. TodoService.forEachTodo() streams the rows from one query (no list of
+ * all todos, see TodoDAO.forEach)
+ * 2. Each todo is written to the file through a buffered FileChannel in the
+ * chosen TodoFormat, optionally through gzip
+ *
+ * Import:
+ * 1. The file is read todo by todo and collected into batches of
+ * transfer.importBatchSize
+ * 2. Each batch is handed to one of transfer.importThreads workers, which
+ * calls TodoService.addTodos() (JDBC batched INSERTs, one transaction per
+ * db.batchSize todos)
+ * 3. At most two batches per worker wait in memory; the reader blocks when
+ * the workers fall behind
+ *
+ * Import notes:
+ * - The database assigns new ids (and timestamps and version); the ids in
+ * the file are not kept, so todos can be imported into a non-empty database
+ * - An import is not atomic: if it fails, the batches committed before stay
+ * in the database
+ */
+@Service
+public class TodoTransfer {
+
+    private static final AsyncLogger log = AsyncLogger.getLogger(TodoTransfer.class);
+
+    private static final int GZIP_BUFFER_BYTES = 64 * 1024;
+
+    private final TodoService todoService;
+
+    /**
+     * Number of worker threads calling addTodos() during an import
+     * Configured by transfer.importThreads in todo.properties (default 4)
+     */
+    private int importThreads = 4;
+
+    /**
+     * Number of todos per addTodos() call during an import
+     * Configured by transfer.importBatchSize in todo.properties (default 5000)
+     */
+    private int importBatchSize = 5000;
+
+    /**
+     * Constructor for dependency injection
+     *
+     * @param todoService - Reads the todos for exports, adds them on imports
+     */
+    public TodoTransfer(TodoService todoService) {
+        this.todoService = todoService;
+    }
+
+    /**
+     * Command line: export or import with the normal application context
+     * (e.g. -Dtodo.context=java, -Dspring.profiles.active=sharded)
+     *
+     * Usage: TodoTransfer export|import <file>
+     * The format comes from the file name (.todos, .csv, .ndjson, + .gz)
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2 || !(args[0].equals("export") || args[0].equals("import"))) {
+            System.err.println("Usage: TodoTransfer export|import <file>");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[1]);
+
+        try (ConfigurableApplicationContext context = TodoApplicationContexts.create()) {
+            TodoTransfer transfer = context.getBean(TodoTransfer.class);
+            if (args[0].equals("export")) {
+                transfer.exportTodos(file);
+            } else {
+                transfer.importTodos(file);
+            }
+        }
+    }
+
+    /**
+     * @param importThreads - Parallel addTodos() calls (must be positive);
+     *                      more than db.maxTotal only waits for connections
+     */
+    @Value("${transfer.importThreads:4}")
+    public void setImportThreads(int importThreads) {
+        if (importThreads <= 0) {
+            throw new IllegalArgumentException("Import threads must be positive: " + importThreads);
+        }
+        this.importThreads = importThreads;
+    }
+
+    /**
+     * @param importBatchSize - Todos per addTodos() call (must be positive)
+     */
+    @Value("${transfer.importBatchSize:5000}")
+    public void setImportBatchSize(int importBatchSize) {
+        if (importBatchSize <= 0) {
+            throw new IllegalArgumentException("Import batch size must be positive: " + importBatchSize);
+        }
+        this.importBatchSize = importBatchSize;
+    }
+
+    /**
+     * Export all todos, format and compression chosen from the file name
+     * (e.g. "todos.csv.gz")
+     *
+     * @see #exportTodos(Path, TodoFormat, boolean)
+     */
+    public long exportTodos(Path file) throws IOException {
+        return exportTodos(file, TodoFormat.forFile(file), TodoFormat.isCompressed(file));
+    }
+
+    /**
+     * Export all todos to a file (replaced if it exists)
+     *
+     * @param file   - The file to write
+     * @param format - The file format
+     * @param gzip   - true to compress the file with gzip
+     * @return The number of todos written
+     */
+    public long exportTodos(Path file, TodoFormat format, boolean gzip) throws IOException {
+        long start = System.nanoTime();
+        AtomicLong count = new AtomicLong();
+
+        try (TodoWriter writer = format.openWriter(openForWrite(file, gzip))) {
+            todoService.forEachTodo(todo -> {
+                try {
+                    writer.write(todo);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e); // Ends forEachTodo
+                }
+                count.incrementAndGet();
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        log.info("✓ {} todos exported to {} in {} ms", count.get(), file,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return count.get();
+    }
+
+    /**
+     * Import all todos of a file, format and compression chosen from the file
+     * name (e.g. "todos.csv.gz")
+     *
+     * @see #importTodos(Path, TodoFormat, boolean)
+     */
+    public long importTodos(Path file) throws IOException {
+        return importTodos(file, TodoFormat.forFile(file), TodoFormat.isCompressed(file));
+    }
+
+    /**
+     * Import the todos of a file as new todos
+     *
+     * @param file   - The file to read
+     * @param format - The file format
+     * @param gzip   - true if the file is compressed with gzip
+     * @return The number of todos added
+     * @throws IOException              if the file cannot be read or is not
+     *                                  in the format
+     * @throws IllegalArgumentException if a todo has no title (todos of the
+     *                                  batches before are already added)
+     */
+    public long importTodos(Path file, TodoFormat format, boolean gzip) throws IOException {
+        long start = System.nanoTime();
+        AtomicLong count = new AtomicLong();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Semaphore pendingBatches = new Semaphore(2 * importThreads);
+        ExecutorService workers = newWorkers();
+
+        try (TodoReader reader = format.openReader(openForRead(file, gzip))) {
+            List<Todo> batch = new ArrayList<>(importBatchSize);
+            Todo todo;
+            while (failure.get() == null && (todo = reader.read()) != null) {
+                batch.add(todo);
+                if (batch.size() == importBatchSize) {
+                    submit(workers, batch, pendingBatches, count, failure);
+                    batch = new ArrayList<>(importBatchSize);
+                }
+            }
+            if (!batch.isEmpty() && failure.get() == null) {
+                submit(workers, batch, pendingBatches, count, failure);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import of " + file + " interrupted", e);
+        } finally {
+            workers.shutdown();
+            awaitWorkers(workers);
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        log.info("✓ {} todos imported from {} in {} ms", count.get(), file,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return count.get();
+    }
+
+    private void submit(ExecutorService workers, List<Todo> batch, Semaphore pendingBatches, AtomicLong count,
+            AtomicReference<RuntimeException> failure) throws InterruptedException {
+        pendingBatches.acquire(); // Backpressure: wait while the workers are behind
+        workers.execute(() -> {
+            try {
+                if (failure.get() == null) {
+                    count.addAndGet(todoService.addTodos(batch).size());
+                }
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                pendingBatches.release();
+            }
+        });
+    }
+
+    private ExecutorService newWorkers() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(importThreads, task -> {
+            Thread thread = new Thread(task, "todo-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static void awaitWorkers(ExecutorService workers) throws IOException {
+        try {
+            while (!workers.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.info("Waiting for the import workers to finish");
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the import workers", e);
+        }
+    }
+
+    private static WritableByteChannel openForWrite(Path file, boolean gzip) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        if (!gzip) {
+            return channel;
+        }
+        try {
+            return Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(channel), GZIP_BUFFER_BYTES));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static ReadableByteChannel openForRead(Path file, boolean gzip) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        if (!gzip) {
+            return channel;
+        }
+        try {
+            return Channels.newChannel(new GZIPInputStream(Channels.newInputStream(channel), GZIP_BUFFER_BYTES));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+}
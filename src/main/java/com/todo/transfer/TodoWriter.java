@@ -0,0 +1,21 @@
+package com.todo.transfer;
+
+import com.todo.model.Todo;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * TodoWriter - Writes todos to an export file, one after the other
+ *
+ * Created by TodoFormat.openWriter(). close() writes what is still buffered
+ * and closes the channel.
+ */
+public interface TodoWriter extends Closeable {
+
+    /**
+     * @param todo - The todo to write (all fields, including id, version
+     *             and times)
+     */
+    void write(Todo todo) throws IOException;
+}
@@ -0,0 +1,19 @@
+-- ========================================
+-- Spring Core Todo Application
+-- Migration V2: Index for status queries
+-- ========================================
+
+-- Run this script ONCE on databases created with an older schema.sql
+-- (new databases created with the current schema.sql already have the index)
+
+USE tododb;
+
+-- Composite index on (completed, id)
+-- - findByCompleted / getTodosByStatus: reads only the matching rows
+-- (no full table scan), already in id order
+-- - countByCompleted / countAll: answered from the index alone
+-- (index-only scan, the table rows are never read)
+CREATE INDEX idx_todos_completed_id ON todos (completed, id);
+
+-- Display the indexes to verify
+SHOW INDEX FROM todos;
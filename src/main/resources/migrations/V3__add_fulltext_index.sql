@@ -0,0 +1,23 @@
+-- ========================================
+-- Spring Core Todo Application
+-- Migration V3: Full-text index for search
+-- ========================================
+
+-- Run this script ONCE on databases created with an older schema.sql
+-- (new databases created with the current schema.sql already have the index)
+
+USE tododb;
+
+-- FULLTEXT index on (title, description)
+-- - search / searchTodos: MATCH (title, description) AGAINST (...) looks the
+-- words up in the index instead of scanning every row with LIKE '%...%'
+-- - The index also gives each match a relevance score used for ordering
+-- - Writes to todos are BLOCKED while the index is built: MySQL does not
+-- allow concurrent INSERT/UPDATE/DELETE when a FULLTEXT index is added, and
+-- the first FULLTEXT index of a table without an FTS_DOC_ID column rebuilds
+-- the whole table. On large tables run it in a maintenance window, or use an
+-- online schema-change tool (e.g. gh-ost or pt-online-schema-change)
+CREATE FULLTEXT INDEX idx_todos_fulltext ON todos (title, description);
+
+-- Display the indexes to verify
+SHOW INDEX FROM todos;
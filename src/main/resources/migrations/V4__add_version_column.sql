@@ -0,0 +1,22 @@
+-- ========================================
+-- Spring Core Todo Application
+-- Migration V4: Version column for optimistic locking
+-- ========================================
+
+-- Run this script ONCE on databases created with an older schema.sql
+-- (new databases created with the current schema.sql already have the column)
+
+USE tododb;
+
+-- version: increased by every UPDATE of a todo
+-- - updateTodo only writes the row if it still has the version the todo was
+-- read with (UPDATE ... WHERE id = ? AND version = ?), so two concurrent
+-- edits can no longer silently overwrite each other
+-- - No row locks are taken: a conflicting edit fails and is retried
+-- - Existing rows start at version 0
+-- - On MySQL 8.0.12+ adding a column with a default is an INSTANT change
+-- (no table copy)
+ALTER TABLE todos ADD COLUMN version INT NOT NULL DEFAULT 0 AFTER completed;
+
+-- Display the table structure to verify
+DESCRIBE todos;
@@ -0,0 +1,47 @@
+-- ========================================
+-- Spring Core Todo Application
+-- Migration V5: Change feed (timestamps, index and tombstones)
+-- ========================================
+
+-- Run this script ONCE on databases created with an older schema.sql
+-- (new databases created with the current schema.sql already have all of it)
+
+USE tododb;
+
+-- Millisecond timestamps
+-- - findChangedSince orders changes by updated_at; with whole seconds, every
+-- change of the same second would share one timestamp
+-- - Changing the column type rebuilds the table; on large tables run it
+-- outside peak hours
+ALTER TABLE todos
+    MODIFY created_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3),
+    MODIFY updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3);
+
+-- Index on updated_at
+-- - findChangedSince / getTodosChangedSince: reads only the todos changed
+-- since a point in time (no full table scan), already in (updated_at, id)
+-- order because InnoDB adds the primary key to the index
+CREATE INDEX idx_todos_updated_at ON todos (updated_at);
+
+-- Tombstones of deleted todos
+-- - Deletions cannot be found in the todos table any more; the trigger
+-- below records them so the change feed can report them
+-- - Todos deleted before this migration have no tombstone: clients that
+-- synced before it should download all todos once
+CREATE TABLE IF NOT EXISTS todo_tombstones (
+    id INT PRIMARY KEY,
+    deleted_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    INDEX idx_tombstones_deleted_at (deleted_at)
+);
+
+-- The tombstone is written by the DELETE statement itself (also for bulk
+-- deletes), so it can never be missing or out of sync
+DROP TRIGGER IF EXISTS todos_after_delete;
+CREATE TRIGGER todos_after_delete AFTER DELETE ON todos
+FOR EACH ROW
+    INSERT INTO todo_tombstones (id, deleted_at) VALUES (OLD.id, CURRENT_TIMESTAMP(3))
+    ON DUPLICATE KEY UPDATE deleted_at = VALUES(deleted_at);
+
+-- Display the table structure and indexes to verify
+DESCRIBE todos;
+SHOW INDEX FROM todos;
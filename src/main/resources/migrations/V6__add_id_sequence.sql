@@ -0,0 +1,29 @@
+-- ========================================
+-- Spring Core Todo Application
+-- Migration V6: Id sequence for sharding
+-- ========================================
+
+-- Run this script ONCE on databases created with an older schema.sql
+-- (new databases created with the current schema.sql already have all of it)
+-- Only needed for the Spring profile "sharded", on the first shard
+
+USE tododb;
+
+-- Sequence of todo ids
+-- - Every shard has its own AUTO_INCREMENT, so two shards would give out
+-- the same ids; ShardedTodoDAO reserves blocks of ids from this row instead
+-- - It starts after the highest existing id, so ids created before the
+-- migration are never given out again
+CREATE TABLE IF NOT EXISTS todo_id_sequence (
+    name VARCHAR(64) PRIMARY KEY,
+    next_id BIGINT NOT NULL
+);
+
+INSERT IGNORE INTO todo_id_sequence (name, next_id)
+SELECT 'todos', COALESCE(MAX(id), 0) + 1 FROM todos;
+
+-- Note: the shard of a todo is computed from its id. Existing todos must be
+-- moved to their shard (see ShardedTodoDAO) before the profile is used.
+
+-- Display the sequence to verify
+SELECT * FROM todo_id_sequence;
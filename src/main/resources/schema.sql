@@ -37,18 +37,86 @@ CREATE TABLE IF NOT EXISTS todos (
     -- DEFAULT FALSE: New todos are incomplete by default
     completed BOOLEAN DEFAULT FALSE,
     
+    -- version: Optimistic locking counter
+    -- INT NOT NULL DEFAULT 0: New todos start at version 0
+    -- Every UPDATE sets version = version + 1 and only matches the row if it
+    -- still has the version the todo was read with (WHERE id = ? AND version = ?)
+    -- Existing databases: run migrations/V4__add_version_column.sql
+    version INT NOT NULL DEFAULT 0,
+    
     -- created_at: When the todo was created
-    -- TIMESTAMP: Date and time
-    -- DEFAULT CURRENT_TIMESTAMP: Automatically set to current time when row is created
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    -- TIMESTAMP(3): Date and time, with milliseconds
+    -- DEFAULT CURRENT_TIMESTAMP(3): Automatically set to current time when row is created
+    created_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3),
     
     -- updated_at: When the todo was last modified
-    -- TIMESTAMP: Date and time
-    -- DEFAULT CURRENT_TIMESTAMP: Set to current time when created
-    -- ON UPDATE CURRENT_TIMESTAMP: Automatically update when row is modified
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+    -- TIMESTAMP(3): Date and time, with milliseconds (the change feed orders
+    -- by it, so fewer changes share the same value)
+    -- DEFAULT CURRENT_TIMESTAMP(3): Set to current time when created
+    -- ON UPDATE CURRENT_TIMESTAMP(3): Automatically update when row is modified
+    -- (every UPDATE changes version, so it is always refreshed)
+    -- Existing databases: run migrations/V5__add_change_feed.sql
+    updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    
+    -- idx_todos_completed_id: Index on (completed, id)
+    -- Lets status queries (findByCompleted) read only matching rows
+    -- and lets counts (countByCompleted, countAll) use the index alone
+    -- Existing databases: run migrations/V2__add_completed_index.sql
+    INDEX idx_todos_completed_id (completed, id),
+    
+    -- idx_todos_updated_at: Index on updated_at
+    -- Used by the change feed (findChangedSince): reads only the todos
+    -- changed since a point in time, already in (updated_at, id) order
+    -- (InnoDB adds the primary key to every secondary index)
+    -- Existing databases: run migrations/V5__add_change_feed.sql
+    INDEX idx_todos_updated_at (updated_at),
+    
+    -- idx_todos_fulltext: FULLTEXT index on (title, description)
+    -- Used by search (MATCH ... AGAINST): finds todos containing the query
+    -- words without scanning the table, and ranks them by relevance
+    -- Existing databases: run migrations/V3__add_fulltext_index.sql
+    FULLTEXT INDEX idx_todos_fulltext (title, description)
 );
 
+-- Create the tombstones table
+-- One row per deleted todo, so sync clients can learn about deletions
+-- from the change feed (findChangedSince)
+-- Old rows can be removed (DELETE FROM todo_tombstones WHERE deleted_at < ...);
+-- clients that last synced before that must then download all todos again
+CREATE TABLE IF NOT EXISTS todo_tombstones (
+    -- id: The id of the deleted todo (ids are never reused)
+    id INT PRIMARY KEY,
+    
+    -- deleted_at: When the todo was deleted
+    deleted_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    
+    -- idx_tombstones_deleted_at: Index for the change feed (like idx_todos_updated_at)
+    INDEX idx_tombstones_deleted_at (deleted_at)
+);
+
+-- Trigger: write the tombstone in the same statement that deletes the todo
+-- (also for bulk deletes with WHERE id IN (...)), no extra round-trip
+DROP TRIGGER IF EXISTS todos_after_delete;
+CREATE TRIGGER todos_after_delete AFTER DELETE ON todos
+FOR EACH ROW
+    INSERT INTO todo_tombstones (id, deleted_at) VALUES (OLD.id, CURRENT_TIMESTAMP(3))
+    ON DUPLICATE KEY UPDATE deleted_at = VALUES(deleted_at);
+
+-- Create the id sequence
+-- Only used with the Spring profile "sharded" (see ShardedTodoDAO), and only
+-- on the first shard: every shard has its own AUTO_INCREMENT, so ids unique
+-- across all shards are reserved from this row in blocks instead
+-- Existing databases: run migrations/V6__add_id_sequence.sql
+CREATE TABLE IF NOT EXISTS todo_id_sequence (
+    -- name: The sequence ('todos')
+    name VARCHAR(64) PRIMARY KEY,
+    
+    -- next_id: The first id that has not been handed out yet
+    next_id BIGINT NOT NULL
+);
+
+INSERT IGNORE INTO todo_id_sequence (name, next_id) VALUES ('todos', 1);
+
 -- Display the table structure to verify
 DESCRIBE todos;
 
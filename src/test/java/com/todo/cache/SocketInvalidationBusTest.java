@@ -0,0 +1,248 @@
+package com.todo.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two SocketInvalidationBus nodes on localhost (port 0 = any free port)
+ */
+class SocketInvalidationBusTest {
+
+    private static final long FLUSH_INTERVAL_MILLIS = 10;
+    private static final int MAX_BATCH_SIZE = 100;
+
+    private final List<SocketInvalidationBus> buses = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (SocketInvalidationBus bus : buses) {
+            bus.close();
+        }
+    }
+
+    @Test
+    void publishedIdsArriveAtThePeerInBatches() throws Exception {
+        SocketInvalidationBus receiver = open(0, null);
+        Recorder received = new Recorder(receiver);
+        SocketInvalidationBus sender = open(0, "localhost:" + receiver.getPort());
+
+        sender.publish(List.of(1, 2, 3));
+        sender.publish(List.of(3, 4));
+
+        awaitTrue(() -> received.ids.size() == 4);
+        assertEquals(Set.of(1, 2, 3, 4), received.ids);
+        assertEquals(1, received.invalidateAlls.get()); // Sent first on the new connection
+        assertEquals(5, sender.getPublishedIdCount());
+    }
+
+    @Test
+    void connectionToItselfIsDropped() throws Exception {
+        SocketInvalidationBus other = open(0, null);
+        Recorder otherReceived = new Recorder(other);
+        int port = freePort();
+        SocketInvalidationBus bus = open(port, "localhost:" + port + ",localhost:" + other.getPort());
+        Recorder selfReceived = new Recorder(bus);
+
+        bus.publish(List.of(7));
+
+        awaitTrue(() -> otherReceived.ids.contains(7));
+        assertTrue(selfReceived.ids.isEmpty());
+        assertEquals(0, selfReceived.invalidateAlls.get());
+        assertEquals(0, bus.getReceivedBatchCount());
+    }
+
+    @Test
+    void restartedPeerGetsInvalidateAllOnTheNewConnection() throws Exception {
+        SocketInvalidationBus receiver = open(0, null);
+        int port = receiver.getPort();
+        Recorder firstReceived = new Recorder(receiver);
+        SocketInvalidationBus sender = open(0, "localhost:" + port);
+        sender.publish(List.of(1));
+        awaitTrue(() -> firstReceived.ids.contains(1));
+
+        receiver.close();
+        buses.remove(receiver);
+        // The port is free once the sender has noticed the closed connection
+        List<SocketInvalidationBus> restarted = new ArrayList<>();
+        awaitTrue(() -> {
+            sender.publish(List.of(2));
+            try {
+                restarted.add(open(port, null));
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        });
+        Recorder received = new Recorder(restarted.get(0));
+
+        // Ids sent while the peer was down are lost, INVALIDATE_ALL covers them
+        awaitTrue(() -> {
+            sender.publish(List.of(2));
+            return received.invalidateAlls.get() == 1;
+        });
+        awaitTrue(() -> {
+            sender.publish(List.of(3));
+            return received.ids.contains(3);
+        });
+    }
+
+    @Test
+    void peerThatStopsReadingIsDroppedAndDoesNotBlockTheOthers() throws Exception {
+        SocketInvalidationBus healthy = open(0, null);
+        Recorder received = new Recorder(healthy);
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 1; id <= 20_000; id++) {
+            ids.add(id);
+        }
+
+        try (StuckPeer stuck = new StuckPeer()) {
+            // The stuck peer comes first: a blocked write to it would hold up the healthy one
+            SocketInvalidationBus sender = open(0, "localhost:" + stuck.getPort() + ",localhost:" + healthy.getPort());
+
+            // Fill the socket buffers until the watchdog drops the connection and it is reconnected
+            awaitTrue(() -> {
+                sender.publish(ids);
+                return stuck.connections.get() >= 2;
+            });
+
+            received.ids.clear();
+            awaitTrue(() -> {
+                sender.publish(List.of(-1));
+                return received.ids.contains(-1);
+            });
+        }
+    }
+
+    @Test
+    void unknownFrameTypesAreSkipped() throws Exception {
+        SocketInvalidationBus receiver = open(0, null);
+        Recorder received = new Recorder(receiver);
+
+        try (Socket socket = new Socket("localhost", receiver.getPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            InvalidationProtocol.writeHandshake(out, 42);
+            out.flush();
+            InvalidationProtocol.readHandshake(new DataInputStream(socket.getInputStream()));
+
+            out.writeByte(99); // A frame type of a later version
+            out.writeInt(3);
+            out.write(new byte[] { 1, 2, 3 });
+            ByteBuffer frame = InvalidationProtocol.encodeInvalidate(null, new int[] { 5, 6 }, 2);
+            out.write(frame.array(), 0, frame.limit());
+            out.flush();
+
+            awaitTrue(() -> received.ids.size() == 2);
+        }
+        assertEquals(Set.of(5, 6), received.ids);
+        assertEquals(1, receiver.getReceivedBatchCount());
+    }
+
+    private SocketInvalidationBus open(int port, String peers) throws IOException {
+        SocketInvalidationBus bus = new SocketInvalidationBus(port, peers, FLUSH_INTERVAL_MILLIS, MAX_BATCH_SIZE);
+        buses.add(bus);
+        return bus;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() - deadline < 0, "condition not met within 10 seconds");
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * A peer that answers the handshake, then never reads again
+     */
+    private static final class StuckPeer implements AutoCloseable {
+
+        private final ServerSocket serverSocket = new ServerSocket();
+        private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+        private final AtomicInteger connections = new AtomicInteger();
+
+        private StuckPeer() throws IOException {
+            serverSocket.setReceiveBufferSize(4096); // Fills up sooner
+            serverSocket.bind(new InetSocketAddress("localhost", 0));
+            Thread acceptor = new Thread(this::acceptLoop, "stuck-peer");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        private int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        private void acceptLoop() {
+            try {
+                while (true) {
+                    Socket socket = serverSocket.accept();
+                    sockets.add(socket);
+                    InvalidationProtocol.readHandshake(new DataInputStream(socket.getInputStream()));
+                    DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                    InvalidationProtocol.writeHandshake(out, 42);
+                    out.flush();
+                    connections.incrementAndGet();
+                }
+            } catch (IOException e) {
+                // Closed by the test
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    /**
+     * What a bus delivered to its listeners
+     */
+    private static final class Recorder implements InvalidationListener {
+
+        private final Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger invalidateAlls = new AtomicInteger();
+
+        private Recorder(InvalidationBus bus) {
+            bus.subscribe(this);
+        }
+
+        @Override
+        public void onInvalidate(Collection<Integer> batch) {
+            ids.addAll(batch);
+        }
+
+        @Override
+        public void onInvalidateAll() {
+            invalidateAlls.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.todo.dao;
+
+import com.todo.model.Todo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The todo cache: LRU eviction, TTL, invalidation on writes, no caching of
+ * uncommitted rows, and the caching of todos read in read-only transactions
+ * (which may be served by a lagging replica, see ReplicaRoutingDataSource)
+ */
+class CachingTodoDAOTest {
+
+    private InMemoryTodoDAO store;
+    private CachingTodoDAO cache;
+    private int id;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryTodoDAO();
+        cache = new CachingTodoDAO(store, 100, 60);
+        Todo todo = new Todo("Cached", null, false);
+        store.create(todo);
+        id = todo.getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    // ========== READ-THROUGH, LRU AND TTL ==========
+
+    @Test
+    void secondReadIsAHitAndReturnsACopy() {
+        Todo first = cache.findById(id);
+        first.setTitle("Changed by the caller");
+
+        assertEquals("Cached", cache.findById(id).getTitle());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(0.5, cache.getHitRate());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void unknownIdsAreNotCached() {
+        assertNull(cache.findById(42));
+        assertNull(cache.findById(42));
+
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void leastRecentlyUsedTodoIsEvictedWhenFull() {
+        cache = new CachingTodoDAO(store, 2, 60);
+        int second = createInStore("Second");
+        int third = createInStore("Third");
+
+        cache.findById(id);
+        cache.findById(second);
+        cache.findById(id); // Now second is the least recently used
+        cache.findById(third);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        long misses = cache.getMissCount();
+        cache.findById(id);
+        cache.findById(third);
+        assertEquals(misses, cache.getMissCount());
+        cache.findById(second);
+        assertEquals(misses + 1, cache.getMissCount());
+    }
+
+    @Test
+    void entriesExpireAfterTheTtl() throws InterruptedException {
+        cache = new CachingTodoDAO(store, 100, 1);
+        cache.findById(id);
+        store.updateCompleted(id, true); // Behind the cache's back
+
+        assertFalse(cache.findById(id).isCompleted());
+        Thread.sleep(1100);
+        assertTrue(cache.findById(id).isCompleted());
+        assertEquals(1, cache.getExpirationCount());
+    }
+
+    @Test
+    void zeroMaxSizeDisablesTheCache() {
+        cache = new CachingTodoDAO(store, 0, 60);
+        cache.findById(id);
+        cache.findById(id);
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    // ========== INVALIDATION ==========
+
+    @Test
+    void writesInvalidateTheCachedTodo() {
+        Todo todo = cache.findById(id);
+        todo.setTitle("Updated");
+        cache.update(todo);
+        assertEquals("Updated", cache.findById(id).getTitle());
+
+        cache.updateCompleted(id, true);
+        assertTrue(cache.findById(id).isCompleted());
+
+        cache.delete(id);
+        assertNull(cache.findById(id));
+    }
+
+    @Test
+    void versionConflictInvalidatesTheCachedTodo() {
+        Todo stale = cache.findById(id);
+        store.updateCompleted(id, true); // Version 1 in the store, the cache still has version 0
+
+        assertThrows(TodoVersionConflictException.class, () -> cache.update(stale));
+        assertEquals(1, cache.findById(id).getVersion());
+    }
+
+    @Test
+    void invalidationsOfOtherNodesRemoveTodos() {
+        int second = createInStore("Second");
+        cache.findById(id);
+        cache.findById(second);
+
+        cache.onInvalidate(List.of(id));
+        assertEquals(1, cache.size());
+        cache.onInvalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+    // ========== TRANSACTIONS ==========
+
+    @Test
+    void readsInsideReadWriteTransactionsAreNotCached() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        cache.findById(id);
+        cache.findById(id);
+
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void rolledBackChangesAreNeverCached() throws Exception {
+        try (TestDatabase database = new TestDatabase()) {
+            TodoDAOImpl jdbc = new TodoDAOImpl(database.getJdbcTemplate());
+            cache = new CachingTodoDAO(jdbc, 100, 60);
+            Todo todo = new Todo("Committed", null, false);
+            cache.create(todo);
+            TransactionTemplate transaction = new TransactionTemplate(
+                    new DataSourceTransactionManager(database.getDataSource()));
+
+            transaction.executeWithoutResult(status -> {
+                Todo changed = cache.findById(todo.getId());
+                changed.setTitle("Rolled back");
+                cache.update(changed);
+                assertEquals("Rolled back", cache.findById(todo.getId()).getTitle());
+                status.setRollbackOnly();
+            });
+
+            assertEquals("Committed", cache.findById(todo.getId()).getTitle());
+            assertEquals("Committed", cache.findById(todo.getId()).getTitle());
+            assertEquals(1, cache.getHitCount());
+        }
+    }
+
+    // ========== REPLICA READS ==========
+
+    @Test
+    void readOnlyReadsAreCachedWithoutReplicas() {
+        cache.setReplicaReadTtlSeconds(-1);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        cache.findById(id);
+        cache.findById(id);
+
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    void readOnlyReadsAreNotCachedWithAZeroReplicaTtl() {
+        cache.setReplicaReadTtlSeconds(0);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        cache.findById(id);
+        cache.findById(id);
+        assertEquals(2, cache.getMissCount());
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        cache.findById(id);
+        cache.findById(id);
+        assertEquals(3, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    void readOnlyReadsExpireAfterTheReplicaTtl() throws InterruptedException {
+        cache.setReplicaReadTtlSeconds(1);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        cache.findById(id);
+        cache.findById(id);
+        assertEquals(1, cache.getHitCount());
+
+        // A replica may have returned the old status: it is not kept for the full ttlSeconds
+        store.updateCompleted(id, true);
+        Thread.sleep(1100);
+        assertTrue(cache.findById(id).isCompleted());
+        assertEquals(1, cache.getExpirationCount());
+    }
+
+    @Test
+    void replicaTtlMustNotBeBelowMinusOne() {
+        assertThrows(IllegalArgumentException.class, () -> cache.setReplicaReadTtlSeconds(-2));
+    }
+
+    private int createInStore(String title) {
+        Todo todo = new Todo(title, null, false);
+        store.create(todo);
+        return todo.getId();
+    }
+}
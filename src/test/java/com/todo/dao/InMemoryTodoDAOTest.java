@@ -0,0 +1,12 @@
+package com.todo.dao;
+
+/**
+ * The TodoDAO contract for the in-memory storage engine
+ */
+class InMemoryTodoDAOTest extends TodoDAOContractTest {
+
+    @Override
+    protected TodoDAO createDao() {
+        return new InMemoryTodoDAO();
+    }
+}
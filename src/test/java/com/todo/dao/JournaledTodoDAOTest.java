@@ -0,0 +1,127 @@
+package com.todo.dao;
+
+import com.todo.model.Todo;
+import com.todo.model.TodoChange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The TodoDAO contract for the journaled storage engine, plus recovery from
+ * its snapshot and journal files
+ */
+class JournaledTodoDAOTest extends TodoDAOContractTest {
+
+    @TempDir
+    Path directory;
+
+    @Override
+    protected TodoDAO createDao() throws Exception {
+        return open(directory);
+    }
+
+    @Override
+    protected void closeDao() throws Exception {
+        ((JournaledTodoDAO) dao).close();
+    }
+
+    @Test
+    void recoversFromSnapshotAndJournal() throws Exception {
+        Todo kept = create("Kept", "In the snapshot");
+        Todo deleted = create("Deleted");
+        ((JournaledTodoDAO) dao).snapshot();
+
+        kept.setTitle("Kept, updated");
+        dao.update(kept);
+        dao.delete(deleted.getId());
+        Todo late = create("Only in the journal");
+
+        JournaledTodoDAO recovered = open(crashCopy());
+        try {
+            assertEquals("Kept, updated", recovered.findById(kept.getId()).getTitle());
+            assertEquals(1, recovered.findById(kept.getId()).getVersion());
+            assertNull(recovered.findById(deleted.getId()));
+            assertEquals("Only in the journal", recovered.findById(late.getId()).getTitle());
+
+            List<TodoChange> changes = recovered.findChangedSince(Instant.EPOCH, 0, 10);
+            assertTrue(changes.stream().anyMatch(change -> change.isDeleted() && change.getId() == deleted.getId()));
+
+            Todo next = new Todo("After recovery", null, false);
+            recovered.create(next);
+            assertTrue(next.getId() > late.getId());
+        } finally {
+            recovered.close();
+        }
+    }
+
+    @Test
+    void cutsOffAnIncompleteRecordAtTheEndOfTheJournal() throws Exception {
+        Todo first = create("First");
+        Todo second = create("Second");
+        Path copy = crashCopy();
+        Path journal = newestJournal(copy);
+        long complete = Files.size(journal);
+        Files.write(journal, new byte[] { 0, 0, 0, 40, 1, 2 }, StandardOpenOption.APPEND); // Crash mid-record
+
+        JournaledTodoDAO recovered = open(copy);
+        try {
+            assertEquals("First", recovered.findById(first.getId()).getTitle());
+            assertEquals("Second", recovered.findById(second.getId()).getTitle());
+            assertEquals(complete, Files.size(journal));
+        } finally {
+            recovered.close();
+        }
+    }
+
+    @Test
+    void closeWritesASnapshotThatIsLoadedOnTheNextStart() throws Exception {
+        for (int i = 1; i <= 100; i++) {
+            create("Todo " + i, "x".repeat(i));
+        }
+        ((JournaledTodoDAO) dao).close();
+
+        dao = open(directory);
+        assertEquals(100, dao.countAll());
+        assertEquals("x".repeat(100), dao.findById(100).getDescription());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.filter(file -> file.toString().endsWith(".snap")).count());
+        }
+    }
+
+    private static JournaledTodoDAO open(Path files) throws Exception {
+        return new JournaledTodoDAO(new InMemoryTodoDAO(), files.toString(), 0);
+    }
+
+    /**
+     * @return A copy of the files as a crash would leave them (the DAO is
+     *         still open, so no final snapshot was written)
+     */
+    private Path crashCopy() throws Exception {
+        Path copy = Files.createDirectory(directory.resolve("crashed"));
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file)) {
+                    Files.copy(file, copy.resolve(file.getFileName()));
+                }
+            }
+        }
+        return copy;
+    }
+
+    private static Path newestJournal(Path files) throws Exception {
+        try (Stream<Path> list = Files.list(files)) {
+            return list.filter(file -> file.getFileName().toString().startsWith("journal-"))
+                    .max(Path::compareTo).orElseThrow();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.todo.dao;
+
+import com.todo.model.Todo;
+import com.todo.model.TodoChange;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The TodoDAO contract for the sharded storage engine (three H2 shards),
+ * plus routing, merging of the shard results and id reservation
+ */
+class ShardedTodoDAOTest extends TodoDAOContractTest {
+
+    private static final int SHARDS = 3;
+    private static final int ID_BLOCK_SIZE = 10;
+
+    private final List<TestDatabase> databases = new ArrayList<>();
+
+    @Override
+    protected TodoDAO createDao() {
+        for (int i = 0; i < SHARDS; i++) {
+            databases.add(new TestDatabase());
+        }
+        return new ShardedTodoDAO(databases.stream().map(TestDatabase::getJdbcTemplate).toList(), ID_BLOCK_SIZE);
+    }
+
+    @Override
+    protected void closeDao() throws Exception {
+        ((ShardedTodoDAO) dao).close();
+        for (TestDatabase database : databases) {
+            database.close();
+        }
+    }
+
+    /**
+     * H2 has no MATCH ... AGAINST (MySQL FULLTEXT)
+     */
+    @Override
+    protected boolean supportsSearch() {
+        return false;
+    }
+
+    @Test
+    void everyTodoIsStoredOnlyOnTheShardOfItsId() {
+        List<Integer> ids = dao.createAll(newTodos(30));
+        ShardedTodoDAO sharded = (ShardedTodoDAO) dao;
+
+        int[] expected = new int[SHARDS];
+        for (int id : ids) {
+            expected[sharded.shardOf(id)]++;
+            for (int shard = 0; shard < SHARDS; shard++) {
+                assertEquals(shard == sharded.shardOf(id) ? 1 : 0, countRows(shard, id), "todo " + id);
+            }
+        }
+        for (int shard = 0; shard < SHARDS; shard++) {
+            assertTrue(expected[shard] > 0, "shard " + shard + " has no todos");
+        }
+    }
+
+    @Test
+    void findAllAndFindPageMergeTheShardsInIdOrder() {
+        List<Integer> ids = dao.createAll(newTodos(20));
+
+        assertEquals(ids, dao.findAll().stream().map(Todo::getId).toList());
+
+        List<Integer> paged = new ArrayList<>();
+        int afterId = 0;
+        List<Todo> page;
+        while (!(page = dao.findPage(afterId, 4)).isEmpty()) {
+            assertTrue(page.size() <= 4);
+            page.forEach(todo -> paged.add(todo.getId()));
+            afterId = page.get(page.size() - 1).getId();
+        }
+        assertEquals(ids, paged);
+    }
+
+    @Test
+    void findChangedSinceReturnsTheOldestChangesOfAllShards() {
+        List<Todo> todos = newTodos(20);
+        dao.createAll(todos);
+        dao.deleteAll(List.of(todos.get(3).getId(), todos.get(11).getId()));
+
+        List<TodoChange> all = dao.findChangedSince(Instant.EPOCH, 0, 100);
+        assertEquals(20, all.size());
+        assertEquals(changeIds(all.stream().sorted(Comparator.comparing(TodoChange::getChangedAt)
+                .thenComparingInt(TodoChange::getId)).toList()), changeIds(all));
+
+        assertEquals(changeIds(all.subList(0, 5)), changeIds(dao.findChangedSince(Instant.EPOCH, 0, 5)));
+    }
+
+    @Test
+    void idsAreReservedInBlocksFromTheFirstShard() {
+        Todo first = create("First");
+        assertEquals(1, first.getId());
+        assertEquals(1 + ID_BLOCK_SIZE, nextId(0));
+
+        // 9 ids are left in the block, the other 16 are reserved at once
+        List<Integer> ids = dao.createAll(newTodos(25));
+        assertEquals(IntStream.rangeClosed(2, 26).boxed().toList(), ids);
+        assertEquals(27, nextId(0));
+
+        create("Next block");
+        assertEquals(27 + ID_BLOCK_SIZE, nextId(0));
+        assertEquals(1, nextId(1)); // The sequences of the other shards are not used
+    }
+
+    private static List<Todo> newTodos(int count) {
+        List<Todo> todos = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            todos.add(new Todo("Todo " + i, null, false));
+        }
+        return todos;
+    }
+
+    private static List<Integer> changeIds(List<TodoChange> changes) {
+        return changes.stream().map(TodoChange::getId).toList();
+    }
+
+    private int countRows(int shard, int id) {
+        return jdbc(shard).queryForObject("SELECT COUNT(*) FROM todos WHERE id = ?", Integer.class, id);
+    }
+
+    private long nextId(int shard) {
+        return jdbc(shard).queryForObject("SELECT next_id FROM todo_id_sequence WHERE name = 'todos'", Long.class);
+    }
+
+    private JdbcTemplate jdbc(int shard) {
+        return databases.get(shard).getJdbcTemplate();
+    }
+}
@@ -0,0 +1,51 @@
+package com.todo.dao;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * TestDatabase - Embedded database used by the JDBC tests
+ *
+ * Each instance is a fresh, private H2 in-memory database in MySQL mode,
+ * with the tables created from test-schema.sql.
+ */
+public class TestDatabase implements AutoCloseable {
+
+    private final String url = "jdbc:h2:mem:test-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private final BasicDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public TestDatabase() {
+        dataSource = new BasicDataSource();
+        dataSource.setDriverClassName("org.h2.Driver");
+        dataSource.setUrl(url);
+        dataSource.setUsername("sa");
+        dataSource.setPassword("");
+
+        new ResourceDatabasePopulator(new ClassPathResource("test-schema.sql")).execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public BasicDataSource getDataSource() {
+        return dataSource;
+    }
+
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        jdbcTemplate.execute("SHUTDOWN");
+        dataSource.close();
+    }
+}
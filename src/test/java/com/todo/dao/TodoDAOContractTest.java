@@ -0,0 +1,339 @@
+package com.todo.dao;
+
+import com.todo.model.Todo;
+import com.todo.model.TodoChange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * TodoDAOContractTest - The behaviour every TodoDAO must have
+ *
+ * Each storage engine gets a subclass that creates an empty DAO; the tests
+ * themselves only use the TodoDAO interface, so all engines are held to the
+ * same contract (ids, keyset pages, optimistic locking, change feed).
+ */
+abstract class TodoDAOContractTest {
+
+    protected TodoDAO dao;
+
+    /**
+     * @return A new DAO without any todos
+     */
+    protected abstract TodoDAO createDao() throws Exception;
+
+    /**
+     * Release what createDao() opened (nothing by default)
+     */
+    protected void closeDao() throws Exception {
+    }
+
+    /**
+     * @return false if the engine cannot run search() in the test
+     *         environment
+     */
+    protected boolean supportsSearch() {
+        return true;
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dao = createDao();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        closeDao();
+    }
+
+    // ========== CRUD ==========
+
+    @Test
+    void createAssignsIdAndFindByIdReadsTheTodo() {
+        Todo todo = new Todo("Write tests", "For every storage engine", false);
+        dao.create(todo);
+
+        assertTrue(todo.getId() > 0);
+        Todo found = dao.findById(todo.getId());
+        assertNotNull(found);
+        assertEquals("Write tests", found.getTitle());
+        assertEquals("For every storage engine", found.getDescription());
+        assertFalse(found.isCompleted());
+        assertEquals(0, found.getVersion());
+        assertNotNull(found.getUpdatedAt());
+    }
+
+    @Test
+    void findByIdReturnsNullForUnknownId() {
+        assertNull(dao.findById(42));
+    }
+
+    @Test
+    void createAllReturnsIdsInOrder() {
+        List<Todo> todos = List.of(new Todo("First", null, false), new Todo("Second", null, true),
+                new Todo("Third", null, false));
+        List<Integer> ids = dao.createAll(todos);
+
+        assertEquals(3, ids.size());
+        for (int i = 0; i < todos.size(); i++) {
+            assertEquals(todos.get(i).getId(), ids.get(i));
+            assertEquals(todos.get(i).getTitle(), dao.findById(ids.get(i)).getTitle());
+        }
+        assertEquals(3, dao.countAll());
+        assertEquals(1, dao.countByCompleted(true));
+    }
+
+    @Test
+    void updateChangesTheTodoAndIncreasesItsVersion() {
+        Todo todo = create("Old title");
+        todo.setTitle("New title");
+        todo.setCompleted(true);
+
+        assertEquals(1, dao.update(todo));
+        assertEquals(1, todo.getVersion());
+        Todo found = dao.findById(todo.getId());
+        assertEquals("New title", found.getTitle());
+        assertTrue(found.isCompleted());
+        assertEquals(1, found.getVersion());
+    }
+
+    @Test
+    void updateOfUnknownIdReturnsZero() {
+        assertEquals(0, dao.update(new Todo(42, "Nobody", null, false)));
+    }
+
+    @Test
+    void updateCompletedChangesOnlyTheStatus() {
+        Todo first = create("First");
+        Todo second = create("Second");
+
+        assertEquals(1, dao.updateCompleted(first.getId(), true));
+        assertEquals(0, dao.updateCompleted(42, true));
+        assertEquals(1, dao.findById(first.getId()).getVersion());
+        assertEquals("First", dao.findById(first.getId()).getTitle());
+
+        assertEquals(2, dao.updateCompleted(List.of(first.getId(), second.getId(), 42), true));
+        assertEquals(2, dao.countByCompleted(true));
+        assertEquals(0, dao.countByCompleted(false));
+    }
+
+    @Test
+    void deleteRemovesTheTodo() {
+        Todo first = create("First");
+        Todo second = create("Second");
+        Todo third = create("Third");
+
+        assertEquals(1, dao.delete(first.getId()));
+        assertEquals(0, dao.delete(first.getId()));
+        assertNull(dao.findById(first.getId()));
+
+        assertEquals(2, dao.deleteAll(List.of(second.getId(), third.getId(), 42)));
+        assertEquals(0, dao.countAll());
+        assertTrue(dao.findAll().isEmpty());
+    }
+
+    // ========== VERSION CONFLICTS ==========
+
+    @Test
+    void updateWithStaleVersionThrowsConflict() {
+        Todo todo = create("Shared");
+        Todo staleCopy = new Todo(todo);
+
+        todo.setTitle("Changed by the first writer");
+        dao.update(todo);
+
+        staleCopy.setTitle("Changed by the second writer");
+        TodoVersionConflictException conflict = assertThrows(TodoVersionConflictException.class,
+                () -> dao.update(staleCopy));
+        assertEquals(todo.getId(), conflict.getTodoId());
+        assertEquals(0, conflict.getExpectedVersion());
+        assertEquals("Changed by the first writer", dao.findById(todo.getId()).getTitle());
+    }
+
+    @Test
+    void updateAllSkipsStaleVersions() {
+        Todo current = create("Current");
+        Todo stale = create("Stale");
+        dao.updateCompleted(stale.getId(), true); // Version 1 in the store, 0 on the object
+
+        current.setTitle("Current, updated");
+        stale.setTitle("Stale, updated");
+        assertEquals(1, dao.updateAll(List.of(current, stale)));
+
+        assertEquals("Current, updated", dao.findById(current.getId()).getTitle());
+        assertEquals("Stale", dao.findById(stale.getId()).getTitle());
+    }
+
+    // ========== PAGINATION ==========
+
+    @Test
+    void findPageWalksAllTodosInIdOrder() {
+        for (int i = 1; i <= 7; i++) {
+            create("Todo " + i);
+        }
+
+        List<Todo> first = dao.findPage(0, 3);
+        List<Todo> second = dao.findPage(first.get(2).getId(), 3);
+        List<Todo> third = dao.findPage(second.get(2).getId(), 3);
+
+        assertEquals(List.of("Todo 1", "Todo 2", "Todo 3"), titles(first));
+        assertEquals(List.of("Todo 4", "Todo 5", "Todo 6"), titles(second));
+        assertEquals(List.of("Todo 7"), titles(third));
+        assertTrue(dao.findPage(third.get(0).getId(), 3).isEmpty());
+    }
+
+    @Test
+    void findPageSkipsDeletedTodos() {
+        Todo first = create("First");
+        Todo second = create("Second");
+        create("Third");
+        dao.delete(second.getId());
+
+        assertEquals(List.of("First", "Third"), titles(dao.findPage(0, 10)));
+        assertEquals(List.of("Third"), titles(dao.findPage(first.getId(), 10)));
+    }
+
+    // ========== SEARCH ==========
+
+    @Test
+    void searchReturnsBestMatchesFirst() {
+        assumeTrue(supportsSearch(), "search() is not supported by this test database");
+        create("Buy milk", "On the way home");
+        Todo both = create("Tune the database", "Spring connection pool settings");
+        Todo one = create("Learn Spring", "Dependency injection basics");
+
+        List<Todo> results = dao.search("spring database", 10);
+
+        assertEquals(List.of(both.getId(), one.getId()), ids(results));
+        assertEquals(List.of(both.getId()), ids(dao.search("spring database", 1)));
+        assertTrue(dao.search("unrelated words", 10).isEmpty());
+    }
+
+    @Test
+    void searchRejectsNonPositiveLimit() {
+        assertThrows(IllegalArgumentException.class, () -> dao.search("spring", 0));
+    }
+
+    // ========== CHANGE FEED ==========
+
+    @Test
+    void findChangedSinceReturnsUpdatesAndTombstonesOldestFirst() throws InterruptedException {
+        Todo kept = create("Kept");
+        Todo updated = create("Updated");
+        Todo deleted = create("Deleted");
+        nextMillisecond();
+        updated.setTitle("Updated again");
+        dao.update(updated);
+        nextMillisecond();
+        dao.delete(deleted.getId());
+
+        List<TodoChange> changes = dao.findChangedSince(Instant.EPOCH, 0, 10);
+
+        assertEquals(List.of(kept.getId(), updated.getId(), deleted.getId()), changeIds(changes));
+        assertFalse(changes.get(1).isDeleted());
+        assertEquals("Updated again", changes.get(1).getTodo().getTitle());
+        assertTrue(changes.get(2).isDeleted());
+        assertNull(changes.get(2).getTodo());
+        assertNotEquals(changes.get(1).getChangedAt(), changes.get(2).getChangedAt());
+    }
+
+    @Test
+    void findChangedSinceContinuesAfterTheCursor() throws InterruptedException {
+        Todo first = create("First");
+        nextMillisecond();
+        Todo second = create("Second");
+        nextMillisecond();
+        Todo third = create("Third");
+        nextMillisecond();
+        dao.delete(first.getId());
+
+        List<TodoChange> firstPage = dao.findChangedSince(Instant.EPOCH, 0, 2);
+        assertEquals(List.of(second.getId(), third.getId()), changeIds(firstPage));
+
+        TodoChange last = firstPage.get(1);
+        List<TodoChange> nextPage = dao.findChangedSince(last.getChangedAt(), last.getId(), 2);
+        assertEquals(List.of(first.getId()), changeIds(nextPage));
+        assertTrue(nextPage.get(0).isDeleted());
+
+        // afterId = 0 starts at a point in time: the change at since is included
+        assertEquals(List.of(third.getId(), first.getId()),
+                changeIds(dao.findChangedSince(last.getChangedAt(), 0, 10)));
+        TodoChange deletion = nextPage.get(0);
+        assertTrue(dao.findChangedSince(deletion.getChangedAt(), deletion.getId(), 10).isEmpty());
+    }
+
+    @Test
+    void findChangedSincePagesReturnEveryChangeExactlyOnce() {
+        List<Todo> todos = new ArrayList<>();
+        for (int i = 1; i <= 9; i++) {
+            todos.add(new Todo("Todo " + i, null, false));
+        }
+        dao.createAll(todos); // Many of them share a millisecond
+        dao.deleteAll(List.of(todos.get(1).getId(), todos.get(4).getId()));
+        dao.updateCompleted(todos.get(7).getId(), true);
+        List<TodoChange> all = dao.findChangedSince(Instant.EPOCH, 0, 100);
+        assertEquals(9, all.size());
+
+        List<TodoChange> paged = new ArrayList<>();
+        List<TodoChange> page = dao.findChangedSince(Instant.EPOCH, 0, 2);
+        while (!page.isEmpty()) {
+            paged.addAll(page);
+            TodoChange last = page.get(page.size() - 1);
+            page = dao.findChangedSince(last.getChangedAt(), last.getId(), 2);
+        }
+        assertEquals(changeIds(all), changeIds(paged));
+    }
+
+    @Test
+    void findChangedSinceRejectsNonPositiveLimit() {
+        assertThrows(IllegalArgumentException.class, () -> dao.findChangedSince(Instant.EPOCH, 0, 0));
+    }
+
+    // ========== HELPERS ==========
+
+    protected Todo create(String title) {
+        return create(title, null);
+    }
+
+    protected Todo create(String title, String description) {
+        Todo todo = new Todo(title, description, false);
+        dao.create(todo);
+        return todo;
+    }
+
+    /**
+     * Wait until the clock has moved to the next millisecond, so the next
+     * change gets a later timestamp (the precision of updated_at)
+     */
+    private static void nextMillisecond() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        while (System.currentTimeMillis() <= now + 1) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static List<String> titles(List<Todo> todos) {
+        return todos.stream().map(Todo::getTitle).toList();
+    }
+
+    private static List<Integer> ids(List<Todo> todos) {
+        return todos.stream().map(Todo::getId).toList();
+    }
+
+    private static List<Integer> changeIds(List<TodoChange> changes) {
+        return changes.stream().map(TodoChange::getId).toList();
+    }
+}
@@ -0,0 +1,28 @@
+package com.todo.dao;
+
+/**
+ * The TodoDAO contract for the JDBC storage engine, on H2 in MySQL mode
+ */
+class TodoDAOImplTest extends TodoDAOContractTest {
+
+    private TestDatabase database;
+
+    @Override
+    protected TodoDAO createDao() {
+        database = new TestDatabase();
+        return new TodoDAOImpl(database.getJdbcTemplate());
+    }
+
+    @Override
+    protected void closeDao() throws Exception {
+        database.close();
+    }
+
+    /**
+     * H2 has no MATCH ... AGAINST (MySQL FULLTEXT)
+     */
+    @Override
+    protected boolean supportsSearch() {
+        return false;
+    }
+}
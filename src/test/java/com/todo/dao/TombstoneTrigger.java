@@ -0,0 +1,26 @@
+package com.todo.dao;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * TombstoneTrigger - The todos_after_delete trigger of schema.sql for H2
+ *
+ * Writes the tombstone of every deleted todo (see test-schema.sql).
+ */
+public class TombstoneTrigger implements Trigger {
+
+    private static final String UPSERT_TOMBSTONE = "MERGE INTO todo_tombstones (id, deleted_at) KEY (id) "
+            + "VALUES (?, CURRENT_TIMESTAMP(3))";
+
+    @Override
+    public void fire(Connection connection, Object[] oldRow, Object[] newRow) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(UPSERT_TOMBSTONE)) {
+            statement.setObject(1, oldRow[0]); // id is the first column
+            statement.executeUpdate();
+        }
+    }
+}
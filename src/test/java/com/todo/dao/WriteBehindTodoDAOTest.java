@@ -0,0 +1,268 @@
+package com.todo.dao;
+
+import com.todo.cache.InvalidationBus;
+import com.todo.cache.InvalidationListener;
+import com.todo.model.Todo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Buffering, coalescing and flushing of status changes and deletes, and
+ * publishing of flushed ids, so other nodes drop the rows they cached before
+ * the flush (see the "cluster" profile)
+ */
+class WriteBehindTodoDAOTest {
+
+    private TestDatabase database;
+    private DataSourceTransactionManager transactionManager;
+    private RecordingStore store;
+    private WriteBehindTodoDAO writeBehind;
+    private final List<List<Integer>> published = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        database = new TestDatabase(); // Only for the flush transactions
+        transactionManager = new DataSourceTransactionManager(database.getDataSource());
+        store = new RecordingStore();
+        writeBehind = writeBehind(100, 1000);
+    }
+
+    private WriteBehindTodoDAO writeBehind(int flushSize, int maxPending) {
+        WriteBehindTodoDAO dao = new WriteBehindTodoDAO(store, transactionManager, flushSize, 60_000, maxPending);
+        dao.setInvalidationBus(new InvalidationBus() {
+            @Override
+            public void publish(Collection<Integer> ids) {
+                published.add(List.copyOf(ids));
+            }
+
+            @Override
+            public void subscribe(InvalidationListener listener) {
+            }
+        });
+        return dao;
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        writeBehind.close();
+        database.close();
+    }
+
+    @Test
+    void flushedIdsArePublishedAfterTheyAreWritten() {
+        Todo completed = create("Completed");
+        Todo deleted = create("Deleted");
+
+        writeBehind.updateCompleted(completed.getId(), true);
+        writeBehind.delete(deleted.getId());
+        assertTrue(published.isEmpty());
+        assertFalse(store.findById(completed.getId()).isCompleted());
+
+        writeBehind.flush();
+
+        assertEquals(List.of(List.of(completed.getId(), deleted.getId())), published);
+        assertTrue(store.findById(completed.getId()).isCompleted());
+        assertNull(store.findById(deleted.getId()));
+    }
+
+    @Test
+    void nothingIsPublishedWithoutPendingChanges() {
+        writeBehind.flush();
+        assertTrue(published.isEmpty());
+    }
+
+    @Test
+    void changesOfTheSameTodoAreCoalesced() {
+        Todo todo = create("Toggled");
+        Todo deleted = create("Deleted");
+
+        writeBehind.updateCompleted(todo.getId(), true);
+        writeBehind.updateCompleted(todo.getId(), false);
+        writeBehind.updateCompleted(todo.getId(), true);
+        writeBehind.updateCompleted(deleted.getId(), true);
+        writeBehind.delete(deleted.getId());
+        assertEquals(2, writeBehind.getPendingCount());
+        assertTrue(writeBehind.findById(todo.getId()).isCompleted());
+        assertNull(writeBehind.findById(deleted.getId()));
+
+        writeBehind.flush();
+
+        assertEquals(List.of("deleteAll " + List.of(deleted.getId()),
+                "updateCompleted(true) " + List.of(todo.getId())), store.writes);
+        assertEquals(0, writeBehind.getPendingCount());
+        assertTrue(store.findById(todo.getId()).isCompleted());
+        assertNull(store.findById(deleted.getId()));
+    }
+
+    @Test
+    void unknownOrDeletedTodosAreNotFound() {
+        Todo deleted = create("Deleted");
+        writeBehind.delete(deleted.getId());
+
+        assertEquals(0, writeBehind.updateCompleted(999, true));
+        assertEquals(0, writeBehind.delete(999));
+        assertEquals(0, writeBehind.updateCompleted(deleted.getId(), true));
+        assertEquals(0, writeBehind.delete(deleted.getId()));
+        assertEquals(1, writeBehind.getPendingCount());
+    }
+
+    @Test
+    void closeFlushesPendingChanges() throws Exception {
+        Todo todo = create("Completed on close");
+        writeBehind.updateCompleted(todo.getId(), true);
+
+        writeBehind.close();
+
+        assertTrue(store.findById(todo.getId()).isCompleted());
+        assertEquals(List.of(List.of(todo.getId())), published);
+    }
+
+    @Test
+    void updateReplacesAPendingStatusChange() {
+        Todo todo = create("Original");
+        writeBehind.updateCompleted(todo.getId(), true);
+
+        Todo edited = store.findById(todo.getId());
+        edited.setTitle("Edited");
+        assertEquals(1, writeBehind.update(edited));
+        assertEquals(0, writeBehind.getPendingCount());
+
+        writeBehind.flush();
+
+        Todo stored = store.findById(todo.getId());
+        assertEquals("Edited", stored.getTitle());
+        assertFalse(stored.isCompleted());
+        assertTrue(store.writes.isEmpty());
+    }
+
+    @Test
+    void failedUpdateKeepsThePendingStatusChange() {
+        Todo todo = create("Original");
+        Todo outdated = store.findById(todo.getId());
+        Todo edited = store.findById(todo.getId());
+        edited.setTitle("Edited elsewhere");
+        store.update(edited);
+        writeBehind.updateCompleted(todo.getId(), true);
+
+        assertThrows(TodoVersionConflictException.class, () -> writeBehind.update(outdated));
+        assertEquals(1, writeBehind.getPendingCount());
+
+        writeBehind.flush();
+
+        assertTrue(store.findById(todo.getId()).isCompleted());
+    }
+
+    @Test
+    void changesAreBufferedOnlyWhenTheTransactionCommits() {
+        Todo committed = create("Committed");
+        Todo rolledBack = create("Rolled back");
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            writeBehind.updateCompleted(committed.getId(), true);
+            assertEquals(0, writeBehind.getPendingCount());
+        });
+        transaction.executeWithoutResult(status -> {
+            writeBehind.updateCompleted(rolledBack.getId(), true);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(1, writeBehind.getPendingCount());
+        assertTrue(writeBehind.findById(committed.getId()).isCompleted());
+        assertFalse(writeBehind.findById(rolledBack.getId()).isCompleted());
+    }
+
+    @Test
+    void committedChangesAreWrittenDirectlyWhenTheBufferIsFull() throws Exception {
+        writeBehind.close();
+        writeBehind = writeBehind(2, 2);
+        Todo first = create("First");
+        Todo second = create("Second");
+        Todo third = create("Third");
+        Todo fourth = create("Fourth");
+        Todo direct = create("Direct");
+
+        // The background flush of the first two todos hangs in the database
+        store.blockWritesOf(first.getId());
+        writeBehind.updateCompleted(first.getId(), true);
+        writeBehind.updateCompleted(second.getId(), true);
+        assertTrue(store.blocked.await(10, TimeUnit.SECONDS));
+
+        // ... so the next two fill the buffer
+        writeBehind.updateCompleted(third.getId(), true);
+        writeBehind.updateCompleted(fourth.getId(), true);
+        assertEquals(2, writeBehind.getPendingCount());
+
+        // A committing transaction does not wait for room
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> writeBehind.updateCompleted(direct.getId(), true));
+
+        assertTrue(store.findById(direct.getId()).isCompleted());
+        assertTrue(published.contains(List.of(direct.getId())));
+        assertEquals(2, writeBehind.getPendingCount());
+        assertFalse(store.findById(first.getId()).isCompleted());
+
+        store.release.countDown();
+        writeBehind.close();
+        for (Todo todo : List.of(first, second, third, fourth)) {
+            assertTrue(store.findById(todo.getId()).isCompleted());
+        }
+    }
+
+    private Todo create(String title) {
+        Todo todo = new Todo(title, null, false);
+        writeBehind.create(todo);
+        return todo;
+    }
+
+    /**
+     * In-memory store that records the bulk writes of the flushes and can
+     * hold a flush of one todo until it is released
+     */
+    private static final class RecordingStore extends InMemoryTodoDAO {
+
+        private final List<String> writes = new CopyOnWriteArrayList<>();
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile int blockedId;
+
+        void blockWritesOf(int id) {
+            blockedId = id;
+        }
+
+        @Override
+        public int updateCompleted(Collection<Integer> ids, boolean completed) {
+            if (ids.contains(blockedId)) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            writes.add("updateCompleted(" + completed + ") " + ids);
+            return super.updateCompleted(ids, completed);
+        }
+
+        @Override
+        public int deleteAll(Collection<Integer> ids) {
+            writes.add("deleteAll " + ids);
+            return super.deleteAll(ids);
+        }
+    }
+}
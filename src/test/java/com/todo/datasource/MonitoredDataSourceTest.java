@@ -0,0 +1,39 @@
+package com.todo.datasource;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MonitoredDataSourceTest {
+
+    @Test
+    void copyWithUrlKeepsThePoolSettings() throws SQLException {
+        MonitoredDataSource original = new MonitoredDataSource();
+        original.setDriverClassName("org.h2.Driver");
+        original.setUrl("jdbc:h2:mem:primary");
+        original.setUsername("todo");
+        original.setPassword("secret");
+        original.setMaxTotal(7);
+        original.setMaxWait(Duration.ofMillis(1500));
+        original.setSlowBorrowThresholdMillis(25);
+        original.setDurationBetweenEvictionRuns(Duration.ofSeconds(30));
+        original.setMinEvictableIdle(Duration.ofMinutes(2));
+        original.setMaxConn(Duration.ofMinutes(30));
+
+        try (MonitoredDataSource copy = original.copyWithUrl("jdbc:h2:mem:replica")) {
+            assertEquals("jdbc:h2:mem:replica", copy.getUrl());
+            assertEquals("org.h2.Driver", copy.getDriverClassName());
+            assertEquals(7, copy.getMaxTotal());
+            assertEquals(Duration.ofMillis(1500), copy.getMaxWaitDuration());
+            assertEquals(25, copy.getSlowBorrowThresholdMillis());
+            assertEquals(Duration.ofSeconds(30), copy.getDurationBetweenEvictionRuns());
+            assertEquals(Duration.ofMinutes(2), copy.getMinEvictableIdleDuration());
+            assertEquals(Duration.ofMinutes(30), copy.getMaxConnDuration());
+        } finally {
+            original.close();
+        }
+    }
+}
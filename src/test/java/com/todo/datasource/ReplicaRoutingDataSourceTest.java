@@ -0,0 +1,139 @@
+package com.todo.datasource;
+
+import com.todo.dao.TestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Read-only transactions on two H2 databases: a primary and a replica
+ *
+ * The replica's lag comes from a table (lagQuery = SELECT seconds FROM
+ * replica_lag), so a test can make it fall behind.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private static final long MAX_LAG_SECONDS = 5;
+    private static final long HEALTH_CHECK_INTERVAL_MILLIS = 20;
+
+    private TestDatabase primaryDatabase;
+    private TestDatabase replicaDatabase;
+    private MonitoredDataSource primary;
+    private ReplicaRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() {
+        primaryDatabase = new TestDatabase();
+        replicaDatabase = new TestDatabase();
+        primaryDatabase.getJdbcTemplate().update("INSERT INTO todos (title) VALUES ('On the primary')");
+        replicaDatabase.getJdbcTemplate().update("INSERT INTO todos (title) VALUES ('On the replica')");
+        replicaDatabase.getJdbcTemplate().execute("CREATE TABLE replica_lag (seconds INT)");
+        replicaDatabase.getJdbcTemplate().update("INSERT INTO replica_lag VALUES (0)");
+
+        primary = new MonitoredDataSource();
+        primary.setDriverClassName("org.h2.Driver");
+        primary.setUrl(primaryDatabase.getUrl());
+        primary.setUsername("sa");
+        primary.setPassword("");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        routing.close();
+        primary.close();
+        primaryDatabase.close();
+        replicaDatabase.close();
+    }
+
+    @Test
+    void readOnlyTransactionsUseTheReplica() throws InterruptedException {
+        routing = route(replicaDatabase.getUrl());
+        awaitTrue(() -> routing.getHealthyReplicaCount() == 1);
+
+        assertEquals("On the replica", readTitle(true));
+        assertEquals("On the primary", readTitle(false));
+        assertEquals(1, routing.getReplicaReadCount());
+        assertEquals(MAX_LAG_SECONDS, routing.getMaxStalenessSeconds());
+    }
+
+    @Test
+    void readsFallBackToThePrimaryWhenTheReplicaIsDown() throws InterruptedException {
+        routing = route("jdbc:h2:tcp://localhost:1/unreachable");
+        awaitTrue(() -> routing.describeReplicas().contains("health check failed"));
+
+        assertEquals("On the primary", readTitle(true));
+        assertEquals(0, routing.getHealthyReplicaCount());
+        assertEquals(1, routing.getPrimaryFallbackCount());
+    }
+
+    @Test
+    void aLaggingReplicaIsSkippedUntilItCatchesUp() throws InterruptedException {
+        routing = route(replicaDatabase.getUrl());
+        awaitTrue(() -> routing.getHealthyReplicaCount() == 1);
+
+        replicaDatabase.getJdbcTemplate().update("UPDATE replica_lag SET seconds = ?", MAX_LAG_SECONDS + 1);
+        awaitTrue(() -> routing.getHealthyReplicaCount() == 0);
+        assertEquals("On the primary", readTitle(true));
+        assertTrue(routing.describeReplicas().contains("replication lag 6 s > 5 s"));
+
+        replicaDatabase.getJdbcTemplate().update("UPDATE replica_lag SET seconds = ?", MAX_LAG_SECONDS);
+        awaitTrue(() -> routing.getHealthyReplicaCount() == 1);
+        assertEquals("On the replica", readTitle(true));
+    }
+
+    @Test
+    void withoutReplicasEveryReadUsesThePrimary() {
+        routing = route("");
+
+        assertEquals("On the primary", readTitle(true));
+        assertEquals(0, routing.getPrimaryFallbackCount());
+        assertEquals(-1, routing.getMaxStalenessSeconds());
+    }
+
+    @Test
+    void connectionsWithOtherCredentialsAreRejected() {
+        routing = route(replicaDatabase.getUrl());
+
+        assertThrows(SQLFeatureNotSupportedException.class, () -> routing.getConnection("sa", ""));
+    }
+
+    private ReplicaRoutingDataSource route(String replicaUrls) {
+        return new ReplicaRoutingDataSource(primary, replicaUrls, MAX_LAG_SECONDS,
+                "SELECT seconds FROM replica_lag", HEALTH_CHECK_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Read the title of todo 1 in a transaction, like the service layer
+     * (the lazy proxy lets the routing see the read-only flag)
+     */
+    private String readTitle(boolean readOnly) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routing);
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transaction.setReadOnly(readOnly);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        return transaction.execute(status -> jdbcTemplate.queryForObject(
+                "SELECT title FROM todos WHERE id = 1", String.class));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not reached within 5 s");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.todo.logging;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Formatting and writing of the queued messages by the writer thread
+ */
+class LogRingBufferTest {
+
+    private final ByteArrayOutputStream printed = new ByteArrayOutputStream();
+    private LogRingBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new LogRingBuffer(8, new PrintStream(printed, true, StandardCharsets.UTF_8));
+    }
+
+    @AfterEach
+    void tearDown() {
+        buffer.shutdown(1000);
+    }
+
+    @Test
+    void placeholdersAreReplacedByTheArguments() {
+        buffer.publish(LogLevel.INFO, "TodoServiceImpl", "Todo {} of {} ({})", 3, 1, 2, "extra", null);
+        buffer.flush(5000);
+
+        String line = output();
+        assertTrue(line.endsWith(" INFO  [main] TodoServiceImpl - Todo 1 of 2 (extra)" + System.lineSeparator()),
+                line);
+    }
+
+    @Test
+    void argumentThatCannotBeFormattedDoesNotStopTheWriter() {
+        Object broken = new Object() {
+            @Override
+            public String toString() {
+                throw new IllegalStateException("broken toString");
+            }
+        };
+
+        buffer.publish(LogLevel.WARN, "Test", "Broken {}", 1, broken, null, null, null);
+        buffer.publish(LogLevel.INFO, "Test", "Still {}", 1, "logging", null, null, null);
+        buffer.flush(5000);
+
+        String[] lines = output().split(System.lineSeparator());
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].endsWith(" WARN  [main] Test - [message could not be formatted: \"Broken {}\""
+                + " (java.lang.IllegalStateException)]"), lines[0]);
+        assertTrue(lines[1].endsWith(" - Still logging"), lines[1]);
+    }
+
+    private String output() {
+        return printed.toString(StandardCharsets.UTF_8);
+    }
+}
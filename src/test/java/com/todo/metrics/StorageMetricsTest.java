@@ -0,0 +1,75 @@
+package com.todo.metrics;
+
+import com.todo.config.TodoApplicationContexts;
+import com.todo.dao.JournaledTodoDAO;
+import com.todo.dao.TestDatabase;
+import com.todo.model.Todo;
+import com.todo.service.TodoService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * DAO metrics measure the storage engine of the active profile, not only
+ * the JDBC engine
+ *
+ * H2 stands in for MySQL: it stores the todos without a storage profile,
+ * and is only the database of the transaction manager with the others.
+ */
+class StorageMetricsTest {
+
+    private static final List<String> PROPERTIES = List.of("spring.profiles.active", "journal.directory",
+            "db.driver", "db.url", "db.username", "db.password");
+
+    @TempDir
+    Path journalDirectory;
+
+    private TestDatabase database;
+
+    @BeforeEach
+    void setUp() {
+        database = new TestDatabase();
+        System.setProperty("journal.directory", journalDirectory.toString());
+        System.setProperty("db.driver", "org.h2.Driver");
+        System.setProperty("db.url", database.getUrl());
+        System.setProperty("db.username", "sa");
+        System.setProperty("db.password", "");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        PROPERTIES.forEach(System::clearProperty);
+        database.close();
+    }
+
+    @ParameterizedTest
+    @CsvSource({ "xml, default", "java, default", "xml, in-memory", "java, in-memory", "xml, journal",
+            "java, journal" })
+    void daoMetricsAreRecordedForTheStorageEngine(String contextType, String profile) {
+        System.setProperty("spring.profiles.active", profile);
+
+        try (ConfigurableApplicationContext context = TodoApplicationContexts.create(contextType)) {
+            TodoService todoService = context.getBean(TodoService.class);
+            Todo todo = new Todo("Measured", null, false);
+            todoService.addTodo(todo);
+            todoService.countAllTodos();
+
+            String metrics = context.getBean(MetricsRegistry.class).scrape();
+            assertTrue(metrics.contains("todo_method_calls_total{layer=\"dao\",method=\"create\"} 1"), metrics);
+            assertTrue(metrics.contains("todo_method_calls_total{layer=\"dao\",method=\"countAll\"} 1"), metrics);
+            if (profile.equals("journal")) {
+                // Still the engine's own class, so its destroy-method can be called
+                assertInstanceOf(JournaledTodoDAO.class, context.getBean("todoStore"));
+            }
+        }
+    }
+}
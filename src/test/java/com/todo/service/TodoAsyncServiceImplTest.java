@@ -0,0 +1,104 @@
+package com.todo.service;
+
+import com.todo.model.Todo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The async service limits concurrent database calls to db.maxTotal (the
+ * size of the connection pool)
+ */
+class TodoAsyncServiceImplTest {
+
+    private static final int MAX_CONCURRENCY = 3;
+
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private TodoAsyncServiceImpl asyncService;
+
+    @BeforeEach
+    void setUp() {
+        asyncService = new TodoAsyncServiceImpl(blockingService(), MAX_CONCURRENCY);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        asyncService.close();
+    }
+
+    @Test
+    void concurrentCallsAreLimitedToMaxConcurrency() throws Exception {
+        List<CompletableFuture<Todo>> calls = new ArrayList<>();
+        for (int id = 1; id <= 20; id++) {
+            calls.add(asyncService.getTodoByIdAsync(id));
+        }
+
+        waitUntil(() -> running.get() == MAX_CONCURRENCY);
+        Thread.sleep(200); // Give more calls the chance to (wrongly) start
+        assertEquals(MAX_CONCURRENCY, running.get());
+        assertFalse(calls.stream().anyMatch(CompletableFuture::isDone));
+
+        release.countDown();
+        CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        assertEquals(MAX_CONCURRENCY, maxRunning.get());
+        assertEquals(20, calls.get(19).get().getId());
+    }
+
+    @Test
+    void closeWaitsForRunningCalls() {
+        CompletableFuture<Todo> call = asyncService.getTodoByIdAsync(1);
+        waitUntil(() -> running.get() == 1);
+
+        release.countDown();
+        asyncService.close();
+
+        assertTrue(call.isDone());
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    /**
+     * A TodoService whose getTodoById() waits for the release latch and
+     * counts the calls running at the same time
+     */
+    private TodoService blockingService() {
+        return (TodoService) Proxy.newProxyInstance(TodoService.class.getClassLoader(),
+                new Class<?>[] { TodoService.class }, (proxy, method, args) -> {
+                    if (!method.getName().equals("getTodoById")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        release.await();
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                    return new Todo((Integer) args[0], "Todo " + args[0], null, false);
+                });
+    }
+
+    private static void waitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out");
+            Thread.onSpinWait();
+        }
+    }
+}
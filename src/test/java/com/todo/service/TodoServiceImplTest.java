@@ -0,0 +1,293 @@
+package com.todo.service;
+
+import com.todo.dao.TestDatabase;
+import com.todo.dao.TodoDAOImpl;
+import com.todo.dao.TodoVersionConflictException;
+import com.todo.model.Todo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * TodoServiceImpl with its transactions (Spring proxies) on H2 in MySQL mode
+ */
+class TodoServiceImplTest {
+
+    private static final int CHUNK_SIZE = 2;
+
+    private TestDatabase database;
+    private AnnotationConfigApplicationContext context;
+    private TodoService todoService;
+    private RecordingTodoDAO todoDAO;
+
+    @BeforeEach
+    void setUp() {
+        database = new TestDatabase();
+        context = new AnnotationConfigApplicationContext();
+        // Injected by @Value into TodoServiceImpl.setChunkSize()
+        context.getEnvironment().getPropertySources()
+                .addFirst(new MapPropertySource("test", Map.of("db.batchSize", CHUNK_SIZE)));
+        context.registerBean(TestDatabase.class, () -> database);
+        context.register(TestConfig.class);
+        context.refresh();
+        todoService = context.getBean(TodoService.class);
+        todoDAO = context.getBean(RecordingTodoDAO.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close(); // Also closes the database (a bean of the context)
+    }
+
+    // ========== ADDING ==========
+
+    @Test
+    void addTodoSetsTheGeneratedId() {
+        Todo first = new Todo("First", null, false);
+        Todo second = new Todo("Second", "With a description", true);
+        todoService.addTodo(first);
+        todoService.addTodo(second);
+
+        assertTrue(first.getId() > 0);
+        assertEquals(first.getId() + 1, second.getId());
+        assertEquals("With a description", todoService.getTodoById(second.getId()).getDescription());
+    }
+
+    @Test
+    void addTodosCommitsEveryChunkInItsOwnTransaction() {
+        List<Todo> todos = newTodos(5);
+
+        List<Integer> ids = todoService.addTodos(todos);
+
+        assertEquals(List.of(2, 2, 1), todoDAO.chunkSizes);
+        assertEquals(3, todoDAO.transactions.size());
+        assertEquals(3, todoDAO.transactions.stream().distinct().count());
+        assertEquals(5, ids.size());
+        for (int i = 0; i < todos.size(); i++) {
+            assertEquals(ids.get(i), todos.get(i).getId()); // Copied back onto the todos
+            assertEquals("Todo " + (i + 1), todoService.getTodoById(ids.get(i)).getTitle());
+        }
+    }
+
+    @Test
+    void chunksCommittedBeforeAFailureStay() {
+        todoDAO.failOnChunk = 2;
+
+        assertThrows(IllegalStateException.class, () -> todoService.addTodos(newTodos(5)));
+
+        // The first chunk is committed, the second (inserted, then failed) rolled back
+        assertEquals(2, todoService.countAllTodos());
+        assertEquals(List.of("Todo 1", "Todo 2"),
+                todoService.getAllTodos().stream().map(Todo::getTitle).toList());
+    }
+
+    @Test
+    void addTodosWritesNothingIfOneTitleIsEmpty() {
+        List<Todo> todos = newTodos(3);
+        todos.add(new Todo(" ", null, false));
+
+        assertThrows(IllegalArgumentException.class, () -> todoService.addTodos(todos));
+        assertEquals(0, todoService.countAllTodos());
+        assertTrue(todoDAO.chunkSizes.isEmpty());
+    }
+
+    // ========== STATUS ==========
+
+    @Test
+    void markAsCompletedAndIncompleteChangeOnlyTheStatus() {
+        Todo todo = add("Status");
+
+        todoService.markAsCompleted(todo.getId());
+        Todo completed = todoService.getTodoById(todo.getId());
+        assertTrue(completed.isCompleted());
+        assertEquals("Status", completed.getTitle());
+        assertEquals(1, todoService.countTodosByStatus(true));
+
+        todoService.markAsIncomplete(todo.getId());
+        assertFalse(todoService.getTodoById(todo.getId()).isCompleted());
+        assertEquals(0, todoService.countTodosByStatus(true));
+        assertEquals(1, todoService.countTodosByStatus(false));
+    }
+
+    @Test
+    void markAsCompletedOfManyTodosSkipsUnknownIds() {
+        Todo first = add("First");
+        Todo second = add("Second");
+
+        assertEquals(2, todoService.markAsCompleted(List.of(first.getId(), second.getId(), 999)));
+        assertEquals(2, todoService.countTodosByStatus(true));
+    }
+
+    // ========== NOT FOUND (ROW COUNTS) ==========
+
+    @Test
+    void statusChangesOfUnknownTodosAreRejected() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> todoService.markAsCompleted(999));
+        assertEquals("Todo with id 999 not found", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> todoService.markAsIncomplete(999));
+    }
+
+    @Test
+    void updateTodoOfUnknownTodoIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> todoService.updateTodo(new Todo(999, "Nobody", null, false)));
+    }
+
+    @Test
+    void updateTodoChangesTheTodo() {
+        Todo todo = add("Old title");
+        todo.setTitle("New title");
+
+        todoService.updateTodo(todo);
+
+        assertEquals("New title", todoService.getTodoById(todo.getId()).getTitle());
+    }
+
+    // ========== OPTIMISTIC LOCKING ==========
+
+    @Test
+    void updateTodoWithRetryRetriesAfterAVersionConflict() {
+        Todo todo = add("Original");
+        AtomicInteger attempts = new AtomicInteger();
+
+        Todo updated = todoService.updateTodoWithRetry(todo.getId(), fresh -> {
+            if (attempts.incrementAndGet() == 1) {
+                concurrentUpdate(todo.getId(), "Changed elsewhere");
+            }
+            fresh.setTitle("Retried");
+        });
+
+        assertEquals(2, attempts.get());
+        Todo stored = todoService.getTodoById(todo.getId());
+        assertEquals("Retried", stored.getTitle());
+        assertEquals("Changed elsewhere", stored.getDescription()); // Not lost
+        assertEquals(updated.getVersion(), stored.getVersion());
+    }
+
+    @Test
+    void updateTodoWithRetryGivesUpAfterMaxAttempts() {
+        Todo todo = add("Original");
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(TodoVersionConflictException.class, () -> todoService.updateTodoWithRetry(todo.getId(), fresh -> {
+            attempts.incrementAndGet();
+            concurrentUpdate(todo.getId(), "Changed elsewhere " + attempts);
+            fresh.setTitle("Never written");
+        }));
+
+        assertEquals(5, attempts.get()); // todo.update.maxAttempts default
+        assertEquals("Original", todoService.getTodoById(todo.getId()).getTitle());
+    }
+
+    @Test
+    void deleteTodoRemovesTheTodoAndRejectsUnknownIds() {
+        Todo todo = add("Deleted");
+
+        todoService.deleteTodo(todo.getId());
+
+        assertNull(todoService.getTodoById(todo.getId()));
+        assertThrows(IllegalArgumentException.class, () -> todoService.deleteTodo(todo.getId()));
+    }
+
+    // ========== HELPERS ==========
+
+    private Todo add(String title) {
+        Todo todo = new Todo(title, null, false);
+        todoService.addTodo(todo);
+        return todo;
+    }
+
+    /**
+     * Update the description of a todo in another thread (so in another
+     * transaction, committed before this method returns)
+     */
+    private void concurrentUpdate(int id, String description) {
+        CompletableFuture.runAsync(() -> {
+            Todo other = todoService.getTodoById(id);
+            other.setDescription(description);
+            todoService.updateTodo(other);
+        }).join();
+    }
+
+    private static List<Todo> newTodos(int count) {
+        List<Todo> todos = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            todos.add(new Todo("Todo " + i, null, false));
+        }
+        return todos;
+    }
+
+    /**
+     * The service and its transaction manager, like AppConfig (without the
+     * cache and the other decorators)
+     */
+    @Configuration(proxyBeanMethods = false)
+    @EnableTransactionManagement
+    static class TestConfig {
+
+        @Bean
+        PlatformTransactionManager transactionManager(TestDatabase database) {
+            return new DataSourceTransactionManager(database.getDataSource());
+        }
+
+        @Bean
+        RecordingTodoDAO todoDAO(TestDatabase database) {
+            return new RecordingTodoDAO(new JdbcTemplate(database.getDataSource()));
+        }
+
+        @Bean
+        TodoServiceImpl todoService(RecordingTodoDAO todoDAO, PlatformTransactionManager transactionManager) {
+            return new TodoServiceImpl(todoDAO, transactionManager);
+        }
+    }
+
+    /**
+     * Records the createAll() calls and the transaction each one ran in, and
+     * can fail one of them after its INSERTs
+     */
+    static class RecordingTodoDAO extends TodoDAOImpl {
+
+        final List<Integer> chunkSizes = new ArrayList<>();
+        final List<Object> transactions = new ArrayList<>();
+        int failOnChunk;
+
+        RecordingTodoDAO(JdbcTemplate jdbcTemplate) {
+            super(jdbcTemplate);
+        }
+
+        @Override
+        public List<Integer> createAll(Collection<Todo> todos) {
+            assertTrue(TransactionSynchronizationManager.isActualTransactionActive());
+            chunkSizes.add(todos.size());
+            transactions.add(TransactionSynchronizationManager.getResourceMap().values().iterator().next());
+            List<Integer> ids = super.createAll(todos);
+            if (chunkSizes.size() == failOnChunk) {
+                throw new IllegalStateException("Chunk " + failOnChunk + " failed");
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.todo.transfer;
+
+import com.todo.model.Todo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Writing and reading back every TodoFormat, and reading files written by
+ * hand (or cut off)
+ */
+class TodoFormatTest {
+
+    private static final Instant CREATED = Instant.parse("2024-01-31T12:00:00.123Z");
+    private static final Instant UPDATED = Instant.parse("2024-02-01T08:30:15.456Z");
+
+    // ========== ROUND TRIPS ==========
+
+    @ParameterizedTest
+    @EnumSource(TodoFormat.class)
+    void roundTripKeepsEveryField(TodoFormat format) throws IOException {
+        List<Todo> todos = List.of(
+                todo(1, "Buy milk", "Two bottles", true, 3, CREATED, UPDATED),
+                todo(2, "No description, no times", null, false, 0, null, null),
+                todo(3, "Empty description", "", false, 1, CREATED, null),
+                todo(4, "Comma, \"quotes\" and\nline\r\nbreaks", "Tab\there, back\\slash, bell\u0007", false, 2,
+                        CREATED, UPDATED),
+                todo(5, "Ünïcödé ✓ 日本語 😀", "Emoji 🎉 and accents é", true, 0, CREATED, UPDATED),
+                todo(6, "Long", "x".repeat(100_000), false, 0, CREATED, UPDATED)); // Bigger than the buffers
+
+        List<Todo> read = readAll(format, write(format, todos));
+
+        assertEquals(todos.size(), read.size());
+        for (int i = 0; i < todos.size(); i++) {
+            assertSameTodo(todos.get(i), read.get(i));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(TodoFormat.class)
+    void emptyExportHasNoTodos(TodoFormat format) throws IOException {
+        assertTrue(readAll(format, write(format, List.of())).isEmpty());
+    }
+
+    // ========== CSV ==========
+
+    @Test
+    void csvQuotesOnlyWhereNeeded() throws IOException {
+        String csv = new String(write(TodoFormat.CSV, List.of(
+                todo(1, "Plain", null, false, 0, null, null),
+                todo(2, "Say \"hi\", then\nleave", "", true, 1, CREATED, null))), StandardCharsets.UTF_8);
+
+        assertEquals("id,title,description,completed,version,created_at,updated_at\n"
+                + "1,Plain,,false,0,,\n"
+                + "2,\"Say \"\"hi\"\", then\nleave\",\"\",true,1,2024-01-31T12:00:00.123Z,\n", csv);
+    }
+
+    @Test
+    void csvWrittenByASpreadsheetIsRead() throws IOException {
+        String csv = "id,title,description,completed,version,created_at,updated_at\r\n"
+                + "1,\"Multi\r\nline\",\"\"\"Quoted\"\"\",true,2,2024-01-31T12:00:00Z,\r\n"
+                + "\r\n"
+                + "2,Plain,,false,,,\r\n";
+
+        List<Todo> todos = readAll(TodoFormat.CSV, csv.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(2, todos.size());
+        assertEquals("Multi\r\nline", todos.get(0).getTitle());
+        assertEquals("\"Quoted\"", todos.get(0).getDescription());
+        assertTrue(todos.get(0).isCompleted());
+        assertEquals(Instant.parse("2024-01-31T12:00:00Z"), todos.get(0).getCreatedAt());
+        assertNull(todos.get(0).getUpdatedAt());
+        assertNull(todos.get(1).getDescription());
+        assertEquals(0, todos.get(1).getVersion());
+    }
+
+    @Test
+    void csvErrorsNameTheLine() {
+        IOException columns = assertThrows(IOException.class,
+                () -> readAll(TodoFormat.CSV, bytes("id,title\n1,\"Two\nlines\",,false,0,,\n2,Too few\n")));
+        assertEquals("Line 4: expected 7 columns, found 2", columns.getMessage());
+
+        IOException unclosed = assertThrows(EOFException.class,
+                () -> readAll(TodoFormat.CSV, bytes("1,Title,,false,0,,\n2,\"Never\nclosed,,false,0,,\n")));
+        assertEquals("Line 2: quoted field is not closed", unclosed.getMessage());
+        IOException number = assertThrows(IOException.class,
+                () -> readAll(TodoFormat.CSV, bytes("1,\"Two\nlines\",,false,0,,\nx,Title,,false,0,,\n")));
+        assertTrue(number.getMessage().startsWith("Line 3: "), number.getMessage());
+        assertThrows(IOException.class, () -> readAll(TodoFormat.CSV, bytes("1,Title,,false,0,yesterday,\n")));
+    }
+
+    // ========== NDJSON ==========
+
+    @Test
+    void ndjsonEscapesControlCharactersAndKeepsUnicode() throws IOException {
+        String json = new String(write(TodoFormat.NDJSON, List.of(
+                todo(1, "\"Quote\" \\ é 😀", "Line\nbreak\u0001", false, 0, CREATED, null))),
+                StandardCharsets.UTF_8);
+
+        assertEquals("{\"id\":1,\"title\":\"\\\"Quote\\\" \\\\ é 😀\",\"description\":\"Line\\nbreak\\u0001\","
+                + "\"completed\":false,\"version\":0,\"createdAt\":\"2024-01-31T12:00:00.123Z\","
+                + "\"updatedAt\":null}\n", json);
+    }
+
+    @Test
+    void ndjsonWrittenByAnotherToolIsRead() throws IOException {
+        String json = " { \"title\" : \"Caf\\u00e9 \\ud83d\\ude00 a\\/b\", \"id\": 7, \"tags\": \"ignored\","
+                + " \"completed\": true }\n"
+                + "\n"
+                + "{}\n";
+
+        List<Todo> todos = readAll(TodoFormat.NDJSON, json.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(2, todos.size());
+        assertEquals(7, todos.get(0).getId());
+        assertEquals("Café 😀 a/b", todos.get(0).getTitle());
+        assertTrue(todos.get(0).isCompleted());
+        assertNull(todos.get(0).getDescription());
+        assertNull(todos.get(1).getTitle());
+    }
+
+    @Test
+    void ndjsonErrorsNameTheLine() {
+        IOException nested = assertThrows(IOException.class,
+                () -> readAll(TodoFormat.NDJSON, bytes("{\"id\":1}\n{\"title\":[\"a\"]}\n")));
+        assertTrue(nested.getMessage().startsWith("Line 2: nested values"), nested.getMessage());
+
+        assertThrows(IOException.class, () -> readAll(TodoFormat.NDJSON, bytes("{\"title\":\"Cut off")));
+        assertThrows(IOException.class, () -> readAll(TodoFormat.NDJSON, bytes("{\"title\":\"\\x\"}")));
+        assertThrows(IOException.class, () -> readAll(TodoFormat.NDJSON, bytes("{\"title\":\"\\u00\"}")));
+        assertThrows(IOException.class, () -> readAll(TodoFormat.NDJSON, bytes("{\"id\":\"one\"}")));
+    }
+
+    // ========== BINARY ==========
+
+    @Test
+    void truncatedBinaryFileIsRejected() throws IOException {
+        byte[] file = write(TodoFormat.BINARY, List.of(
+                todo(1, "First", "Description", false, 0, CREATED, UPDATED),
+                todo(2, "Second", null, true, 1, null, null)));
+
+        // Cut off anywhere but at a record boundary: an error, never a wrong todo
+        int firstRecordEnd = 5 + 4 + (4 + 4 + 8 + 8 + 1 + 4 + 5 + 4 + 11);
+        for (int length = 0; length < file.length; length++) {
+            byte[] truncated = Arrays.copyOf(file, length);
+            if (length == 5) {
+                assertTrue(readAll(TodoFormat.BINARY, truncated).isEmpty());
+            } else if (length == firstRecordEnd) {
+                assertEquals(1, readAll(TodoFormat.BINARY, truncated).size());
+            } else {
+                assertThrows(IOException.class, () -> readAll(TodoFormat.BINARY, truncated), "length " + length);
+            }
+        }
+    }
+
+    @Test
+    void corruptBinaryFileIsRejected() throws IOException {
+        byte[] file = write(TodoFormat.BINARY, List.of(todo(1, "Title", null, false, 0, null, null)));
+
+        byte[] wrongMagic = file.clone();
+        wrongMagic[0] = 'X';
+        assertEquals("Not a todo export file (wrong header)",
+                assertThrows(IOException.class, () -> readAll(TodoFormat.BINARY, wrongMagic)).getMessage());
+
+        byte[] newerVersion = file.clone();
+        newerVersion[4] = 2;
+        assertThrows(IOException.class, () -> readAll(TodoFormat.BINARY, newerVersion));
+
+        byte[] hugeRecord = file.clone();
+        hugeRecord[5] = 0x7F; // Record length > 2 GB
+        assertThrows(IOException.class, () -> readAll(TodoFormat.BINARY, hugeRecord));
+
+        byte[] hugeTitle = file.clone();
+        hugeTitle[5 + 4 + 4 + 4 + 8 + 8 + 1] = 0x10; // Title longer than the record
+        assertThrows(IOException.class, () -> readAll(TodoFormat.BINARY, hugeTitle));
+    }
+
+    @Test
+    void binaryReaderSkipsFieldsOfLaterVersions() throws IOException {
+        byte[] file = write(TodoFormat.BINARY, List.of(todo(1, "Title", null, false, 0, null, null)));
+        int payload = file.length - 5 - 4;
+
+        // The same record with 3 more bytes at the end of its payload
+        byte[] longer = Arrays.copyOf(file, file.length + 3);
+        longer[8] = (byte) (payload + 3);
+
+        List<Todo> todos = readAll(TodoFormat.BINARY, longer);
+        assertEquals(1, todos.size());
+        assertEquals("Title", todos.get(0).getTitle());
+    }
+
+    // ========== HELPERS ==========
+
+    private static byte[] write(TodoFormat format, List<Todo> todos) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (TodoWriter writer = format.openWriter(Channels.newChannel(out))) {
+            for (Todo todo : todos) {
+                writer.write(todo);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static List<Todo> readAll(TodoFormat format, byte[] file) throws IOException {
+        List<Todo> todos = new ArrayList<>();
+        try (TodoReader reader = format.openReader(Channels.newChannel(new ByteArrayInputStream(file)))) {
+            Todo todo;
+            while ((todo = reader.read()) != null) {
+                todos.add(todo);
+            }
+        }
+        return todos;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Todo todo(int id, String title, String description, boolean completed, int version,
+            Instant createdAt, Instant updatedAt) {
+        Todo todo = new Todo(id, title, description, completed);
+        todo.setVersion(version);
+        todo.setCreatedAt(createdAt);
+        todo.setUpdatedAt(updatedAt);
+        return todo;
+    }
+
+    static void assertSameTodo(Todo expected, Todo actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.isCompleted(), actual.isCompleted());
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getUpdatedAt(), actual.getUpdatedAt());
+    }
+}
@@ -0,0 +1,122 @@
+package com.todo.transfer;
+
+import com.todo.dao.TestDatabase;
+import com.todo.dao.TodoDAOImpl;
+import com.todo.model.Todo;
+import com.todo.service.TodoService;
+import com.todo.service.TodoServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Export of all todos and import of the file as new todos, on H2 in MySQL mode
+ */
+class TodoTransferTest {
+
+    @TempDir
+    Path directory;
+
+    private TestDatabase database;
+    private TodoService todoService;
+    private TodoTransfer transfer;
+
+    @BeforeEach
+    void setUp() {
+        database = new TestDatabase();
+        todoService = new TodoServiceImpl(new TodoDAOImpl(new JdbcTemplate(database.getDataSource())),
+                new DataSourceTransactionManager(database.getDataSource()));
+        transfer = new TodoTransfer(todoService);
+        transfer.setImportThreads(2);
+        transfer.setImportBatchSize(3); // Several batches, the last one not full
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        database.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "todos.todos", "todos.csv", "todos.ndjson", "todos.todos.gz", "todos.csv.gz",
+            "todos.ndjson.gz" })
+    void exportedTodosAreImportedAsNewTodos(String fileName) throws IOException {
+        List<Todo> originals = new ArrayList<>();
+        for (int i = 1; i <= 8; i++) {
+            Todo todo = new Todo("Todo " + i + (i % 2 == 0 ? ", \"quoted\"\nand ✓" : ""),
+                    i % 3 == 0 ? null : "Description " + i, i % 2 == 0);
+            todoService.addTodo(todo);
+            originals.add(todo);
+        }
+        Path file = directory.resolve(fileName);
+
+        assertEquals(8, transfer.exportTodos(file));
+        assertEquals(8, transfer.importTodos(file));
+
+        List<Todo> all = todoService.getAllTodos();
+        assertEquals(16, all.size());
+        List<Todo> imported = all.subList(8, 16);
+        imported.sort((a, b) -> a.getTitle().compareTo(b.getTitle())); // Batches are added in parallel
+        originals.sort((a, b) -> a.getTitle().compareTo(b.getTitle()));
+        for (int i = 0; i < originals.size(); i++) {
+            Todo original = originals.get(i);
+            Todo copy = imported.get(i);
+            assertEquals(original.getTitle(), copy.getTitle());
+            assertEquals(original.getDescription(), copy.getDescription());
+            assertEquals(original.isCompleted(), copy.isCompleted());
+        }
+    }
+
+    @Test
+    void emptyDatabaseExportsAnEmptyFile() throws IOException {
+        Path file = directory.resolve("empty.ndjson");
+
+        assertEquals(0, transfer.exportTodos(file));
+        assertEquals(0, Files.size(file));
+        assertEquals(0, transfer.importTodos(file));
+    }
+
+    @Test
+    void importStopsAtTheFirstInvalidTodo() throws IOException {
+        Path file = directory.resolve("invalid.csv");
+        Files.writeString(file, "id,title,description,completed,version,created_at,updated_at\n"
+                + "1,Valid,,false,0,,\n"
+                + "2,,,false,0,,\n", StandardCharsets.UTF_8);
+
+        assertThrows(IllegalArgumentException.class, () -> transfer.importTodos(file));
+        assertEquals(0, todoService.countAllTodos()); // One batch, rolled back as a whole
+    }
+
+    @Test
+    void truncatedFileIsRejected() throws IOException {
+        Path file = directory.resolve("todos.todos");
+        todoService.addTodo(new Todo("Only", null, false));
+        transfer.exportTodos(file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+
+        assertThrows(IOException.class, () -> transfer.importTodos(file));
+        assertNull(todoService.getTodoById(2));
+    }
+
+    @Test
+    void unknownExtensionIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> transfer.exportTodos(directory.resolve("todos.txt")));
+    }
+}